@@ -0,0 +1,188 @@
+package com.tu.votingapp;
+
+import com.tu.votingapp.analytics.voting.AnalyticsOwnership;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends /api/analysis requests for an election to the analytics node that owns it (see
+ * {@link AnalyticsOwnership}) and relays the answer, so the load balancer can route to any node.
+ * Runs after Spring Security, and the caller's Authorization header is passed on for the owner to
+ * check again. A forwarded request is always answered where it lands, so a stale ownership view
+ * costs at most one extra hop, never a loop. While an election has no owner, e.g. during a
+ * rebalance, the answer is 503 with Retry-After.
+ * <p>
+ * The forwarding node names itself in X-Analytics-Forwarded-By together with an HMAC-SHA256 of its
+ * URL and the forwarded request line, keyed with app.analytics.forward.signing-key, which all nodes
+ * share. A request carrying the header without a valid signature is refused with 403, so clients
+ * cannot make a node answer for an election it does not own.
+ */
+@Component
+public class AnalyticsForwardingFilter extends OncePerRequestFilter {
+    static final String FORWARDED_HEADER = "X-Analytics-Forwarded-By";
+    private static final Pattern ELECTION_PATH = Pattern.compile("^/api/analysis/elections/(\\d+)(/.*)?$");
+    private static final List<String> REQUEST_HEADERS =
+            List.of(HttpHeaders.AUTHORIZATION, HttpHeaders.ACCEPT, HttpHeaders.IF_NONE_MATCH);
+    private static final List<String> RESPONSE_HEADERS =
+            List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.ETAG, HttpHeaders.CACHE_CONTROL, HttpHeaders.RETRY_AFTER);
+
+    private final AnalyticsOwnership ownership;
+    private final HttpClient httpClient;
+    private final Duration timeout;
+    private final byte[] signingKey;
+    private final Logger logger = Logger.getLogger(AnalyticsForwardingFilter.class.getName());
+
+    public AnalyticsForwardingFilter(AnalyticsOwnership ownership,
+                                     @Value("${app.analytics.forward.timeout-ms:2000}") long timeoutMs,
+                                     @Value("${app.analytics.forward.signing-key:}") String signingKey) {
+        if (ownership.isPartitioned() && signingKey.isBlank()) {
+            throw new IllegalStateException("app.analytics.forward.signing-key must be set to the same value on all "
+                    + "analytics nodes when app.votes.transport=kafka");
+        }
+        this.ownership = ownership;
+        this.signingKey = signingKey.getBytes(StandardCharsets.UTF_8);
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !ownership.isPartitioned()
+                || !ELECTION_PATH.matcher(request.getRequestURI()).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Matcher matcher = ELECTION_PATH.matcher(request.getRequestURI());
+        if (!matcher.matches()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String forwardedBy = request.getHeader(FORWARDED_HEADER);
+        if (forwardedBy != null) {
+            if (!isSigned(forwardedBy, request)) {
+                logger.warning(() -> "Refused " + request.getRequestURI() + " with an unsigned " + FORWARDED_HEADER
+                        + " header from " + request.getRemoteAddr());
+                response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+                return;
+            }
+            chain.doFilter(request, response);
+            return;
+        }
+        long electionId = Long.parseLong(matcher.group(1));
+        if (ownership.isOwned(electionId)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String owner;
+        try {
+            owner = ownership.ownerOf(electionId);
+        } catch (RuntimeException e) {
+            logger.warning(() -> "Could not look up the owner of election " + electionId + ": " + e.getMessage());
+            owner = null;
+        }
+        if (owner == null || owner.equals(ownership.getNodeUrl())) {
+            // No owner yet, or the registration still names this node after it lost the partition
+            unavailable(response);
+            return;
+        }
+        forward(owner, electionId, request, response);
+    }
+
+    private void forward(String owner, long electionId, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String query = request.getQueryString();
+        HttpRequest.Builder forwarded = HttpRequest.newBuilder(
+                        URI.create(owner + request.getRequestURI() + (query != null ? "?" + query : "")))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, forwardedBy(request))
+                .method(request.getMethod(), HttpRequest.BodyPublishers.noBody());
+        for (String name : REQUEST_HEADERS) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                forwarded.header(name, value);
+            }
+        }
+        HttpResponse<byte[]> answer;
+        try {
+            answer = httpClient.send(forwarded.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            ownership.invalidate(electionId);
+            logger.warning(() -> "Forwarding analysis of election " + electionId + " to " + owner + " failed: " + e.getMessage());
+            unavailable(response);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unavailable(response);
+            return;
+        }
+        logger.fine(() -> String.format("Forwarded %s to %s: %d", request.getRequestURI(), owner, answer.statusCode()));
+        response.setStatus(answer.statusCode());
+        for (String name : RESPONSE_HEADERS) {
+            answer.headers().firstValue(name).ifPresent(value -> response.setHeader(name, value));
+        }
+        response.setContentLength(answer.body().length);
+        response.getOutputStream().write(answer.body());
+    }
+
+    /**
+     * Value of the forwarding header for a request this node passes on: its URL and the signature.
+     */
+    String forwardedBy(HttpServletRequest request) {
+        String nodeUrl = ownership.getNodeUrl();
+        return nodeUrl + ";" + sign(nodeUrl, request);
+    }
+
+    private boolean isSigned(String forwardedBy, HttpServletRequest request) {
+        int separator = forwardedBy.lastIndexOf(';');
+        if (separator < 0) {
+            return false;
+        }
+        byte[] expected = sign(forwardedBy.substring(0, separator), request).getBytes(StandardCharsets.UTF_8);
+        byte[] actual = forwardedBy.substring(separator + 1).getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    private String sign(String nodeUrl, HttpServletRequest request) {
+        String query = request.getQueryString();
+        String payload = nodeUrl + "\n" + request.getMethod() + " " + request.getRequestURI()
+                + (query != null ? "?" + query : "");
+        try {
+            Mac hmac = Mac.getInstance("HmacSHA256");
+            hmac.init(new SecretKeySpec(signingKey, "HmacSHA256"));
+            byte[] signature = hmac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign forwarded analysis request", e);
+        }
+    }
+
+    private static void unavailable(HttpServletResponse response) {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+    }
+}
@@ -4,8 +4,10 @@ import com.tu.votingapp.repositories.impl.BaseRepositoryImpl;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 @EnableJpaRepositories(
         basePackages = "com.tu.votingapp.repositories",
         repositoryBaseClass = BaseRepositoryImpl.class
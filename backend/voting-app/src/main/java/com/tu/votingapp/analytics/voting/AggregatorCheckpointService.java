@@ -0,0 +1,397 @@
+package com.tu.votingapp.analytics.voting;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Periodic binary checkpoints of the {@link FeatureAggregator} (slot layouts, counters and bucketed
+ * history). With the Kafka transport there is one checkpoint per owned partition of the votes
+ * topic, holding the partition's elections and tagged with the next offset it covers. The node
+ * assigned a partition, after a restart or a rebalance, loads it and resumes consuming at that
+ * offset, so only the events since the checkpoint are replayed. A revoked partition is
+ * checkpointed once more and evicted, which is how state moves between nodes; the checkpoint
+ * directory therefore has to be shared by all analytics nodes. The default directory is relative
+ * to each node, which only suits a single analytics node; a warning is logged when the Kafka
+ * transport runs with a relative app.analytics.checkpoint.dir.
+ * With the local transport there is one checkpoint per consumer shard of the ring, holding the
+ * shard's elections and tagged with the next outbox id it covers. They are restored at startup,
+ * and the outbox keeps every event until the checkpoints cover it (see {@link #getCheckpointedLocalOffset}).
+ * <p>
+ * Event consumers apply each batch under the shared side of a read-write lock and report the
+ * offsets they consumed. A checkpoint briefly takes the exclusive side to copy state and offsets,
+ * so the two always match. Files are then written outside the lock, to a temporary file that is
+ * atomically renamed into place.
+ * <p>
+ * File layout: magic, format version, creation time, topic, partition and next offset, the
+ * aggregator snapshot, then a CRC32 of everything before it.
+ */
+@Component
+public class AggregatorCheckpointService {
+    private static final int MAGIC = 0x56414743; // "VAGC"
+    private static final int FORMAT_VERSION = 4;
+    /**
+     * Default directory, relative to the working directory of the node.
+     */
+    private static final String DEFAULT_DIRECTORY = "data/aggregator-checkpoints";
+    private static final String PREFIX = "aggregator-";
+    private static final String SUFFIX = ".ckpt";
+    /**
+     * Topic name of the checkpoint units of the local transport, one partition per consumer shard.
+     */
+    public static final String LOCAL_TOPIC = "local";
+
+    private final FeatureAggregator aggregator;
+    private final AnalyticsOwnership ownership;
+    private final Path directory;
+    private final int keepCheckpoints;
+    private final int localShards;
+    private final Logger logger = Logger.getLogger(AggregatorCheckpointService.class.getName());
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * Next offset to consume per owned partition, i.e. one past the last event applied to the aggregator.
+     */
+    private final Map<TopicPartition, Long> offsets = new ConcurrentHashMap<>();
+    /**
+     * Lowest next outbox id over the local shards in the last checkpoint written.
+     */
+    private volatile long checkpointedLocalOffset;
+
+    public AggregatorCheckpointService(FeatureAggregator aggregator,
+                                       AnalyticsOwnership ownership,
+                                       @Value("${app.analytics.checkpoint.dir:data/aggregator-checkpoints}") String directory,
+                                       @Value("${app.analytics.checkpoint.keep:2}") int keepCheckpoints,
+                                       @Value("${app.votes.transport.local.consumers:2}") int localShards) {
+        this.aggregator = aggregator;
+        this.ownership = ownership;
+        this.directory = Paths.get(directory.isBlank() ? DEFAULT_DIRECTORY : directory);
+        if (ownership.isPartitioned() && !this.directory.isAbsolute()) {
+            // Partitions moved to a node that cannot read the previous owner's checkpoints are replayed from the start
+            logger.warning(() -> "app.analytics.checkpoint.dir " + this.directory.toAbsolutePath()
+                    + " must be shared by all analytics nodes when app.votes.transport=kafka, or partitions "
+                    + "moved between nodes are rebuilt from the beginning of the topic");
+        }
+        this.keepCheckpoints = Math.max(1, keepCheckpoints);
+        this.localShards = Math.max(1, localShards);
+    }
+
+    /**
+     * Load the local checkpoints. Partition checkpoints are loaded by {@link #takeOver} once Kafka
+     * has assigned the partitions.
+     */
+    @PostConstruct
+    public void restore() {
+        if (ownership.isPartitioned()) {
+            return;
+        }
+        long lowest = Long.MAX_VALUE;
+        for (int shard = 0; shard < localShards; shard++) {
+            TopicPartition unit = new TopicPartition(LOCAL_TOPIC, shard);
+            Long offset = load(unit);
+            if (offset != null && offset > 0) {
+                offsets.put(unit, offset);
+            }
+            lowest = Math.min(lowest, localOffset(shard));
+        }
+        checkpointedLocalOffset = lowest;
+    }
+
+    /**
+     * Held by event consumers while they apply a batch and report its offsets.
+     */
+    public Lock batchLock() {
+        return lock.readLock();
+    }
+
+    /**
+     * Record that every event of the partition before nextOffset has been applied.
+     */
+    public void consumed(String topic, int partition, long nextOffset) {
+        offsets.merge(new TopicPartition(topic, partition), nextOffset, Math::max);
+    }
+
+    /**
+     * Next outbox id the local consumer shard has to apply, i.e. one past the last event of its elections it applied.
+     */
+    public long localOffset(int shard) {
+        return offsets.getOrDefault(new TopicPartition(LOCAL_TOPIC, shard), 0L);
+    }
+
+    /**
+     * Outbox id below which every event is held by a written local checkpoint, so it survives a
+     * restart and may be deleted from the outbox. Events from this id on must stay there, to be
+     * replayed into the restored state.
+     */
+    public long getCheckpointedLocalOffset() {
+        return checkpointedLocalOffset;
+    }
+
+    /**
+     * Load the newest checkpoint of a partition assigned to this node, replacing whatever state
+     * of its elections is left from an earlier assignment.
+     *
+     * @return offset at which consumption has to resume for the aggregator to see every event of
+     * the partition exactly once, or null if there is no checkpoint and it must be replayed from the start
+     */
+    public Long takeOver(TopicPartition partition) {
+        Lock exclusive = lock.writeLock();
+        exclusive.lock();
+        try {
+            aggregator.evict(electionsOf(partition));
+            offsets.remove(partition);
+            Long offset = load(partition);
+            if (offset != null) {
+                offsets.put(partition, offset);
+            }
+            return offset;
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    /**
+     * Checkpoint revoked partitions for their next owner and drop their elections.
+     */
+    public void handOver(Collection<TopicPartition> partitions) {
+        List<Snapshot> snapshots = new ArrayList<>();
+        Lock exclusive = lock.writeLock();
+        exclusive.lock();
+        try {
+            for (TopicPartition partition : partitions) {
+                Long offset = offsets.remove(partition);
+                if (offset != null) {
+                    snapshots.add(new Snapshot(partition, serialize(partition, offset)));
+                }
+                int evicted = aggregator.evict(electionsOf(partition));
+                logger.fine(() -> "Handed over " + evicted + " elections of " + partition);
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not serialize handover checkpoint, the next owner replays from an older one", e);
+        } finally {
+            exclusive.unlock();
+        }
+        writeAll(snapshots);
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.checkpoint.interval-ms:30000}",
+            initialDelayString = "${app.analytics.checkpoint.interval-ms:30000}")
+    public void checkpoint() {
+        List<Snapshot> snapshots = new ArrayList<>();
+        long lowestLocal = Long.MAX_VALUE;
+        Lock exclusive = lock.writeLock();
+        exclusive.lock();
+        try {
+            if (ownership.isPartitioned()) {
+                for (Map.Entry<TopicPartition, Long> entry : offsets.entrySet()) {
+                    snapshots.add(new Snapshot(entry.getKey(), serialize(entry.getKey(), entry.getValue())));
+                }
+            } else {
+                for (int shard = 0; shard < localShards; shard++) {
+                    TopicPartition unit = new TopicPartition(LOCAL_TOPIC, shard);
+                    long offset = localOffset(shard);
+                    lowestLocal = Math.min(lowestLocal, offset);
+                    snapshots.add(new Snapshot(unit, serialize(unit, offset)));
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not serialize aggregator checkpoint", e);
+            return;
+        } finally {
+            exclusive.unlock();
+        }
+        if (writeAll(snapshots) && !ownership.isPartitioned()) {
+            checkpointedLocalOffset = lowestLocal;
+        }
+    }
+
+    /**
+     * Runs after the vote event consumers have stopped, so the last applied events are kept.
+     */
+    @PreDestroy
+    public void checkpointOnShutdown() {
+        checkpoint();
+    }
+
+    private LongPredicate electionsOf(TopicPartition partition) {
+        if (partition.topic().equals(LOCAL_TOPIC)) {
+            return electionId -> Math.floorMod(electionId, localShards) == partition.partition();
+        }
+        return electionId -> ownership.partitionOf(electionId) == partition.partition();
+    }
+
+    private byte[] serialize(TopicPartition partition, long offset) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(System.currentTimeMillis());
+        out.writeUTF(partition.topic());
+        out.writeInt(partition.partition());
+        out.writeLong(offset);
+        aggregator.writeTo(out, electionsOf(partition));
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return whether every snapshot was written
+     */
+    private boolean writeAll(List<Snapshot> snapshots) {
+        boolean written = true;
+        for (Snapshot snapshot : snapshots) {
+            long start = System.nanoTime();
+            try {
+                Path file = write(snapshot);
+                long elapsed = (System.nanoTime() - start) / 1_000_000;
+                logger.fine(() -> String.format("Wrote aggregator checkpoint %s: %d bytes, %d ms",
+                        file, snapshot.bytes.length, elapsed));
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Could not write aggregator checkpoint of " + snapshot.partition, e);
+                written = false;
+            }
+        }
+        return written;
+    }
+
+    private Path write(Snapshot snapshot) throws IOException {
+        Path unit = unitDirectory(snapshot.partition);
+        Files.createDirectories(unit);
+        Path tmp = Files.createTempFile(unit, PREFIX, ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(snapshot.bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Path file = unit.resolve(PREFIX + System.currentTimeMillis() + SUFFIX);
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            List<Path> checkpoints = listCheckpoints(unit);
+            for (Path old : checkpoints.subList(0, Math.max(0, checkpoints.size() - keepCheckpoints))) {
+                Files.deleteIfExists(old);
+            }
+            return file;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Load the newest readable checkpoint of the unit, falling back to older ones if it is damaged.
+     *
+     * @return the checkpoint's offset, or null if none could be loaded
+     */
+    private Long load(TopicPartition partition) {
+        long start = System.nanoTime();
+        Path unit = unitDirectory(partition);
+        List<Path> checkpoints;
+        try {
+            checkpoints = Files.isDirectory(unit) ? listCheckpoints(unit) : List.of();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not list aggregator checkpoints in " + unit, e);
+            return null;
+        }
+        for (int i = checkpoints.size() - 1; i >= 0; i--) {
+            Path file = checkpoints.get(i);
+            try {
+                long offset = read(file, partition);
+                logger.info(() -> String.format("Restored aggregator checkpoint %s at offset %d in %d ms",
+                        file, offset, (System.nanoTime() - start) / 1_000_000));
+                return offset;
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.WARNING, "Skipping unreadable aggregator checkpoint " + file, e);
+            }
+        }
+        logger.info(() -> "No aggregator checkpoint for " + partition + ", its events will be replayed from the beginning");
+        return null;
+    }
+
+    private long read(Path file, TopicPartition partition) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < Long.BYTES) {
+            throw new IOException("Truncated checkpoint");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - Long.BYTES);
+        if (crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - Long.BYTES, Long.BYTES).getLong()) {
+            throw new IOException("Checksum mismatch");
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - Long.BYTES));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an aggregator checkpoint");
+        }
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported checkpoint format " + version);
+        }
+        in.readLong(); // creation time
+        TopicPartition stored = new TopicPartition(in.readUTF(), in.readInt());
+        if (!stored.equals(partition)) {
+            throw new IOException("Checkpoint of " + stored + " found for " + partition);
+        }
+        long offset = in.readLong();
+        aggregator.restore(in);
+        return offset;
+    }
+
+    private Path unitDirectory(TopicPartition partition) {
+        return directory.resolve(partition.toString());
+    }
+
+    /**
+     * Checkpoint files of a unit, oldest first.
+     */
+    private static List<Path> listCheckpoints(Path unit) throws IOException {
+        try (Stream<Path> files = Files.list(unit)) {
+            return files.filter(f -> f.getFileName().toString().startsWith(PREFIX)
+                            && f.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing(f -> f.getFileName().toString()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static class Snapshot {
+        private final TopicPartition partition;
+        private final byte[] bytes;
+
+        Snapshot(TopicPartition partition, byte[] bytes) {
+            this.partition = partition;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.tu.votingapp.analytics.voting;
+
+import com.tu.votingapp.entities.elections.ElectionEntity;
+import com.tu.votingapp.enums.ElectionType;
+import com.tu.votingapp.repositories.interfaces.elections.ElectionRepository;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.util.ModelSerializer;
+import org.nd4j.linalg.dataset.api.preprocessor.MultiNormalizerHybrid;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Current model version per election type. Versions are swapped by replacing a map entry, so a
+ * forward pass that already holds a version finishes on it while the next one picks up the new
+ * version; inference is never paused. Trained versions are checkpointed as
+ * {@code <checkpoint-dir>/<ELECTION_TYPE>/model-<version>.zip}, and the newest checkpoint of a
+ * type is loaded the first time the type is asked for. Types without a checkpoint use the untrained
+ * default model.
+ */
+@Component
+public class AnalyticsModelRegistry {
+    private static final String CHECKPOINT_PREFIX = "model-";
+    private static final String CHECKPOINT_SUFFIX = ".zip";
+
+    private final ObjectFactory<ComputationGraph> defaultModel;
+    private final ElectionRepository electionRepository;
+    private final Path checkpointDir;
+    private final int keepCheckpoints;
+    private final Logger logger = Logger.getLogger(AnalyticsModelRegistry.class.getName());
+
+    private final Map<ElectionType, ModelVersion> versions = new ConcurrentHashMap<>();
+    private final Map<Long, ElectionType> electionTypes = new ConcurrentHashMap<>();
+    private volatile ModelVersion defaultVersion;
+
+    public AnalyticsModelRegistry(ObjectFactory<ComputationGraph> analyticsModel,
+                                  ElectionRepository electionRepository,
+                                  @Value("${app.analytics.training.checkpoint-dir:data/analytics-models}") String checkpointDir,
+                                  @Value("${app.analytics.training.keep-checkpoints:3}") int keepCheckpoints) {
+        this.defaultModel = analyticsModel;
+        this.electionRepository = electionRepository;
+        this.checkpointDir = Paths.get(checkpointDir);
+        this.keepCheckpoints = keepCheckpoints;
+    }
+
+    /**
+     * Model version for the election's type. Only found types are cached, so an id looked up before
+     * its election was created gets the type's model once the election exists.
+     */
+    public ModelVersion forElection(Long electionId) {
+        ElectionType type = electionTypes.computeIfAbsent(electionId,
+                id -> electionRepository.findById(id).map(ElectionEntity::getElectionType).orElse(null));
+        return forType(type);
+    }
+
+    /**
+     * Model version for the election type; null means the default model.
+     */
+    public ModelVersion forType(ElectionType type) {
+        if (type == null) {
+            return getDefault();
+        }
+        ModelVersion version = versions.get(type);
+        if (version == null) {
+            version = versions.computeIfAbsent(type, this::loadNewestCheckpoint);
+        }
+        return version;
+    }
+
+    /**
+     * Whether the version is still the one served for its type, i.e. was not replaced since.
+     */
+    public boolean isCurrent(ModelVersion version) {
+        return version.getElectionType() == null
+                ? version == defaultVersion
+                : version == versions.get(version.getElectionType());
+    }
+
+    /**
+     * Serve the trained version for its type from now on, unless a newer version is installed already.
+     */
+    public void install(ModelVersion version) {
+        ModelVersion current = versions.merge(version.getElectionType(), version,
+                (existing, candidate) -> candidate.getVersion() > existing.getVersion() ? candidate : existing);
+        if (current == version) {
+            logger.info(() -> "Installed analytics model " + version);
+        }
+    }
+
+    /**
+     * Write the version to its checkpoint file via a temporary file and an atomic rename, so a
+     * reader never sees a partial checkpoint, then delete all but the newest keep-checkpoints files.
+     */
+    public void saveCheckpoint(ModelVersion version) {
+        Path dir = checkpointDir.resolve(version.getElectionType().name());
+        try {
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, CHECKPOINT_PREFIX, ".tmp");
+            try {
+                ModelSerializer.writeModel(version.getModel(), tmp.toFile(), false);
+                if (version.getNormalizer() != null) {
+                    ModelSerializer.addNormalizerToModel(tmp.toFile(), version.getNormalizer());
+                }
+                Files.move(tmp, dir.resolve(CHECKPOINT_PREFIX + version.getVersion() + CHECKPOINT_SUFFIX),
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            List<Path> checkpoints = listCheckpoints(dir);
+            for (Path old : checkpoints.subList(0, Math.max(0, checkpoints.size() - keepCheckpoints))) {
+                Files.deleteIfExists(old);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write checkpoint for analytics model " + version, e);
+        }
+        logger.info(() -> "Checkpointed analytics model " + version + " to " + dir);
+    }
+
+    private ModelVersion getDefault() {
+        ModelVersion version = defaultVersion;
+        if (version == null) {
+            synchronized (this) {
+                if (defaultVersion == null) {
+                    defaultVersion = new ModelVersion(null, 0L, defaultModel.getObject(), null);
+                }
+                version = defaultVersion;
+            }
+        }
+        return version;
+    }
+
+    private ModelVersion loadNewestCheckpoint(ElectionType type) {
+        Path dir = checkpointDir.resolve(type.name());
+        try {
+            List<Path> checkpoints = Files.isDirectory(dir) ? listCheckpoints(dir) : List.of();
+            // Newest first; fall back to an older checkpoint if the newest cannot be read
+            for (int i = checkpoints.size() - 1; i >= 0; i--) {
+                Path file = checkpoints.get(i);
+                try {
+                    ComputationGraph model = ModelSerializer.restoreComputationGraph(file.toFile(), false);
+                    MultiNormalizerHybrid normalizer = ModelSerializer.restoreNormalizerFromFile(file.toFile());
+                    ModelVersion version = new ModelVersion(type, versionOf(file), model, normalizer);
+                    logger.info(() -> "Loaded analytics model " + version + " from " + file);
+                    return version;
+                } catch (IOException | RuntimeException e) {
+                    logger.log(Level.WARNING, "Skipping unreadable checkpoint " + file, e);
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not list checkpoints in " + dir, e);
+        }
+        logger.fine(() -> "No checkpoint for " + type + ", using the default model");
+        return getDefault();
+    }
+
+    /**
+     * Checkpoint files of one type, oldest first.
+     */
+    private static List<Path> listCheckpoints(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> {
+                        String name = f.getFileName().toString();
+                        return name.startsWith(CHECKPOINT_PREFIX) && name.endsWith(CHECKPOINT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(AnalyticsModelRegistry::versionOf))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long versionOf(Path checkpoint) {
+        String name = checkpoint.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(CHECKPOINT_PREFIX.length(), name.length() - CHECKPOINT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
@@ -1,36 +1,62 @@
 package com.tu.votingapp.analytics.voting;
 
-import org.deeplearning4j.nn.graph.ComputationGraph;
-import org.nd4j.linalg.api.ndarray.INDArray;
+import com.tu.votingapp.dto.general.analytics.TurnoutSeriesDTO;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 @Service
 public class AnalyticsModelService {
-    private final ComputationGraph model;
+    private final ModelInferenceExecutor inference;
     private final FeatureAggregator aggregator;
+    private final StreamingAnomalyDetector anomalyDetector;
+    private final TrendEngine trendEngine;
     private final Logger logger = Logger.getLogger(this.getClass().getName());
 
-    public AnalyticsModelService(ComputationGraph analyticsModel,
-                                 FeatureAggregator aggregator) {
-        this.model = analyticsModel;
+    public AnalyticsModelService(ModelInferenceExecutor inference,
+                                 FeatureAggregator aggregator,
+                                 StreamingAnomalyDetector anomalyDetector,
+                                 TrendEngine trendEngine) {
+        this.inference = inference;
         this.aggregator = aggregator;
+        this.anomalyDetector = anomalyDetector;
+        this.trendEngine = trendEngine;
         logger.info("AnalyticsModelService initialized");
     }
 
+    /**
+     * Version of the election's analytics inputs; results computed at the same epoch are identical.
+     */
+    public long getEpoch(Long electionId) {
+        return aggregator.getEpoch(electionId);
+    }
+
+    /**
+     * Version of the model answering {@link #forecastWinners} and {@link #predictTurnout} for the
+     * election; a newly installed model changes their results without a new vote.
+     */
+    public long getModelVersion(Long electionId) {
+        return inference.modelVersion(electionId);
+    }
+
+    /**
+     * Version of the election's anomaly list: the epoch plus the number of anomalies raised. The
+     * sweep raises drops without a new vote, so the epoch alone would keep serving the older list.
+     * Both parts only grow, so the sum grows whenever either does.
+     */
+    public long getAnomalyVersion(Long electionId) {
+        return aggregator.getEpoch(electionId) + anomalyDetector.getRaisedCount(electionId);
+    }
+
     /**
      * Predict winner probabilities for each candidate (softmax output).
      */
     public double[] forecastWinners(Long electionId) {
         logger.info(() -> "forecastWinners called for electionId=" + electionId);
-        INDArray features = aggregator.getFeatures(electionId);
-        INDArray[] outputs = model.output(features);
-        double[] probs = outputs[0].toDoubleVector();
+        double[] probs = inference.predict(electionId).getWinnerProbabilities().clone();
         logger.info(() -> String.format("forecastWinners result for electionId=%d: %d probabilities", electionId, probs.length));
         return probs;
     }
@@ -40,70 +66,81 @@ public class AnalyticsModelService {
      */
     public double predictTurnout(Long electionId) {
         logger.info(() -> "predictTurnout called for electionId=" + electionId);
-        INDArray[] outputs = model.output(aggregator.getFeatures(electionId));
-        double turnout = outputs[1].getDouble(0);
+        double turnout = inference.predict(electionId).getTurnout();
         logger.info(() -> String.format("predictTurnout result for electionId=%d: %f", electionId, turnout));
         return turnout;
     }
 
     /**
-     * Anomaly detection via threshold on feature deltas.
+     * Votes per bucket of stepMinutes between two event times, for the election or one location.
+     * Missing bounds default to the first and last minute with a vote.
+     *
+     * @throws IllegalArgumentException if the step is not positive or the range has more than maxBuckets buckets
      */
-    public List<String> detectAnomalies(Long electionId) {
-        logger.info(() -> "detectAnomalies called for electionId=" + electionId);
-        List<FeatureAggregator.Snapshot> snaps = aggregator.getHistory().get(electionId);
-        List<String> anomalies = new ArrayList<>();
-        if (snaps != null && snaps.size() >= 2) {
-            int last = snaps.size() - 1;
-            Map<Long, Integer> newest = snaps.get(last).getCounts();
-            Map<Long, Integer> prev = snaps.get(last - 1).getCounts();
-            double avgIncrease = newest.values().stream()
-                    .mapToInt(i -> i)
-                    .average().orElse(0.0);
-            for (Map.Entry<Long, Integer> entry : newest.entrySet()) {
-                long cid = entry.getKey();
-                int delta = entry.getValue() - prev.getOrDefault(cid, 0);
-                if (delta > avgIncrease * FeatureAggregator.ANOMALY_THRESHOLD_MULTIPLIER) {
-                    String msg = "Candidate " + cid + " spike: " + delta + " votes";
-                    anomalies.add(msg);
-                    logger.fine(() -> "Anomaly detected: " + msg);
-                }
-            }
+    public TurnoutSeriesDTO turnoutSeries(Long electionId, Long locationId, Long from, Long to, int stepMinutes, int maxBuckets) {
+        if (stepMinutes <= 0) {
+            throw new IllegalArgumentException("stepMinutes must be positive");
+        }
+        long series = locationId != null ? locationId : TurnoutTimeSeries.ALL_LOCATIONS;
+        TurnoutTimeSeries turnout = aggregator.getTurnout(electionId);
+        long fromMinute;
+        long toMinute;
+        if (turnout == null || turnout.getLatestMinute(series) == Long.MIN_VALUE) {
+            fromMinute = from != null ? Math.floorDiv(from, TurnoutTimeSeries.MINUTE_MILLIS) : 0;
+            toMinute = fromMinute;
         } else {
-            logger.fine(() -> "Not enough snapshots for anomaly detection, electionId=" + electionId);
+            fromMinute = from != null ? Math.floorDiv(from, TurnoutTimeSeries.MINUTE_MILLIS) : turnout.getFirstMinute(series);
+            toMinute = to != null ? Math.floorDiv(to + TurnoutTimeSeries.MINUTE_MILLIS - 1, TurnoutTimeSeries.MINUTE_MILLIS)
+                    : turnout.getLatestMinute(series) + 1;
         }
+        if (toMinute > fromMinute && (toMinute - fromMinute + stepMinutes - 1) / stepMinutes > maxBuckets) {
+            throw new IllegalArgumentException("Range has more than " + maxBuckets + " buckets");
+        }
+        long[] votes = turnout != null ? turnout.votes(series, fromMinute, toMinute, stepMinutes) : new long[0];
+        long[] cumulative = new long[votes.length];
+        long running = turnout != null && votes.length > 0 ? turnout.votesBefore(series, fromMinute) : 0;
+        for (int i = 0; i < votes.length; i++) {
+            running += votes[i];
+            cumulative[i] = running;
+        }
+        logger.fine(() -> String.format("turnoutSeries for electionId=%d, location=%s: %d buckets", electionId, locationId, votes.length));
+        return new TurnoutSeriesDTO(electionId, locationId, fromMinute * TurnoutTimeSeries.MINUTE_MILLIS,
+                stepMinutes * TurnoutTimeSeries.MINUTE_MILLIS, votes, cumulative);
+    }
+
+    /**
+     * Anomalies raised by the streaming detector for the election, newest first.
+     */
+    public List<String> detectAnomalies(Long electionId) {
+        logger.info(() -> "detectAnomalies called for electionId=" + electionId);
+        List<String> anomalies = anomalyDetector.getRecentAnomalies(electionId).stream()
+                .map(VoteAnomalyEvent::getMessage)
+                .collect(Collectors.toList());
         logger.info(() -> String.format("detectAnomalies found %d anomalies for electionId=%d", anomalies.size(), electionId));
         return anomalies;
     }
 
     /**
-     * Trend detection by comparing feature share changes over time.
+     * Trend detection: choices whose vote share moved by more than {@link FeatureAggregator#TREND_THRESHOLD}
+     * over the window, or over each window if none is given.
      */
-    public List<String> detectTrends(Long electionId) {
-        logger.info(() -> "detectTrends called for electionId=" + electionId);
-        List<FeatureAggregator.Snapshot> snaps = aggregator.getHistory().get(electionId);
+    public List<String> detectTrends(Long electionId, TrendEngine.Window window) {
+        logger.info(() -> "detectTrends called for electionId=" + electionId + ", window=" + window);
+        List<TrendEngine.Window> windows = window != null ? List.of(window) : List.of(TrendEngine.Window.values());
+        SlotLayout layout = aggregator.getLayout(electionId);
         List<String> trends = new ArrayList<>();
-        if (snaps != null && snaps.size() >= 2) {
-            int last = snaps.size() - 1;
-            Map<Long, Integer> newest = snaps.get(last).getCounts();
-            Map<Long, Integer> prev = snaps.get(last - 1).getCounts();
-            int totalNew = newest.values().stream().mapToInt(i -> i).sum();
-            int totalPrev = prev.values().stream().mapToInt(i -> i).sum();
-            for (Map.Entry<Long, Integer> entry : newest.entrySet()) {
-                long cid = entry.getKey();
-                double shareNew = (double) entry.getValue() / (totalNew == 0 ? 1 : totalNew);
-                double sharePrev = (double) prev.getOrDefault(cid, 0) / (totalPrev == 0 ? 1 : totalPrev);
-                double change = shareNew - sharePrev;
-                if (Math.abs(change) > FeatureAggregator.TREND_THRESHOLD) {
-                    String msg = String.format("Candidate %d trend change: %.2f%%", cid, change * 100);
+        for (TrendEngine.Window w : windows) {
+            for (TrendEngine.Trend trend : trendEngine.getTrends(electionId, w)) {
+                if (trend.isSignificant() && trend.getSlot() < layout.size()) {
+                    String msg = String.format("%s trend change over %s: %.2f%% (slope %.2f%%/min)",
+                            layout.labelAt(trend.getSlot()), w.getLabel(),
+                            trend.getShareChange() * 100, trend.getSlopePerMinute() * 100);
                     trends.add(msg);
                     logger.fine(() -> "Trend detected: " + msg);
                 }
             }
-        } else {
-            logger.fine(() -> "Not enough snapshots for trend detection, electionId=" + electionId);
         }
         logger.info(() -> String.format("detectTrends found %d trends for electionId=%d", trends.size(), electionId));
         return trends;
     }
-}
\ No newline at end of file
+}
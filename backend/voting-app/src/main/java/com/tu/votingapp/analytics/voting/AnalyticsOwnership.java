@@ -0,0 +1,172 @@
+package com.tu.votingapp.analytics.voting;
+
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Which analytics node holds the state of an election. With the Kafka transport, elections are
+ * keyed to partitions of the votes topic and each partition is consumed by exactly one node of the
+ * consumer group, so that node owns the partition's elections. Owners register themselves in
+ * analytics_partition_owner so other nodes can forward analysis requests; lookups are cached for
+ * a few seconds. With the local transport there is a single node, which owns every election.
+ * <p>
+ * The partition of an election is computed the way Kafka's default partitioner places the
+ * String key, so app.kafka.votes-partitions must match the topic's actual partition count.
+ */
+@Component
+public class AnalyticsOwnership {
+    private static final long OWNER_CACHE_MILLIS = 5_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean partitioned;
+    private final int partitions;
+    private final String nodeUrl;
+    private final Logger logger = Logger.getLogger(AnalyticsOwnership.class.getName());
+
+    private final Set<Integer> owned = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, CachedOwner> owners = new ConcurrentHashMap<>();
+
+    public AnalyticsOwnership(JdbcTemplate jdbcTemplate,
+                              @Value("${app.votes.transport:local}") String transport,
+                              @Value("${app.kafka.votes-partitions:6}") int partitions,
+                              @Value("${app.analytics.node-url:}") String nodeUrl,
+                              @Value("${server.port:8080}") int serverPort,
+                              @Value("${server.ssl.enabled:false}") boolean ssl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitioned = "kafka".equals(transport);
+        this.partitions = partitions;
+        this.nodeUrl = nodeUrl.isBlank() ? defaultNodeUrl(ssl, serverPort) : nodeUrl;
+    }
+
+    /**
+     * Whether elections are spread over several nodes; false means this node owns them all.
+     */
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    /**
+     * Base URL other nodes use to reach this one.
+     */
+    public String getNodeUrl() {
+        return nodeUrl;
+    }
+
+    public int partitionOf(long electionId) {
+        byte[] key = String.valueOf(electionId).getBytes(StandardCharsets.UTF_8);
+        return Utils.toPositive(Utils.murmur2(key)) % partitions;
+    }
+
+    public boolean isOwned(long electionId) {
+        return !partitioned || owned.contains(partitionOf(electionId));
+    }
+
+    /**
+     * Base URL of the node owning the election, or null while no node has registered for its
+     * partition, e.g. in the middle of a rebalance.
+     */
+    public String ownerOf(long electionId) {
+        if (isOwned(electionId)) {
+            return nodeUrl;
+        }
+        int partition = partitionOf(electionId);
+        long now = System.currentTimeMillis();
+        CachedOwner cached = owners.get(partition);
+        if (cached != null && now - cached.readAt < OWNER_CACHE_MILLIS) {
+            return cached.nodeUrl;
+        }
+        List<String> urls = jdbcTemplate.queryForList(
+                "SELECT node_url FROM analytics_partition_owner WHERE partition_id = ?", String.class, partition);
+        String owner = urls.isEmpty() ? null : urls.get(0);
+        owners.put(partition, new CachedOwner(owner, now));
+        return owner;
+    }
+
+    /**
+     * Drop the cached owner of the election's partition, e.g. after forwarding to it failed.
+     */
+    public void invalidate(long electionId) {
+        owners.remove(partitionOf(electionId));
+    }
+
+    /**
+     * Take ownership of partitions Kafka assigned to this node and advertise it.
+     */
+    public void assigned(Collection<Integer> partitionIds) {
+        owned.addAll(partitionIds);
+        long now = System.currentTimeMillis();
+        for (Integer partition : partitionIds) {
+            owners.remove(partition);
+            try {
+                register(partition, now);
+            } catch (DataAccessException e) {
+                logger.log(Level.WARNING, "Could not advertise ownership of partition " + partition, e);
+            }
+        }
+        logger.info(() -> "Analytics node " + nodeUrl + " now owns partitions " + owned);
+    }
+
+    /**
+     * Give up partitions Kafka revoked, leaving the registration alone if another node already took it.
+     */
+    public void revoked(Collection<Integer> partitionIds) {
+        owned.removeAll(partitionIds);
+        for (Integer partition : partitionIds) {
+            owners.remove(partition);
+            try {
+                jdbcTemplate.update("DELETE FROM analytics_partition_owner WHERE partition_id = ? AND node_url = ?",
+                        partition, nodeUrl);
+            } catch (DataAccessException e) {
+                logger.log(Level.WARNING, "Could not withdraw ownership of partition " + partition, e);
+            }
+        }
+    }
+
+    private void register(int partition, long now) {
+        String update = "UPDATE analytics_partition_owner SET node_url = ?, assigned_at = ? WHERE partition_id = ?";
+        if (jdbcTemplate.update(update, nodeUrl, now, partition) == 0) {
+            try {
+                jdbcTemplate.update("INSERT INTO analytics_partition_owner (partition_id, node_url, assigned_at) VALUES (?, ?, ?)",
+                        partition, nodeUrl, now);
+            } catch (DuplicateKeyException e) {
+                // Another node registered in between, mid-rebalance; the latest assignment wins
+                jdbcTemplate.update(update, nodeUrl, now, partition);
+            }
+        }
+    }
+
+    private static String defaultNodeUrl(boolean ssl, int port) {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost";
+        }
+        return (ssl ? "https://" : "http://") + host + ":" + port;
+    }
+
+    private static class CachedOwner {
+        private final String nodeUrl;
+        private final long readAt;
+
+        CachedOwner(String nodeUrl, long readAt) {
+            this.nodeUrl = nodeUrl;
+            this.readAt = readAt;
+        }
+    }
+}
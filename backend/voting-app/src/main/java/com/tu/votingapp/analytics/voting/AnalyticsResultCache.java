@@ -0,0 +1,113 @@
+package com.tu.votingapp.analytics.voting;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the latest analytics result of each kind per election, valid for one
+ * {@link FeatureAggregator#getEpoch epoch} and, for model outputs, one {@link ModelVersion}.
+ * Callers asking for the same key while it is being computed wait for that one computation
+ * instead of starting their own.
+ */
+@Component
+public class AnalyticsResultCache {
+    /**
+     * Distinguishes ETags of this process from those of an earlier run, whose epochs restart at zero.
+     */
+    private final String instanceTag = Long.toString(System.currentTimeMillis(), 36);
+    private final Logger logger = Logger.getLogger(AnalyticsResultCache.class.getName());
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Strong ETag for an election's analytics at the given epoch.
+     */
+    public String eTag(String kind, Long electionId, long epoch) {
+        return eTag(kind, electionId, 0L, epoch);
+    }
+
+    /**
+     * Strong ETag for an election's model output at the given model version and epoch.
+     */
+    public String eTag(String kind, Long electionId, long modelVersion, long epoch) {
+        return "\"" + kind + "-" + electionId + "-" + instanceTag + "-" + modelVersion + "-" + epoch + "\"";
+    }
+
+    /**
+     * The cached result for (kind, electionId) at this epoch, computing it if needed. A result
+     * from an older epoch is replaced, never one from a newer epoch.
+     */
+    public <T> T get(String kind, Long electionId, long epoch, Supplier<T> compute) {
+        return get(kind, electionId, 0L, epoch, compute);
+    }
+
+    /**
+     * Like {@link #get(String, Long, long, Supplier)} for results of a model: a result of an older
+     * model version is replaced whatever its epoch, and one of a newer version is never replaced.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String kind, Long electionId, long modelVersion, long epoch, Supplier<T> compute) {
+        Key key = new Key(kind, electionId);
+        Entry fresh = new Entry(modelVersion, epoch);
+        Entry entry = entries.compute(key, (k, existing) -> existing != null && !existing.isOlderThan(fresh) ? existing : fresh);
+        if (entry == fresh) {
+            logger.fine(() -> String.format("Computing %s for election %d at epoch %d", kind, electionId, epoch));
+            try {
+                fresh.result.complete(compute.get());
+            } catch (RuntimeException e) {
+                entries.remove(key, fresh);
+                fresh.result.completeExceptionally(e);
+            }
+        }
+        try {
+            return (T) entry.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Key {
+        private final String kind;
+        private final Long electionId;
+
+        Key(String kind, Long electionId) {
+            this.kind = kind;
+            this.electionId = electionId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && kind.equals(other.kind) && electionId.equals(other.electionId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, electionId);
+        }
+    }
+
+    private static final class Entry {
+        private final long modelVersion;
+        private final long epoch;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        Entry(long modelVersion, long epoch) {
+            this.modelVersion = modelVersion;
+            this.epoch = epoch;
+        }
+
+        boolean isOlderThan(Entry other) {
+            return modelVersion != other.modelVersion ? modelVersion < other.modelVersion : epoch < other.epoch;
+        }
+    }
+}
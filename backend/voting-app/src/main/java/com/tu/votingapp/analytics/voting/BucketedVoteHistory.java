@@ -0,0 +1,177 @@
+package com.tu.votingapp.analytics.voting;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Vote history of one election as fixed-size rings of time buckets, one ring per {@link Resolution}.
+ * Each bucket holds the votes received in its interval as a primitive array indexed by candidate slot,
+ * so memory depends on the number of candidates and buckets only, never on the number of votes.
+ * Every vote is added to all resolutions; when a ring wraps, the oldest bucket is cleared and reused.
+ */
+public class BucketedVoteHistory {
+
+    public enum Resolution {
+        SECOND(1_000L, 120),
+        MINUTE(60_000L, 120),
+        HOUR(3_600_000L, 72);
+
+        private final long widthMillis;
+        private final int buckets;
+
+        Resolution(long widthMillis, int buckets) {
+            this.widthMillis = widthMillis;
+            this.buckets = buckets;
+        }
+
+        public long getWidthMillis() {
+            return widthMillis;
+        }
+
+        public int getBuckets() {
+            return buckets;
+        }
+    }
+
+    private final Ring[] rings = new Ring[Resolution.values().length];
+    private long latestTimestamp = Long.MIN_VALUE;
+
+    public BucketedVoteHistory() {
+        for (Resolution resolution : Resolution.values()) {
+            rings[resolution.ordinal()] = new Ring(resolution);
+        }
+    }
+
+    /**
+     * Count one vote for the choice in the given {@link SlotLayout} slot at the given event time.
+     */
+    public synchronized void record(int slot, long timestamp) {
+        for (Ring ring : rings) {
+            ring.add(slot, timestamp);
+        }
+        latestTimestamp = Math.max(latestTimestamp, timestamp);
+    }
+
+    /**
+     * Add the votes per slot over the newest {@code count} buckets of a resolution, ending with the
+     * bucket of the latest vote, to {@code into}. Slots beyond the array's length are ignored.
+     */
+    public synchronized void recentVotes(Resolution resolution, int count, long[] into) {
+        if (latestTimestamp != Long.MIN_VALUE) {
+            rings[resolution.ordinal()].sum(Math.floorDiv(latestTimestamp, resolution.widthMillis), count, into);
+        }
+    }
+
+    public synchronized long getLatestTimestamp() {
+        return latestTimestamp;
+    }
+
+    /**
+     * Write the used buckets of every ring, for {@link #readFrom}.
+     */
+    public synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeLong(latestTimestamp);
+        for (Ring ring : rings) {
+            ring.writeTo(out);
+        }
+    }
+
+    public static BucketedVoteHistory readFrom(DataInput in) throws IOException {
+        BucketedVoteHistory history = new BucketedVoteHistory();
+        history.latestTimestamp = in.readLong();
+        for (Ring ring : history.rings) {
+            ring.readFrom(in);
+        }
+        return history;
+    }
+
+    /**
+     * Ring of buckets for one resolution. starts[i] is the absolute bucket number (time / width)
+     * currently held at position i, or Long.MIN_VALUE if the position was never used.
+     */
+    private static class Ring {
+        private final long width;
+        private final long[] starts;
+        private final long[][] votes;
+
+        Ring(Resolution resolution) {
+            this.width = resolution.widthMillis;
+            this.starts = new long[resolution.buckets];
+            this.votes = new long[resolution.buckets][8];
+            Arrays.fill(starts, Long.MIN_VALUE);
+        }
+
+        void add(int slot, long timestamp) {
+            long bucket = Math.floorDiv(timestamp, width);
+            int index = (int) Math.floorMod(bucket, (long) starts.length);
+            if (starts[index] != bucket) {
+                if (starts[index] > bucket) {
+                    return; // older than the ring reaches back, that bucket was already reused
+                }
+                Arrays.fill(votes[index], 0L);
+                starts[index] = bucket;
+            }
+            if (slot >= votes[index].length) {
+                votes[index] = Arrays.copyOf(votes[index], Math.max(slot + 1, votes[index].length * 2));
+            }
+            votes[index][slot]++;
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            int used = 0;
+            for (long start : starts) {
+                used += start != Long.MIN_VALUE ? 1 : 0;
+            }
+            out.writeInt(used);
+            for (int index = 0; index < starts.length; index++) {
+                if (starts[index] == Long.MIN_VALUE) {
+                    continue;
+                }
+                long[] row = votes[index];
+                int length = row.length;
+                while (length > 0 && row[length - 1] == 0) {
+                    length--;
+                }
+                out.writeInt(index);
+                out.writeLong(starts[index]);
+                out.writeInt(length);
+                for (int slot = 0; slot < length; slot++) {
+                    out.writeLong(row[slot]);
+                }
+            }
+        }
+
+        void readFrom(DataInput in) throws IOException {
+            int used = in.readInt();
+            for (int i = 0; i < used; i++) {
+                int index = in.readInt();
+                if (index < 0 || index >= starts.length) {
+                    throw new IOException("Bucket index " + index + " outside a ring of " + starts.length);
+                }
+                starts[index] = in.readLong();
+                int length = in.readInt();
+                long[] row = new long[Math.max(length, votes[index].length)];
+                for (int slot = 0; slot < length; slot++) {
+                    row[slot] = in.readLong();
+                }
+                votes[index] = row;
+            }
+        }
+
+        void sum(long newestBucket, int count, long[] into) {
+            int n = Math.min(count, starts.length);
+            for (long bucket = newestBucket - n + 1; bucket <= newestBucket; bucket++) {
+                int index = (int) Math.floorMod(bucket, (long) starts.length);
+                if (starts[index] != bucket) {
+                    continue;
+                }
+                long[] row = votes[index];
+                for (int slot = 0; slot < into.length && slot < row.length; slot++) {
+                    into[slot] += row[slot];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.tu.votingapp.analytics.voting;
+
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.preprocessor.stats.DistributionStats;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.Random;
+
+/**
+ * Evaluates the analytics network ({@link ModelConfig}: dense ReLU layer, softmax winner head,
+ * linear turnout head) in plain Java. The weights and the input and turnout scaling of one
+ * {@link ModelVersion} are copied into double arrays once, with the input standardization folded
+ * into the dense layer. After that an evaluation is a few hundred multiply-adds on caller-provided
+ * scratch arrays: no JNI, no workspaces and no allocation.
+ * Construction checks the result against the ND4J graph and refuses a model it would evaluate
+ * differently, e.g. after a change to the layer layout.
+ */
+public final class DenseModelEvaluator {
+    /**
+     * Largest difference to ND4J accepted at construction, relative to the output's magnitude.
+     */
+    private static final double TOLERANCE = 1e-4;
+    private static final int PROBES = 16;
+
+    private final int inputs;
+    private final int hidden;
+    private final int winners;
+    /**
+     * Dense weights transposed to [hidden][inputs], so each hidden unit reads one contiguous row.
+     * Divided by the input deviation, with the mean's contribution moved into the bias, so raw
+     * counts can be fed in directly.
+     */
+    private final double[] hiddenWeights;
+    private final double[] hiddenBias;
+    /**
+     * Winner head weights as [winners][hidden].
+     */
+    private final double[] winnerWeights;
+    private final double[] winnerBias;
+    private final double[] turnoutWeights;
+    private final double turnoutBias;
+    private final double turnoutMean;
+    private final double turnoutStd;
+
+    /**
+     * Copy the version's weights and check the copy against ND4J.
+     *
+     * @throws IllegalStateException if the model's layout does not match or its outputs differ
+     */
+    public static DenseModelEvaluator of(ModelVersion version) {
+        DenseModelEvaluator evaluator = new DenseModelEvaluator(version);
+        evaluator.validate(version);
+        return evaluator;
+    }
+
+    private DenseModelEvaluator(ModelVersion version) {
+        ComputationGraph model = version.getModel();
+        INDArray w1 = model.getLayer("dense1").getParam("W");
+        INDArray w2 = model.getLayer("winnerOut").getParam("W");
+        INDArray w3 = model.getLayer("turnoutOut").getParam("W");
+        inputs = (int) w1.rows();
+        hidden = (int) w1.columns();
+        winners = (int) w2.columns();
+        if (inputs != ModelConfig.NUM_FEATURES || w2.rows() != hidden || w3.rows() != hidden || w3.columns() != 1) {
+            throw new IllegalStateException("Unsupported analytics model layout for " + version);
+        }
+        hiddenWeights = transpose(w1);
+        hiddenBias = model.getLayer("dense1").getParam("b").toDoubleVector();
+        winnerWeights = transpose(w2);
+        winnerBias = model.getLayer("winnerOut").getParam("b").toDoubleVector();
+        turnoutWeights = w3.toDoubleVector();
+        turnoutBias = model.getLayer("turnoutOut").getParam("b").getDouble(0);
+        if (version.getNormalizer() != null) {
+            DistributionStats in = (DistributionStats) version.getNormalizer().getInputStats(0);
+            DistributionStats out = (DistributionStats) version.getNormalizer().getOutputStats(1);
+            // w * (x - mean) / std == (w / std) * x - w * mean / std
+            double[] mean = in.getMean().toDoubleVector();
+            double[] std = in.getStd().toDoubleVector();
+            for (int j = 0; j < hidden; j++) {
+                for (int i = 0; i < inputs; i++) {
+                    hiddenWeights[j * inputs + i] /= std[i];
+                    hiddenBias[j] -= hiddenWeights[j * inputs + i] * mean[i];
+                }
+            }
+            turnoutMean = out.getMean().getDouble(0);
+            turnoutStd = out.getStd().getDouble(0);
+        } else {
+            turnoutMean = 0.0;
+            turnoutStd = 1.0;
+        }
+    }
+
+    public int getHiddenSize() {
+        return hidden;
+    }
+
+    public int getWinnerCount() {
+        return winners;
+    }
+
+    /**
+     * Evaluate one feature row of {@link ModelConfig#NUM_FEATURES} values starting at offset.
+     *
+     * @param scratch      at least {@link #getHiddenSize()} elements, overwritten
+     * @param winnerOutput receives {@link #getWinnerCount()} winner probabilities
+     * @return predicted turnout
+     */
+    public double evaluate(float[] features, int offset, double[] scratch, double[] winnerOutput) {
+        for (int j = 0; j < hidden; j++) {
+            double sum = hiddenBias[j];
+            int row = j * inputs;
+            for (int i = 0; i < inputs; i++) {
+                sum += hiddenWeights[row + i] * features[offset + i];
+            }
+            scratch[j] = Math.max(sum, 0.0);
+        }
+
+        double max = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < winners; k++) {
+            double sum = winnerBias[k];
+            int row = k * hidden;
+            for (int j = 0; j < hidden; j++) {
+                sum += winnerWeights[row + j] * scratch[j];
+            }
+            winnerOutput[k] = sum;
+            max = Math.max(max, sum);
+        }
+        double total = 0.0;
+        for (int k = 0; k < winners; k++) {
+            winnerOutput[k] = Math.exp(winnerOutput[k] - max);
+            total += winnerOutput[k];
+        }
+        for (int k = 0; k < winners; k++) {
+            winnerOutput[k] /= total;
+        }
+
+        double turnout = turnoutBias;
+        for (int j = 0; j < hidden; j++) {
+            turnout += turnoutWeights[j] * scratch[j];
+        }
+        return turnout * turnoutStd + turnoutMean;
+    }
+
+    /**
+     * Compare with ND4J on feature rows from zero to a few thousand votes per slot. Much larger raw
+     * counts push the untrained model's logits so far that float rounding in ND4J alone exceeds the tolerance.
+     */
+    private void validate(ModelVersion version) {
+        Random random = new Random(PROBES);
+        float[] rows = new float[PROBES * inputs];
+        for (int r = 0; r < PROBES; r++) {
+            double scale = Math.pow(10, r % 4);
+            float total = 0;
+            for (int i = 1; i < inputs; i++) {
+                rows[r * inputs + i] = (float) Math.floor(random.nextDouble() * scale);
+                total += rows[r * inputs + i];
+            }
+            rows[r * inputs] = total;
+        }
+        INDArray features = version.prepare(Nd4j.create(rows.clone(), new long[]{PROBES, inputs}, 'c'));
+        INDArray[] expected = version.getModel().output(features);
+
+        double[] scratch = new double[hidden];
+        double[] probabilities = new double[winners];
+        for (int r = 0; r < PROBES; r++) {
+            double turnout = evaluate(rows, r * inputs, scratch, probabilities);
+            for (int k = 0; k < winners; k++) {
+                check(version, expected[0].getDouble(r, k), probabilities[k]);
+            }
+            check(version, version.turnout(expected[1].getDouble(r, 0)), turnout);
+        }
+    }
+
+    private static void check(ModelVersion version, double expected, double actual) {
+        if (Math.abs(expected - actual) > TOLERANCE * Math.max(1.0, Math.abs(expected))) {
+            throw new IllegalStateException(String.format(
+                    "Java evaluation of %s differs from ND4J: expected %s, got %s", version, expected, actual));
+        }
+    }
+
+    private static double[] transpose(INDArray weights) {
+        int rows = (int) weights.rows();
+        int columns = (int) weights.columns();
+        double[] transposed = new double[rows * columns];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                transposed[c * rows + r] = weights.getDouble(r, c);
+            }
+        }
+        return transposed;
+    }
+}
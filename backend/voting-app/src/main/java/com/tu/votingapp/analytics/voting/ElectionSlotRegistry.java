@@ -0,0 +1,86 @@
+package com.tu.votingapp.analytics.voting;
+
+import com.tu.votingapp.services.impl.elections.BallotDefinitionCache;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Assigns each candidate and party of an election a stable, dense slot index used by the analytics
+ * counters, history buckets and model features. The layout is taken from the election's ballot the
+ * first time the election is seen and only ever grows afterwards.
+ */
+@Component
+public class ElectionSlotRegistry {
+    private final BallotDefinitionCache ballotDefinitionCache;
+    private final Logger logger = Logger.getLogger(ElectionSlotRegistry.class.getName());
+
+    private final Map<Long, SlotLayout> layouts = new ConcurrentHashMap<>();
+
+    public ElectionSlotRegistry(BallotDefinitionCache ballotDefinitionCache) {
+        this.ballotDefinitionCache = ballotDefinitionCache;
+    }
+
+    public SlotLayout getLayout(Long electionId) {
+        return layouts.computeIfAbsent(electionId, this::fromBallot);
+    }
+
+    /**
+     * The election's layout without registering or extending it: the live layout if this node has
+     * one, otherwise one built from the ballot. For offline readers such as training, which must not
+     * change the slots of the elections being aggregated.
+     */
+    public SlotLayout peekLayout(long electionId) {
+        SlotLayout layout = layouts.get(electionId);
+        return layout != null ? layout : fromBallot(electionId);
+    }
+
+    /**
+     * Slot of a candidate (party == false) or party. A choice missing from the layout, e.g. a candidate
+     * added after the layout was built, is appended, taking any other new ballot entries with it.
+     */
+    public int slotOf(long electionId, boolean party, long id) {
+        int slot = getLayout(electionId).slotOf(party, id);
+        return slot >= 0 ? slot : assign(electionId, party, id);
+    }
+
+    /**
+     * Reinstate a layout saved before a restart, so restored counters keep their slots even if
+     * the ballot has changed since.
+     */
+    public synchronized void restoreLayout(long electionId, SlotLayout layout) {
+        layouts.put(electionId, layout);
+    }
+
+    /**
+     * Drop the layout of an election this node no longer aggregates.
+     */
+    public synchronized void forget(long electionId) {
+        layouts.remove(electionId);
+    }
+
+    private synchronized int assign(long electionId, boolean party, long id) {
+        SlotLayout layout = getLayout(electionId);
+        int slot = layout.slotOf(party, id);
+        if (slot >= 0) {
+            return slot;
+        }
+        SlotLayout extended = layout.extendWith(fromBallot(electionId)).extendWith(party, id);
+        layouts.put(electionId, extended);
+        logger.fine(() -> String.format("Slot layout of election %d grew from %d to %d choices",
+                electionId, layout.size(), extended.size()));
+        return extended.slotOf(party, id);
+    }
+
+    private SlotLayout fromBallot(Long electionId) {
+        try {
+            return SlotLayout.of(ballotDefinitionCache.get(electionId));
+        } catch (EntityNotFoundException e) {
+            logger.warning(() -> "No ballot for election " + electionId + ", slots will be assigned as votes arrive");
+            return SlotLayout.EMPTY;
+        }
+    }
+}
@@ -1,101 +1,258 @@
 package com.tu.votingapp.analytics.voting;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.Getter;
-import org.nd4j.linalg.api.ndarray.INDArray;
-import org.nd4j.linalg.factory.Nd4j;
 import org.springframework.stereotype.Component;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.logging.Level;
+import java.util.function.LongPredicate;
 import java.util.logging.Logger;
 
 @Component
 public class FeatureAggregator {
-    private static final ObjectMapper mapper = new ObjectMapper();
-    public static final double ANOMALY_THRESHOLD_MULTIPLIER = 2.0;
     public static final double TREND_THRESHOLD = 0.05; // 5% change
 
     private final Logger logger = Logger.getLogger(this.getClass().getName());
 
+    private final ElectionSlotRegistry slotRegistry;
+    private final StreamingAnomalyDetector anomalyDetector;
+    private final TrendEngine trendEngine;
+
     /**
-     * Raw vote counts per election -> candidateId or partyId -> count
+     * Vote counts and bucketed history per election, indexed by the election's slot layout.
      */
-    private final Map<Long, Map<Long, Integer>> counts = new ConcurrentHashMap<>();
+    private final Map<Long, ElectionState> elections = new ConcurrentHashMap<>();
 
     /**
-     * Historic snapshots for trend and anomaly detection.
+     * Model input buffer per request thread, overwritten by every {@link #getFeatures} call on that thread.
      */
-    @Getter
-    private final Map<Long, List<Snapshot>> history = new ConcurrentHashMap<>();
+    private final ThreadLocal<float[]> featureBuffers =
+            ThreadLocal.withInitial(() -> new float[ModelConfig.NUM_FEATURES]);
+
+    public FeatureAggregator(ElectionSlotRegistry slotRegistry,
+                             StreamingAnomalyDetector anomalyDetector,
+                             TrendEngine trendEngine) {
+        this.slotRegistry = slotRegistry;
+        this.anomalyDetector = anomalyDetector;
+        this.trendEngine = trendEngine;
+    }
 
     /**
-     * Ingest a vote event JSON, update counts and record a snapshot.
+     * Count one vote for a candidate (partyVote == false) or party, add it to the history bucket of the
+     * event time and feed the anomaly detector and trend engine. A locationId of 0 means the voter's location is unknown.
      */
-    public void aggregateEvent(String messageJson) {
-        try {
-            VoteEvent event = mapper.readValue(messageJson, VoteEvent.class);
-            Long electionId = event.getElectionId();
-            Long key = event.getCandidateId() != null ? event.getCandidateId() : event.getPartyId();
-            logger.fine(() -> String.format("Processing vote event for election %d, key %d", electionId, key));
-
-            counts.computeIfAbsent(electionId, k -> new ConcurrentHashMap<>());
-            Map<Long, Integer> electionCounts = counts.get(electionId);
-            int newCount = electionCounts.merge(key, 1, Integer::sum);
-            logger.fine(() -> String.format("Updated count for key %d: %d", key, newCount));
-
-            // Record snapshot
-            Map<Long, Integer> snapshotMap = new HashMap<>(electionCounts);
-            Snapshot snap = new Snapshot(System.currentTimeMillis(), snapshotMap);
-            history.computeIfAbsent(electionId, k -> new ArrayList<>()).add(snap);
-            logger.fine(() -> String.format("Snapshot added for election %d; total snapshots: %d",
-                    electionId, history.get(electionId).size()));
-
-        } catch (Exception e) {
-            // Log JSON parsing or processing errors without leaking raw payload
-            logger.log(Level.WARNING, "Failed to aggregate vote event", e);
-        }
+    public void aggregateVote(long electionId, boolean partyVote, long choiceId, long locationId, long timestamp) {
+        int slot = slotRegistry.slotOf(electionId, partyVote, choiceId);
+        elections.computeIfAbsent(electionId, k -> new ElectionState()).record(slot, locationId, timestamp);
+        anomalyDetector.record(electionId, slot, locationId, timestamp);
+        trendEngine.record(electionId, slot, timestamp);
+    }
+
+    public SlotLayout getLayout(Long electionId) {
+        return slotRegistry.getLayout(electionId);
     }
 
     /**
-     * Builds a feature vector: [ totalVotes, count1, count2, ... ]
+     * Current vote count per slot of {@link #getLayout(Long)}.
      */
-    public INDArray getFeatures(Long electionId) {
-        Map<Long, Integer> electionCounts = counts.getOrDefault(electionId, Collections.emptyMap());
-        int numCandidates = electionCounts.size();
-        int total = electionCounts.values().stream().mapToInt(i -> i).sum();
-        double[] arr = new double[numCandidates + 1];
-        arr[0] = total;
-        int i = 1;
-        for (Integer count : electionCounts.values()) {
-            arr[i++] = count;
+    public long[] getCounts(Long electionId) {
+        long[] into = new long[getLayout(electionId).size()];
+        ElectionState state = elections.get(electionId);
+        if (state != null) {
+            state.copyCounts(into);
         }
-        INDArray features = Nd4j.create(arr).reshape(1, arr.length);
-        logger.fine(() -> String.format("Features generated for election %d: total=%d, dimensions=%d", electionId, total, arr.length));
+        return into;
+    }
+
+    /**
+     * Monotonic version of the election's analytics state, increased by every aggregated vote.
+     * Results derived from the state stay valid while the epoch is unchanged.
+     */
+    public long getEpoch(Long electionId) {
+        ElectionState state = elections.get(electionId);
+        return state != null ? state.epoch : 0L;
+    }
+
+    /**
+     * @return the election's bucketed history, or null if no vote was aggregated for it yet
+     */
+    public BucketedVoteHistory getHistory(Long electionId) {
+        ElectionState state = elections.get(electionId);
+        return state != null ? state.history : null;
+    }
+
+    /**
+     * @return the election's per-minute turnout series, or null if no vote was aggregated for it yet
+     */
+    public TurnoutTimeSeries getTurnout(Long electionId) {
+        ElectionState state = elections.get(electionId);
+        return state != null ? state.turnout : null;
+    }
+
+    /**
+     * Builds a feature vector: [ totalVotes, count of slot 0, count of slot 1, ... ], zero-padded to
+     * {@link ModelConfig#NUM_FEATURES}. Slots that do not fit are counted in the total only.
+     * The returned array is this thread's reusable buffer and is overwritten by its next call.
+     * Plain arrays keep ND4J off the vote path; the inference side copies them into its own input.
+     */
+    public float[] getFeatures(Long electionId) {
+        float[] features = featureBuffers.get();
+        writeFeatures(electionId, features, 0);
         return features;
     }
 
     /**
-     * Simple JSON holder for vote events.
+     * Write the election's feature vector (see {@link #getFeatures}) into a caller-owned row-major
+     * batch, starting at offset.
+     */
+    public void writeFeatures(Long electionId, float[] batch, int offset) {
+        ElectionState state = elections.get(electionId);
+        long total = state != null ? state.writeFeatures(batch, offset) : 0;
+        if (state == null) {
+            Arrays.fill(batch, offset, offset + ModelConfig.NUM_FEATURES, 0f);
+        }
+        logger.fine(() -> String.format("Features generated for election %d: total=%d, dimensions=%d",
+                electionId, total, ModelConfig.NUM_FEATURES));
+    }
+
+    /**
+     * Write the slot layout, counters, history, turnout series and trends of every election, for {@link #restore}. Votes
+     * aggregated while this runs may or may not be included, so callers that need a snapshot
+     * consistent with a stream position must hold off the writers meanwhile.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        writeTo(out, electionId -> true);
+    }
+
+    /**
+     * Like {@link #writeTo(DataOutput)}, limited to the elections matching the filter.
+     */
+    public void writeTo(DataOutput out, LongPredicate filter) throws IOException {
+        List<Map.Entry<Long, ElectionState>> entries = new ArrayList<>();
+        for (Map.Entry<Long, ElectionState> entry : elections.entrySet()) {
+            if (filter.test(entry.getKey())) {
+                entries.add(entry);
+            }
+        }
+        out.writeInt(entries.size());
+        for (Map.Entry<Long, ElectionState> entry : entries) {
+            out.writeLong(entry.getKey());
+            long[] codes = slotRegistry.getLayout(entry.getKey()).toCodes();
+            out.writeInt(codes.length);
+            for (long code : codes) {
+                out.writeLong(code);
+            }
+            entry.getValue().writeTo(out);
+            trendEngine.writeTo(entry.getKey(), out);
+        }
+    }
+
+    /**
+     * Replace the state of every election in a snapshot written by {@link #writeTo}, including its slot layout.
+     */
+    public void restore(DataInput in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long electionId = in.readLong();
+            long[] codes = new long[in.readInt()];
+            for (int slot = 0; slot < codes.length; slot++) {
+                codes[slot] = in.readLong();
+            }
+            slotRegistry.restoreLayout(electionId, SlotLayout.fromCodes(codes));
+            elections.put(electionId, ElectionState.readFrom(in));
+            trendEngine.restore(electionId, in);
+        }
+        logger.info(() -> "Restored analytics state of " + count + " elections");
+    }
+
+    /**
+     * Drop the state of the elections matching the filter, e.g. after handing them to another node.
+     *
+     * @return number of elections dropped
      */
-    private static class VoteEvent {
-        @Getter private Long electionId;
-        @Getter private Long candidateId;
-        @Getter private Long partyId;
-        private long timestamp;
+    public int evict(LongPredicate filter) {
+        int evicted = 0;
+        for (Iterator<Long> it = elections.keySet().iterator(); it.hasNext(); ) {
+            long electionId = it.next();
+            if (filter.test(electionId)) {
+                it.remove();
+                slotRegistry.forget(electionId);
+                evicted++;
+            }
+        }
+        anomalyDetector.evict(filter);
+        trendEngine.evict(filter);
+        return evicted;
     }
 
     /**
-     * Snapshot of counts at a point in time.
+     * Counters of one election. Events of an election arrive on one listener thread, so the lock
+     * is uncontended on the write path; it only orders readers against the writer.
      */
-    @Getter
-    public static class Snapshot {
-        private final long timestamp;
-        private final Map<Long, Integer> counts;
-        public Snapshot(long timestamp, Map<Long, Integer> counts) {
-            this.timestamp = timestamp;
-            this.counts = counts;
+    private static class ElectionState {
+        private long[] counts = new long[16];
+        private long total;
+        private volatile long epoch;
+        private final BucketedVoteHistory history;
+        private final TurnoutTimeSeries turnout;
+
+        ElectionState() {
+            this(new BucketedVoteHistory(), new TurnoutTimeSeries());
+        }
+
+        private ElectionState(BucketedVoteHistory history, TurnoutTimeSeries turnout) {
+            this.history = history;
+            this.turnout = turnout;
+        }
+
+        synchronized void record(int slot, long locationId, long timestamp) {
+            if (slot >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(slot + 1, counts.length * 2));
+            }
+            counts[slot]++;
+            total++;
+            history.record(slot, timestamp);
+            turnout.record(locationId, timestamp);
+            epoch++;
+        }
+
+        synchronized void writeTo(DataOutput out) throws IOException {
+            out.writeLong(total);
+            out.writeLong(epoch);
+            out.writeInt(counts.length);
+            for (long count : counts) {
+                out.writeLong(count);
+            }
+            history.writeTo(out);
+            turnout.writeTo(out);
+        }
+
+        static ElectionState readFrom(DataInput in) throws IOException {
+            long total = in.readLong();
+            long epoch = in.readLong();
+            long[] counts = new long[in.readInt()];
+            for (int slot = 0; slot < counts.length; slot++) {
+                counts[slot] = in.readLong();
+            }
+            ElectionState state = new ElectionState(BucketedVoteHistory.readFrom(in), TurnoutTimeSeries.readFrom(in));
+            state.counts = counts;
+            state.total = total;
+            state.epoch = epoch;
+            return state;
+        }
+
+        synchronized void copyCounts(long[] into) {
+            System.arraycopy(counts, 0, into, 0, Math.min(counts.length, into.length));
+        }
+
+        synchronized long writeFeatures(float[] batch, int offset) {
+            batch[offset] = total;
+            for (int i = 1; i < ModelConfig.NUM_FEATURES; i++) {
+                batch[offset + i] = i - 1 < counts.length ? counts[i - 1] : 0;
+            }
+            return total;
         }
     }
 }
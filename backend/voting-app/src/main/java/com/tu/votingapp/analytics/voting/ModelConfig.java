@@ -8,21 +8,45 @@ import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
 import org.deeplearning4j.optimize.listeners.ScoreIterationListener;
 import org.nd4j.linalg.activations.Activation;
 import org.nd4j.linalg.learning.config.Adam;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * The analytics model. Only registered with app.analytics.model.enabled=true (the default), and
+ * even then built on first lookup, so ND4J is not loaded while the context starts.
+ */
 @Configuration
+@ConditionalOnProperty(name = "app.analytics.model.enabled", havingValue = "true", matchIfMissing = true)
 public class ModelConfig {
-    private final Logger logger = Logger.getLogger(ModelConfig.class.getName());
+    /**
+     * Input width: total votes followed by one count per slot of the election's {@link SlotLayout}.
+     */
+    public static final int NUM_FEATURES = 10;
+    public static final int NUM_CANDIDATES = 5;
 
+    private static final Logger logger = Logger.getLogger(ModelConfig.class.getName());
+
+    /**
+     * The untrained default model, used for election types without a trained checkpoint.
+     */
     @Bean
+    @Lazy
     public ComputationGraph analyticsModel() {
+        return newModel();
+    }
+
+    /**
+     * A freshly initialized graph with random weights, also the starting point of every training run.
+     */
+    public static ComputationGraph newModel() {
         logger.info("Initializing analyticsModel computation graph configuration");
-        int numFeatures = 10;      // feature vector size
-        int numCandidates = 5;     // adjust per election
+        int numFeatures = NUM_FEATURES;
+        int numCandidates = NUM_CANDIDATES; // adjust per election
         int hiddenSize = 32;
 
         try {
@@ -0,0 +1,316 @@
+package com.tu.votingapp.analytics.voting;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the analytics model for concurrent callers. A ComputationGraph must not be used by two
+ * threads at once, so each worker thread owns one replica of the model. Workers drain all waiting
+ * requests, compute features once per election and answer the whole batch with a single forward
+ * pass per model version that yields both the winner and the turnout head. The version is looked
+ * up per batch in the {@link AnalyticsModelRegistry}, so a newly installed model is used from the
+ * next batch on while batches already running finish on the old one.
+ * <p>
+ * The model, and with it ND4J and its native backend, is only created when a worker first needs
+ * it: on the first request, or right after startup on the workers' own threads when warm-up is
+ * on. With app.analytics.model.enabled=false no model exists and predictions are refused, so
+ * nodes that only serve ballots never load ND4J.
+ * <p>
+ * With app.analytics.inference.engine=java the workers are not started. Each prediction is
+ * evaluated on the caller's thread by the version's {@link DenseModelEvaluator}. ND4J is then only
+ * used once per model version, to load the weights and validate the Java results against it.
+ */
+@Component
+public class ModelInferenceExecutor {
+
+    public enum Engine {
+        /**
+         * Batched forward passes of the ComputationGraph on the worker threads.
+         */
+        ND4J,
+        /**
+         * {@link DenseModelEvaluator} on the calling thread.
+         */
+        JAVA
+    }
+
+    private final AnalyticsModelRegistry models;
+    private final FeatureAggregator aggregator;
+    private final boolean enabled;
+    private final boolean warmUp;
+    private final Engine engine;
+    private final BlockingQueue<PendingPrediction> queue;
+    private final int replicas;
+    private final int maxBatchSize;
+    private final long maxWaitMs;
+    private final Logger logger = Logger.getLogger(ModelInferenceExecutor.class.getName());
+
+    private final ThreadLocal<Scratch> scratches = ThreadLocal.withInitial(Scratch::new);
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public ModelInferenceExecutor(AnalyticsModelRegistry models,
+                                  FeatureAggregator aggregator,
+                                  @Value("${app.analytics.model.enabled:true}") boolean enabled,
+                                  @Value("${app.analytics.model.warm-up:true}") boolean warmUp,
+                                  @Value("${app.analytics.inference.engine:nd4j}") Engine engine,
+                                  @Value("${app.analytics.inference.replicas:0}") int replicas,
+                                  @Value("${app.analytics.inference.queue-capacity:1000}") int queueCapacity,
+                                  @Value("${app.analytics.inference.max-batch-size:64}") int maxBatchSize,
+                                  @Value("${app.analytics.inference.max-wait-ms:5000}") long maxWaitMs) {
+        this.models = models;
+        this.aggregator = aggregator;
+        this.enabled = enabled;
+        this.warmUp = warmUp;
+        this.engine = engine;
+        // 0 means one replica per core, capped: ND4J already uses several threads per forward pass
+        this.replicas = replicas > 0 ? replicas : Math.min(4, Runtime.getRuntime().availableProcessors());
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("Model analytics disabled, inference executor not started");
+            return;
+        }
+        if (engine == Engine.JAVA) {
+            if (warmUp) {
+                Thread warmUpThread = new Thread(this::warmUpEvaluator, "analytics-inference-warmup");
+                warmUpThread.setDaemon(true);
+                warmUpThread.start();
+            }
+            logger.info(() -> "Model inference runs on the Java evaluator, warmUp=" + warmUp);
+            return;
+        }
+        running = true;
+        for (int i = 0; i < replicas; i++) {
+            int index = i;
+            Thread worker = new Thread(() -> runWorker(index), "analytics-inference-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        logger.info(() -> String.format("Model inference executor started: replicas=%d, maxBatchSize=%d, warmUp=%b",
+                replicas, maxBatchSize, warmUp));
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.join(maxWaitMs);
+        }
+    }
+
+    /**
+     * Both model outputs for the election's current features.
+     *
+     * @throws IllegalStateException if model analytics are disabled or the prediction could not be
+     *                               made within the configured wait
+     */
+    public Prediction predict(Long electionId) {
+        if (!enabled) {
+            throw new IllegalStateException("Model analytics are disabled on this node");
+        }
+        if (engine == Engine.JAVA) {
+            return evaluate(electionId);
+        }
+        PendingPrediction request = new PendingPrediction(electionId);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        try {
+            if (!queue.offer(request, maxWaitMs, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Analytics inference is saturated, please retry");
+            }
+            return request.result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            queue.remove(request);
+            throw new IllegalStateException("Prediction for election " + electionId + " timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for prediction", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Prediction failed", e.getCause());
+        }
+    }
+
+    /**
+     * {@link ModelVersion#getVersion() Version} of the model serving the election, 0 while model
+     * analytics are disabled.
+     */
+    public long modelVersion(Long electionId) {
+        return enabled ? models.forElection(electionId).getVersion() : 0L;
+    }
+
+    private Prediction evaluate(Long electionId) {
+        DenseModelEvaluator evaluator = models.forElection(electionId).evaluator();
+        Scratch scratch = scratches.get();
+        aggregator.writeFeatures(electionId, scratch.features, 0);
+        double[] probabilities = new double[evaluator.getWinnerCount()];
+        double turnout = evaluator.evaluate(scratch.features, 0, scratch.hidden(evaluator.getHiddenSize()), probabilities);
+        return new Prediction(probabilities, turnout);
+    }
+
+    private void warmUpEvaluator() {
+        try {
+            long start = System.nanoTime();
+            models.forType(null).evaluator();
+            logger.info(() -> String.format("Java model evaluator ready in %d ms",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Model warm-up failed, retrying on first request", e);
+        }
+    }
+
+    private void runWorker(int index) {
+        // Replicas of the versions this worker has served; versions have identity equality
+        Map<ModelVersion, ComputationGraph> replicas = new HashMap<>();
+        if (warmUp) {
+            warmUp(index, replicas);
+        }
+        float[] buffer = new float[maxBatchSize * ModelConfig.NUM_FEATURES];
+        List<PendingPrediction> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingPrediction first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                runBatch(index, replicas, buffer, batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Batched inference failed for " + batch.size() + " requests", e);
+                batch.forEach(p -> p.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void warmUp(int index, Map<ModelVersion, ComputationGraph> replicas) {
+        try {
+            replicaOf(index, models.forType(null), replicas);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Model warm-up failed, retrying on first request", e);
+        }
+    }
+
+    /**
+     * This worker's replica of the version. The first worker uses the version's model itself, the
+     * others their own copy of its parameters. Replicas of versions that were swapped out are dropped.
+     */
+    private ComputationGraph replicaOf(int index, ModelVersion version, Map<ModelVersion, ComputationGraph> replicas) {
+        ComputationGraph replica = replicas.get(version);
+        if (replica == null) {
+            replicas.keySet().removeIf(v -> !models.isCurrent(v));
+            long start = System.nanoTime();
+            replica = index == 0 ? version.getModel() : version.getModel().clone();
+            replicas.put(version, replica);
+            logger.info(() -> String.format("Model replica %d of %s ready in %d ms", index, version,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        }
+        return replica;
+    }
+
+    private void runBatch(int index, Map<ModelVersion, ComputationGraph> replicas, float[] buffer,
+                          List<PendingPrediction> batch) {
+        // Observers of the same election share one row, elections served by the same version one forward pass
+        Map<ModelVersion, List<Long>> groups = new LinkedHashMap<>();
+        Set<Long> electionIds = new HashSet<>();
+        for (PendingPrediction p : batch) {
+            if (electionIds.add(p.electionId)) {
+                groups.computeIfAbsent(models.forElection(p.electionId), v -> new ArrayList<>()).add(p.electionId);
+            }
+        }
+        Map<Long, Prediction> predictions = new HashMap<>();
+        for (Map.Entry<ModelVersion, List<Long>> group : groups.entrySet()) {
+            ModelVersion version = group.getKey();
+            List<Long> rows = group.getValue();
+            for (int row = 0; row < rows.size(); row++) {
+                aggregator.writeFeatures(rows.get(row), buffer, row * ModelConfig.NUM_FEATURES);
+            }
+            INDArray features = Nd4j.create(Arrays.copyOf(buffer, rows.size() * ModelConfig.NUM_FEATURES),
+                    new long[]{rows.size(), ModelConfig.NUM_FEATURES}, 'c');
+            INDArray[] outputs = replicaOf(index, version, replicas).output(version.prepare(features));
+            for (int row = 0; row < rows.size(); row++) {
+                predictions.put(rows.get(row), new Prediction(outputs[0].getRow(row).toDoubleVector(),
+                        version.turnout(outputs[1].getDouble(row, 0))));
+            }
+        }
+        for (PendingPrediction p : batch) {
+            p.result.complete(predictions.get(p.electionId));
+        }
+        logger.fine(() -> String.format("Answered %d predictions with %d forward passes over %d elections",
+                batch.size(), groups.size(), predictions.size()));
+    }
+
+    /**
+     * Outputs of one forward pass: winner probabilities (softmax head) and predicted turnout (regression head).
+     */
+    @Getter
+    public static class Prediction {
+        private final double[] winnerProbabilities;
+        private final double turnout;
+
+        public Prediction(double[] winnerProbabilities, double turnout) {
+            this.winnerProbabilities = winnerProbabilities;
+            this.turnout = turnout;
+        }
+    }
+
+    /**
+     * Per-thread buffers of the Java evaluator.
+     */
+    private static class Scratch {
+        private final float[] features = new float[ModelConfig.NUM_FEATURES];
+        private double[] hidden = new double[0];
+
+        double[] hidden(int size) {
+            if (hidden.length < size) {
+                hidden = new double[size];
+            }
+            return hidden;
+        }
+    }
+
+    private static class PendingPrediction {
+        private final Long electionId;
+        private final CompletableFuture<Prediction> result = new CompletableFuture<>();
+
+        PendingPrediction(Long electionId) {
+            this.electionId = electionId;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.tu.votingapp.analytics.voting;
+
+import com.tu.votingapp.enums.ElectionType;
+import jakarta.annotation.PreDestroy;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.MultiDataSet;
+import org.nd4j.linalg.dataset.api.preprocessor.MultiNormalizerHybrid;
+import org.nd4j.linalg.factory.Nd4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Trains one analytics model per election type from {@link TrainingDatasetBuilder} examples,
+ * checkpoints it and installs it in the {@link AnalyticsModelRegistry}. Training runs on a single
+ * low-priority thread with a bounded queue, so it neither holds request threads nor piles up work;
+ * requests beyond the queue are refused. Runs on the cron in app.analytics.training.cron, which is
+ * off ("-") by default.
+ */
+@Service
+@ConditionalOnProperty(name = "app.analytics.model.enabled", havingValue = "true", matchIfMissing = true)
+public class ModelTrainingService {
+    private final TrainingDatasetBuilder datasetBuilder;
+    private final AnalyticsModelRegistry models;
+    private final int epochs;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong lastVersion = new AtomicLong();
+    private final Logger logger = Logger.getLogger(ModelTrainingService.class.getName());
+
+    public ModelTrainingService(TrainingDatasetBuilder datasetBuilder,
+                                AnalyticsModelRegistry models,
+                                @Value("${app.analytics.training.epochs:200}") int epochs,
+                                @Value("${app.analytics.training.queue-capacity:16}") int queueCapacity) {
+        this.datasetBuilder = datasetBuilder;
+        this.models = models;
+        this.epochs = epochs;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "analytics-training");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Queue a training run for every election type.
+     */
+    @Scheduled(cron = "${app.analytics.training.cron:-}")
+    public void trainAll() {
+        for (ElectionType type : ElectionType.values()) {
+            try {
+                train(type);
+            } catch (IllegalStateException e) {
+                logger.warning(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Queue a training run for the election type.
+     *
+     * @return the installed version, or null if there was nothing to train on
+     * @throws IllegalStateException if the training queue is full
+     */
+    public CompletableFuture<ModelVersion> train(ElectionType type) {
+        try {
+            return CompletableFuture.supplyAsync(() -> trainNow(type), executor);
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("Training queue is full, skipping " + type);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private ModelVersion trainNow(ElectionType type) {
+        long start = System.nanoTime();
+        try {
+            TrainingDatasetBuilder.TrainingSet data = datasetBuilder.build(type);
+            int n = data.getSize();
+            if (n == 0) {
+                logger.info(() -> "No finished elections to train on for " + type);
+                return null;
+            }
+            INDArray features = Nd4j.create(Arrays.copyOf(data.getFeatures(), n * ModelConfig.NUM_FEATURES),
+                    new long[]{n, ModelConfig.NUM_FEATURES}, 'c');
+            INDArray winners = Nd4j.zeros(n, ModelConfig.NUM_CANDIDATES);
+            for (int i = 0; i < n; i++) {
+                winners.putScalar(i, data.getWinners()[i], 1.0);
+            }
+            INDArray turnouts = Nd4j.create(Arrays.copyOf(data.getTurnouts(), n), new long[]{n, 1}, 'c');
+            MultiDataSet dataSet = new MultiDataSet(new INDArray[]{features}, new INDArray[]{winners, turnouts});
+
+            // Vote counts span orders of magnitude; train on standardized inputs and turnout
+            MultiNormalizerHybrid normalizer = new MultiNormalizerHybrid().standardizeAllInputs().standardizeOutput(1);
+            normalizer.fit(dataSet);
+            normalizer.preProcess(dataSet);
+
+            ComputationGraph model = ModelConfig.newModel();
+            model.setListeners();
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                model.fit(dataSet);
+            }
+            ModelVersion version = new ModelVersion(type, lastVersion.updateAndGet(v -> Math.max(v + 1, System.currentTimeMillis())),
+                    model, normalizer);
+            models.saveCheckpoint(version);
+            models.install(version);
+            logger.info(() -> String.format("Trained %s on %d examples in %d ms, score %.4f", version, n,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), model.score()));
+            return version;
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Training failed for " + type, e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.tu.votingapp.analytics.voting;
+
+import com.tu.votingapp.enums.ElectionType;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.preprocessor.MultiNormalizerHybrid;
+import org.nd4j.linalg.dataset.api.preprocessor.stats.DistributionStats;
+
+/**
+ * One immutable version of the analytics model together with the scaling it was trained with.
+ * A version is never modified after it is installed; a retrained model is a new version.
+ * Only the lazily built {@link DenseModelEvaluator} is added later.
+ */
+@Getter
+public class ModelVersion {
+    /**
+     * Election type the model was trained for, or null for the untrained default model.
+     */
+    private final ElectionType electionType;
+    /**
+     * 0 for the default model, otherwise the training time in epoch millis.
+     */
+    private final long version;
+    private final ComputationGraph model;
+    /**
+     * Standardization of the inputs and of the turnout output, or null if the model uses raw values.
+     */
+    private final MultiNormalizerHybrid normalizer;
+    @Getter(AccessLevel.NONE)
+    private volatile DenseModelEvaluator evaluator;
+
+    public ModelVersion(ElectionType electionType, long version, ComputationGraph model, MultiNormalizerHybrid normalizer) {
+        this.electionType = electionType;
+        this.version = version;
+        this.model = model;
+        this.normalizer = normalizer;
+    }
+
+    /**
+     * Scale a batch of raw feature rows in place the way the training inputs were scaled.
+     */
+    public INDArray prepare(INDArray features) {
+        if (normalizer != null) {
+            DistributionStats stats = (DistributionStats) normalizer.getInputStats(0);
+            features.subiRowVector(stats.getMean()).diviRowVector(stats.getStd());
+        }
+        return features;
+    }
+
+    /**
+     * Turnout in votes from the raw output of the turnout head.
+     */
+    public double turnout(double output) {
+        if (normalizer == null) {
+            return output;
+        }
+        DistributionStats stats = (DistributionStats) normalizer.getOutputStats(1);
+        return output * stats.getStd().getDouble(0) + stats.getMean().getDouble(0);
+    }
+
+    /**
+     * Plain-Java evaluator of this version, built and validated against ND4J on first use.
+     */
+    public DenseModelEvaluator evaluator() {
+        DenseModelEvaluator result = evaluator;
+        if (result == null) {
+            synchronized (this) {
+                if (evaluator == null) {
+                    evaluator = DenseModelEvaluator.of(this);
+                }
+                result = evaluator;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return (electionType != null ? electionType.name() : "default") + "@" + version;
+    }
+}
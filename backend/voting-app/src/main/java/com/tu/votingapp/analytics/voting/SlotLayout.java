@@ -0,0 +1,122 @@
+package com.tu.votingapp.analytics.voting;
+
+import com.tu.votingapp.services.impl.elections.BallotDefinition;
+
+import java.util.Arrays;
+
+/**
+ * Immutable assignment of dense slot indexes to the choices of one election. Candidates come
+ * first, then parties, each ordered by id, so every node derives the same layout from the same
+ * ballot. Choices added later are appended, which keeps existing slots stable.
+ * Lookups work on primitive codes: a candidate id as is, a party id bit-inverted (always negative).
+ */
+public final class SlotLayout {
+    public static final SlotLayout EMPTY = new SlotLayout(new long[0]);
+
+    /**
+     * Choice code per slot.
+     */
+    private final long[] codes;
+    private final long[] sortedCodes;
+    private final int[] sortedSlots;
+
+    private SlotLayout(long[] codes) {
+        this.codes = codes;
+        Integer[] order = new Integer[codes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(codes[a], codes[b]));
+        this.sortedCodes = new long[codes.length];
+        this.sortedSlots = new int[codes.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedCodes[i] = codes[order[i]];
+            sortedSlots[i] = order[i];
+        }
+    }
+
+    public static SlotLayout of(BallotDefinition ballot) {
+        long[] candidates = ballot.getCandidateParties().keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        long[] parties = ballot.getPartyIds().stream().mapToLong(Long::longValue).sorted().toArray();
+        long[] codes = new long[candidates.length + parties.length];
+        for (int i = 0; i < candidates.length; i++) {
+            codes[i] = code(false, candidates[i]);
+        }
+        for (int i = 0; i < parties.length; i++) {
+            codes[candidates.length + i] = code(true, parties[i]);
+        }
+        return new SlotLayout(codes);
+    }
+
+    /**
+     * The layout with the given choice code per slot, as returned by {@link #toCodes()}.
+     */
+    public static SlotLayout fromCodes(long[] codes) {
+        return codes.length == 0 ? EMPTY : new SlotLayout(codes.clone());
+    }
+
+    /**
+     * Choice code per slot, for persisting the layout.
+     */
+    public long[] toCodes() {
+        return codes.clone();
+    }
+
+    /**
+     * @return the slot of the choice, or -1 if it has none in this layout
+     */
+    public int slotOf(boolean party, long id) {
+        int i = Arrays.binarySearch(sortedCodes, code(party, id));
+        return i >= 0 ? sortedSlots[i] : -1;
+    }
+
+    /**
+     * A layout with every choice of this one at the same slot, plus the given choices appended in order.
+     */
+    public SlotLayout extendWith(SlotLayout other) {
+        long[] extended = Arrays.copyOf(codes, codes.length + other.codes.length);
+        int size = codes.length;
+        for (long code : other.codes) {
+            if (Arrays.binarySearch(sortedCodes, code) < 0) {
+                extended[size++] = code;
+            }
+        }
+        return size == codes.length ? this : new SlotLayout(Arrays.copyOf(extended, size));
+    }
+
+    public SlotLayout extendWith(boolean party, long id) {
+        if (slotOf(party, id) >= 0) {
+            return this;
+        }
+        long[] extended = Arrays.copyOf(codes, codes.length + 1);
+        extended[codes.length] = code(party, id);
+        return new SlotLayout(extended);
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    public boolean isParty(int slot) {
+        return codes[slot] < 0;
+    }
+
+    /**
+     * Candidate or party id held by the slot.
+     */
+    public long idAt(int slot) {
+        long code = codes[slot];
+        return code < 0 ? ~code : code;
+    }
+
+    /**
+     * "Candidate 12" or "Party 3", for analytics messages.
+     */
+    public String labelAt(int slot) {
+        return (isParty(slot) ? "Party " : "Candidate ") + idAt(slot);
+    }
+
+    private static long code(boolean party, long id) {
+        return party ? ~id : id;
+    }
+}
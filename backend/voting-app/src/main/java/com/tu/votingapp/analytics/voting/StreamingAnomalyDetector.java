@@ -0,0 +1,294 @@
+package com.tu.votingapp.analytics.voting;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+import java.util.logging.Logger;
+
+/**
+ * Flags unusual vote rates as votes arrive. Every (election, candidate) and (election, location)
+ * series counts votes per interval and keeps an exponentially weighted mean and variance of
+ * those counts. A vote that pushes the current interval more than z-threshold standard
+ * deviations above the mean raises a spike at once. An interval that closes that far below
+ * the mean raises a drop. Each update is O(1) on primitive arrays, and the number of series per
+ * election is capped, so memory does not depend on vote volume.
+ * <p>
+ * Intervals are also closed by a periodic sweep, so a series that goes silent raises its drop
+ * while the silence lasts rather than with its next vote. The sweep follows event time: it closes
+ * every series up to the interval of the election's newest event, and up to the wall clock's
+ * interval once no event has arrived for the election since the previous sweep. A replay of old
+ * events therefore never closes intervals that are still to be replayed.
+ */
+@Component
+public class StreamingAnomalyDetector {
+    /**
+     * Silent intervals folded in one step at most; after that many the averages have decayed anyway.
+     */
+    private static final int MAX_GAP_INTERVALS = 64;
+
+    private final ElectionSlotRegistry slotRegistry;
+    private final ApplicationEventPublisher publisher;
+    private final long intervalMs;
+    private final double alpha;
+    private final double zThreshold;
+    private final int warmupIntervals;
+    private final int maxLocations;
+    private final int recentLimit;
+    private final Logger logger = Logger.getLogger(StreamingAnomalyDetector.class.getName());
+
+    private final Map<Long, ElectionSeries> elections = new ConcurrentHashMap<>();
+
+    public StreamingAnomalyDetector(ElectionSlotRegistry slotRegistry,
+                                    ApplicationEventPublisher publisher,
+                                    @Value("${app.analytics.anomaly.interval-ms:60000}") long intervalMs,
+                                    @Value("${app.analytics.anomaly.alpha:0.3}") double alpha,
+                                    @Value("${app.analytics.anomaly.z-threshold:3.0}") double zThreshold,
+                                    @Value("${app.analytics.anomaly.warmup-intervals:5}") int warmupIntervals,
+                                    @Value("${app.analytics.anomaly.max-locations-per-election:10000}") int maxLocations,
+                                    @Value("${app.analytics.anomaly.recent-limit:100}") int recentLimit) {
+        this.slotRegistry = slotRegistry;
+        this.publisher = publisher;
+        this.intervalMs = intervalMs;
+        this.alpha = alpha;
+        this.zThreshold = zThreshold;
+        this.warmupIntervals = warmupIntervals;
+        this.maxLocations = maxLocations;
+        this.recentLimit = recentLimit;
+    }
+
+    /**
+     * Account one vote for the choice slot and, if known (locationId > 0), the voter's location.
+     */
+    public void record(long electionId, int slot, long locationId, long timestamp) {
+        elections.computeIfAbsent(electionId, ElectionSeries::new).record(slot, locationId, timestamp);
+    }
+
+    /**
+     * Close the elapsed intervals of every series, see the class comment.
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.anomaly.sweep-interval-ms:10000}")
+    public void sweep() {
+        sweep(System.currentTimeMillis());
+    }
+
+    void sweep(long nowMs) {
+        long wallBucket = Math.floorDiv(nowMs, intervalMs);
+        for (ElectionSeries series : elections.values()) {
+            series.sweep(wallBucket);
+        }
+    }
+
+    /**
+     * Drop the series of the elections matching the filter, e.g. after handing them to another node,
+     * so the sweep does not report their silence here.
+     */
+    public void evict(LongPredicate filter) {
+        elections.keySet().removeIf(filter::test);
+    }
+
+    /**
+     * Anomalies raised for the election, newest first, at most recent-limit of them.
+     */
+    public List<VoteAnomalyEvent> getRecentAnomalies(Long electionId) {
+        ElectionSeries series = elections.get(electionId);
+        return series != null ? series.recent() : List.of();
+    }
+
+    /**
+     * Number of anomalies raised for the election so far, by votes or by the sweep. Grows with
+     * every anomaly, so results built from {@link #getRecentAnomalies} stay valid while it is unchanged.
+     */
+    public long getRaisedCount(Long electionId) {
+        ElectionSeries series = elections.get(electionId);
+        return series != null ? series.raised() : 0L;
+    }
+
+    private class ElectionSeries {
+        private final long electionId;
+        private final RateSeries candidates = new RateSeries();
+        private final RateSeries locations = new RateSeries();
+        private final Map<Long, Integer> locationIndex = new HashMap<>();
+        private final List<Long> locationIds = new ArrayList<>();
+        private final Deque<VoteAnomalyEvent> recent = new ArrayDeque<>();
+        private long raised;
+        /**
+         * Interval of the newest event, and its value at the previous sweep.
+         */
+        private long newestBucket = Long.MIN_VALUE;
+        private long sweptBucket = Long.MIN_VALUE;
+
+        ElectionSeries(long electionId) {
+            this.electionId = electionId;
+        }
+
+        synchronized void record(int slot, long locationId, long timestamp) {
+            long bucket = Math.floorDiv(timestamp, intervalMs);
+            newestBucket = Math.max(newestBucket, bucket);
+            candidates.observe(slot, bucket, VoteAnomalyEvent.Series.CANDIDATE, slot);
+            if (locationId > 0) {
+                Integer index = locationIndex.get(locationId);
+                if (index == null) {
+                    if (locationIndex.size() >= maxLocations) {
+                        return;
+                    }
+                    index = locationIndex.size();
+                    locationIndex.put(locationId, index);
+                    locationIds.add(locationId);
+                }
+                locations.observe(index, bucket, VoteAnomalyEvent.Series.LOCATION, locationId);
+            }
+        }
+
+        synchronized void sweep(long wallBucket) {
+            if (newestBucket == Long.MIN_VALUE) {
+                return;
+            }
+            // Events still arriving: event time is authoritative. Idle since the last sweep: the clock is.
+            long horizon = newestBucket == sweptBucket ? Math.max(newestBucket, wallBucket) : newestBucket;
+            sweptBucket = newestBucket;
+            candidates.closeUntil(horizon, VoteAnomalyEvent.Series.CANDIDATE, null);
+            locations.closeUntil(horizon, VoteAnomalyEvent.Series.LOCATION, locationIds);
+        }
+
+        synchronized List<VoteAnomalyEvent> recent() {
+            return new ArrayList<>(recent);
+        }
+
+        synchronized long raised() {
+            return raised;
+        }
+
+        private void raise(VoteAnomalyEvent.Series kind, long seriesId, long bucket, long observed, double mean, double z) {
+            String subject = kind == VoteAnomalyEvent.Series.CANDIDATE
+                    ? slotRegistry.getLayout(electionId).labelAt((int) seriesId)
+                    : "Location " + seriesId;
+            String message = String.format("%s %s: %d votes in %d s, expected %.1f (z=%.1f)",
+                    subject, z > 0 ? "spike" : "drop", observed, intervalMs / 1000, mean, z);
+            VoteAnomalyEvent event = new VoteAnomalyEvent(electionId, kind, seriesId, bucket * intervalMs,
+                    observed, mean, z, message);
+            if (recent.size() == recentLimit) {
+                recent.removeLast();
+            }
+            recent.addFirst(event);
+            raised++;
+            logger.fine(() -> "Anomaly detected: " + message);
+            publisher.publishEvent(event);
+        }
+
+        /**
+         * Parallel primitive arrays, one entry per series.
+         */
+        private class RateSeries {
+            private long[] buckets = new long[0];
+            private long[] counts = new long[0];
+            private double[] means = new double[0];
+            private double[] variances = new double[0];
+            private int[] samples = new int[0];
+            private boolean[] flagged = new boolean[0];
+            /**
+             * A drop was raised and no vote has arrived since; further silent intervals are not reported again.
+             */
+            private boolean[] dropped = new boolean[0];
+
+            void observe(int i, long bucket, VoteAnomalyEvent.Series kind, long seriesId) {
+                if (i >= buckets.length) {
+                    grow(i + 1);
+                }
+                if (buckets[i] == Long.MIN_VALUE) {
+                    buckets[i] = bucket;
+                } else if (bucket > buckets[i]) {
+                    close(i, bucket, kind, seriesId);
+                } else if (bucket < buckets[i]) {
+                    return; // late vote for an interval already folded into the averages
+                }
+                counts[i]++;
+                dropped[i] = false;
+                if (!flagged[i] && samples[i] >= warmupIntervals) {
+                    double z = (counts[i] - means[i]) / deviation(i);
+                    if (z > zThreshold) {
+                        flagged[i] = true;
+                        raise(kind, seriesId, bucket, counts[i], means[i], z);
+                    }
+                }
+            }
+
+            /**
+             * Close every series whose current interval is before the horizon; seriesIds maps an
+             * index to its series id, or null if the index is the id.
+             */
+            void closeUntil(long horizon, VoteAnomalyEvent.Series kind, List<Long> seriesIds) {
+                for (int i = 0; i < buckets.length; i++) {
+                    if (buckets[i] != Long.MIN_VALUE && buckets[i] < horizon) {
+                        close(i, horizon, kind, seriesIds == null ? i : seriesIds.get(i));
+                    }
+                }
+            }
+
+            private void close(int i, long bucket, VoteAnomalyEvent.Series kind, long seriesId) {
+                // A silence raises one drop, not one per empty interval or sweep
+                boolean checkDrop = counts[i] > 0 || !dropped[i];
+                dropped[i] |= fold(i, counts[i], checkDrop, kind, seriesId, buckets[i]);
+                long silent = Math.min(bucket - buckets[i] - 1, MAX_GAP_INTERVALS);
+                for (long k = 1; k <= silent; k++) {
+                    dropped[i] |= fold(i, 0, !dropped[i], kind, seriesId, buckets[i] + k);
+                }
+                buckets[i] = bucket;
+                counts[i] = 0;
+                flagged[i] = false;
+            }
+
+            /**
+             * Optionally check a finished interval for a drop, then add it to the weighted mean and variance.
+             *
+             * @return true if a drop was raised
+             */
+            private boolean fold(int i, long observed, boolean checkDrop, VoteAnomalyEvent.Series kind, long seriesId, long bucket) {
+                boolean raised = false;
+                if (checkDrop && samples[i] >= warmupIntervals) {
+                    double z = (observed - means[i]) / deviation(i);
+                    if (z < -zThreshold) {
+                        raise(kind, seriesId, bucket, observed, means[i], z);
+                        raised = true;
+                    }
+                }
+                double diff = observed - means[i];
+                double increment = alpha * diff;
+                means[i] += increment;
+                variances[i] = (1 - alpha) * (variances[i] + diff * increment);
+                samples[i]++;
+                return raised;
+            }
+
+            /**
+             * Observed deviation, but never below the Poisson noise expected at this mean.
+             */
+            private double deviation(int i) {
+                return Math.max(Math.sqrt(variances[i]), Math.sqrt(Math.max(means[i], 1.0)));
+            }
+
+            private void grow(int size) {
+                int newSize = Math.max(size, buckets.length * 2);
+                int from = buckets.length;
+                buckets = Arrays.copyOf(buckets, newSize);
+                Arrays.fill(buckets, from, newSize, Long.MIN_VALUE);
+                counts = Arrays.copyOf(counts, newSize);
+                means = Arrays.copyOf(means, newSize);
+                variances = Arrays.copyOf(variances, newSize);
+                samples = Arrays.copyOf(samples, newSize);
+                flagged = Arrays.copyOf(flagged, newSize);
+                dropped = Arrays.copyOf(dropped, newSize);
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.tu.votingapp.analytics.voting;
+
+import com.tu.votingapp.enums.ElectionType;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Training examples for one election type, taken from finished elections. Each example is the
+ * feature vector of {@link FeatureAggregator} at some point during an election, labelled with the
+ * slot that won and the final number of votes. Points come from two sources: the stored votes,
+ * replayed in insertion order and sampled at evenly spaced vote counts, and, for elections still
+ * held by the aggregator, the start of every hour bucket of their {@link BucketedVoteHistory}.
+ * <p>
+ * The model has fixed widths ({@link ModelConfig#NUM_FEATURES} inputs, {@link ModelConfig#NUM_CANDIDATES}
+ * outputs), so choices past them are only counted in the total, and elections won by such a
+ * choice cannot be labelled. Those elections are left out, counted in
+ * {@link TrainingSet#getSkippedElections()} and reported in the log.
+ */
+@Component
+public class TrainingDatasetBuilder {
+    private static final String FINISHED_ELECTIONS =
+            "FROM votes v JOIN elections e ON e.id = v.election_id "
+                    + "WHERE e.election_type = ? AND e.election_status IN ('ENDED', 'CLOSED') ";
+    private static final String SELECT_FINAL_COUNTS =
+            "SELECT v.election_id, v.candidate_id, v.party_id, COUNT(*) " + FINISHED_ELECTIONS
+                    + "GROUP BY v.election_id, v.candidate_id, v.party_id";
+    private static final String SELECT_VOTES =
+            "SELECT v.election_id, v.candidate_id, v.party_id " + FINISHED_ELECTIONS
+                    + "ORDER BY v.election_id, v.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ElectionSlotRegistry slotRegistry;
+    private final FeatureAggregator aggregator;
+    private final int samplesPerElection;
+    private final Logger logger = Logger.getLogger(TrainingDatasetBuilder.class.getName());
+
+    public TrainingDatasetBuilder(JdbcTemplate jdbcTemplate,
+                                  ElectionSlotRegistry slotRegistry,
+                                  FeatureAggregator aggregator,
+                                  @Value("${app.analytics.training.samples-per-election:20}") int samplesPerElection) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.slotRegistry = slotRegistry;
+        this.aggregator = aggregator;
+        this.samplesPerElection = samplesPerElection;
+    }
+
+    /**
+     * Examples from all finished elections of the type. Elections whose winning slot is outside the
+     * model's {@link ModelConfig#NUM_CANDIDATES} outputs are left out and counted.
+     */
+    public TrainingSet build(ElectionType type) {
+        // election_type has no @Enumerated mapping and is stored as the ordinal
+        int typeCode = type.ordinal();
+        // Private copies of the layouts; choices missing from them are appended here, not to the live layouts
+        Map<Long, SlotLayout> layouts = new HashMap<>();
+        Map<Long, long[]> finals = new HashMap<>();
+        jdbcTemplate.query(SELECT_FINAL_COUNTS, rs -> {
+            long electionId = rs.getLong(1);
+            int slot = slotOf(layouts, electionId, rs.getObject(2, Long.class), rs.getObject(3, Long.class));
+            long[] counts = finals.compute(electionId, (k, existing) -> existing == null
+                    ? new long[Math.max(ModelConfig.NUM_FEATURES, slot + 2)]
+                    : existing.length < slot + 2 ? Arrays.copyOf(existing, slot + 2) : existing);
+            long votes = rs.getLong(4);
+            // Index 0 holds the total, followed by every slot so the winner is found even past the model's width
+            counts[0] += votes;
+            counts[slot + 1] += votes;
+        }, typeCode);
+
+        TrainingSet set = new TrainingSet();
+        int wide = 0;
+        for (Map.Entry<Long, long[]> entry : finals.entrySet()) {
+            if (layouts.get(entry.getKey()).size() >= ModelConfig.NUM_FEATURES) {
+                wide++;
+            }
+            if (entry.getValue()[0] > 0 && winner(entry.getValue()) < 0) {
+                set.skippedElections++;
+            }
+        }
+        if (set.skippedElections > 0 || wide > 0) {
+            int truncated = wide;
+            logger.warning(() -> String.format("Training set for %s: %d of %d elections have more choices than the "
+                            + "model's %d inputs, %d are left out because their winner is outside its %d outputs",
+                    type, truncated, finals.size(), ModelConfig.NUM_FEATURES - 1, set.skippedElections,
+                    ModelConfig.NUM_CANDIDATES));
+        }
+        Replay replay = new Replay(set, finals);
+        jdbcTemplate.query(SELECT_VOTES, rs -> {
+            replay.vote(rs.getLong(1), slotOf(layouts, rs.getLong(1), rs.getObject(2, Long.class), rs.getObject(3, Long.class)));
+        }, typeCode);
+        int fromVotes = set.getSize();
+
+        for (Map.Entry<Long, long[]> entry : finals.entrySet()) {
+            addHistorySamples(set, entry.getKey(), entry.getValue());
+        }
+        logger.info(() -> String.format("Training set for %s: %d examples from %d elections (%d from stored votes)",
+                type, set.getSize(), finals.size() - set.skippedElections, fromVotes));
+        return set;
+    }
+
+    private int slotOf(Map<Long, SlotLayout> layouts, long electionId, Long candidateId, Long partyId) {
+        boolean party = candidateId == null;
+        long id = party ? partyId : candidateId;
+        SlotLayout layout = layouts.computeIfAbsent(electionId, slotRegistry::peekLayout);
+        int slot = layout.slotOf(party, id);
+        if (slot < 0) {
+            layout = layout.extendWith(party, id);
+            layouts.put(electionId, layout);
+            slot = layout.slotOf(party, id);
+        }
+        return slot;
+    }
+
+    /**
+     * Counts at the start of each hour bucket: the current counts minus the votes of the newer buckets.
+     */
+    private void addHistorySamples(TrainingSet set, long electionId, long[] finalCounts) {
+        BucketedVoteHistory history = aggregator.getHistory(electionId);
+        int winner = winner(finalCounts);
+        if (history == null || winner < 0) {
+            return;
+        }
+        long[] counts = aggregator.getCounts(electionId);
+        long[] newer = new long[counts.length];
+        float[] row = new float[ModelConfig.NUM_FEATURES];
+        long previousTotal = -1;
+        for (int k = 1; k <= BucketedVoteHistory.Resolution.HOUR.getBuckets(); k++) {
+            Arrays.fill(newer, 0);
+            history.recentVotes(BucketedVoteHistory.Resolution.HOUR, k, newer);
+            long total = 0;
+            for (int slot = 0; slot < counts.length; slot++) {
+                total += counts[slot] - newer[slot];
+            }
+            if (total <= 0) {
+                break;
+            }
+            if (total == previousTotal) {
+                continue;
+            }
+            previousTotal = total;
+            row[0] = total;
+            for (int i = 1; i < row.length; i++) {
+                row[i] = i - 1 < counts.length ? counts[i - 1] - newer[i - 1] : 0;
+            }
+            set.add(row, winner, finalCounts[0]);
+        }
+    }
+
+    /**
+     * Winning slot of a final count vector, or -1 if there is none the model can output.
+     */
+    private static int winner(long[] finalCounts) {
+        int winner = -1;
+        for (int slot = 0; slot + 1 < finalCounts.length; slot++) {
+            if (finalCounts[slot + 1] > 0 && (winner < 0 || finalCounts[slot + 1] > finalCounts[winner + 1])) {
+                winner = slot;
+            }
+        }
+        return winner < ModelConfig.NUM_CANDIDATES ? winner : -1;
+    }
+
+    /**
+     * Replays the stored votes of one election after another and samples the running counts.
+     */
+    private class Replay {
+        private final TrainingSet set;
+        private final Map<Long, long[]> finals;
+        private final float[] row = new float[ModelConfig.NUM_FEATURES];
+        private long electionId = -1;
+        private long[] finalCounts;
+        private int winner;
+        private long seen;
+        private int nextSample;
+
+        Replay(TrainingSet set, Map<Long, long[]> finals) {
+            this.set = set;
+            this.finals = finals;
+        }
+
+        void vote(long election, int slot) {
+            if (election != electionId) {
+                electionId = election;
+                finalCounts = finals.get(election);
+                winner = finalCounts != null ? winner(finalCounts) : -1;
+                Arrays.fill(row, 0f);
+                seen = 0;
+                nextSample = 1;
+            }
+            if (winner < 0) {
+                return;
+            }
+            seen++;
+            row[0] = seen;
+            if (slot + 1 < row.length) {
+                row[slot + 1]++;
+            }
+            // Sample k is taken after k / (samplesPerElection + 1) of the election's votes
+            while (nextSample <= samplesPerElection
+                    && seen * (samplesPerElection + 1) >= nextSample * finalCounts[0]) {
+                set.add(row, winner, finalCounts[0]);
+                nextSample++;
+            }
+        }
+    }
+
+    /**
+     * Examples as growable primitive arrays: features row-major, then the labels of both model heads.
+     */
+    @Getter
+    public static class TrainingSet {
+        private float[] features = new float[64 * ModelConfig.NUM_FEATURES];
+        private int[] winners = new int[64];
+        private float[] turnouts = new float[64];
+        private int size;
+        /**
+         * Finished elections left out because the model cannot output their winner.
+         */
+        private int skippedElections;
+
+        public void add(float[] row, int winner, long turnout) {
+            if (size == winners.length) {
+                features = Arrays.copyOf(features, features.length * 2);
+                winners = Arrays.copyOf(winners, winners.length * 2);
+                turnouts = Arrays.copyOf(turnouts, turnouts.length * 2);
+            }
+            System.arraycopy(row, 0, features, size * ModelConfig.NUM_FEATURES, ModelConfig.NUM_FEATURES);
+            winners[size] = winner;
+            turnouts[size] = turnout;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.tu.votingapp.analytics.voting;
+
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * Vote-share trends over sliding windows of several lengths. For each election and window a
+ * preallocated ring holds the share of every choice sampled at a fixed step. A least-squares fit
+ * is kept up to date with running sums, in O(choices) per step. A trend query reads the newest
+ * and oldest sample and the running sums, so its cost depends on the number of choices, not on
+ * the number of votes.
+ * <p>
+ * The state of an election is checkpointed and moved between nodes with the rest of its
+ * analytics state by {@link FeatureAggregator}.
+ */
+@Component
+public class TrendEngine {
+
+    public enum Window {
+        ONE_MINUTE("1m", 60_000L),
+        FIFTEEN_MINUTES("15m", 900_000L),
+        ONE_HOUR("1h", 3_600_000L);
+
+        /**
+         * Share samples per window; the sampling step is the window length divided by this.
+         */
+        static final int SAMPLES = 60;
+
+        private final String label;
+        private final long lengthMillis;
+
+        Window(String label, long lengthMillis) {
+            this.label = label;
+            this.lengthMillis = lengthMillis;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        long stepMillis() {
+            return lengthMillis / SAMPLES;
+        }
+
+        /**
+         * @throws IllegalArgumentException for an unknown label
+         */
+        public static Window fromLabel(String label) {
+            for (Window window : values()) {
+                if (window.label.equals(label)) {
+                    return window;
+                }
+            }
+            throw new IllegalArgumentException("Unknown trend window '" + label + "', expected 1m, 15m or 1h");
+        }
+    }
+
+    private final Map<Long, ElectionTrends> elections = new ConcurrentHashMap<>();
+
+    /**
+     * Account one vote for the choice slot at the event time.
+     */
+    public void record(long electionId, int slot, long timestamp) {
+        elections.computeIfAbsent(electionId, k -> new ElectionTrends()).record(slot, timestamp);
+    }
+
+    /**
+     * Per slot of the election's layout: change of vote share over the window and fitted slope.
+     * Empty if nothing was recorded for the election yet.
+     */
+    public List<Trend> getTrends(Long electionId, Window window) {
+        ElectionTrends trends = elections.get(electionId);
+        return trends != null ? trends.query(window) : List.of();
+    }
+
+    /**
+     * Drop the trends of the elections matching the filter.
+     */
+    public void evict(LongPredicate filter) {
+        elections.keySet().removeIf(filter::test);
+    }
+
+    /**
+     * Write the election's counters and share rings, for {@link #restore}.
+     */
+    public void writeTo(long electionId, DataOutput out) throws IOException {
+        ElectionTrends trends = elections.get(electionId);
+        out.writeBoolean(trends != null);
+        if (trends != null) {
+            trends.writeTo(out);
+        }
+    }
+
+    /**
+     * Replace the election's trends with those written by {@link #writeTo}.
+     */
+    public void restore(long electionId, DataInput in) throws IOException {
+        if (in.readBoolean()) {
+            elections.put(electionId, ElectionTrends.readFrom(in));
+        } else {
+            elections.remove(electionId);
+        }
+    }
+
+    /**
+     * Share movement of one choice over a window.
+     */
+    @Getter
+    public static class Trend {
+        private final int slot;
+        /**
+         * Current share minus the share at the start of the window.
+         */
+        private final double shareChange;
+        /**
+         * Least-squares slope of the sampled share, in share per minute.
+         */
+        private final double slopePerMinute;
+
+        Trend(int slot, double shareChange, double slopePerMinute) {
+            this.slot = slot;
+            this.shareChange = shareChange;
+            this.slopePerMinute = slopePerMinute;
+        }
+
+        /**
+         * Whether the change crosses {@link FeatureAggregator#TREND_THRESHOLD}.
+         */
+        public boolean isSignificant() {
+            return Math.abs(shareChange) > FeatureAggregator.TREND_THRESHOLD;
+        }
+    }
+
+    private static class ElectionTrends {
+        private long[] counts = new long[16];
+        private int slots;
+        private long total;
+        private final ShareRing[] rings = new ShareRing[Window.values().length];
+
+        ElectionTrends() {
+            for (Window window : Window.values()) {
+                rings[window.ordinal()] = new ShareRing(window);
+            }
+        }
+
+        synchronized void record(int slot, long timestamp) {
+            // Close the steps that ended before this vote, then count it
+            for (ShareRing ring : rings) {
+                ring.advance(Math.floorDiv(timestamp, ring.step), this);
+            }
+            if (slot >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(slot + 1, counts.length * 2));
+            }
+            slots = Math.max(slots, slot + 1);
+            counts[slot]++;
+            total++;
+        }
+
+        synchronized List<Trend> query(Window window) {
+            return rings[window.ordinal()].trends(this);
+        }
+
+        double share(int slot) {
+            return total == 0 ? 0.0 : (double) counts[slot] / total;
+        }
+
+        synchronized void writeTo(DataOutput out) throws IOException {
+            out.writeLong(total);
+            out.writeInt(slots);
+            for (int s = 0; s < slots; s++) {
+                out.writeLong(counts[s]);
+            }
+            for (ShareRing ring : rings) {
+                ring.writeTo(out, slots);
+            }
+        }
+
+        static ElectionTrends readFrom(DataInput in) throws IOException {
+            ElectionTrends trends = new ElectionTrends();
+            trends.total = in.readLong();
+            trends.slots = in.readInt();
+            trends.counts = new long[Math.max(16, trends.slots)];
+            for (int s = 0; s < trends.slots; s++) {
+                trends.counts[s] = in.readLong();
+            }
+            for (ShareRing ring : trends.rings) {
+                ring.readFrom(in, trends.slots);
+            }
+            return trends;
+        }
+    }
+
+    /**
+     * Ring of share samples for one window with running sums of y and x*y per slot,
+     * where x is the sample's position in the window (0 = oldest).
+     */
+    private static class ShareRing {
+        private final long step;
+        private final double[][] samples = new double[Window.SAMPLES][16];
+        private double[] sumY = new double[16];
+        private double[] sumXY = new double[16];
+        private int head;
+        private int filled;
+        private long lastStep = Long.MIN_VALUE;
+
+        ShareRing(Window window) {
+            this.step = window.stepMillis();
+        }
+
+        void advance(long currentStep, ElectionTrends election) {
+            if (lastStep == Long.MIN_VALUE) {
+                lastStep = currentStep;
+                return;
+            }
+            long elapsed = Math.min(currentStep - lastStep, Window.SAMPLES);
+            for (long i = 0; i < elapsed; i++) {
+                // Steps without votes keep the share of the last one
+                push(election);
+            }
+            lastStep = Math.max(lastStep, currentStep);
+        }
+
+        private void push(ElectionTrends election) {
+            int n = Window.SAMPLES;
+            ensureCapacity(election.slots);
+            int index;
+            if (filled < n) {
+                index = (head + filled) % n;
+                for (int s = 0; s < election.slots; s++) {
+                    double y = election.share(s);
+                    sumXY[s] += filled * y;
+                    sumY[s] += y;
+                    samples[index][s] = y;
+                }
+                filled++;
+            } else {
+                // Drop the oldest sample; every remaining one moves one position towards x = 0
+                index = head;
+                for (int s = 0; s < election.slots; s++) {
+                    double y = election.share(s);
+                    double oldest = samples[index][s];
+                    sumXY[s] = sumXY[s] - (sumY[s] - oldest) + (n - 1) * y;
+                    sumY[s] = sumY[s] - oldest + y;
+                    samples[index][s] = y;
+                }
+                head = (head + 1) % n;
+                if (head == 0) {
+                    recomputeSums(election.slots);
+                }
+            }
+        }
+
+        List<Trend> trends(ElectionTrends election) {
+            List<Trend> trends = new ArrayList<>(election.slots);
+            if (filled == 0) {
+                return trends;
+            }
+            double f = filled;
+            double sumX = f * (f - 1) / 2;
+            double sumXX = (f - 1) * f * (2 * f - 1) / 6;
+            double denominator = f * sumXX - sumX * sumX;
+            double stepsPerMinute = 60_000.0 / step;
+            for (int s = 0; s < election.slots; s++) {
+                double oldest = s < samples[head].length ? samples[head][s] : 0.0;
+                double slope = 0.0;
+                if (denominator > 0 && s < sumY.length) {
+                    slope = (f * sumXY[s] - sumX * sumY[s]) / denominator * stepsPerMinute;
+                }
+                trends.add(new Trend(s, election.share(s) - oldest, slope));
+            }
+            return trends;
+        }
+
+        /**
+         * Samples are written oldest first, so a restored ring starts its lap at index 0.
+         */
+        void writeTo(DataOutput out, int slots) throws IOException {
+            out.writeLong(lastStep);
+            out.writeInt(filled);
+            for (int x = 0; x < filled; x++) {
+                double[] row = samples[(head + x) % Window.SAMPLES];
+                for (int s = 0; s < slots; s++) {
+                    out.writeDouble(s < row.length ? row[s] : 0.0);
+                }
+            }
+        }
+
+        void readFrom(DataInput in, int slots) throws IOException {
+            ensureCapacity(slots);
+            lastStep = in.readLong();
+            filled = in.readInt();
+            head = 0;
+            for (int x = 0; x < filled; x++) {
+                for (int s = 0; s < slots; s++) {
+                    samples[x][s] = in.readDouble();
+                }
+            }
+            recomputeSums(slots);
+        }
+
+        /**
+         * Exact sums once per lap, so rounding in the sliding updates cannot accumulate.
+         */
+        private void recomputeSums(int slots) {
+            Arrays.fill(sumY, 0.0);
+            Arrays.fill(sumXY, 0.0);
+            for (int x = 0; x < filled; x++) {
+                double[] row = samples[(head + x) % Window.SAMPLES];
+                for (int s = 0; s < slots; s++) {
+                    sumY[s] += row[s];
+                    sumXY[s] += x * row[s];
+                }
+            }
+        }
+
+        private void ensureCapacity(int slots) {
+            if (slots <= sumY.length) {
+                return;
+            }
+            int size = Math.max(slots, sumY.length * 2);
+            sumY = Arrays.copyOf(sumY, size);
+            sumXY = Arrays.copyOf(sumXY, size);
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = Arrays.copyOf(samples[i], size);
+            }
+        }
+    }
+}
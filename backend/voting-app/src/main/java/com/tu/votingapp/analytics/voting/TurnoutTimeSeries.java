@@ -0,0 +1,274 @@
+package com.tu.votingapp.analytics.voting;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Append-only per-minute vote counts of one election, for the election as a whole and per voter
+ * location. The newest {@link #RING_SEGMENTS} hours of a series live in a fixed-size int ring;
+ * an hour that leaves the ring is sealed into a compact segment (its 60 minute counts as varints,
+ * typically a few dozen bytes) and never changes again except for a rare late vote.
+ * Range queries walk at most one segment per hour of the range, so a whole election day costs a
+ * few hundred array reads, and none of it touches the votes table.
+ */
+public class TurnoutTimeSeries {
+    /**
+     * Location id selecting the series of the whole election.
+     */
+    public static final long ALL_LOCATIONS = -1L;
+    public static final long MINUTE_MILLIS = 60_000L;
+    static final int SEGMENT_MINUTES = 60;
+    static final int RING_SEGMENTS = 2;
+
+    private final Series total = new Series();
+    private final Map<Long, Series> locations = new HashMap<>();
+
+    /**
+     * Count one vote at the given event time. A locationId of 0 (unknown) counts towards the total only.
+     */
+    public synchronized void record(long locationId, long timestamp) {
+        long minute = Math.floorDiv(timestamp, MINUTE_MILLIS);
+        total.add(minute);
+        if (locationId != 0) {
+            locations.computeIfAbsent(locationId, k -> new Series()).add(minute);
+        }
+    }
+
+    /**
+     * First minute (epoch millis / 60000) with a vote in the series, or Long.MAX_VALUE if it has none.
+     */
+    public synchronized long getFirstMinute(long locationId) {
+        Series series = series(locationId);
+        return series != null ? series.firstMinute : Long.MAX_VALUE;
+    }
+
+    /**
+     * Newest minute with a vote in the series, or Long.MIN_VALUE if it has none.
+     */
+    public synchronized long getLatestMinute(long locationId) {
+        Series series = series(locationId);
+        return series != null ? series.latestMinute : Long.MIN_VALUE;
+    }
+
+    /**
+     * Votes of the series in [fromMinute, toMinute), summed into buckets of stepMinutes; the last
+     * bucket may be shorter.
+     */
+    public synchronized long[] votes(long locationId, long fromMinute, long toMinute, int stepMinutes) {
+        if (stepMinutes <= 0) {
+            throw new IllegalArgumentException("stepMinutes must be positive");
+        }
+        long[] into = new long[toMinute > fromMinute ? (int) ((toMinute - fromMinute + stepMinutes - 1) / stepMinutes) : 0];
+        Series series = series(locationId);
+        if (series != null && into.length > 0) {
+            series.sum(fromMinute, toMinute, minute -> (int) ((minute - fromMinute) / stepMinutes), into);
+        }
+        return into;
+    }
+
+    /**
+     * Votes of the series before the given minute.
+     */
+    public synchronized long votesBefore(long locationId, long minute) {
+        Series series = series(locationId);
+        if (series == null || minute <= series.firstMinute) {
+            return 0;
+        }
+        long[] into = new long[1];
+        series.sum(series.firstMinute, minute, m -> 0, into);
+        return into[0];
+    }
+
+    /**
+     * Write the rings and sealed segments of every series, for {@link #readFrom}.
+     */
+    public synchronized void writeTo(DataOutput out) throws IOException {
+        total.writeTo(out);
+        out.writeInt(locations.size());
+        for (Map.Entry<Long, Series> entry : locations.entrySet()) {
+            out.writeLong(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+    }
+
+    public static TurnoutTimeSeries readFrom(DataInput in) throws IOException {
+        TurnoutTimeSeries series = new TurnoutTimeSeries();
+        series.total.readFrom(in);
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long locationId = in.readLong();
+            Series location = new Series();
+            location.readFrom(in);
+            series.locations.put(locationId, location);
+        }
+        return series;
+    }
+
+    private Series series(long locationId) {
+        return locationId == ALL_LOCATIONS ? total : locations.get(locationId);
+    }
+
+    static byte[] encode(int[] minutes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(SEGMENT_MINUTES);
+        for (int count : minutes) {
+            int value = count;
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+        return out.toByteArray();
+    }
+
+    static void decode(byte[] segment, int[] minutes) {
+        int position = 0;
+        for (int minute = 0; minute < SEGMENT_MINUTES; minute++) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (position >= segment.length || shift > 28) {
+                    throw new IllegalArgumentException("Truncated turnout segment");
+                }
+                b = segment[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            minutes[minute] = value;
+        }
+    }
+
+    private interface BucketOf {
+        int of(long minute);
+    }
+
+    /**
+     * Minute counts of one series. ring holds the hours (newestSegment - RING_SEGMENTS, newestSegment];
+     * older hours with votes are in sealed, keyed by hour number (minute / 60).
+     */
+    private static final class Series {
+        private final int[] ring = new int[RING_SEGMENTS * SEGMENT_MINUTES];
+        private final TreeMap<Long, byte[]> sealed = new TreeMap<>();
+        private long newestSegment = Long.MIN_VALUE;
+        private long firstMinute = Long.MAX_VALUE;
+        private long latestMinute = Long.MIN_VALUE;
+
+        void add(long minute) {
+            long segment = Math.floorDiv(minute, SEGMENT_MINUTES);
+            if (newestSegment == Long.MIN_VALUE) {
+                newestSegment = segment;
+            } else if (segment > newestSegment) {
+                advance(segment);
+            }
+            firstMinute = Math.min(firstMinute, minute);
+            latestMinute = Math.max(latestMinute, minute);
+            if (segment <= newestSegment - RING_SEGMENTS) {
+                // Late vote for an hour already sealed
+                int[] minutes = new int[SEGMENT_MINUTES];
+                byte[] existing = sealed.get(segment);
+                if (existing != null) {
+                    decode(existing, minutes);
+                }
+                minutes[(int) (minute - segment * SEGMENT_MINUTES)]++;
+                sealed.put(segment, encode(minutes));
+                return;
+            }
+            ring[index(minute)]++;
+        }
+
+        /**
+         * Seal the hours that leave the ring when the newest hour becomes segment; their positions
+         * are the ones the new hours reuse, so they are cleared on the way.
+         */
+        private void advance(long segment) {
+            long oldestKept = segment - RING_SEGMENTS + 1;
+            for (long leaving = newestSegment - RING_SEGMENTS + 1; leaving < oldestKept && leaving <= newestSegment; leaving++) {
+                int from = index(leaving * SEGMENT_MINUTES);
+                int[] minutes = Arrays.copyOfRange(ring, from, from + SEGMENT_MINUTES);
+                Arrays.fill(ring, from, from + SEGMENT_MINUTES, 0);
+                for (int count : minutes) {
+                    if (count != 0) {
+                        sealed.put(leaving, encode(minutes));
+                        break;
+                    }
+                }
+            }
+            newestSegment = segment;
+        }
+
+        /**
+         * Add the votes of the minutes in [fromMinute, toMinute) to into[bucketOf(minute)].
+         */
+        void sum(long fromMinute, long toMinute, BucketOf bucketOf, long[] into) {
+            if (newestSegment == Long.MIN_VALUE) {
+                return;
+            }
+            long fromSegment = Math.floorDiv(fromMinute, SEGMENT_MINUTES);
+            long toSegment = Math.floorDiv(toMinute - 1, SEGMENT_MINUTES);
+            int[] minutes = new int[SEGMENT_MINUTES];
+            for (Map.Entry<Long, byte[]> entry : sealed.subMap(fromSegment, true, toSegment, true).entrySet()) {
+                decode(entry.getValue(), minutes);
+                addMinutes(entry.getKey(), minutes, 0, fromMinute, toMinute, bucketOf, into);
+            }
+            long firstRing = Math.max(newestSegment - RING_SEGMENTS + 1, fromSegment);
+            for (long segment = firstRing; segment <= Math.min(newestSegment, toSegment); segment++) {
+                addMinutes(segment, ring, index(segment * SEGMENT_MINUTES), fromMinute, toMinute, bucketOf, into);
+            }
+        }
+
+        private static void addMinutes(long segment, int[] counts, int offset, long fromMinute, long toMinute,
+                                       BucketOf bucketOf, long[] into) {
+            long start = segment * SEGMENT_MINUTES;
+            int first = (int) Math.max(0, fromMinute - start);
+            int last = (int) Math.min(SEGMENT_MINUTES, toMinute - start);
+            for (int minute = first; minute < last; minute++) {
+                int count = counts[offset + minute];
+                if (count != 0) {
+                    into[bucketOf.of(start + minute)] += count;
+                }
+            }
+        }
+
+        private int index(long minute) {
+            return (int) Math.floorMod(minute, (long) ring.length);
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            out.writeLong(newestSegment);
+            out.writeLong(firstMinute);
+            out.writeLong(latestMinute);
+            for (int count : ring) {
+                out.writeInt(count);
+            }
+            out.writeInt(sealed.size());
+            for (Map.Entry<Long, byte[]> entry : sealed.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeShort(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+        }
+
+        void readFrom(DataInput in) throws IOException {
+            newestSegment = in.readLong();
+            firstMinute = in.readLong();
+            latestMinute = in.readLong();
+            for (int i = 0; i < ring.length; i++) {
+                ring[i] = in.readInt();
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long segment = in.readLong();
+                byte[] bytes = new byte[in.readUnsignedShort()];
+                in.readFully(bytes);
+                sealed.put(segment, bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.tu.votingapp.analytics.voting;
+
+import lombok.Getter;
+
+/**
+ * Published by {@link StreamingAnomalyDetector} when the vote rate of a series leaves its expected range.
+ */
+@Getter
+public class VoteAnomalyEvent {
+
+    public enum Series {
+        CANDIDATE,
+        LOCATION
+    }
+
+    private final Long electionId;
+    private final Series series;
+    /**
+     * Slot of the choice for {@link Series#CANDIDATE}, location id for {@link Series#LOCATION}.
+     */
+    private final long seriesId;
+    /**
+     * Start of the interval in which the anomaly was observed, epoch millis.
+     */
+    private final long intervalStart;
+    private final long observedVotes;
+    private final double expectedVotes;
+    private final double zScore;
+    private final String message;
+
+    public VoteAnomalyEvent(Long electionId, Series series, long seriesId, long intervalStart,
+                            long observedVotes, double expectedVotes, double zScore, String message) {
+        this.electionId = electionId;
+        this.series = series;
+        this.seriesId = seriesId;
+        this.intervalStart = intervalStart;
+        this.observedVotes = observedVotes;
+        this.expectedVotes = expectedVotes;
+        this.zScore = zScore;
+        this.message = message;
+    }
+}
@@ -1,16 +1,22 @@
 package com.tu.votingapp.controllers;
 
 import com.tu.votingapp.analytics.voting.AnalyticsModelService;
+import com.tu.votingapp.analytics.voting.AnalyticsResultCache;
+import com.tu.votingapp.analytics.voting.TrendEngine;
 import com.tu.votingapp.dto.general.analytics.AnomalyDTO;
 import com.tu.votingapp.dto.general.analytics.ForecastDTO;
 import com.tu.votingapp.dto.general.analytics.TrendDTO;
 import com.tu.votingapp.dto.general.analytics.TurnoutDTO;
+import com.tu.votingapp.dto.general.analytics.TurnoutSeriesDTO;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.logging.Logger;
@@ -18,63 +24,142 @@ import java.util.stream.Collectors;
 
 /**
  * REST endpoints for analytics: forecasting, turnout, anomaly and trend detection.
+ * Results are cached per election epoch and carry an ETag, so polling clients get 304 until a new vote arrives,
+ * for model outputs until a new model is installed, and for anomalies until one is raised.
+ * Model-based endpoints answer 503 while the model is disabled on this node or inference is saturated.
  */
 @RestController
 @RequestMapping("/api/analysis")
 @RequiredArgsConstructor
 public class AnalysisController {
+    private static final int MAX_SERIES_BUCKETS = 10_000;
+
     private final AnalyticsModelService analyticsService;
+    private final AnalyticsResultCache resultCache;
     private final Logger logger = Logger.getLogger(AnalysisController.class.getName());
 
     /**
      * Winner probability forecasting for each candidate in the election.
      */
     @GetMapping("/elections/{electionId}/forecast")
-    public ResponseEntity<ForecastDTO> getForecast(@PathVariable Long electionId) {
+    public ResponseEntity<ForecastDTO> getForecast(@PathVariable Long electionId, WebRequest request) {
         logger.info(() -> "Forecast requested for electionId=" + electionId);
-        double[] probabilities = analyticsService.forecastWinners(electionId);
-        ForecastDTO dto = new ForecastDTO(electionId, probabilities);
-        logger.fine(() -> "Forecast completed for electionId=" + electionId + ", probsSize=" + probabilities.length);
-        return ResponseEntity.ok(dto);
+        long model = analyticsService.getModelVersion(electionId);
+        long epoch = analyticsService.getEpoch(electionId);
+        String eTag = resultCache.eTag("forecast", electionId, model, epoch);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        ForecastDTO dto;
+        try {
+            dto = resultCache.get("forecast", electionId, model, epoch,
+                    () -> new ForecastDTO(electionId, analyticsService.forecastWinners(electionId)));
+        } catch (IllegalStateException e) {
+            logger.warning("Forecast unavailable: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        logger.fine(() -> "Forecast completed for electionId=" + electionId + ", probsSize=" + dto.getProbabilities().length);
+        return ResponseEntity.ok().eTag(eTag).body(dto);
     }
 
     /**
      * Turnout prediction for the election.
      */
     @GetMapping("/elections/{electionId}/turnout")
-    public ResponseEntity<TurnoutDTO> getTurnout(@PathVariable Long electionId) {
+    public ResponseEntity<TurnoutDTO> getTurnout(@PathVariable Long electionId, WebRequest request) {
         logger.info(() -> "Turnout prediction requested for electionId=" + electionId);
-        double predicted = analyticsService.predictTurnout(electionId);
-        TurnoutDTO dto = new TurnoutDTO(electionId, predicted);
-        logger.fine(() -> String.format("Predicted turnout for electionId=%d: %.2f", electionId, predicted));
-        return ResponseEntity.ok(dto);
+        long model = analyticsService.getModelVersion(electionId);
+        long epoch = analyticsService.getEpoch(electionId);
+        String eTag = resultCache.eTag("turnout", electionId, model, epoch);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        TurnoutDTO dto;
+        try {
+            dto = resultCache.get("turnout", electionId, model, epoch,
+                    () -> new TurnoutDTO(electionId, analyticsService.predictTurnout(electionId)));
+        } catch (IllegalStateException e) {
+            logger.warning("Turnout prediction unavailable: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        logger.fine(() -> String.format("Predicted turnout for electionId=%d: %.2f", electionId, dto.getPredictedTurnout()));
+        return ResponseEntity.ok().eTag(eTag).body(dto);
+    }
+
+    /**
+     * Votes per time bucket over the election day, for the election or one voter location.
+     * from and to are epoch milliseconds and default to the first and last vote.
+     */
+    @GetMapping("/elections/{electionId}/turnout/series")
+    public ResponseEntity<TurnoutSeriesDTO> getTurnoutSeries(@PathVariable Long electionId,
+                                                             @RequestParam(required = false) Long locationId,
+                                                             @RequestParam(required = false) Long from,
+                                                             @RequestParam(required = false) Long to,
+                                                             @RequestParam(defaultValue = "15") int stepMinutes,
+                                                             WebRequest request) {
+        logger.info(() -> String.format("Turnout series requested for electionId=%d, locationId=%s, from=%s, to=%s, step=%d",
+                electionId, locationId, from, to, stepMinutes));
+        long epoch = analyticsService.getEpoch(electionId);
+        String eTag = resultCache.eTag("turnout-series-" + locationId + "-" + from + "-" + to + "-" + stepMinutes, electionId, epoch);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        TurnoutSeriesDTO dto;
+        try {
+            dto = analyticsService.turnoutSeries(electionId, locationId, from, to, stepMinutes, MAX_SERIES_BUCKETS);
+        } catch (IllegalArgumentException e) {
+            logger.warning("Turnout series rejected: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        logger.fine(() -> "Turnout series for electionId=" + electionId + ": " + dto.getVotes().length + " buckets");
+        return ResponseEntity.ok().eTag(eTag).body(dto);
     }
 
     /**
      * Detect anomalies in voting patterns for the election.
      */
     @GetMapping("/elections/{electionId}/anomalies")
-    public ResponseEntity<List<AnomalyDTO>> getAnomalies(@PathVariable Long electionId) {
+    public ResponseEntity<List<AnomalyDTO>> getAnomalies(@PathVariable Long electionId, WebRequest request) {
         logger.info(() -> "Anomaly detection requested for electionId=" + electionId);
-        List<String> anomalies = analyticsService.detectAnomalies(electionId);
-        List<AnomalyDTO> dtos = anomalies.stream()
-                .map(msg -> new AnomalyDTO(electionId, msg))
-                .collect(Collectors.toList());
-        logger.info(() -> String.format("Anomaly detection found %d issues for electionId=%d", anomalies.size(), electionId));
-        return ResponseEntity.ok(dtos);
+        long epoch = analyticsService.getAnomalyVersion(electionId);
+        String eTag = resultCache.eTag("anomalies", electionId, epoch);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        List<AnomalyDTO> dtos = resultCache.get("anomalies", electionId, epoch,
+                () -> analyticsService.detectAnomalies(electionId).stream()
+                        .map(msg -> new AnomalyDTO(electionId, msg))
+                        .collect(Collectors.toList()));
+        logger.info(() -> String.format("Anomaly detection found %d issues for electionId=%d", dtos.size(), electionId));
+        return ResponseEntity.ok().eTag(eTag).body(dtos);
     }
 
     /**
-     * Detect voting trend changes for the election.
+     * Detect voting trend changes for the election, over one window (1m, 15m or 1h) or all of them.
      */
     @GetMapping("/elections/{electionId}/trends")
-    public ResponseEntity<List<TrendDTO>> getTrends(@PathVariable Long electionId) {
-        logger.info(() -> "Trend analysis requested for electionId=" + electionId);
-        List<String> trends = analyticsService.detectTrends(electionId);
-        List<TrendDTO> dtos = trends.stream()
-                .map(msg -> new TrendDTO(electionId, msg))
-                .collect(Collectors.toList());
-        logger.info(() -> String.format("Trend analysis found %d changes for electionId=%d", trends.size(), electionId));
-        return ResponseEntity.ok(dtos);
+    public ResponseEntity<List<TrendDTO>> getTrends(@PathVariable Long electionId,
+                                                    @RequestParam(required = false) String window,
+                                                    WebRequest request) {
+        logger.info(() -> "Trend analysis requested for electionId=" + electionId + ", window=" + window);
+        TrendEngine.Window trendWindow;
+        try {
+            trendWindow = window != null ? TrendEngine.Window.fromLabel(window) : null;
+        } catch (IllegalArgumentException e) {
+            logger.warning("Trend analysis rejected: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        String kind = trendWindow != null ? "trends-" + trendWindow.getLabel() : "trends";
+        long epoch = analyticsService.getEpoch(electionId);
+        String eTag = resultCache.eTag(kind, electionId, epoch);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        List<TrendDTO> dtos = resultCache.get(kind, electionId, epoch,
+                () -> analyticsService.detectTrends(electionId, trendWindow).stream()
+                        .map(msg -> new TrendDTO(electionId, msg))
+                        .collect(Collectors.toList()));
+        logger.info(() -> String.format("Trend analysis found %d changes for electionId=%d", dtos.size(), electionId));
+        return ResponseEntity.ok().eTag(eTag).body(dtos);
     }
 }
\ No newline at end of file
@@ -7,20 +7,28 @@ import com.tu.votingapp.dto.request.elections.CandidateRequestDTO;
 import com.tu.votingapp.dto.request.elections.ElectionsRequestDTO;
 import com.tu.votingapp.dto.request.elections.VoteRequestDTO;
 import com.tu.votingapp.dto.response.PagedResponseDTO;
+import com.tu.votingapp.dto.response.elections.AreaResultsDTO;
 import com.tu.votingapp.dto.response.elections.CandidateResponseDTO;
 import com.tu.votingapp.dto.response.elections.ElectionResponseDTO;
-import com.tu.votingapp.dto.response.elections.ElectionResultsDTO;
+import com.tu.votingapp.dto.response.elections.RecountReportDTO;
 import com.tu.votingapp.dto.response.elections.VoteResponseDTO;
 import com.tu.votingapp.enums.ElectionStatus;
 import com.tu.votingapp.enums.ElectionType;
+import com.tu.votingapp.services.impl.JsonResponseCache;
+import com.tu.votingapp.services.impl.elections.ElectionResultsStream;
+import com.tu.votingapp.services.impl.elections.RecountService;
+import com.tu.votingapp.services.impl.elections.RegionalResultsCube;
 import com.tu.votingapp.services.interfaces.elections.CandidateService;
 import com.tu.votingapp.services.interfaces.elections.ElectionService;
 import com.tu.votingapp.services.interfaces.elections.VoteService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import jakarta.validation.Valid;
 
 import javax.crypto.Cipher;
@@ -30,6 +38,7 @@ import javax.crypto.spec.IvParameterSpec;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
 import java.util.logging.Logger;
 
 @RestController
@@ -41,6 +50,10 @@ public class ElectionController {
     private final ElectionService electionService;
     private final CandidateService candidateService;
     private final VoteService voteService;
+    private final ElectionResultsStream resultsStream;
+    private final RegionalResultsCube resultsCube;
+    private final RecountService recountService;
+    private final JsonResponseCache responseCache;
     private final Logger logger = Logger.getLogger(ElectionController.class.getName());
 
     // Election endpoints
@@ -73,12 +86,13 @@ public class ElectionController {
         return ResponseEntity.noContent().build();
     }
 
-    @GetMapping("/elections/getById/{id}")
-    public ResponseEntity<ElectionResponseDTO> getElection(@PathVariable Long id) {
+    @GetMapping(value = "/elections/getById/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getElection(@PathVariable Long id, WebRequest request) {
         logger.info(() -> "Fetching election id=" + id);
-        ElectionResponseDTO response = electionService.getElectionById(id);
-        logger.fine(() -> "Fetched election: " + response.getElectionName());
-        return ResponseEntity.ok(response);
+        // The details carry the candidates' vote counts, so they are versioned like the results
+        long version = electionService.getResultsVersion(id);
+        return responseCache.respond(JsonResponseCache.ELECTION, id, version,
+                () -> electionService.getElectionById(id), request);
     }
 
     @GetMapping("/elections/list-elections")
@@ -153,15 +167,76 @@ public class ElectionController {
 
     // Results endpoint
 
-    @GetMapping("/elections/{electionId}/results")
-    public ResponseEntity<ElectionResultsDTO> getResults(@PathVariable Long electionId) {
+    @GetMapping(value = "/elections/{electionId}/results", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getResults(@PathVariable Long electionId, WebRequest request) {
         logger.info(() -> "Fetching results for election id=" + electionId);
-        ElectionResultsDTO response = electionService.getResults(electionId);
-        logger.fine(() -> String.format("Results fetched: %d candidate results, %d party results",
-                response.getCandidateResults().size(), response.getPartyResults().size()));
+        // Read the version first: the results encoded for it are then at least that new
+        long version = electionService.getResultsVersion(electionId);
+        return responseCache.respond(JsonResponseCache.ELECTION_RESULTS, electionId, version,
+                () -> electionService.getResults(electionId), request);
+    }
+
+    @GetMapping("/elections/{electionId}/results/regions/{regionId}")
+    public ResponseEntity<AreaResultsDTO> getRegionResults(@PathVariable Long electionId, @PathVariable Long regionId) {
+        logger.info(() -> "Fetching results for election id=" + electionId + " in region id=" + regionId);
+        return ResponseEntity.ok(resultsCube.getRegion(electionId, regionId));
+    }
+
+    @GetMapping("/elections/{electionId}/results/regions/{regionId}/municipalities")
+    public ResponseEntity<List<AreaResultsDTO>> getMunicipalityResultsOfRegion(@PathVariable Long electionId,
+                                                                               @PathVariable Long regionId) {
+        logger.info(() -> "Fetching municipality results for election id=" + electionId + " in region id=" + regionId);
+        List<AreaResultsDTO> response = resultsCube.getMunicipalities(electionId, regionId);
+        logger.fine(() -> "Municipality results fetched: " + response.size());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/elections/{electionId}/results/municipalities/{municipalityId}")
+    public ResponseEntity<AreaResultsDTO> getMunicipalityResults(@PathVariable Long electionId,
+                                                                 @PathVariable Long municipalityId) {
+        logger.info(() -> "Fetching results for election id=" + electionId + " in municipality id=" + municipalityId);
+        return ResponseEntity.ok(resultsCube.getMunicipality(electionId, municipalityId));
+    }
+
+    @GetMapping("/elections/{electionId}/results/municipalities/{municipalityId}/locations")
+    public ResponseEntity<List<AreaResultsDTO>> getLocationResultsOfMunicipality(@PathVariable Long electionId,
+                                                                                 @PathVariable Long municipalityId) {
+        logger.info(() -> "Fetching location results for election id=" + electionId + " in municipality id=" + municipalityId);
+        List<AreaResultsDTO> response = resultsCube.getLocations(electionId, municipalityId);
+        logger.fine(() -> "Location results fetched: " + response.size());
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Live results: a snapshot event, then delta events with the changed counts.
+     */
+    @GetMapping(value = "/elections/{electionId}/results/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamResults(@PathVariable Long electionId) {
+        logger.info(() -> "Opening results stream for election id=" + electionId);
+        try {
+            return ResponseEntity.ok(resultsStream.subscribe(electionId));
+        } catch (IllegalStateException e) {
+            logger.warning("Results stream unavailable: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+
+    /**
+     * Recount a closed election from its ballots and reconcile the counters; the report is signed.
+     */
+    @PostMapping("/elections/{electionId}/recount")
+    public ResponseEntity<RecountReportDTO> recount(@PathVariable Long electionId) {
+        logger.info(() -> "Recount requested for election id=" + electionId);
+        try {
+            RecountReportDTO report = recountService.recount(electionId);
+            logger.info(() -> String.format("Recount of election id=%d done: consistent=%b", electionId, report.isConsistent()));
+            return ResponseEntity.ok(report);
+        } catch (IllegalStateException e) {
+            logger.warning("Recount rejected: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
 
     private String decryptVoteAES(String base64EncryptedData) throws Exception {
         byte[] encryptedDataWithIv = Base64.getDecoder().decode(base64EncryptedData);
@@ -4,16 +4,18 @@ import com.tu.votingapp.dto.request.referendum.ReferendumRequestDTO;
 import com.tu.votingapp.dto.request.referendum.ReferendumVoteRequestDTO;
 import com.tu.votingapp.dto.response.PagedResponseDTO;
 import com.tu.votingapp.dto.response.referendum.ReferendumResponseDTO;
-import com.tu.votingapp.dto.response.referendum.ReferendumResultsDTO;
 import com.tu.votingapp.dto.response.referendum.ReferendumVoteResponseDTO;
 import com.tu.votingapp.enums.ReferendumStatus;
+import com.tu.votingapp.services.impl.JsonResponseCache;
 import com.tu.votingapp.services.interfaces.referendum.ReferendumService;
 import com.tu.votingapp.validation.ValidationGroups;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.logging.Logger;
 
@@ -27,6 +29,7 @@ import java.util.logging.Logger;
 public class ReferendumController {
 
     private final ReferendumService referendumService;
+    private final JsonResponseCache responseCache;
     private final Logger logger = Logger.getLogger(ReferendumController.class.getName());
 
     /**
@@ -111,11 +114,12 @@ public class ReferendumController {
     /**
      * Get aggregated results for a referendum.
      */
-    @GetMapping("/{id}/results")
-    public ResponseEntity<ReferendumResultsDTO> getResults(@PathVariable Long id) {
+    @GetMapping(value = "/{id}/results", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getResults(@PathVariable Long id, WebRequest request) {
         logger.info(() -> "Fetching results for referendum id=" + id);
-        ReferendumResultsDTO response = referendumService.getResults(id);
-        logger.fine(() -> String.format("Results: %d option results", response.getOptionResults().size()));
-        return ResponseEntity.ok(response);
+        // Read the version first: the results encoded for it are then at least that new
+        long version = referendumService.getResultsVersion(id);
+        return responseCache.respond(JsonResponseCache.REFERENDUM_RESULTS, id, version,
+                () -> referendumService.getResults(id), request);
     }
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.tu.votingapp.dto.general.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Votes per time bucket of an election, or of one voter location when locationId is set.
+ * Bucket i covers [from + i * stepMillis, from + (i + 1) * stepMillis); cumulative[i] counts
+ * every vote up to the end of bucket i, including those before from.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TurnoutSeriesDTO {
+    private Long electionId;
+    private Long locationId;
+    private long from;
+    private long stepMillis;
+    private long[] votes;
+    private long[] cumulative;
+}
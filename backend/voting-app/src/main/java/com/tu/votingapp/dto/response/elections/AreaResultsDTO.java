@@ -0,0 +1,32 @@
+package com.tu.votingapp.dto.response.elections;
+
+import com.tu.votingapp.enums.AreaLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Election results within one region, municipality or location.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AreaResultsDTO {
+    private Long electionId;
+    private AreaLevel level;
+    private Long areaId;
+    private String areaName;
+    private long ballots;
+    /**
+     * Sum of the municipality populations in the area; null where it is not known.
+     */
+    private Long population;
+    /**
+     * Ballots per inhabitant; null where the population is not known.
+     */
+    private Double turnout;
+    private List<CandidateResultDTO> candidateResults;
+    private List<PartyResultDTO> partyResults;
+}
@@ -13,4 +13,8 @@ public class ElectionResultsDTO {
     private Long electionId;
     private List<CandidateResultDTO> candidateResults;
     private List<PartyResultDTO> partyResults;
+    /**
+     * Results version; a higher version may carry different totals.
+     */
+    private long version;
 }
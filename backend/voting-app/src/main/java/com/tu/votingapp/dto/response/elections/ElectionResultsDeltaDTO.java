@@ -0,0 +1,20 @@
+package com.tu.votingapp.dto.response.elections;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Candidate and party results that changed since the previous frame of a results stream.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ElectionResultsDeltaDTO {
+    private Long electionId;
+    private long version;
+    private List<CandidateResultDTO> candidateResults;
+    private List<PartyResultDTO> partyResults;
+}
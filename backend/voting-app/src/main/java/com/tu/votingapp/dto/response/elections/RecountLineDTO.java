@@ -0,0 +1,25 @@
+package com.tu.votingapp.dto.response.elections;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Recounted votes of one candidate or party next to the counters kept for it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecountLineDTO {
+    private Long id;
+    private long recounted;
+    /**
+     * candidates.votes_count or party_votes.vote_count; null if there is no row.
+     */
+    private Long stored;
+    /**
+     * In-memory tally of the node that ran the recount; null if it holds none for the election.
+     */
+    private Long tally;
+    private boolean matches;
+}
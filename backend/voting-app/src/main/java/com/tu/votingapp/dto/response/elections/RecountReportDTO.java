@@ -0,0 +1,31 @@
+package com.tu.votingapp.dto.response.elections;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of recounting an election's ballots. payload is the canonical text of the report and
+ * signature its Base64-URL HMAC-SHA256, so a copy of the report can be checked against the key.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecountReportDTO {
+    private Long electionId;
+    private long startedAt;
+    private long durationMs;
+    private long votesScanned;
+    private int ranges;
+    /**
+     * Votes naming a candidate or party that is not on the election's ballot.
+     */
+    private long unknownChoices;
+    private boolean consistent;
+    private List<RecountLineDTO> candidates;
+    private List<RecountLineDTO> parties;
+    private String payload;
+    private String signature;
+}
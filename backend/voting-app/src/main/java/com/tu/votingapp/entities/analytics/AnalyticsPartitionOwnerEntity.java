@@ -0,0 +1,35 @@
+package com.tu.votingapp.entities.analytics;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Analytics node currently owning a partition of the votes topic, i.e. holding the analytics
+ * state of the elections keyed to it. Written by the owner when Kafka assigns it the partition
+ * and removed when the partition is revoked; other nodes read it to forward analysis requests.
+ */
+@Entity
+@Table(name = "analytics_partition_owner")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsPartitionOwnerEntity {
+
+    @Id
+    @Column(name = "partition_id")
+    private Integer partitionId;
+
+    /**
+     * Base URL of the owning node, e.g. https://analytics-2:8443.
+     */
+    @Column(name = "node_url", nullable = false)
+    private String nodeUrl;
+
+    /**
+     * Epoch millis of the assignment.
+     */
+    @Column(name = "assigned_at", nullable = false)
+    private long assignedAt;
+}
@@ -0,0 +1,51 @@
+package com.tu.votingapp.entities.elections;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Vote event waiting to be relayed to the vote event transport. Rows are written in the same
+ * transaction as the vote. With Kafka they are deleted once the broker has acknowledged them;
+ * with the local ring, once an aggregator checkpoint covers them.
+ */
+@Entity
+@Table(name = "vote_event_outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VoteEventOutboxEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "election_id", nullable = false)
+    private Long electionId;
+
+    @Column(name = "candidate_id")
+    private Long candidateId;
+
+    @Column(name = "party_id")
+    private Long partyId;
+
+    @Column(name = "location_id")
+    private Long locationId;
+
+    /**
+     * Epoch millis when the vote was cast.
+     */
+    @Column(name = "event_timestamp", nullable = false)
+    private long eventTimestamp;
+
+    /**
+     * Epoch millis until which a relay has claimed the row for publishing; null when unclaimed.
+     */
+    @Column(name = "claimed_until")
+    private Long claimedUntil;
+
+    public VoteEventOutboxEntity(Long id) {
+        this.id = id;
+    }
+}
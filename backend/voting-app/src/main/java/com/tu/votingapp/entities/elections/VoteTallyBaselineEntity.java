@@ -0,0 +1,32 @@
+package com.tu.votingapp.entities.elections;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Records that candidates.votes_count and party_votes.vote_count were reconciled to the votes
+ * table, once, when the write-behind tally first started against this database. Releases before
+ * it never wrote those counters for ballots, so without this row they are not a usable baseline.
+ */
+@Entity
+@Table(name = "vote_tally_baseline")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VoteTallyBaselineEntity {
+
+    /**
+     * Always 1; a second node reconciling at the same time fails on the key and skips its run.
+     */
+    @Id
+    @Column(name = "id")
+    private Integer id;
+
+    /**
+     * Epoch millis of the reconciliation.
+     */
+    @Column(name = "reconciled_at", nullable = false)
+    private long reconciledAt;
+}
@@ -0,0 +1,7 @@
+package com.tu.votingapp.enums;
+
+public enum AreaLevel {
+    REGION,
+    MUNICIPALITY,
+    LOCATION
+}
@@ -3,6 +3,8 @@ package com.tu.votingapp.repositories.interfaces.referendum;
 import com.tu.votingapp.entities.referendum.ReferendumEntity;
 import com.tu.votingapp.entities.referendum.ReferendumVoteEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -19,4 +21,10 @@ public interface ReferendumVoteRepository extends JpaRepository<ReferendumVoteEn
      * Fetch all votes for tallying results in a referendum.
      */
     List<ReferendumVoteEntity> findByReferendum(ReferendumEntity referendum);
+
+    /**
+     * Id of the latest vote in a referendum, or 0 if nobody has voted yet.
+     */
+    @Query("SELECT COALESCE(MAX(v.id), 0) FROM ReferendumVoteEntity v WHERE v.referendum.id = :referendumId")
+    long findLatestVoteId(@Param("referendumId") Long referendumId);
 }
@@ -24,15 +24,22 @@ public class UserPrincipal implements UserDetails {
      */
     private final String documentNumber;
 
+    /**
+     * Location the user is registered at, used to attribute votes geographically.
+     */
+    private final Long locationId;
+
     private final Collection<? extends GrantedAuthority> authorities;
 
     public UserPrincipal(Long id,
                          String egn,
                          String documentNumber,
+                         Long locationId,
                          Collection<? extends GrantedAuthority> authorities) {
         this.id = id;
         this.egn = egn;
         this.documentNumber = documentNumber;
+        this.locationId = locationId;
         this.authorities = authorities;
     }
 
@@ -47,6 +54,7 @@ public class UserPrincipal implements UserDetails {
                 user.getId(),
                 user.getEgn(),
                 user.getDocument().getNumber(),
+                user.getRegionId() != null ? user.getRegionId().getId() : null,
                 auths
         );
     }
@@ -0,0 +1,185 @@
+package com.tu.votingapp.services.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the encoded JSON of hot read responses, so repeated reads of an unchanged resource are
+ * written straight from a byte array instead of being serialized again. An entry holds the UTF-8
+ * bytes and, for bodies of at least gzip-min-bytes, a gzipped copy, and is immutable once built.
+ * Resources with a version (election details and results by the results projection version,
+ * referendum results by their latest vote) are re-encoded when the version moves on, whichever
+ * node counted the change; all are also re-encoded after {@link #invalidate}, which is called once
+ * an edit commits.
+ */
+@Component
+public class JsonResponseCache {
+    public static final String ELECTION = "election";
+    public static final String ELECTION_RESULTS = "election-results";
+    public static final String REFERENDUM_RESULTS = "referendum-results";
+    /**
+     * Version of resources that are only replaced through {@link #invalidate}.
+     */
+    public static final long UNVERSIONED = 0L;
+
+    /**
+     * Distinguishes ETags of this process from those of an earlier run, whose generations restart at zero.
+     */
+    private final String instanceTag = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong generations = new AtomicLong();
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+    private final int gzipMinBytes;
+    private final Logger logger = Logger.getLogger(JsonResponseCache.class.getName());
+
+    public JsonResponseCache(ObjectMapper objectMapper,
+                             @Value("${app.response-cache.gzip-min-bytes:1024}") int gzipMinBytes) {
+        this.objectMapper = objectMapper;
+        this.gzipMinBytes = gzipMinBytes;
+    }
+
+    /**
+     * Respond with the cached JSON of (kind, id) at this version, encoding body if needed.
+     * Returns null when the request's If-None-Match already matches; the 304 is then written by the request.
+     */
+    public ResponseEntity<byte[]> respond(String kind, Long id, long version, Supplier<?> body, WebRequest request) {
+        Entry entry = get(kind, id, version, body);
+        boolean gzip = entry.gzip != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        // The gzipped bytes are a different representation, so they get their own ETag
+        String eTag = gzip ? entry.gzipETag() : entry.eTag;
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        byte[] bytes = gzip ? entry.gzip : entry.json;
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(bytes.length)
+                .eTag(eTag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(bytes);
+    }
+
+    /**
+     * Drop the cached JSON of (kind, id). A response encoded concurrently from data read before
+     * the change is served to its own request but not kept.
+     */
+    public void invalidate(String kind, Long id) {
+        entries.put(new Key(kind, id), new Entry(Long.MIN_VALUE, null, null, null));
+    }
+
+    Entry get(String kind, Long id, long version, Supplier<?> body) {
+        Key key = new Key(kind, id);
+        Entry seen = entries.get(key);
+        if (seen != null && seen.json != null && seen.version >= version) {
+            return seen;
+        }
+        Entry fresh = encode(version, body.get());
+        logger.fine(() -> String.format("Encoded %s %d at version %d: %d bytes", kind, id, version, fresh.json.length));
+        boolean kept = seen == null ? entries.putIfAbsent(key, fresh) == null : entries.replace(key, seen, fresh);
+        if (!kept) {
+            // Another request stored a newer encoding first, or the resource was invalidated meanwhile
+            Entry current = entries.get(key);
+            if (current != null && current.json != null && current.version >= version) {
+                return current;
+            }
+        }
+        return fresh;
+    }
+
+    private Entry encode(long version, Object body) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode response", e);
+        }
+        byte[] gzip = null;
+        if (gzipMinBytes >= 0 && json.length >= gzipMinBytes) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+                zip.write(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            gzip = out.toByteArray();
+        }
+        String eTag = "\"" + instanceTag + "-" + generations.incrementAndGet() + "\"";
+        return new Entry(version, json, gzip, eTag);
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                for (int i = 1; i < parts.length; i++) {
+                    if (parts[i].replace(" ", "").matches("q=0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static final class Entry {
+        private final long version;
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String eTag;
+
+        Entry(long version, byte[] json, byte[] gzip, String eTag) {
+            this.version = version;
+            this.json = json;
+            this.gzip = gzip;
+            this.eTag = eTag;
+        }
+
+        String gzipETag() {
+            return eTag.substring(0, eTag.length() - 1) + "-gz\"";
+        }
+    }
+
+    private static final class Key {
+        private final String kind;
+        private final Long id;
+
+        Key(String kind, Long id) {
+            this.kind = kind;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && kind.equals(other.kind) && id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, id);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.tu.votingapp.services.impl;
+
+import com.tu.votingapp.repositories.interfaces.elections.VoteRepository;
+import com.tu.votingapp.repositories.interfaces.referendum.ReferendumVoteRepository;
+import com.tu.votingapp.utils.ParticipationBitmap;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Answers "has this user already voted?" from per-election and per-referendum bitmaps
+ * instead of a database round trip per ballot. Bitmaps are loaded lazily on first use;
+ * while one is still loading the check falls back to the repository. The unique
+ * constraints on votes / referendum_votes remain the final guard against duplicates.
+ */
+@Component
+@RequiredArgsConstructor
+public class VoterParticipationRegistry {
+    private final JdbcTemplate jdbcTemplate;
+    private final VoteRepository voteRepository;
+    private final ReferendumVoteRepository referendumVoteRepository;
+    private final Logger logger = Logger.getLogger(VoterParticipationRegistry.class.getName());
+
+    private final Map<Long, Participation> elections = new ConcurrentHashMap<>();
+    private final Map<Long, Participation> referendums = new ConcurrentHashMap<>();
+
+    public boolean hasVotedInElection(Long electionId, Long userId) {
+        Participation participation = getOrLoad(elections, electionId,
+                "SELECT user_id FROM votes WHERE election_id = ?", "election");
+        if (participation.ready) {
+            return participation.voters.contains(userId);
+        }
+        return voteRepository.existsByUserIdAndElection_Id(userId, electionId);
+    }
+
+    public boolean hasVotedInReferendum(Long referendumId, Long userId) {
+        Participation participation = getOrLoad(referendums, referendumId,
+                "SELECT user_id FROM referendum_votes WHERE referendum_id = ?", "referendum");
+        if (participation.ready) {
+            return participation.voters.contains(userId);
+        }
+        return referendumVoteRepository.existsByUserIdAndReferendum_Id(userId, referendumId);
+    }
+
+    /**
+     * Record a committed election vote. Bitmaps that are not loaded yet are left alone,
+     * since their lazy load will read the committed row.
+     */
+    public void markElectionVoted(Long electionId, Long userId) {
+        Participation participation = elections.get(electionId);
+        if (participation != null) {
+            participation.voters.add(userId);
+        }
+    }
+
+    /**
+     * Drop the election's bitmap, so the next check loads it again from the votes table.
+     */
+    public void forgetElection(Long electionId) {
+        elections.remove(electionId);
+    }
+
+    /**
+     * Record a committed referendum vote.
+     */
+    public void markReferendumVoted(Long referendumId, Long userId) {
+        Participation participation = referendums.get(referendumId);
+        if (participation != null) {
+            participation.voters.add(userId);
+        }
+    }
+
+    private Participation getOrLoad(Map<Long, Participation> map, Long id, String sql, String kind) {
+        Participation existing = map.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        Participation created = new Participation();
+        existing = map.putIfAbsent(id, created);
+        if (existing != null) {
+            return existing;
+        }
+        // Registered before loading, so votes committed meanwhile are added to it as well
+        try {
+            long start = System.currentTimeMillis();
+            jdbcTemplate.query(sql, rs -> {
+                created.voters.add(rs.getLong(1));
+            }, id);
+            created.ready = true;
+            logger.info(() -> String.format("Loaded participation bitmap for %s %d: %d voters, ~%d KB in %d ms",
+                    kind, id, created.voters.getCardinality(), created.voters.sizeInBytes() / 1024,
+                    System.currentTimeMillis() - start));
+        } catch (Exception e) {
+            map.remove(id, created);
+            logger.log(Level.WARNING, "Failed to load participation bitmap for " + kind + " " + id, e);
+        }
+        return created;
+    }
+
+    private static class Participation {
+        private final ParticipationBitmap voters = new ParticipationBitmap();
+        private volatile boolean ready;
+    }
+}
@@ -0,0 +1,61 @@
+package com.tu.votingapp.services.impl.elections;
+
+import com.tu.votingapp.enums.ElectionStatus;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of what a ballot may contain for one election:
+ * status, voting window, candidates with their party, and participating parties.
+ * A new instance with a higher version replaces the old one whenever the election changes.
+ */
+@Getter
+public final class BallotDefinition {
+    private final Long electionId;
+    private final long version;
+    private final ElectionStatus status;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    /**
+     * candidateId -> partyId, the value is null for independent candidates.
+     */
+    private final Map<Long, Long> candidateParties;
+    private final Set<Long> partyIds;
+
+    public BallotDefinition(Long electionId, long version, ElectionStatus status,
+                            LocalDate startDate, LocalDate endDate,
+                            Map<Long, Long> candidateParties, Set<Long> partyIds) {
+        this.electionId = electionId;
+        this.version = version;
+        this.status = status;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.candidateParties = Collections.unmodifiableMap(new HashMap<>(candidateParties));
+        this.partyIds = Collections.unmodifiableSet(new HashSet<>(partyIds));
+    }
+
+    public boolean isWithinVotingPeriod(LocalDate date) {
+        return !date.isBefore(startDate) && !date.isAfter(endDate);
+    }
+
+    public boolean hasCandidate(Long candidateId) {
+        return candidateParties.containsKey(candidateId);
+    }
+
+    /**
+     * Party of the candidate, or null for an independent candidate.
+     */
+    public Long getPartyOfCandidate(Long candidateId) {
+        return candidateParties.get(candidateId);
+    }
+
+    public boolean hasParty(Long partyId) {
+        return partyIds.contains(partyId);
+    }
+}
@@ -0,0 +1,129 @@
+package com.tu.votingapp.services.impl.elections;
+
+import com.tu.votingapp.entities.elections.CandidateEntity;
+import com.tu.votingapp.entities.elections.ElectionEntity;
+import com.tu.votingapp.entities.elections.PartyEntity;
+import com.tu.votingapp.repositories.interfaces.elections.ElectionRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Holds a {@link BallotDefinition} per election so vote validation needs no database access.
+ * Definitions are built on first use and rebuilt after every committed change to the election
+ * or its candidates. Changes made on another node are not seen by those hooks, so a definition
+ * older than definition-ttl-ms is reloaded by the next ballot that uses it.
+ */
+@Component
+public class BallotDefinitionCache {
+    private final ElectionRepository electionRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Logger logger = Logger.getLogger(BallotDefinitionCache.class.getName());
+
+    private final Map<Long, Cached> definitions = new ConcurrentHashMap<>();
+    private final Set<Long> reloading = ConcurrentHashMap.newKeySet();
+    private final AtomicLong versions = new AtomicLong();
+    private final long ttlNanos;
+
+    public BallotDefinitionCache(ElectionRepository electionRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.ballots.definition-ttl-ms:5000}") long ttlMs) {
+        this.electionRepository = electionRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // refresh() runs in afterCommit, where a joined transaction would still see the finished
+        // transaction's persistence context and could read a stale election from it
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+    }
+
+    /**
+     * @throws EntityNotFoundException if the election does not exist
+     */
+    public BallotDefinition get(Long electionId) {
+        Cached cached = definitions.get(electionId);
+        if (cached == null) {
+            return load(electionId);
+        }
+        if (System.nanoTime() - cached.loadedAt > ttlNanos && reloading.add(electionId)) {
+            // One caller reloads; concurrent ballots keep using the current definition meanwhile
+            try {
+                return load(electionId);
+            } catch (EntityNotFoundException e) {
+                evict(electionId);
+                throw e;
+            } finally {
+                reloading.remove(electionId);
+            }
+        }
+        return cached.definition;
+    }
+
+    /**
+     * Rebuild the definition after a committed change to the election or its candidates.
+     */
+    public void refresh(Long electionId) {
+        if (!definitions.containsKey(electionId)) {
+            return; // never used for voting, will be built on demand
+        }
+        try {
+            load(electionId);
+        } catch (EntityNotFoundException e) {
+            evict(electionId);
+        }
+    }
+
+    public void evict(Long electionId) {
+        definitions.remove(electionId);
+        logger.fine(() -> "Ballot definition evicted for election " + electionId);
+    }
+
+    private BallotDefinition load(Long electionId) {
+        // Version and load time are taken before reading, so a build that read older data can never replace a newer one
+        long version = versions.incrementAndGet();
+        long loadedAt = System.nanoTime();
+        BallotDefinition built = readOnlyTransaction.execute(status -> {
+            ElectionEntity election = electionRepository.findById(electionId)
+                    .orElseThrow(() -> new EntityNotFoundException("Election not found: " + electionId));
+            Map<Long, Long> candidateParties = new HashMap<>();
+            for (CandidateEntity candidate : election.getCandidates()) {
+                candidateParties.put(candidate.getId(), candidate.getParty() != null ? candidate.getParty().getId() : null);
+            }
+            Set<Long> partyIds = new HashSet<>();
+            for (PartyEntity party : election.getParties()) {
+                partyIds.add(party.getId());
+            }
+            return new BallotDefinition(electionId, version, election.getStatus(),
+                    election.getStartDate().toLocalDate(), election.getEndDate().toLocalDate(),
+                    candidateParties, partyIds);
+        });
+        BallotDefinition current = definitions.merge(electionId, new Cached(built, loadedAt),
+                (existing, candidate) -> candidate.definition.getVersion() > existing.definition.getVersion() ? candidate : existing)
+                .definition;
+        logger.fine(() -> String.format("Ballot definition for election %d at version %d: %d candidates, %d parties",
+                electionId, current.getVersion(), current.getCandidateParties().size(), current.getPartyIds().size()));
+        return current;
+    }
+
+    private static final class Cached {
+        private final BallotDefinition definition;
+        private final long loadedAt;
+
+        Cached(BallotDefinition definition, long loadedAt) {
+            this.definition = definition;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
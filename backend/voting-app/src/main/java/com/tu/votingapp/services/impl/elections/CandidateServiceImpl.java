@@ -6,7 +6,9 @@ import com.tu.votingapp.entities.elections.CandidateEntity;
 import com.tu.votingapp.entities.elections.ElectionEntity;
 import com.tu.votingapp.repositories.interfaces.elections.CandidateRepository;
 import com.tu.votingapp.repositories.interfaces.elections.ElectionRepository;
+import com.tu.votingapp.services.impl.JsonResponseCache;
 import com.tu.votingapp.services.interfaces.elections.CandidateService;
+import com.tu.votingapp.utils.TransactionUtil;
 import com.tu.votingapp.utils.mappers.election.CandidateMapper;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -21,6 +23,9 @@ public class CandidateServiceImpl implements CandidateService {
     private final CandidateRepository candidateRepository;
     private final ElectionRepository electionRepository;
     private final CandidateMapper candidateMapper;
+    private final BallotDefinitionCache ballotDefinitionCache;
+    private final ElectionResultsProjection resultsProjection;
+    private final JsonResponseCache responseCache;
     private final Logger logger = Logger.getLogger(CandidateServiceImpl.class.getName());
 
     @Override
@@ -43,6 +48,11 @@ public class CandidateServiceImpl implements CandidateService {
         CandidateEntity entity = candidateMapper.toEntity(dto);
         entity.setElection(election);
         CandidateEntity saved = candidateRepository.save(entity);
+        TransactionUtil.afterCommit(() -> {
+            ballotDefinitionCache.refresh(election.getId());
+            resultsProjection.invalidate(election.getId());
+            responseCache.invalidate(JsonResponseCache.ELECTION, election.getId());
+        });
 
         logger.info(() -> "Candidate created with id=" + saved.getId());
         return new CandidateResponseDTO(
@@ -81,6 +91,11 @@ public class CandidateServiceImpl implements CandidateService {
         }
 
         CandidateEntity saved = candidateRepository.save(existing);
+        TransactionUtil.afterCommit(() -> {
+            ballotDefinitionCache.refresh(saved.getElection().getId());
+            resultsProjection.invalidate(saved.getElection().getId());
+            responseCache.invalidate(JsonResponseCache.ELECTION, saved.getElection().getId());
+        });
         logger.info(() -> "Candidate updated id=" + saved.getId());
         return new CandidateResponseDTO(
                 saved.getId(),
@@ -97,6 +112,14 @@ public class CandidateServiceImpl implements CandidateService {
     @Transactional
     public void deleteCandidate(Long id) {
         logger.info(() -> "Deleting candidate id=" + id);
+        candidateRepository.findById(id).ifPresent(existing -> {
+            Long electionId = existing.getElection().getId();
+            TransactionUtil.afterCommit(() -> {
+                ballotDefinitionCache.refresh(electionId);
+                resultsProjection.invalidate(electionId);
+                responseCache.invalidate(JsonResponseCache.ELECTION, electionId);
+            });
+        });
         candidateRepository.deleteById(id);
         logger.info(() -> "Deleted candidate id=" + id);
     }
@@ -0,0 +1,296 @@
+package com.tu.votingapp.services.impl.elections;
+
+import com.tu.votingapp.dto.response.elections.CandidateResultDTO;
+import com.tu.votingapp.dto.response.elections.ElectionResultsDTO;
+import com.tu.votingapp.dto.response.elections.PartyResultDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Election results materialized per election as a compact record: candidate and party ids, names
+ * and totals in parallel arrays, plus a version.
+ * Totals are the stored candidates.votes_count and party_votes counters, which every node's
+ * {@link VoteTallyEngine} flushes into, plus the ballots this node has counted since it read them.
+ * The stored counters and names are re-read at most every refresh interval (and after a candidate
+ * change, {@link #invalidate}), so other nodes' ballots appear within one flush and one refresh;
+ * in between, a ballot counted here re-materializes the record from the live counters without a
+ * query, and reads of an unchanged record cost nothing.
+ * A re-read costs a constant number of queries, independent of the number of candidates.
+ */
+@Component
+public class ElectionResultsProjection {
+    private static final String CANDIDATES =
+            "SELECT id, candidate_names, votes_count FROM candidates WHERE election_id = ? ORDER BY id";
+    private static final String PARTIES =
+            "SELECT p.id, p.party_name, pv.vote_count FROM parties p "
+                    + "LEFT JOIN party_votes pv ON pv.party_id = p.id AND pv.election_id = p.election_id "
+                    + "WHERE p.election_id = ? ORDER BY p.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VoteTallyEngine tallyEngine;
+    private final long refreshIntervalMs;
+    private final Logger logger = Logger.getLogger(ElectionResultsProjection.class.getName());
+
+    private final Map<Long, ResultsRecord> records = new ConcurrentHashMap<>();
+    /**
+     * Source of record versions; a new record gets a new version only when its content may differ.
+     */
+    private final AtomicLong versions = new AtomicLong();
+
+    public ElectionResultsProjection(JdbcTemplate jdbcTemplate,
+                                     VoteTallyEngine tallyEngine,
+                                     @Value("${app.results.refresh-interval-ms:1000}") long refreshIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tallyEngine = tallyEngine;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    /**
+     * @throws RuntimeException if the election does not exist
+     */
+    public ElectionResultsDTO getResults(Long electionId) {
+        return getRecord(electionId).toDto();
+    }
+
+    /**
+     * Current version of the election's results; a higher version may carry different totals.
+     */
+    public long getVersion(Long electionId) {
+        return getRecord(electionId).version;
+    }
+
+    /**
+     * Drop the record after a committed change to the election's candidates or parties.
+     */
+    public void invalidate(Long electionId) {
+        records.remove(electionId);
+    }
+
+    ResultsRecord getRecord(Long electionId) {
+        long counted = tallyEngine.getCounted(electionId);
+        ResultsRecord current = records.get(electionId);
+        Base base;
+        if (current != null && System.currentTimeMillis() - current.base.readAt < refreshIntervalMs) {
+            if (current.counted == counted) {
+                return current;
+            }
+            base = current.base;
+        } else {
+            base = readBase(electionId);
+        }
+        ResultsRecord built = build(electionId, base, counted, current);
+        records.merge(electionId, built, (existing, candidate) -> candidate.newerThan(existing) ? candidate : existing);
+        logger.fine(() -> String.format("Materialized results of election %d at version %d (%d counted here)",
+                electionId, built.version, built.counted));
+        return built;
+    }
+
+    /**
+     * Totals are the base offsets plus this node's running totals, read after the counted number
+     * so they include every ballot up to it.
+     */
+    private ResultsRecord build(Long electionId, Base base, long counted, ResultsRecord current) {
+        Map<Long, Long> candidateCounts = tallyEngine.getCandidateCounts(electionId);
+        Map<Long, Long> partyCounts = tallyEngine.getPartyCounts(electionId);
+        Names names = base.names;
+        long[] candidateVotes = new long[names.candidateIds.length];
+        for (int i = 0; i < candidateVotes.length; i++) {
+            candidateVotes[i] = Math.max(0, base.candidateOffsets[i] + candidateCounts.getOrDefault(names.candidateIds[i], 0L));
+        }
+        long[] partyVotes = new long[names.partyIds.length];
+        boolean[] voted = new boolean[names.partyIds.length];
+        for (int i = 0; i < partyVotes.length; i++) {
+            long counter = partyCounts.getOrDefault(names.partyIds[i], 0L);
+            partyVotes[i] = Math.max(0, base.partyOffsets[i] + counter);
+            voted[i] = base.partyStored[i] || counter > 0;
+        }
+        PartyVotes parties = new PartyVotes(partyVotes, voted);
+        // Unchanged content keeps its version, so clients can keep their copy
+        long version = current != null && current.sameAs(names, candidateVotes, parties)
+                ? current.version : versions.incrementAndGet();
+        return new ResultsRecord(electionId, version, counted, base, candidateVotes, parties);
+    }
+
+    /**
+     * Read names and stored counters with flushes held off, and keep them as offsets from this
+     * node's running totals: stored minus the settled part this node has already written.
+     */
+    private Base readBase(Long electionId) {
+        return tallyEngine.whileNotFlushing(() -> {
+            long[][] stored = new long[2][];
+            Names names = loadNames(electionId, stored);
+            Map<Long, Long> settledCandidates = tallyEngine.getSettledCandidateCounts(electionId);
+            Map<Long, Long> settledParties = tallyEngine.getSettledPartyCounts(electionId);
+            long[] candidateOffsets = new long[names.candidateIds.length];
+            for (int i = 0; i < candidateOffsets.length; i++) {
+                candidateOffsets[i] = stored[0][i] - settledCandidates.getOrDefault(names.candidateIds[i], 0L);
+            }
+            long[] partyOffsets = new long[names.partyIds.length];
+            boolean[] partyStored = new boolean[names.partyIds.length];
+            for (int i = 0; i < partyOffsets.length; i++) {
+                partyStored[i] = stored[1][i] >= 0;
+                partyOffsets[i] = Math.max(0, stored[1][i]) - settledParties.getOrDefault(names.partyIds[i], 0L);
+            }
+            return new Base(names, candidateOffsets, partyOffsets, partyStored, System.currentTimeMillis());
+        });
+    }
+
+    /**
+     * Read candidate and party names, and the stored totals into stored[0] (candidates) and
+     * stored[1] (parties, -1 where no party_votes row exists).
+     */
+    private Names loadNames(Long electionId, long[][] stored) {
+        List<Long> candidateIds = new ArrayList<>();
+        List<String> candidateNames = new ArrayList<>();
+        List<Long> candidateVotes = new ArrayList<>();
+        jdbcTemplate.query(CANDIDATES, rs -> {
+            candidateIds.add(rs.getLong(1));
+            candidateNames.add(rs.getString(2));
+            candidateVotes.add(rs.getLong(3));
+        }, electionId);
+        List<Long> partyIds = new ArrayList<>();
+        List<String> partyNames = new ArrayList<>();
+        List<Long> partyVotes = new ArrayList<>();
+        jdbcTemplate.query(PARTIES, rs -> {
+            partyIds.add(rs.getLong(1));
+            partyNames.add(rs.getString(2));
+            long votes = rs.getLong(3);
+            partyVotes.add(rs.wasNull() ? -1L : votes);
+        }, electionId);
+        if (candidateIds.isEmpty() && partyIds.isEmpty()) {
+            Integer elections = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM elections WHERE id = ?", Integer.class, electionId);
+            if (elections == null || elections == 0) {
+                throw new RuntimeException("Election not found: " + electionId);
+            }
+        }
+        stored[0] = candidateVotes.stream().mapToLong(Long::longValue).toArray();
+        stored[1] = partyVotes.stream().mapToLong(Long::longValue).toArray();
+        return new Names(candidateIds.stream().mapToLong(Long::longValue).toArray(), candidateNames.toArray(new String[0]),
+                partyIds.stream().mapToLong(Long::longValue).toArray(), partyNames.toArray(new String[0]));
+    }
+
+    /**
+     * Candidate and party ids with their names, in id order.
+     */
+    static final class Names {
+        private final long[] candidateIds;
+        private final String[] candidateNames;
+        private final long[] partyIds;
+        private final String[] partyNames;
+
+        Names(long[] candidateIds, String[] candidateNames, long[] partyIds, String[] partyNames) {
+            this.candidateIds = candidateIds;
+            this.candidateNames = candidateNames;
+            this.partyIds = partyIds;
+            this.partyNames = partyNames;
+        }
+    }
+
+    /**
+     * Names and stored counters of an election as read at one point, with the counters kept as
+     * offsets from this node's running totals.
+     */
+    static final class Base {
+        private final Names names;
+        private final long[] candidateOffsets;
+        private final long[] partyOffsets;
+        /**
+         * Whether the party has a party_votes row.
+         */
+        private final boolean[] partyStored;
+        private final long readAt;
+
+        Base(Names names, long[] candidateOffsets, long[] partyOffsets, boolean[] partyStored, long readAt) {
+            this.names = names;
+            this.candidateOffsets = candidateOffsets;
+            this.partyOffsets = partyOffsets;
+            this.partyStored = partyStored;
+            this.readAt = readAt;
+        }
+    }
+
+    /**
+     * Party totals; parties nobody has voted for yet are left out of the results.
+     */
+    private static final class PartyVotes {
+        private final long[] votes;
+        private final boolean[] voted;
+
+        PartyVotes(long[] votes, boolean[] voted) {
+            this.votes = votes;
+            this.voted = voted;
+        }
+    }
+
+    /**
+     * Immutable results of one election at one version.
+     */
+    static final class ResultsRecord {
+        private final Long electionId;
+        private final long version;
+        /**
+         * Ballots counted by this node when the totals were read.
+         */
+        private final long counted;
+        private final Base base;
+        private final Names names;
+        private final long[] candidateVotes;
+        private final PartyVotes partyVotes;
+
+        ResultsRecord(Long electionId, long version, long counted, Base base,
+                      long[] candidateVotes, PartyVotes partyVotes) {
+            this.electionId = electionId;
+            this.version = version;
+            this.counted = counted;
+            this.base = base;
+            this.names = base.names;
+            this.candidateVotes = candidateVotes;
+            this.partyVotes = partyVotes;
+        }
+
+        long getVersion() {
+            return version;
+        }
+
+        /**
+         * Whether this record was built from a later read of the stored counters, or from the same
+         * read with at least as many ballots counted here.
+         */
+        boolean newerThan(ResultsRecord other) {
+            return base == other.base ? counted >= other.counted : base.readAt >= other.base.readAt;
+        }
+
+        boolean sameAs(Names otherNames, long[] otherCandidateVotes, PartyVotes otherPartyVotes) {
+            return Arrays.equals(names.candidateIds, otherNames.candidateIds)
+                    && Arrays.equals(names.candidateNames, otherNames.candidateNames)
+                    && Arrays.equals(names.partyIds, otherNames.partyIds)
+                    && Arrays.equals(names.partyNames, otherNames.partyNames)
+                    && Arrays.equals(candidateVotes, otherCandidateVotes)
+                    && Arrays.equals(partyVotes.votes, otherPartyVotes.votes)
+                    && Arrays.equals(partyVotes.voted, otherPartyVotes.voted);
+        }
+
+        ElectionResultsDTO toDto() {
+            List<CandidateResultDTO> candidates = new ArrayList<>(candidateVotes.length);
+            for (int i = 0; i < candidateVotes.length; i++) {
+                candidates.add(new CandidateResultDTO(names.candidateIds[i], names.candidateNames[i], (int) candidateVotes[i]));
+            }
+            List<PartyResultDTO> parties = new ArrayList<>();
+            for (int i = 0; i < partyVotes.votes.length; i++) {
+                if (partyVotes.voted[i]) {
+                    parties.add(new PartyResultDTO(names.partyIds[i], names.partyNames[i], (int) partyVotes.votes[i]));
+                }
+            }
+            return new ElectionResultsDTO(electionId, candidates, parties, version);
+        }
+    }
+}
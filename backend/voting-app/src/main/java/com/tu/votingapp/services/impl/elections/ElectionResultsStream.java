@@ -0,0 +1,354 @@
+package com.tu.votingapp.services.impl.elections;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tu.votingapp.dto.response.elections.CandidateResultDTO;
+import com.tu.votingapp.dto.response.elections.ElectionResultsDTO;
+import com.tu.votingapp.dto.response.elections.ElectionResultsDeltaDTO;
+import com.tu.votingapp.dto.response.elections.PartyResultDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Live election results over Server-Sent Events. A subscriber gets one "snapshot" frame with the
+ * full results, then a "delta" frame with only the changed candidate and party counts whenever the
+ * results moved during the last interval; the event id is the results version.
+ * All subscribers of an election share one channel: each interval the channel reads the
+ * {@link ElectionResultsProjection} once, serializes the frame once and writes the same bytes to
+ * every subscriber, so the cost per tick is one projection read per watched election, not one
+ * request per client. Subscribers are async responses, not threads. A change of the candidate or
+ * party lists (a candidate added, renamed or removed) is sent as a new snapshot.
+ * The scheduler only queues the frame for each subscriber; a small pool of sender threads writes
+ * it out. A subscriber whose queue is full, or whose current write has taken longer than the send
+ * timeout, is dropped and closed, so a stalled client never delays the others or the next tick.
+ */
+@Component
+public class ElectionResultsStream {
+    static final String SNAPSHOT = "snapshot";
+    static final String DELTA = "delta";
+
+    private final ElectionResultsProjection projection;
+    private final ObjectMapper objectMapper;
+    private final long timeoutMs;
+    private final long heartbeatMs;
+    private final int maxSubscribers;
+    private final int queueCapacity;
+    private final long sendTimeoutMs;
+    private final ThreadPoolExecutor senders;
+    private final Logger logger = Logger.getLogger(ElectionResultsStream.class.getName());
+
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    public ElectionResultsStream(ElectionResultsProjection projection,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.results.stream.timeout-ms:1800000}") long timeoutMs,
+                                 @Value("${app.results.stream.heartbeat-ms:15000}") long heartbeatMs,
+                                 @Value("${app.results.stream.max-subscribers:10000}") int maxSubscribers,
+                                 @Value("${app.results.stream.senders:4}") int senderThreads,
+                                 @Value("${app.results.stream.queue-capacity:16}") int queueCapacity,
+                                 @Value("${app.results.stream.send-timeout-ms:10000}") long sendTimeoutMs) {
+        this.projection = projection;
+        this.objectMapper = objectMapper;
+        this.timeoutMs = timeoutMs;
+        this.heartbeatMs = heartbeatMs;
+        this.maxSubscribers = maxSubscribers;
+        this.queueCapacity = queueCapacity;
+        this.sendTimeoutMs = sendTimeoutMs;
+        AtomicInteger threads = new AtomicInteger();
+        // Each subscriber has at most one drain task queued, so the task queue is bounded by the subscriber limit
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "results-stream-sender-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("results.stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Open live results streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Open a stream for the election; the snapshot frame is queued before this returns.
+     *
+     * @throws IllegalStateException if the node already serves the maximum number of streams
+     * @throws RuntimeException      if the election does not exist
+     */
+    public SseEmitter subscribe(Long electionId) {
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            throw new IllegalStateException("Too many results streams open: " + maxSubscribers);
+        }
+        try {
+            SseEmitter emitter = newEmitter(timeoutMs);
+            while (true) {
+                Channel channel = channels.computeIfAbsent(electionId, Channel::new);
+                synchronized (channel) {
+                    if (channel.closed) {
+                        continue;
+                    }
+                    if (channel.last == null) {
+                        channel.last = projection.getResults(electionId);
+                    }
+                    // Not yet returned to the container, so this is buffered rather than written
+                    emitter.send(frame(SNAPSHOT, channel.last.getVersion(), channel.last));
+                    Subscriber subscriber = new Subscriber(channel, emitter, queueCapacity);
+                    channel.subscribers.add(subscriber);
+                    emitter.onCompletion(() -> unsubscribe(subscriber));
+                    emitter.onTimeout(emitter::complete);
+                    emitter.onError(e -> unsubscribe(subscriber));
+                    logger.fine(() -> String.format("Results stream opened for election %d (%d on this election)",
+                            electionId, channel.subscribers.size()));
+                    return emitter;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            subscribers.decrementAndGet();
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            throw new IllegalStateException("Could not open results stream for election " + electionId, e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        senders.shutdownNow();
+    }
+
+    /**
+     * Queue the changes of every watched election since its previous frame.
+     */
+    @Scheduled(fixedDelayString = "${app.results.stream.interval-ms:1000}")
+    public void publish() {
+        long now = System.currentTimeMillis();
+        for (Channel channel : channels.values()) {
+            try {
+                publish(channel, now);
+            } catch (RuntimeException e) {
+                logger.warning(() -> "Could not publish results of election " + channel.electionId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void publish(Channel channel, long now) {
+        synchronized (channel) {
+            if (channel.subscribers.isEmpty()) {
+                channels.remove(channel.electionId, channel);
+                channel.closed = true;
+                return;
+            }
+            Set<ResponseBodyEmitter.DataWithMediaType> frame = null;
+            if (projection.getVersion(channel.electionId) != channel.last.getVersion()) {
+                ElectionResultsDTO current = projection.getResults(channel.electionId);
+                ElectionResultsDeltaDTO delta = delta(channel.last, current);
+                if (delta == null) {
+                    frame = frame(SNAPSHOT, current.getVersion(), current);
+                } else if (!delta.getCandidateResults().isEmpty() || !delta.getPartyResults().isEmpty()) {
+                    frame = frame(DELTA, current.getVersion(), delta);
+                }
+                channel.last = current;
+            }
+            if (frame == null) {
+                if (now - channel.lastSentAt < heartbeatMs) {
+                    return;
+                }
+                // Keeps proxies from closing idle streams and finds subscribers that went away
+                frame = SseEmitter.event().comment("").build();
+            }
+            channel.lastSentAt = now;
+            for (Subscriber subscriber : channel.subscribers) {
+                enqueue(subscriber, frame, now);
+            }
+        }
+    }
+
+    /**
+     * Queue a frame for the subscriber and make sure a sender is draining its queue; never blocks.
+     */
+    private void enqueue(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> frame, long now) {
+        long sendingSince = subscriber.sendingSince;
+        if (sendingSince > 0 && now - sendingSince > sendTimeoutMs) {
+            drop(subscriber, "a write has been blocked for " + (now - sendingSince) + " ms");
+            return;
+        }
+        if (!subscriber.frames.offer(frame)) {
+            drop(subscriber, queueCapacity + " frames are waiting");
+            return;
+        }
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.draining.set(false);
+            }
+        }
+    }
+
+    /**
+     * Write the subscriber's queued frames in order, on a sender thread.
+     */
+    private void drain(Subscriber subscriber) {
+        do {
+            Set<ResponseBodyEmitter.DataWithMediaType> frame;
+            while ((frame = subscriber.frames.poll()) != null) {
+                subscriber.sendingSince = System.currentTimeMillis();
+                try {
+                    subscriber.emitter.send(frame);
+                } catch (IOException | IllegalStateException e) {
+                    subscriber.frames.clear();
+                    unsubscribe(subscriber);
+                } finally {
+                    subscriber.sendingSince = 0;
+                }
+            }
+            subscriber.draining.set(false);
+            // A frame queued after the last poll but before the flag was cleared is picked up here
+        } while (!subscriber.frames.isEmpty() && subscriber.draining.compareAndSet(false, true));
+    }
+
+    /**
+     * Stop sending to a subscriber that cannot keep up and close its stream; the client reconnects
+     * and starts again from a snapshot.
+     */
+    private void drop(Subscriber subscriber, String reason) {
+        if (unsubscribe(subscriber)) {
+            subscriber.frames.clear();
+            logger.warning(() -> String.format("Dropping slow results stream of election %d: %s",
+                    subscriber.channel.electionId, reason));
+            subscriber.emitter.complete();
+        }
+    }
+
+    /**
+     * Changed entries between two results, or null if the lists themselves changed and the
+     * subscriber needs a new snapshot.
+     */
+    static ElectionResultsDeltaDTO delta(ElectionResultsDTO previous, ElectionResultsDTO current) {
+        List<CandidateResultDTO> before = previous.getCandidateResults();
+        List<CandidateResultDTO> after = current.getCandidateResults();
+        if (before.size() != after.size()) {
+            return null;
+        }
+        List<CandidateResultDTO> candidates = new ArrayList<>();
+        for (int i = 0; i < after.size(); i++) {
+            CandidateResultDTO was = before.get(i);
+            CandidateResultDTO is = after.get(i);
+            if (!was.getCandidateId().equals(is.getCandidateId())
+                    || !Objects.equals(was.getCandidateName(), is.getCandidateName())) {
+                return null;
+            }
+            if (was.getVotesCount() != is.getVotesCount()) {
+                candidates.add(is);
+            }
+        }
+        Map<Long, PartyResultDTO> partiesBefore = new HashMap<>();
+        previous.getPartyResults().forEach(p -> partiesBefore.put(p.getPartyId(), p));
+        List<PartyResultDTO> parties = new ArrayList<>();
+        for (PartyResultDTO is : current.getPartyResults()) {
+            PartyResultDTO was = partiesBefore.remove(is.getPartyId());
+            if (was != null && !Objects.equals(was.getPartyName(), is.getPartyName())) {
+                return null;
+            }
+            // A party's first votes arrive as a new entry
+            if (was == null || was.getVoteCount() != is.getVoteCount()) {
+                parties.add(is);
+            }
+        }
+        if (!partiesBefore.isEmpty()) {
+            return null;
+        }
+        return new ElectionResultsDeltaDTO(current.getElectionId(), current.getVersion(), candidates, parties);
+    }
+
+    SseEmitter newEmitter(long timeoutMs) {
+        return new SseEmitter(timeoutMs);
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> frame(String name, long version, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize results frame", e);
+        }
+        return SseEmitter.event().id(Long.toString(version)).name(name).data(json).build();
+    }
+
+    private boolean unsubscribe(Subscriber subscriber) {
+        if (subscriber.channel.subscribers.remove(subscriber)) {
+            subscribers.decrementAndGet();
+            logger.fine(() -> "Results stream closed for election " + subscriber.channel.electionId);
+            return true;
+        }
+        return false;
+    }
+
+    int subscriberCount() {
+        return subscribers.get();
+    }
+
+    /**
+     * Subscribers of one election and the results they were last sent.
+     */
+    private static final class Channel {
+        private final Long electionId;
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private ElectionResultsDTO last;
+        private long lastSentAt = System.currentTimeMillis();
+        /**
+         * Set once the channel is removed; a subscriber that still finds it must create a new one.
+         */
+        private boolean closed;
+
+        Channel(Long electionId) {
+            this.electionId = electionId;
+        }
+    }
+
+    /**
+     * One open stream with the frames queued for it.
+     */
+    private static final class Subscriber {
+        private final Channel channel;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> frames;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        /**
+         * Start of the write in progress, or 0 if none.
+         */
+        private volatile long sendingSince;
+
+        Subscriber(Channel channel, SseEmitter emitter, int queueCapacity) {
+            this.channel = channel;
+            this.emitter = emitter;
+            this.frames = new ArrayBlockingQueue<>(queueCapacity);
+        }
+    }
+}
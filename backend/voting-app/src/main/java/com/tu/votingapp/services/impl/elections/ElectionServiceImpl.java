@@ -7,10 +7,11 @@ import com.tu.votingapp.entities.elections.ElectionEntity;
 import com.tu.votingapp.enums.ElectionStatus;
 import com.tu.votingapp.enums.ElectionType;
 import com.tu.votingapp.repositories.interfaces.elections.ElectionRepository;
-import com.tu.votingapp.repositories.interfaces.elections.PartyVoteRepository;
+import com.tu.votingapp.services.impl.JsonResponseCache;
 import com.tu.votingapp.services.interfaces.elections.ElectionService;
 import com.tu.votingapp.utils.mappers.election.CandidateMapper;
 import com.tu.votingapp.utils.mappers.election.ElectionMapper;
+import com.tu.votingapp.utils.TransactionUtil;
 import com.tu.votingapp.utils.mappers.election.PartyMapper;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -22,7 +23,9 @@ import org.springframework.stereotype.Service;
 
 import java.sql.Date;
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -30,10 +33,12 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ElectionServiceImpl implements ElectionService {
     private final ElectionRepository electionRepository;
-    private final PartyVoteRepository partyVoteRepository;
     private final ElectionMapper electionMapper;
     private final CandidateMapper candidateMapper;
     private final PartyMapper partyMapper;
+    private final BallotDefinitionCache ballotDefinitionCache;
+    private final ElectionResultsProjection resultsProjection;
+    private final JsonResponseCache responseCache;
     private final Logger logger = Logger.getLogger(ElectionServiceImpl.class.getName());
 
     @Override
@@ -90,6 +95,11 @@ public class ElectionServiceImpl implements ElectionService {
         if (request.getElectionType() != null) existing.setElectionType(request.getElectionType());
 
         ElectionEntity saved = electionRepository.save(existing);
+        TransactionUtil.afterCommit(() -> {
+            ballotDefinitionCache.refresh(saved.getId());
+            resultsProjection.invalidate(saved.getId());
+            responseCache.invalidate(JsonResponseCache.ELECTION, saved.getId());
+        });
         logger.info(() -> "Election updated id=" + saved.getId());
         return mapToResponse(saved);
     }
@@ -104,6 +114,11 @@ public class ElectionServiceImpl implements ElectionService {
             throw new IllegalStateException("Can only delete elections in DRAFT status");
         }
         electionRepository.deleteById(id);
+        TransactionUtil.afterCommit(() -> {
+            ballotDefinitionCache.evict(id);
+            resultsProjection.invalidate(id);
+            responseCache.invalidate(JsonResponseCache.ELECTION, id);
+        });
         logger.info(() -> "Deleted election id=" + id);
     }
 
@@ -113,6 +128,13 @@ public class ElectionServiceImpl implements ElectionService {
         ElectionResponseDTO dto = electionRepository.findById(id)
                 .map(this::mapToResponse)
                 .orElseThrow(() -> new RuntimeException("Election not found: " + id));
+        // Counts as in the results, so the details change with the results version they are cached under
+        Map<Long, Integer> votes = new HashMap<>();
+        resultsProjection.getResults(id).getCandidateResults()
+                .forEach(r -> votes.put(r.getCandidateId(), r.getVotesCount()));
+        dto.getCandidates().forEach(c -> c.setVotesCount(votes.getOrDefault(c.getId(), c.getVotesCount())));
+        dto.getParties().forEach(p -> p.getCandidates()
+                .forEach(c -> c.setVotesCount(votes.getOrDefault(c.getId(), c.getVotesCount()))));
         logger.fine(() -> "Fetched election: name='" + dto.getElectionName() + "'");
         return dto;
     }
@@ -150,16 +172,15 @@ public class ElectionServiceImpl implements ElectionService {
     @Override
     public ElectionResultsDTO getResults(Long electionId) {
         logger.info(() -> "Fetching results for election id=" + electionId);
-        ElectionEntity election = electionRepository.findById(electionId)
-                .orElseThrow(() -> new RuntimeException("Election not found: " + electionId));
-        List<CandidateResultDTO> candResults = election.getCandidates().stream()
-                .map(c -> new CandidateResultDTO(c.getId(), c.getName(), c.getVotesCount()))
-                .collect(Collectors.toList());
-        List<PartyResultDTO> partyResults = partyVoteRepository.findByElection(election).stream()
-                .map(pv -> new PartyResultDTO(pv.getParty().getId(), pv.getParty().getName(), pv.getVoteCount()))
-                .collect(Collectors.toList());
-        logger.fine(() -> String.format("Results: %d candidateResults, %d partyResults", candResults.size(), partyResults.size()));
-        return new ElectionResultsDTO(electionId, candResults, partyResults);
+        ElectionResultsDTO results = resultsProjection.getResults(electionId);
+        logger.fine(() -> String.format("Results: %d candidateResults, %d partyResults at version %d",
+                results.getCandidateResults().size(), results.getPartyResults().size(), results.getVersion()));
+        return results;
+    }
+
+    @Override
+    public long getResultsVersion(Long electionId) {
+        return resultsProjection.getVersion(electionId);
     }
 
     private ElectionResponseDTO mapToResponse(ElectionEntity e) {
@@ -0,0 +1,298 @@
+package com.tu.votingapp.services.impl.elections;
+
+import com.tu.votingapp.dto.response.elections.RecountLineDTO;
+import com.tu.votingapp.dto.response.elections.RecountReportDTO;
+import com.tu.votingapp.enums.ElectionStatus;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Recounts an election from the raw ballots and reconciles the result with the incremental
+ * counters: candidates.votes_count, party_votes.vote_count and the {@link VoteTallyEngine}.
+ * The votes table is read in primary-key ranges, each with its own forward-only query, and the
+ * ranges are counted in parallel on a dedicated ForkJoinPool. Every range fills primitive counters
+ * indexed by the ballot's sorted candidate and party ids; partial counts are summed as the tasks join.
+ * The report is signed with HMAC-SHA256, the same way as the session tokens but with its own key,
+ * app.recount.signing-key, so a token secret cannot be used to forge reports or the other way round.
+ */
+@Component
+public class RecountService {
+    private static final String VOTE_RANGE =
+            "SELECT candidate_id, party_id FROM votes WHERE election_id = ? AND id >= ? AND id < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VoteTallyEngine tallyEngine;
+    private final ForkJoinPool pool;
+    private final long rangeSize;
+    private final byte[] signingKey;
+    private final ReentrantLock running = new ReentrantLock();
+    private final Logger logger = Logger.getLogger(RecountService.class.getName());
+
+    public RecountService(JdbcTemplate jdbcTemplate,
+                          VoteTallyEngine tallyEngine,
+                          @Value("${app.recount.parallelism:4}") int parallelism,
+                          @Value("${app.recount.range-size:50000}") long rangeSize,
+                          @Value("${app.recount.signing-key:}") String signingKey,
+                          @Value("${app.tokenSecret}") String tokenSecret) {
+        if (signingKey.isBlank()) {
+            // Recounts are refused until a key is configured; everything else runs without one
+            logger.warning("app.recount.signing-key is not set, recounts are disabled");
+        } else if (signingKey.equals(tokenSecret)) {
+            throw new IllegalStateException("app.recount.signing-key must differ from app.tokenSecret");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.tallyEngine = tallyEngine;
+        // Each task holds a connection while it reads; keep this below the connection pool size
+        this.pool = new ForkJoinPool(parallelism);
+        this.rangeSize = rangeSize;
+        this.signingKey = signingKey.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Recount a closed election and compare the result with its counters.
+     *
+     * @throws RuntimeException      if the election does not exist
+     * @throws IllegalStateException if voting has not ended, another recount is running or no
+     *                               signing key is configured
+     */
+    public RecountReportDTO recount(Long electionId) {
+        if (signingKey.length == 0) {
+            throw new IllegalStateException("Recounts are disabled until app.recount.signing-key is set");
+        }
+        ElectionStatus status;
+        try {
+            status = ElectionStatus.valueOf(jdbcTemplate.queryForObject(
+                    "SELECT election_status FROM elections WHERE id = ?", String.class, electionId));
+        } catch (EmptyResultDataAccessException e) {
+            throw new RuntimeException("Election not found: " + electionId);
+        }
+        if (status != ElectionStatus.ENDED && status != ElectionStatus.CLOSED) {
+            throw new IllegalStateException("Election " + electionId + " is " + status + ", recount it once voting has ended");
+        }
+        if (!running.tryLock()) {
+            throw new IllegalStateException("A recount is already running");
+        }
+        try {
+            return reconcile(electionId);
+        } finally {
+            running.unlock();
+        }
+    }
+
+    /**
+     * @return whether the report's signature matches its payload
+     */
+    public boolean verify(RecountReportDTO report) {
+        return signingKey.length > 0 && report.getPayload() != null && report.getSignature() != null
+                && MessageDigest.isEqual(sign(report.getPayload()).getBytes(StandardCharsets.US_ASCII),
+                report.getSignature().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private RecountReportDTO reconcile(Long electionId) {
+        long startedAt = System.currentTimeMillis();
+        logger.info(() -> "Recounting election " + electionId);
+        // Write pending tally deltas first, so the stored counters are compared at their latest state
+        tallyEngine.flush();
+
+        long[] candidateIds = ids("SELECT id FROM candidates WHERE election_id = ? ORDER BY id", electionId);
+        long[] partyIds = ids("SELECT id FROM parties WHERE election_id = ? ORDER BY id", electionId);
+        long[] bounds = new long[]{0, -1};
+        jdbcTemplate.query("SELECT MIN(id), MAX(id) FROM votes WHERE election_id = ?", rs -> {
+            bounds[0] = rs.getLong(1);
+            bounds[1] = rs.wasNull() ? -1 : rs.getLong(2);
+        }, electionId);
+
+        Partial total = bounds[1] < bounds[0]
+                ? new Partial(candidateIds.length, partyIds.length)
+                : pool.invoke(new RangeTask(electionId, candidateIds, partyIds, bounds[0], bounds[1] + 1));
+
+        Map<Long, Long> storedCandidates = new HashMap<>();
+        jdbcTemplate.query("SELECT id, votes_count FROM candidates WHERE election_id = ?",
+                rs -> { storedCandidates.put(rs.getLong(1), rs.getLong(2)); }, electionId);
+        Map<Long, Long> storedParties = new HashMap<>();
+        jdbcTemplate.query("SELECT party_id, vote_count FROM party_votes WHERE election_id = ?",
+                rs -> { storedParties.put(rs.getLong(1), rs.getLong(2)); }, electionId);
+        boolean tallied = tallyEngine.getVersion(electionId) >= 0;
+        Map<Long, Long> tallyCandidates = tallyEngine.getCandidateCounts(electionId);
+        Map<Long, Long> tallyParties = tallyEngine.getPartyCounts(electionId);
+
+        List<RecountLineDTO> candidates = lines(candidateIds, total.candidates, storedCandidates, tallied ? tallyCandidates : null, false);
+        List<RecountLineDTO> parties = lines(partyIds, total.parties, storedParties, tallied ? tallyParties : null, true);
+        long unknown = total.candidates[candidateIds.length] + total.parties[partyIds.length];
+        boolean consistent = unknown == 0
+                && candidates.stream().allMatch(RecountLineDTO::isMatches)
+                && parties.stream().allMatch(RecountLineDTO::isMatches);
+
+        String payload = payload(electionId, startedAt, total.votes, unknown, consistent, candidates, parties);
+        RecountReportDTO report = new RecountReportDTO(electionId, startedAt, System.currentTimeMillis() - startedAt,
+                total.votes, total.ranges, unknown, consistent, candidates, parties, payload, sign(payload));
+        logger.info(() -> String.format("Recounted election %d: %d votes in %d ranges, %d ms, consistent=%b",
+                electionId, report.getVotesScanned(), report.getRanges(), report.getDurationMs(), consistent));
+        return report;
+    }
+
+    /**
+     * One line per ballot entry, plus ids found only in the stored rows. Parties without a
+     * party_votes row match when nobody voted for them, as the row is created on the first vote.
+     */
+    private static List<RecountLineDTO> lines(long[] ids, long[] recounted, Map<Long, Long> stored,
+                                              Map<Long, Long> tally, boolean rowOnFirstVote) {
+        List<RecountLineDTO> lines = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            Long storedCount = stored.get(ids[i]);
+            Long tallyCount = tally == null ? null : tally.getOrDefault(ids[i], 0L);
+            long expected = recounted[i];
+            boolean matches = (storedCount != null ? storedCount == expected : rowOnFirstVote && expected == 0)
+                    && (tallyCount == null || tallyCount == expected);
+            lines.add(new RecountLineDTO(ids[i], expected, storedCount, tallyCount, matches));
+        }
+        stored.forEach((id, count) -> {
+            if (Arrays.binarySearch(ids, id) < 0) {
+                lines.add(new RecountLineDTO(id, 0, count, null, count == 0));
+            }
+        });
+        return lines;
+    }
+
+    /**
+     * Canonical text of a report: electionId|startedAt|votes|unknown|consistent|C:id=recounted/stored/tally,...|P:...
+     * with "-" for a missing stored or tally value.
+     */
+    static String payload(Long electionId, long startedAt, long votes, long unknown, boolean consistent,
+                          List<RecountLineDTO> candidates, List<RecountLineDTO> parties) {
+        StringBuilder payload = new StringBuilder();
+        payload.append(electionId).append('|').append(startedAt).append('|').append(votes).append('|')
+                .append(unknown).append('|').append(consistent).append("|C:");
+        appendLines(payload, candidates);
+        payload.append("|P:");
+        appendLines(payload, parties);
+        return payload.toString();
+    }
+
+    private static void appendLines(StringBuilder payload, List<RecountLineDTO> lines) {
+        for (int i = 0; i < lines.size(); i++) {
+            RecountLineDTO line = lines.get(i);
+            if (i > 0) {
+                payload.append(',');
+            }
+            payload.append(line.getId()).append('=').append(line.getRecounted())
+                    .append('/').append(line.getStored() != null ? line.getStored() : "-")
+                    .append('/').append(line.getTally() != null ? line.getTally() : "-");
+        }
+    }
+
+    private String sign(String payload) {
+        try {
+            Mac hmac = Mac.getInstance("HmacSHA256");
+            hmac.init(new SecretKeySpec(signingKey, "HmacSHA256"));
+            byte[] signature = hmac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign recount report", e);
+        }
+    }
+
+    private long[] ids(String sql, Long electionId) {
+        return jdbcTemplate.queryForList(sql, Long.class, electionId).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Vote counts of a key range; the last element of each array counts ids not on the ballot.
+     */
+    private static final class Partial {
+        private final long[] candidates;
+        private final long[] parties;
+        private long votes;
+        private int ranges;
+
+        Partial(int candidateCount, int partyCount) {
+            this.candidates = new long[candidateCount + 1];
+            this.parties = new long[partyCount + 1];
+        }
+
+        Partial merge(Partial other) {
+            for (int i = 0; i < candidates.length; i++) {
+                candidates[i] += other.candidates[i];
+            }
+            for (int i = 0; i < parties.length; i++) {
+                parties[i] += other.parties[i];
+            }
+            votes += other.votes;
+            ranges += other.ranges;
+            return this;
+        }
+    }
+
+    /**
+     * Counts the votes with ids in [from, to), splitting in halves down to ranges of rangeSize.
+     */
+    private final class RangeTask extends RecursiveTask<Partial> {
+        private final Long electionId;
+        private final long[] candidateIds;
+        private final long[] partyIds;
+        private final long from;
+        private final long to;
+
+        RangeTask(Long electionId, long[] candidateIds, long[] partyIds, long from, long to) {
+            this.electionId = electionId;
+            this.candidateIds = candidateIds;
+            this.partyIds = partyIds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > rangeSize) {
+                long middle = from + (to - from) / 2;
+                RangeTask upper = new RangeTask(electionId, candidateIds, partyIds, middle, to);
+                upper.fork();
+                Partial lower = new RangeTask(electionId, candidateIds, partyIds, from, middle).compute();
+                return lower.merge(upper.join());
+            }
+            Partial partial = new Partial(candidateIds.length, partyIds.length);
+            partial.ranges = 1;
+            jdbcTemplate.query(VOTE_RANGE, rs -> {
+                long candidateId = rs.getLong(1);
+                if (!rs.wasNull()) {
+                    partial.candidates[slot(candidateIds, candidateId)]++;
+                }
+                long partyId = rs.getLong(2);
+                if (!rs.wasNull()) {
+                    partial.parties[slot(partyIds, partyId)]++;
+                }
+                partial.votes++;
+            }, electionId, from, to);
+            return partial;
+        }
+
+        private int slot(long[] ids, long id) {
+            int slot = Arrays.binarySearch(ids, id);
+            return slot >= 0 ? slot : ids.length;
+        }
+    }
+}
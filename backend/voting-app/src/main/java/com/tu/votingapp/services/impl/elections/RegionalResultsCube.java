@@ -0,0 +1,407 @@
+package com.tu.votingapp.services.impl.elections;
+
+import com.tu.votingapp.dto.response.elections.AreaResultsDTO;
+import com.tu.votingapp.dto.response.elections.CandidateResultDTO;
+import com.tu.votingapp.dto.response.elections.ElectionResultsDTO;
+import com.tu.votingapp.dto.response.elections.PartyResultDTO;
+import com.tu.votingapp.enums.AreaLevel;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Election results pre-aggregated per location and rolled up to municipality and region as ballots
+ * are counted, so area results are read from memory without scanning the votes table.
+ * A ballot is placed by the voter's registered location and added to three cells: its location,
+ * the location's municipality and that municipality's region. Turnout is ballots over the summed
+ * MunicipalityEntity.population of the area.
+ * The cells are built from the votes once at startup, fed by the ingestion pipeline with this
+ * node's ballots, and caught up every refresh interval with the votes stored since, which brings in
+ * the other nodes' ballots. Ballots are told apart by vote id, so one counted here and then read
+ * back is added once. A vote id is considered settled one refresh after a higher id was read;
+ * ids at or below the settled floor are no longer read, so a transaction that stays uncommitted
+ * past that point is missed until the next rebuild. The area hierarchy is read at startup and again
+ * when a ballot or request names an area not seen yet.
+ */
+@Component
+public class RegionalResultsCube {
+    private final JdbcTemplate jdbcTemplate;
+    private final ElectionResultsProjection projection;
+    private final long reloadIntervalMs;
+    private final Logger logger = Logger.getLogger(RegionalResultsCube.class.getName());
+
+    private final Map<Long, ElectionCube> cubes = new ConcurrentHashMap<>();
+    /**
+     * Ids above the floor that are already in the cells.
+     */
+    private final NavigableSet<Long> counted = new ConcurrentSkipListSet<>();
+    /**
+     * Every vote id at or below the floor is in the cells or will not be read.
+     */
+    private volatile long floor;
+    /**
+     * Highest id read so far; becomes the floor at the next refresh.
+     */
+    private long settling;
+    private volatile Hierarchy hierarchy = Hierarchy.EMPTY;
+    private volatile long hierarchyLoadedAt;
+
+    public RegionalResultsCube(JdbcTemplate jdbcTemplate,
+                               ElectionResultsProjection projection,
+                               @Value("${app.results.cube.reload-interval-ms:60000}") long reloadIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.projection = projection;
+        this.reloadIntervalMs = reloadIntervalMs;
+    }
+
+    /**
+     * Load the area hierarchy and aggregate the stored votes by the voters' locations.
+     */
+    @PostConstruct
+    public void rebuild() {
+        logger.info("Building regional results cube from votes table");
+        try {
+            Hierarchy areas = loadHierarchy();
+            Map<Long, ElectionCube> rebuilt = new HashMap<>();
+            long[] rows = new long[1];
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM votes", Long.class);
+            long upTo = maxId == null ? 0 : maxId;
+            jdbcTemplate.query(
+                    "SELECT v.election_id, u.location_id, v.candidate_id, v.party_id, COUNT(*) "
+                            + "FROM votes v JOIN voting.user u ON u.id = v.user_id WHERE v.id <= ? "
+                            + "GROUP BY v.election_id, u.location_id, v.candidate_id, v.party_id",
+                    rs -> {
+                        long locationId = rs.getLong(2);
+                        if (rs.wasNull()) {
+                            return;
+                        }
+                        long candidateId = rs.getLong(3);
+                        Long candidate = rs.wasNull() ? null : candidateId;
+                        long partyId = rs.getLong(4);
+                        Long party = rs.wasNull() ? null : partyId;
+                        rebuilt.computeIfAbsent(rs.getLong(1), k -> new ElectionCube())
+                                .add(areas, locationId, candidate, party, rs.getLong(5));
+                        rows[0]++;
+                    }, upTo);
+            synchronized (this) {
+                cubes.clear();
+                cubes.putAll(rebuilt);
+                counted.clear();
+                floor = upTo;
+                settling = upTo;
+            }
+            logger.info(() -> String.format("Regional results cube built: %d elections, %d vote groups", rebuilt.size(), rows[0]));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to build regional results cube; area totals start from zero", e);
+        }
+    }
+
+    /**
+     * Count a committed ballot in the voter's location and the areas above it, unless a refresh has
+     * already read it.
+     */
+    public void recordVote(Long voteId, Long electionId, Long locationId, Long candidateId, Long partyId) {
+        // Checked again after claiming the id: the floor may have passed it and dropped its claim
+        if (voteId <= floor || !counted.add(voteId) || voteId <= floor) {
+            return;
+        }
+        add(electionId, locationId, candidateId, partyId);
+    }
+
+    /**
+     * Add the votes stored since the last refresh that are not counted yet, and move the floor up
+     * to the highest id the previous refresh read.
+     */
+    @Scheduled(fixedDelayString = "${app.results.cube.refresh-interval-ms:1000}")
+    public synchronized void refresh() {
+        long[] read = new long[]{settling, 0};
+        try {
+            jdbcTemplate.query(
+                    "SELECT v.id, v.election_id, u.location_id, v.candidate_id, v.party_id "
+                            + "FROM votes v JOIN voting.user u ON u.id = v.user_id WHERE v.id > ? ORDER BY v.id",
+                    rs -> {
+                        long voteId = rs.getLong(1);
+                        read[0] = Math.max(read[0], voteId);
+                        if (!counted.add(voteId)) {
+                            return;
+                        }
+                        long locationId = rs.getLong(3);
+                        if (rs.wasNull()) {
+                            return;
+                        }
+                        long candidateId = rs.getLong(4);
+                        Long candidate = rs.wasNull() ? null : candidateId;
+                        long partyId = rs.getLong(5);
+                        Long party = rs.wasNull() ? null : partyId;
+                        add(rs.getLong(2), locationId, candidate, party);
+                        read[1]++;
+                    }, floor);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Could not refresh the regional results cube, will retry", e);
+            return;
+        }
+        floor = settling;
+        settling = read[0];
+        counted.headSet(floor, true).clear();
+        if (read[1] > 0) {
+            logger.fine(() -> String.format("Added %d stored votes to the regional results cube", read[1]));
+        }
+    }
+
+    private void add(Long electionId, Long locationId, Long candidateId, Long partyId) {
+        if (locationId == null) {
+            return;
+        }
+        Hierarchy areas = hierarchy;
+        if (!areas.locations.containsKey(locationId)) {
+            areas = reloadIfStale();
+        }
+        cubes.computeIfAbsent(electionId, k -> new ElectionCube()).add(areas, locationId, candidateId, partyId, 1);
+    }
+
+    /**
+     * @throws RuntimeException if the election or region does not exist
+     */
+    public AreaResultsDTO getRegion(Long electionId, Long regionId) {
+        Area region = find(AreaLevel.REGION, regionId);
+        return toDto(electionId, projection.getResults(electionId), region, cellsOf(electionId, AreaLevel.REGION));
+    }
+
+    /**
+     * @throws RuntimeException if the election or region does not exist
+     */
+    public List<AreaResultsDTO> getMunicipalities(Long electionId, Long regionId) {
+        find(AreaLevel.REGION, regionId);
+        return children(electionId, hierarchy.municipalitiesByRegion, regionId, AreaLevel.MUNICIPALITY);
+    }
+
+    /**
+     * @throws RuntimeException if the election or municipality does not exist
+     */
+    public AreaResultsDTO getMunicipality(Long electionId, Long municipalityId) {
+        Area municipality = find(AreaLevel.MUNICIPALITY, municipalityId);
+        return toDto(electionId, projection.getResults(electionId), municipality, cellsOf(electionId, AreaLevel.MUNICIPALITY));
+    }
+
+    /**
+     * @throws RuntimeException if the election or municipality does not exist
+     */
+    public List<AreaResultsDTO> getLocations(Long electionId, Long municipalityId) {
+        find(AreaLevel.MUNICIPALITY, municipalityId);
+        return children(electionId, hierarchy.locationsByMunicipality, municipalityId, AreaLevel.LOCATION);
+    }
+
+    private List<AreaResultsDTO> children(Long electionId, Map<Long, List<Area>> byParent, Long parentId, AreaLevel level) {
+        ElectionResultsDTO national = projection.getResults(electionId);
+        Map<Long, Cell> cells = cellsOf(electionId, level);
+        List<AreaResultsDTO> result = new ArrayList<>();
+        for (Area child : byParent.getOrDefault(parentId, Collections.emptyList())) {
+            result.add(toDto(electionId, national, child, cells));
+        }
+        return result;
+    }
+
+    private Area find(AreaLevel level, Long id) {
+        Area area = hierarchy.level(level).get(id);
+        if (area == null) {
+            area = reloadIfStale().level(level).get(id);
+        }
+        if (area == null) {
+            throw new RuntimeException(level == AreaLevel.REGION ? "Region not found: " + id : "Municipality not found: " + id);
+        }
+        return area;
+    }
+
+    private Map<Long, Cell> cellsOf(Long electionId, AreaLevel level) {
+        ElectionCube cube = cubes.get(electionId);
+        return cube == null ? Collections.emptyMap() : cube.level(level);
+    }
+
+    /**
+     * Area results with the candidate and party names and order of the national results.
+     */
+    private static AreaResultsDTO toDto(Long electionId, ElectionResultsDTO national, Area area, Map<Long, Cell> cells) {
+        Cell cell = cells.get(area.id);
+        List<CandidateResultDTO> candidates = new ArrayList<>(national.getCandidateResults().size());
+        for (CandidateResultDTO candidate : national.getCandidateResults()) {
+            candidates.add(new CandidateResultDTO(candidate.getCandidateId(), candidate.getCandidateName(),
+                    (int) (cell == null ? 0 : cell.count(cell.candidates, candidate.getCandidateId()))));
+        }
+        List<PartyResultDTO> parties = new ArrayList<>();
+        if (cell != null) {
+            for (PartyResultDTO party : national.getPartyResults()) {
+                long votes = cell.count(cell.parties, party.getPartyId());
+                if (votes > 0) {
+                    parties.add(new PartyResultDTO(party.getPartyId(), party.getPartyName(), (int) votes));
+                }
+            }
+        }
+        long ballots = cell == null ? 0 : cell.ballots.sum();
+        Double turnout = area.population == null || area.population == 0 ? null : (double) ballots / area.population;
+        return new AreaResultsDTO(electionId, area.level, area.id, area.name, ballots, area.population, turnout,
+                candidates, parties);
+    }
+
+    private synchronized Hierarchy reloadIfStale() {
+        if (System.currentTimeMillis() - hierarchyLoadedAt >= reloadIntervalMs) {
+            try {
+                loadHierarchy();
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Could not reload the area hierarchy", e);
+                hierarchyLoadedAt = System.currentTimeMillis();
+            }
+        }
+        return hierarchy;
+    }
+
+    private synchronized Hierarchy loadHierarchy() {
+        Map<Long, Area> regions = new HashMap<>();
+        jdbcTemplate.query("SELECT id, region_name FROM region_entity", rs -> {
+            regions.put(rs.getLong(1), new Area(AreaLevel.REGION, rs.getLong(1), rs.getString(2), null, null));
+        });
+        Map<Long, Area> municipalities = new HashMap<>();
+        Map<Long, Long> regionPopulations = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name, region_id, population FROM municipality_entity", rs -> {
+            long regionId = rs.getLong(3);
+            Long region = rs.wasNull() ? null : regionId;
+            long population = rs.getLong(4);
+            Long known = rs.wasNull() ? null : population;
+            municipalities.put(rs.getLong(1), new Area(AreaLevel.MUNICIPALITY, rs.getLong(1), rs.getString(2), region, known));
+            if (region != null && known != null) {
+                regionPopulations.merge(region, known, Long::sum);
+            }
+        });
+        regionPopulations.forEach((id, population) -> regions.computeIfPresent(id,
+                (k, region) -> new Area(AreaLevel.REGION, region.id, region.name, null, population)));
+        Map<Long, Area> locations = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name, municipality_id FROM location_entity", rs -> {
+            long municipalityId = rs.getLong(3);
+            Long municipality = rs.wasNull() ? null : municipalityId;
+            locations.put(rs.getLong(1), new Area(AreaLevel.LOCATION, rs.getLong(1), rs.getString(2), municipality, null));
+        });
+        Hierarchy loaded = new Hierarchy(regions, municipalities, locations);
+        hierarchy = loaded;
+        hierarchyLoadedAt = System.currentTimeMillis();
+        logger.fine(() -> String.format("Loaded area hierarchy: %d regions, %d municipalities, %d locations",
+                regions.size(), municipalities.size(), locations.size()));
+        return loaded;
+    }
+
+    /**
+     * A region, municipality or location. Locations carry no population of their own.
+     */
+    private static final class Area {
+        private final AreaLevel level;
+        private final Long id;
+        private final String name;
+        private final Long parentId;
+        private final Long population;
+
+        Area(AreaLevel level, Long id, String name, Long parentId, Long population) {
+            this.level = level;
+            this.id = id;
+            this.name = name;
+            this.parentId = parentId;
+            this.population = population;
+        }
+    }
+
+    /**
+     * Immutable snapshot of the area tables, replaced as a whole on reload.
+     */
+    private static final class Hierarchy {
+        private static final Hierarchy EMPTY = new Hierarchy(Map.of(), Map.of(), Map.of());
+
+        private final Map<Long, Area> regions;
+        private final Map<Long, Area> municipalities;
+        private final Map<Long, Area> locations;
+        private final Map<Long, List<Area>> municipalitiesByRegion = new HashMap<>();
+        private final Map<Long, List<Area>> locationsByMunicipality = new HashMap<>();
+
+        Hierarchy(Map<Long, Area> regions, Map<Long, Area> municipalities, Map<Long, Area> locations) {
+            this.regions = regions;
+            this.municipalities = municipalities;
+            this.locations = locations;
+            municipalities.values().forEach(m -> municipalitiesByRegion.computeIfAbsent(m.parentId, k -> new ArrayList<>()).add(m));
+            locations.values().forEach(l -> locationsByMunicipality.computeIfAbsent(l.parentId, k -> new ArrayList<>()).add(l));
+            municipalitiesByRegion.values().forEach(list -> list.sort((a, b) -> Long.compare(a.id, b.id)));
+            locationsByMunicipality.values().forEach(list -> list.sort((a, b) -> Long.compare(a.id, b.id)));
+        }
+
+        Map<Long, Area> level(AreaLevel level) {
+            return switch (level) {
+                case REGION -> regions;
+                case MUNICIPALITY -> municipalities;
+                case LOCATION -> locations;
+            };
+        }
+    }
+
+    /**
+     * Cells of one election at each level of the hierarchy.
+     */
+    private static final class ElectionCube {
+        private final Map<Long, Cell> locations = new ConcurrentHashMap<>();
+        private final Map<Long, Cell> municipalities = new ConcurrentHashMap<>();
+        private final Map<Long, Cell> regions = new ConcurrentHashMap<>();
+
+        void add(Hierarchy areas, long locationId, Long candidateId, Long partyId, long count) {
+            locations.computeIfAbsent(locationId, k -> new Cell()).add(candidateId, partyId, count);
+            Area location = areas.locations.get(locationId);
+            if (location == null || location.parentId == null) {
+                return;
+            }
+            municipalities.computeIfAbsent(location.parentId, k -> new Cell()).add(candidateId, partyId, count);
+            Area municipality = areas.municipalities.get(location.parentId);
+            if (municipality != null && municipality.parentId != null) {
+                regions.computeIfAbsent(municipality.parentId, k -> new Cell()).add(candidateId, partyId, count);
+            }
+        }
+
+        Map<Long, Cell> level(AreaLevel level) {
+            return switch (level) {
+                case REGION -> regions;
+                case MUNICIPALITY -> municipalities;
+                case LOCATION -> locations;
+            };
+        }
+    }
+
+    /**
+     * Ballot, candidate and party counts of one area in one election.
+     */
+    private static final class Cell {
+        private final LongAdder ballots = new LongAdder();
+        private final Map<Long, LongAdder> candidates = new ConcurrentHashMap<>();
+        private final Map<Long, LongAdder> parties = new ConcurrentHashMap<>();
+
+        void add(Long candidateId, Long partyId, long count) {
+            ballots.add(count);
+            if (candidateId != null) {
+                candidates.computeIfAbsent(candidateId, k -> new LongAdder()).add(count);
+            }
+            if (partyId != null) {
+                parties.computeIfAbsent(partyId, k -> new LongAdder()).add(count);
+            }
+        }
+
+        long count(Map<Long, LongAdder> counters, Long id) {
+            LongAdder counter = counters.get(id);
+            return counter == null ? 0 : counter.sum();
+        }
+    }
+}
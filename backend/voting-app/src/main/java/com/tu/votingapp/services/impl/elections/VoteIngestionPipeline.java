@@ -0,0 +1,343 @@
+package com.tu.votingapp.services.impl.elections;
+
+import com.tu.votingapp.dto.general.elections.VoteDTO;
+import com.tu.votingapp.services.impl.VoterParticipationRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Group-commit stage for validated ballots. Callers enqueue a ballot and block until the
+ * batch containing it is committed; a single writer thread drains the queue and stores each
+ * batch with one multi-row INSERT and one commit.
+ */
+@Component
+public class VoteIngestionPipeline {
+    private static final String INSERT_PREFIX =
+            "INSERT INTO votes (user_id, election_id, candidate_id, party_id, vote_timestamp) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?)";
+    private static final String OUTBOX_INSERT_PREFIX =
+            "INSERT INTO vote_event_outbox (election_id, candidate_id, party_id, location_id, event_timestamp) VALUES ";
+    private static final String OUTBOX_ROW_PLACEHOLDER = "(?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final VoteTallyEngine tallyEngine;
+    private final RegionalResultsCube resultsCube;
+    private final VoterParticipationRegistry participationRegistry;
+    private final BlockingQueue<PendingBallot> queue;
+    private final int maxBatchSize;
+    private final long lingerMs;
+    private final long maxWaitMs;
+    private final Logger logger = Logger.getLogger(VoteIngestionPipeline.class.getName());
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public VoteIngestionPipeline(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 VoteTallyEngine tallyEngine,
+                                 RegionalResultsCube resultsCube,
+                                 VoterParticipationRegistry participationRegistry,
+                                 @Value("${app.votes.ingest.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${app.votes.ingest.max-batch-size:500}") int maxBatchSize,
+                                 @Value("${app.votes.ingest.linger-ms:2}") long lingerMs,
+                                 @Value("${app.votes.ingest.max-wait-ms:5000}") long maxWaitMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tallyEngine = tallyEngine;
+        this.resultsCube = resultsCube;
+        this.participationRegistry = participationRegistry;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.lingerMs = lingerMs;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::runWriter, "vote-ingest-writer");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info(() -> String.format("Vote ingestion pipeline started: capacity=%d, maxBatchSize=%d, lingerMs=%d, maxWaitMs=%d",
+                queue.remainingCapacity(), maxBatchSize, lingerMs, maxWaitMs));
+    }
+
+    /**
+     * Stop taking ballots and let the writer drain the queue. A writer still busy after maxWaitMs
+     * is interrupted, which ends it after its current batch; only once it has exited are the
+     * ballots left in the queue written here, so two threads never write at the same time.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(maxWaitMs);
+        if (writer.isAlive()) {
+            writer.interrupt();
+            writer.join(maxWaitMs);
+        }
+        List<PendingBallot> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (rest.isEmpty()) {
+            return;
+        }
+        if (writer.isAlive()) {
+            logger.severe(() -> "Vote ingestion writer did not stop; rejecting " + rest.size() + " queued ballots");
+            IllegalStateException stopped = new IllegalStateException("Vote intake is shutting down, please retry");
+            rest.forEach(b -> b.result.completeExceptionally(stopped));
+            return;
+        }
+        logger.info(() -> "Writing " + rest.size() + " queued ballots before shutdown");
+        for (int from = 0; from < rest.size(); from += maxBatchSize) {
+            writeBatch(rest.subList(from, Math.min(rest.size(), from + maxBatchSize)));
+        }
+    }
+
+    /**
+     * Enqueue a validated ballot and wait until its batch is durable.
+     *
+     * @param locationId the voter's registered location, counted in the regional results and published with the vote event for analytics; may be null
+     * @return the stored vote, including its generated id
+     * @throws DataIntegrityViolationException if the ballot violates a constraint (e.g. duplicate vote)
+     * @throws IllegalStateException           if the ballot could not be confirmed within the configured wait
+     */
+    public VoteDTO submit(Long userId, Long electionId, Long candidateId, Long partyId, Long locationId) {
+        PendingBallot ballot = new PendingBallot(userId, electionId, candidateId, partyId, locationId,
+                new Date(System.currentTimeMillis()));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        if (!running) {
+            throw new IllegalStateException("Vote intake is shutting down, please retry");
+        }
+        try {
+            if (!queue.offer(ballot, maxWaitMs, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Vote intake is saturated, please retry");
+            }
+            Long id = ballot.result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return new VoteDTO(id, userId, electionId, candidateId, partyId, ballot.timestamp);
+        } catch (TimeoutException e) {
+            if (queue.remove(ballot)) {
+                throw new IllegalStateException("Vote was not recorded within " + maxWaitMs + " ms, please retry");
+            }
+            // Already taken by the writer: the batch may still commit
+            throw new IllegalStateException("Vote confirmation timed out; the vote may still be recorded");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for vote confirmation", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Vote could not be recorded", e.getCause());
+        }
+    }
+
+    private void runWriter() {
+        List<PendingBallot> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingBallot first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                if (batch.size() < maxBatchSize && lingerMs > 0) {
+                    // Give concurrent callers a moment to join this commit
+                    PendingBallot next = queue.poll(lingerMs, TimeUnit.MILLISECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                    }
+                }
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Unexpected error in vote ingestion writer", e);
+                batch.forEach(b -> b.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingBallot> batch) {
+        List<Long> ids;
+        try {
+            // Votes and their outbox events commit together, so every stored vote is eventually published
+            ids = transactionTemplate.execute(status -> {
+                List<Long> voteIds = insertVotes(batch);
+                insertOutboxEvents(batch);
+                return voteIds;
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (batch.size() == 1) {
+                logger.warning(() -> "Vote rejected for user " + batch.get(0).userId + " in election "
+                        + batch.get(0).electionId + " due to constraint violation (likely duplicate vote).");
+                batch.get(0).result.completeExceptionally(
+                        new DataIntegrityViolationException("Vote could not be recorded. You might have already voted.", e));
+                return;
+            }
+            // One bad ballot fails the whole multi-row insert; retry individually to isolate it
+            logger.fine(() -> "Vote batch of " + batch.size() + " hit a constraint violation, retrying row by row");
+            for (PendingBallot b : batch) {
+                writeBatch(List.of(b));
+            }
+            return;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to write vote batch of " + batch.size(), e);
+            batch.forEach(b -> b.result.completeExceptionally(e));
+            return;
+        }
+        // The ballots are stored: confirm them before updating the in-memory views
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result.complete(ids.get(i));
+        }
+        logger.fine(() -> "Committed vote batch of " + batch.size());
+        applyCommitted(batch, ids);
+    }
+
+    /**
+     * Count committed ballots in the tallies, the regional cube and the participation bitmaps. The
+     * commit cannot be undone at this point, so a view that fails to take the batch is rebuilt from
+     * the stored votes instead, and the other views are still updated.
+     */
+    private void applyCommitted(List<PendingBallot> batch, List<Long> ids) {
+        try {
+            for (PendingBallot b : batch) {
+                tallyEngine.recordVote(b.electionId, b.candidateId, b.partyId);
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Could not count a committed vote batch of " + batch.size()
+                    + " in the tallies, rebuilding them", e);
+            tallyEngine.rebuild();
+        }
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                PendingBallot b = batch.get(i);
+                resultsCube.recordVote(ids.get(i), b.electionId, b.locationId, b.candidateId, b.partyId);
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Could not add a committed vote batch of " + batch.size()
+                    + " to the regional results, rebuilding them", e);
+            resultsCube.rebuild();
+        }
+        try {
+            for (PendingBallot b : batch) {
+                participationRegistry.markElectionVoted(b.electionId, b.userId);
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Could not mark the voters of a committed vote batch of " + batch.size()
+                    + ", reloading their participation", e);
+            batch.forEach(b -> participationRegistry.forgetElection(b.electionId));
+        }
+    }
+
+    private List<Long> insertVotes(List<PendingBallot> batch) {
+        String sql = placeholders(INSERT_PREFIX, ROW_PLACEHOLDER, batch.size());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            int p = 1;
+            for (PendingBallot b : batch) {
+                ps.setLong(p++, b.userId);
+                ps.setLong(p++, b.electionId);
+                setNullableLong(ps, p++, b.candidateId);
+                setNullableLong(ps, p++, b.partyId);
+                ps.setDate(p++, b.timestamp);
+            }
+            return ps;
+        }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != batch.size()) {
+            throw new IllegalStateException("Expected " + batch.size() + " generated vote ids, got " + keys.size());
+        }
+        List<Long> ids = new ArrayList<>(keys.size());
+        for (Map<String, Object> key : keys) {
+            ids.add(((Number) key.values().iterator().next()).longValue());
+        }
+        return ids;
+    }
+
+    private void insertOutboxEvents(List<PendingBallot> batch) {
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(placeholders(OUTBOX_INSERT_PREFIX, OUTBOX_ROW_PLACEHOLDER, batch.size()));
+            int p = 1;
+            for (PendingBallot b : batch) {
+                ps.setLong(p++, b.electionId);
+                setNullableLong(ps, p++, b.candidateId);
+                setNullableLong(ps, p++, b.partyId);
+                setNullableLong(ps, p++, b.locationId);
+                ps.setLong(p++, b.timestamp.getTime());
+            }
+            return ps;
+        });
+    }
+
+    private static String placeholders(String prefix, String row, int rows) {
+        StringBuilder sql = new StringBuilder(prefix.length() + rows * (row.length() + 2));
+        sql.append(prefix);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(row);
+        }
+        return sql.toString();
+    }
+
+    private static void setNullableLong(PreparedStatement ps, int index, Long value) throws java.sql.SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, value);
+        }
+    }
+
+    /**
+     * A validated ballot waiting for its batch to commit.
+     */
+    private static class PendingBallot {
+        private final Long userId;
+        private final Long electionId;
+        private final Long candidateId;
+        private final Long partyId;
+        private final Long locationId;
+        private final Date timestamp;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        PendingBallot(Long userId, Long electionId, Long candidateId, Long partyId, Long locationId, Date timestamp) {
+            this.userId = userId;
+            this.electionId = electionId;
+            this.candidateId = candidateId;
+            this.partyId = partyId;
+            this.locationId = locationId;
+            this.timestamp = timestamp;
+        }
+    }
+}
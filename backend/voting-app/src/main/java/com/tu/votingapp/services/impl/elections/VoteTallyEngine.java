@@ -0,0 +1,392 @@
+package com.tu.votingapp.services.impl.elections;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory vote tallies per election with write-behind to the
+ * candidates.votes_count and party_votes.vote_count columns.
+ * Counters are LongAdders, so concurrent ballots for the same candidate
+ * never contend on a single cell or on a database row lock.
+ * <p>
+ * The stored counters were not written for ballots before this engine existed, so the first
+ * start against a database sets them to the counts in the votes table and records that in
+ * vote_tally_baseline. From then on the stored counters only move by flushed deltas.
+ */
+@Component
+public class VoteTallyEngine {
+    private static final String UPDATE_CANDIDATE_DELTA =
+            "UPDATE candidates SET votes_count = votes_count + ? WHERE id = ?";
+    private static final String UPDATE_PARTY_DELTA =
+            "UPDATE party_votes SET vote_count = vote_count + ? WHERE election_id = ? AND party_id = ?";
+    private static final String INSERT_PARTY =
+            "INSERT INTO party_votes (vote_count, election_id, party_id) VALUES (?, ?, ?)";
+    private static final int BASELINE_ID = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Logger logger = Logger.getLogger(VoteTallyEngine.class.getName());
+
+    /**
+     * Live tallies per election id.
+     */
+    private final Map<Long, ElectionTally> tallies = new ConcurrentHashMap<>();
+    /**
+     * Whether the totals include the votes stored before this node started. Until then only the
+     * deltas are trusted, and readers use the stored counters.
+     */
+    private volatile boolean rebuilt;
+    /**
+     * Whether vote_tally_baseline is known to hold its row, so the stored counters match the votes table.
+     */
+    private volatile boolean baselineRecorded;
+
+    public VoteTallyEngine(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Count a committed ballot. Either id may be null (party-only or independent candidate vote).
+     */
+    public void recordVote(Long electionId, Long candidateId, Long partyId) {
+        ElectionTally tally = tallies.computeIfAbsent(electionId, ElectionTally::new);
+        if (candidateId != null) {
+            tally.candidates.computeIfAbsent(candidateId, k -> new Counter()).increment();
+        }
+        if (partyId != null) {
+            tally.parties.computeIfAbsent(partyId, k -> new Counter()).increment();
+        }
+        // Counted after the counters, so totals read after a version include every vote up to it
+        tally.version.increment();
+    }
+
+    /**
+     * Version of the election's totals, increased by every counted ballot. Totals are unchanged
+     * while the version is; versions are only comparable within one node's lifetime.
+     *
+     * @return -1 if this node holds no tally for the election, or its totals could not be rebuilt
+     */
+    public long getVersion(Long electionId) {
+        ElectionTally tally = rebuilt ? tallies.get(electionId) : null;
+        return tally == null ? -1 : tally.version.sum();
+    }
+
+    /**
+     * Number of ballots counted for the election, including the rebuilt ones; moves with every
+     * counted ballot. Unlike {@link #getVersion} it is kept when the rebuild failed, as 0 for an
+     * election without ballots here.
+     */
+    public long getCounted(Long electionId) {
+        ElectionTally tally = tallies.get(electionId);
+        return tally == null ? 0 : tally.version.sum();
+    }
+
+    public long getCandidateCount(Long electionId, Long candidateId) {
+        ElectionTally tally = tallies.get(electionId);
+        Counter counter = tally == null ? null : tally.candidates.get(candidateId);
+        return counter == null ? 0 : counter.total.sum();
+    }
+
+    public long getPartyCount(Long electionId, Long partyId) {
+        ElectionTally tally = tallies.get(electionId);
+        Counter counter = tally == null ? null : tally.parties.get(partyId);
+        return counter == null ? 0 : counter.total.sum();
+    }
+
+    /**
+     * Current candidate totals for the election: candidateId -> votes.
+     */
+    public Map<Long, Long> getCandidateCounts(Long electionId) {
+        ElectionTally tally = tallies.get(electionId);
+        return tally == null ? Collections.emptyMap() : totals(tally.candidates);
+    }
+
+    /**
+     * Current party totals for the election: partyId -> votes.
+     */
+    public Map<Long, Long> getPartyCounts(Long electionId) {
+        ElectionTally tally = tallies.get(electionId);
+        return tally == null ? Collections.emptyMap() : totals(tally.parties);
+    }
+
+    /**
+     * Part of each candidate total the stored counters already hold: the rebuilt ballots plus the
+     * deltas this node has flushed. Stored counter minus settled plus current total is then the
+     * election's total across all nodes. Only stable inside {@link #whileNotFlushing}.
+     */
+    public Map<Long, Long> getSettledCandidateCounts(Long electionId) {
+        ElectionTally tally = tallies.get(electionId);
+        return tally == null ? Collections.emptyMap() : settled(tally.candidates);
+    }
+
+    /**
+     * Settled part of each party total, see {@link #getSettledCandidateCounts}.
+     */
+    public Map<Long, Long> getSettledPartyCounts(Long electionId) {
+        ElectionTally tally = tallies.get(electionId);
+        return tally == null ? Collections.emptyMap() : settled(tally.parties);
+    }
+
+    /**
+     * Run reader while no flush is writing, so the stored counters it reads and the settled counts
+     * describe the same deltas.
+     */
+    public synchronized <T> T whileNotFlushing(Supplier<T> reader) {
+        return reader.get();
+    }
+
+    /**
+     * Rebuild the in-memory totals from the votes table. The stored counters are left alone once
+     * the baseline is recorded: other nodes may still hold unflushed deltas for ballots already in
+     * votes, and writing absolute totals here would count those ballots twice once they flush.
+     * Before that, on the first start against the database, they are reconciled to the votes
+     * table, see {@link #reconcileOnFirstRun}. If the rebuild fails, the totals are marked invalid
+     * and only the deltas are kept and flushed. At runtime this node's deltas are flushed first,
+     * and the rebuild is skipped while any are left.
+     */
+    @PostConstruct
+    public synchronized void rebuild() {
+        flush();
+        if (hasUnflushed()) {
+            logger.warning("Vote tallies not rebuilt: unflushed deltas are left, the stored counters are behind");
+            return;
+        }
+        logger.info("Rebuilding vote tallies from votes table");
+        try {
+            reconcileOnFirstRun();
+            Map<Long, ElectionTally> loaded = new HashMap<>();
+            int[] counters = new int[2];
+            jdbcTemplate.query(
+                    "SELECT election_id, candidate_id, COUNT(*) FROM votes WHERE candidate_id IS NOT NULL GROUP BY election_id, candidate_id",
+                    rs -> {
+                        long electionId = rs.getLong(1);
+                        long candidateId = rs.getLong(2);
+                        long count = rs.getLong(3);
+                        ElectionTally tally = loaded.computeIfAbsent(electionId, ElectionTally::new);
+                        tally.candidates.computeIfAbsent(candidateId, k -> new Counter()).settle(count);
+                        tally.version.add(count);
+                        counters[0]++;
+                    });
+            jdbcTemplate.query(
+                    "SELECT election_id, party_id, COUNT(*) FROM votes WHERE party_id IS NOT NULL GROUP BY election_id, party_id",
+                    rs -> {
+                        long electionId = rs.getLong(1);
+                        long partyId = rs.getLong(2);
+                        long count = rs.getLong(3);
+                        ElectionTally tally = loaded.computeIfAbsent(electionId, ElectionTally::new);
+                        tally.parties.computeIfAbsent(partyId, k -> new Counter()).settle(count);
+                        tally.version.add(count);
+                        counters[1]++;
+                    });
+            tallies.clear();
+            tallies.putAll(loaded);
+            rebuilt = true;
+            logger.info(() -> String.format("Vote tallies rebuilt: %d elections, %d candidate counters, %d party counters",
+                    loaded.size(), counters[0], counters[1]));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to rebuild vote tallies; results are read from the stored counters", e);
+        }
+    }
+
+    /**
+     * Set the stored counters to the counts in the votes table unless vote_tally_baseline says
+     * that was done before. Runs before any node of this release has counted a ballot, as each
+     * one rebuilds before it serves, so no deltas are lost. The marker row is inserted first in
+     * the same transaction: a node starting at the same time waits on its key and then skips.
+     */
+    private void reconcileOnFirstRun() {
+        if (baselineRecorded) {
+            return;
+        }
+        Integer recorded = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vote_tally_baseline", Integer.class);
+        if (recorded == null || recorded == 0) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.update("INSERT INTO vote_tally_baseline (id, reconciled_at) VALUES (?, ?)",
+                            BASELINE_ID, System.currentTimeMillis());
+                    int candidates = jdbcTemplate.update("UPDATE candidates SET votes_count = "
+                            + "(SELECT COUNT(*) FROM votes v WHERE v.candidate_id = candidates.id)");
+                    int parties = jdbcTemplate.update("UPDATE party_votes SET vote_count = (SELECT COUNT(*) FROM votes v "
+                            + "WHERE v.election_id = party_votes.election_id AND v.party_id = party_votes.party_id)");
+                    parties += jdbcTemplate.update("INSERT INTO party_votes (vote_count, election_id, party_id) "
+                            + "SELECT COUNT(*), v.election_id, v.party_id FROM votes v WHERE v.party_id IS NOT NULL "
+                            + "AND NOT EXISTS (SELECT 1 FROM party_votes pv WHERE pv.election_id = v.election_id "
+                            + "AND pv.party_id = v.party_id) GROUP BY v.election_id, v.party_id");
+                    int partyRows = parties;
+                    logger.info(() -> String.format("Stored vote counters reconciled to the votes table: %d candidate and %d party rows",
+                            candidates, partyRows));
+                });
+            } catch (DuplicateKeyException e) {
+                logger.info("Stored vote counters already reconciled by another node");
+            }
+        }
+        baselineRecorded = true;
+    }
+
+    /**
+     * Write accumulated deltas to the database in batched UPDATEs.
+     */
+    @Scheduled(fixedDelayString = "${app.tally.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        List<Delta> candidateDeltas = new ArrayList<>();
+        List<Delta> partyDeltas = new ArrayList<>();
+        for (ElectionTally tally : tallies.values()) {
+            drain(tally.electionId, tally.candidates, candidateDeltas);
+            drain(tally.electionId, tally.parties, partyDeltas);
+        }
+        if (candidateDeltas.isEmpty() && partyDeltas.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Object[]> candidateRows = new ArrayList<>(candidateDeltas.size());
+                for (Delta d : candidateDeltas) {
+                    candidateRows.add(new Object[]{d.amount, d.id});
+                }
+                jdbcTemplate.batchUpdate(UPDATE_CANDIDATE_DELTA, candidateRows);
+                List<Object[]> partyRows = new ArrayList<>(partyDeltas.size());
+                for (Delta d : partyDeltas) {
+                    partyRows.add(new Object[]{d.amount, d.electionId, d.id});
+                }
+                upsertPartyRows(UPDATE_PARTY_DELTA, partyRows);
+            });
+            candidateDeltas.forEach(d -> d.counter.settled += d.amount);
+            partyDeltas.forEach(d -> d.counter.settled += d.amount);
+            logger.fine(() -> String.format("Flushed %d candidate and %d party tally deltas",
+                    candidateDeltas.size(), partyDeltas.size()));
+        } catch (Exception e) {
+            // Put the deltas back so the next flush retries them
+            candidateDeltas.forEach(d -> d.counter.unflushed.add(d.amount));
+            partyDeltas.forEach(d -> d.counter.unflushed.add(d.amount));
+            logger.log(Level.WARNING, "Failed to flush vote tallies, will retry", e);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        logger.info("Flushing vote tallies before shutdown");
+        flush();
+    }
+
+    /**
+     * Apply party rows (value, electionId, partyId); rows with no party_votes record yet are inserted.
+     */
+    private void upsertPartyRows(String updateSql, List<Object[]> partyRows) {
+        if (partyRows.isEmpty()) {
+            return;
+        }
+        int[] updated = jdbcTemplate.batchUpdate(updateSql, partyRows);
+        List<Object[]> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                missing.add(partyRows.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_PARTY, missing);
+        }
+    }
+
+    private boolean hasUnflushed() {
+        for (ElectionTally tally : tallies.values()) {
+            for (Counter counter : tally.candidates.values()) {
+                if (counter.unflushed.sum() != 0) {
+                    return true;
+                }
+            }
+            for (Counter counter : tally.parties.values()) {
+                if (counter.unflushed.sum() != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void drain(Long electionId, Map<Long, Counter> counters, List<Delta> out) {
+        for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+            long amount = entry.getValue().unflushed.sumThenReset();
+            if (amount != 0) {
+                out.add(new Delta(electionId, entry.getKey(), amount, entry.getValue()));
+            }
+        }
+    }
+
+    private static Map<Long, Long> totals(Map<Long, Counter> counters) {
+        Map<Long, Long> result = new HashMap<>(counters.size() * 2);
+        counters.forEach((id, counter) -> result.put(id, counter.total.sum()));
+        return result;
+    }
+
+    private static Map<Long, Long> settled(Map<Long, Counter> counters) {
+        Map<Long, Long> result = new HashMap<>(counters.size() * 2);
+        counters.forEach((id, counter) -> result.put(id, counter.settled));
+        return result;
+    }
+
+    /**
+     * Counters for a single election.
+     */
+    private static class ElectionTally {
+        private final Long electionId;
+        private final Map<Long, Counter> candidates = new ConcurrentHashMap<>();
+        private final Map<Long, Counter> parties = new ConcurrentHashMap<>();
+        private final LongAdder version = new LongAdder();
+
+        ElectionTally(Long electionId) {
+            this.electionId = electionId;
+        }
+    }
+
+    /**
+     * Running total plus the part of it not yet written to the database, and the part the stored
+     * counter already holds (guarded by the engine's monitor).
+     */
+    private static class Counter {
+        private final LongAdder total = new LongAdder();
+        private final LongAdder unflushed = new LongAdder();
+        private long settled;
+
+        void settle(long count) {
+            total.add(count);
+            settled += count;
+        }
+
+        void increment() {
+            total.increment();
+            unflushed.increment();
+        }
+    }
+
+    private static class Delta {
+        private final Long electionId;
+        private final Long id;
+        private final long amount;
+        private final Counter counter;
+
+        Delta(Long electionId, Long id, long amount, Counter counter) {
+            this.electionId = electionId;
+            this.id = id;
+            this.amount = amount;
+            this.counter = counter;
+        }
+    }
+}
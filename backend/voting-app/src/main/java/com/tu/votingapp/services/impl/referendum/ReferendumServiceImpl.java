@@ -12,7 +12,10 @@ import com.tu.votingapp.repositories.interfaces.UserRepository;
 import com.tu.votingapp.repositories.interfaces.referendum.ReferendumOptionRepository;
 import com.tu.votingapp.repositories.interfaces.referendum.ReferendumRepository;
 import com.tu.votingapp.repositories.interfaces.referendum.ReferendumVoteRepository;
+import com.tu.votingapp.services.impl.JsonResponseCache;
+import com.tu.votingapp.services.impl.VoterParticipationRegistry;
 import com.tu.votingapp.services.interfaces.referendum.ReferendumService;
+import com.tu.votingapp.utils.TransactionUtil;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -34,6 +37,8 @@ public class ReferendumServiceImpl implements ReferendumService {
     private final ReferendumOptionRepository optionRepository;
     private final ReferendumVoteRepository voteRepository;
     private final UserRepository userRepository;
+    private final VoterParticipationRegistry participationRegistry;
+    private final JsonResponseCache responseCache;
     private final Logger logger = Logger.getLogger(ReferendumServiceImpl.class.getName());
 
     @Override
@@ -121,6 +126,7 @@ public class ReferendumServiceImpl implements ReferendumService {
             throw new IllegalStateException("Can only delete referendums in DRAFT status");
         }
         referendumRepository.deleteById(id);
+        TransactionUtil.afterCommit(() -> responseCache.invalidate(JsonResponseCache.REFERENDUM_RESULTS, id));
         logger.info(() -> "Deleted referendum id=" + id);
     }
 
@@ -160,7 +166,7 @@ public class ReferendumServiceImpl implements ReferendumService {
             logger.warning("Attempt to vote in closed referendum");
             throw new IllegalStateException("Referendum is not open for voting");
         }
-        if (voteRepository.existsByUserIdAndReferendum_Id(userId, refId)) {
+        if (participationRegistry.hasVotedInReferendum(refId, userId)) {
             logger.warning("Duplicate vote attempt");
             throw new IllegalStateException("User has already voted in this referendum");
         }
@@ -178,6 +184,10 @@ public class ReferendumServiceImpl implements ReferendumService {
         vote.setOption(option);
         vote.setVoteTimestamp(LocalDateTime.now());
         ReferendumVoteEntity saved = voteRepository.save(vote);
+        TransactionUtil.afterCommit(() -> {
+            participationRegistry.markReferendumVoted(refId, userId);
+            responseCache.invalidate(JsonResponseCache.REFERENDUM_RESULTS, refId);
+        });
         logger.info(() -> "Referendum vote recorded id=" + saved.getId());
         return new ReferendumVoteResponseDTO(saved.getId(), saved.getUserId(), refId, option.getId(), saved.getVoteTimestamp());
     }
@@ -194,6 +204,11 @@ public class ReferendumServiceImpl implements ReferendumService {
         return new ReferendumResultsDTO(referendumId, results);
     }
 
+    @Override
+    public long getResultsVersion(Long referendumId) {
+        return voteRepository.findLatestVoteId(referendumId);
+    }
+
     private ReferendumResponseDTO mapToResponse(ReferendumEntity e) {
         List<OptionResponseDTO> opts = e.getOptions().stream()
                 .map(opt -> new OptionResponseDTO(opt.getId(), opt.getOptionText(), opt.getVoteCount(), e.getId()))
@@ -0,0 +1,37 @@
+package com.tu.votingapp.services.impl.stream;
+
+import com.tu.votingapp.KafkaConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes vote events to the votes topic keyed by electionId, so each election stays on one
+ * partition and is consumed in order by the {@link VoteStreamListener}. A batch counts as accepted
+ * once the broker has acknowledged every record.
+ */
+@Component
+@ConditionalOnProperty(name = "app.votes.transport", havingValue = "kafka")
+public class KafkaVoteEventTransport implements VoteEventTransport {
+    private final KafkaTemplate<String, VoteEvent> kafkaTemplate;
+
+    public KafkaVoteEventTransport(KafkaTemplate<String, VoteEvent> kafkaTemplate) {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    @Override
+    public void publish(List<VoteEvent> events, long[] outboxIds, long timeoutMs) throws Exception {
+        List<CompletableFuture<SendResult<String, VoteEvent>>> acks = new ArrayList<>(events.size());
+        for (VoteEvent event : events) {
+            acks.add(kafkaTemplate.send(KafkaConfig.VOTES_TOPIC, String.valueOf(event.getElectionId()), event));
+        }
+        kafkaTemplate.flush();
+        CompletableFuture.allOf(acks.toArray(new CompletableFuture[0])).get(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,233 @@
+package com.tu.votingapp.services.impl.stream;
+
+import com.tu.votingapp.analytics.voting.AggregatorCheckpointService;
+import com.tu.votingapp.analytics.voting.FeatureAggregator;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-process vote event transport for single-node deployments and load tests: the full analytics
+ * pipeline without a broker.
+ * <p>
+ * A Disruptor-style ring of preallocated primitive slots with a single producer (the outbox relay)
+ * and a fixed set of consumer threads. The producer writes a batch into free slots and then
+ * publishes it by advancing the cursor; every consumer reads all published slots but applies only
+ * the elections of its shard, so each election is applied in order by one thread, as with Kafka
+ * partitions. Consumers take whatever has been published since their last pass as one batch and
+ * advance their own sequence once per batch. No locks are taken between producer and consumers;
+ * the producer only waits while the slowest consumer is a full ring behind, which is the
+ * backpressure that keeps events in the outbox until there is room.
+ * <p>
+ * Each consumer shard reports the outbox id it has applied up to, and its elections are
+ * checkpointed with that id. Accepted events stay in the outbox until the checkpoints cover them
+ * ({@link #durableBefore}), so after a crash the relay hands the rest over again and each shard
+ * skips the events its restored checkpoint already holds.
+ * <p>
+ * Single node only: with several nodes each would relay part of the shared outbox into its own
+ * ring. Multi-node deployments use the Kafka transport.
+ */
+@Component
+@ConditionalOnProperty(name = "app.votes.transport", havingValue = "local", matchIfMissing = true)
+public class LocalVoteEventTransport implements VoteEventTransport {
+    /**
+     * Sequences are 128 bytes apart so consumers do not invalidate each other's cache lines.
+     */
+    private static final int PADDING = 16;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final FeatureAggregator aggregator;
+    private final AggregatorCheckpointService checkpoints;
+    private final int capacity;
+    private final int mask;
+    private final long[] electionIds;
+    private final long[] choiceIds;
+    private final long[] locationIds;
+    private final long[] timestamps;
+    private final boolean[] partyVotes;
+    private final long[] outboxIds;
+    /**
+     * Per consumer shard, the first outbox id not held by its restored checkpoint.
+     */
+    private final long[] resumeFrom;
+
+    /**
+     * Highest published sequence; written only by the producer.
+     */
+    private final AtomicLong cursor = new AtomicLong(-1);
+    /**
+     * Highest sequence each consumer is done with, at index consumer * PADDING.
+     */
+    private final AtomicLongArray consumed;
+    private final Thread[] consumers;
+    private volatile boolean running = true;
+    private final Logger logger = Logger.getLogger(LocalVoteEventTransport.class.getName());
+
+    public LocalVoteEventTransport(FeatureAggregator aggregator,
+                                   AggregatorCheckpointService checkpoints,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.votes.transport.local.capacity:65536}") int capacity,
+                                   @Value("${app.votes.transport.local.consumers:2}") int consumers) {
+        this.aggregator = aggregator;
+        this.checkpoints = checkpoints;
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+        this.mask = this.capacity - 1;
+        this.electionIds = new long[this.capacity];
+        this.choiceIds = new long[this.capacity];
+        this.locationIds = new long[this.capacity];
+        this.timestamps = new long[this.capacity];
+        this.partyVotes = new boolean[this.capacity];
+        this.outboxIds = new long[this.capacity];
+        int consumerCount = Math.max(1, consumers);
+        this.resumeFrom = new long[consumerCount];
+        for (int i = 0; i < consumerCount; i++) {
+            resumeFrom[i] = checkpoints.localOffset(i);
+        }
+        this.consumed = new AtomicLongArray(consumerCount * PADDING);
+        for (int i = 0; i < consumerCount; i++) {
+            consumed.set(i * PADDING, -1);
+        }
+        this.consumers = new Thread[consumerCount];
+        for (int i = 0; i < consumerCount; i++) {
+            int shard = i;
+            this.consumers[i] = new Thread(() -> consume(shard), "vote-ring-" + i);
+            this.consumers[i].setDaemon(true);
+            this.consumers[i].start();
+        }
+        Gauge.builder("votes.transport.local.backlog", this, LocalVoteEventTransport::backlog)
+                .description("Vote events accepted by the local transport but not yet applied by every consumer")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Copy the batch into the ring and publish it, waiting up to timeoutMs for the consumers to
+     * free enough slots. Either the whole batch is published or, on timeout, none of it.
+     * Callers must not publish concurrently; the relay's single scheduler thread is the one producer.
+     *
+     * @throws IllegalArgumentException if the batch is larger than the ring
+     * @throws IllegalStateException    if the ring stays too full for the batch until the timeout
+     */
+    @Override
+    public synchronized void publish(List<VoteEvent> events, long[] outboxIds, long timeoutMs) {
+        int n = events.size();
+        if (n == 0) {
+            return;
+        }
+        if (n > capacity) {
+            throw new IllegalArgumentException("Batch of " + n + " vote events exceeds the ring capacity " + capacity);
+        }
+        if (!running) {
+            throw new IllegalStateException("Local vote event transport is stopped");
+        }
+        long first = cursor.get() + 1;
+        long last = first + n - 1;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (last - capacity > minConsumed()) {
+            if (System.nanoTime() - deadline >= 0) {
+                throw new IllegalStateException("Local vote event ring is full, " + backlog() + " events pending");
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        for (int i = 0; i < n; i++) {
+            VoteEvent event = events.get(i);
+            int index = (int) (first + i) & mask;
+            boolean partyVote = event.getCandidateId() == null;
+            electionIds[index] = event.getElectionId();
+            partyVotes[index] = partyVote;
+            choiceIds[index] = partyVote ? event.getPartyId() : event.getCandidateId();
+            locationIds[index] = event.getLocationId() != null ? event.getLocationId() : 0L;
+            timestamps[index] = event.getTimestamp();
+            this.outboxIds[index] = outboxIds[i];
+        }
+        // The volatile write publishes the slot writes above to every consumer that reads the cursor
+        cursor.set(last);
+        for (Thread consumer : consumers) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Outbox id up to which the aggregator checkpoints hold the applied events.
+     */
+    @Override
+    public long durableBefore() {
+        return checkpoints.getCheckpointedLocalOffset();
+    }
+
+    /**
+     * Stop accepting events, let the consumers apply what the ring still holds and wait for them.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread consumer : consumers) {
+            LockSupport.unpark(consumer);
+        }
+        for (Thread consumer : consumers) {
+            consumer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    long backlog() {
+        return cursor.get() - minConsumed();
+    }
+
+    private long minConsumed() {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < consumers.length; i++) {
+            min = Math.min(min, consumed.get(i * PADDING));
+        }
+        return min;
+    }
+
+    private void consume(int shard) {
+        long next = 0;
+        while (running || next <= cursor.get()) {
+            long available = cursor.get();
+            if (available < next) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            Lock lock = checkpoints.batchLock();
+            lock.lock();
+            try {
+                for (long sequence = next; sequence <= available; sequence++) {
+                    int index = (int) sequence & mask;
+                    long electionId = electionIds[index];
+                    if (Math.floorMod(electionId, consumers.length) == shard && outboxIds[index] >= resumeFrom[shard]) {
+                        apply(index, electionId);
+                    }
+                }
+                // Events arrive in outbox id order, so every event of the shard up to here has been applied
+                checkpoints.consumed(AggregatorCheckpointService.LOCAL_TOPIC, shard, outboxIds[(int) available & mask] + 1);
+            } finally {
+                lock.unlock();
+            }
+            // Release the slots only after they have been read
+            consumed.lazySet(shard * PADDING, available);
+            next = available + 1;
+        }
+    }
+
+    private void apply(int index, long electionId) {
+        try {
+            aggregator.aggregateVote(electionId, partyVotes[index], choiceIds[index], locationIds[index], timestamps[index]);
+        } catch (RuntimeException e) {
+            // There is no redelivery from the ring, so skip the event instead of stopping the shard
+            logger.log(Level.WARNING, "Skipping vote event of election " + electionId + " that could not be applied", e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.tu.votingapp.services.impl.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Vote event published to the votes topic once the ballot is committed.
+ * Exactly one of candidateId / partyId identifies the choice counted by analytics.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VoteEvent {
+    private Long electionId;
+    private Long candidateId;
+    private Long partyId;
+    /**
+     * Registered location of the voter, null if unknown.
+     */
+    private Long locationId;
+    private long timestamp;
+}
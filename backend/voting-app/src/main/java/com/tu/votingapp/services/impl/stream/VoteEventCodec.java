@@ -0,0 +1,85 @@
+package com.tu.votingapp.services.impl.stream;
+
+/**
+ * Fixed-layout binary encoding of a {@link VoteEvent} on the votes topic, big-endian:
+ * <pre>
+ * offset size field
+ *   0     1   schema version
+ *   1     1   flags (bit 0: candidateId, bit 1: partyId, bit 2: locationId present)
+ *   2     8   electionId
+ *  10     8   candidateId (0 when absent)
+ *  18     8   partyId     (0 when absent)
+ *  26     8   timestamp, epoch millis
+ *  34     8   locationId  (0 when absent), since version 2
+ * </pre>
+ * A new layout must bump {@link #SCHEMA_VERSION}; readers accept the versions they know and reject others.
+ */
+public final class VoteEventCodec {
+    public static final byte SCHEMA_VERSION = 2;
+    public static final int SIZE = 42;
+    static final int SIZE_V1 = 34;
+
+    static final int FLAG_CANDIDATE = 1;
+    static final int FLAG_PARTY = 1 << 1;
+    static final int FLAG_LOCATION = 1 << 2;
+
+    static final int VERSION_OFFSET = 0;
+    static final int FLAGS_OFFSET = 1;
+    static final int ELECTION_OFFSET = 2;
+    static final int CANDIDATE_OFFSET = 10;
+    static final int PARTY_OFFSET = 18;
+    static final int TIMESTAMP_OFFSET = 26;
+    static final int LOCATION_OFFSET = 34;
+
+    private VoteEventCodec() {
+    }
+
+    public static byte[] encode(VoteEvent event) {
+        byte[] out = new byte[SIZE];
+        encode(event.getElectionId(), event.getCandidateId(), event.getPartyId(), event.getLocationId(),
+                event.getTimestamp(), out);
+        return out;
+    }
+
+    public static void encode(long electionId, Long candidateId, Long partyId, Long locationId, long timestamp, byte[] out) {
+        int flags = (candidateId != null ? FLAG_CANDIDATE : 0)
+                | (partyId != null ? FLAG_PARTY : 0)
+                | (locationId != null ? FLAG_LOCATION : 0);
+        out[VERSION_OFFSET] = SCHEMA_VERSION;
+        out[FLAGS_OFFSET] = (byte) flags;
+        putLong(out, ELECTION_OFFSET, electionId);
+        putLong(out, CANDIDATE_OFFSET, candidateId != null ? candidateId : 0L);
+        putLong(out, PARTY_OFFSET, partyId != null ? partyId : 0L);
+        putLong(out, TIMESTAMP_OFFSET, timestamp);
+        putLong(out, LOCATION_OFFSET, locationId != null ? locationId : 0L);
+    }
+
+    /**
+     * Decode into a new event. Hot paths should use {@link VoteEventFlyweight} instead.
+     *
+     * @throws IllegalArgumentException if the data is not a vote event this version understands
+     */
+    public static VoteEvent decode(byte[] data) {
+        VoteEventFlyweight view = new VoteEventFlyweight().wrap(data);
+        return new VoteEvent(view.electionId(),
+                view.hasCandidate() ? view.candidateId() : null,
+                view.hasParty() ? view.partyId() : null,
+                view.hasLocation() ? view.locationId() : null,
+                view.timestamp());
+    }
+
+    static long getLong(byte[] in, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (in[offset + i] & 0xFFL);
+        }
+        return value;
+    }
+
+    private static void putLong(byte[] out, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            out[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.tu.votingapp.services.impl.stream;
+
+/**
+ * Reusable read-only view over an encoded vote event. {@link #wrap(byte[])} only validates
+ * the header; fields are read straight from the array, so decoding allocates nothing.
+ * Not thread-safe: keep one instance per consumer thread.
+ */
+public final class VoteEventFlyweight {
+    private byte[] data;
+
+    /**
+     * @throws IllegalArgumentException if the data is not a vote event this version understands
+     */
+    public VoteEventFlyweight wrap(byte[] data) {
+        if (data == null || data.length == 0) {
+            throw new IllegalArgumentException("Empty vote event");
+        }
+        int expected = switch (data[VoteEventCodec.VERSION_OFFSET]) {
+            case 1 -> VoteEventCodec.SIZE_V1;
+            case VoteEventCodec.SCHEMA_VERSION -> VoteEventCodec.SIZE;
+            default -> throw new IllegalArgumentException(
+                    "Unsupported vote event schema version " + data[VoteEventCodec.VERSION_OFFSET]);
+        };
+        if (data.length != expected) {
+            throw new IllegalArgumentException("Vote event of version " + data[VoteEventCodec.VERSION_OFFSET]
+                    + " must be " + expected + " bytes, got " + data.length);
+        }
+        this.data = data;
+        return this;
+    }
+
+    public long electionId() {
+        return VoteEventCodec.getLong(data, VoteEventCodec.ELECTION_OFFSET);
+    }
+
+    public boolean hasCandidate() {
+        return (data[VoteEventCodec.FLAGS_OFFSET] & VoteEventCodec.FLAG_CANDIDATE) != 0;
+    }
+
+    public long candidateId() {
+        return VoteEventCodec.getLong(data, VoteEventCodec.CANDIDATE_OFFSET);
+    }
+
+    public boolean hasParty() {
+        return (data[VoteEventCodec.FLAGS_OFFSET] & VoteEventCodec.FLAG_PARTY) != 0;
+    }
+
+    public long partyId() {
+        return VoteEventCodec.getLong(data, VoteEventCodec.PARTY_OFFSET);
+    }
+
+    /**
+     * The choice analytics counts: the candidate if there is one, otherwise the party.
+     */
+    public long choiceId() {
+        return hasCandidate() ? candidateId() : partyId();
+    }
+
+    /**
+     * Version 1 events carry no location flag, so this is false for them.
+     */
+    public boolean hasLocation() {
+        return (data[VoteEventCodec.FLAGS_OFFSET] & VoteEventCodec.FLAG_LOCATION) != 0;
+    }
+
+    public long locationId() {
+        return hasLocation() ? VoteEventCodec.getLong(data, VoteEventCodec.LOCATION_OFFSET) : 0L;
+    }
+
+    public long timestamp() {
+        return VoteEventCodec.getLong(data, VoteEventCodec.TIMESTAMP_OFFSET);
+    }
+}
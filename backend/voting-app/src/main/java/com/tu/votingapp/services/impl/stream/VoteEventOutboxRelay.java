@@ -0,0 +1,242 @@
+package com.tu.votingapp.services.impl.stream;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Relays vote events from the vote_event_outbox table to the configured {@link VoteEventTransport}.
+ * Each cycle takes a batch in id order, hands it over, waits until the transport has accepted it
+ * and only then deletes the rows, so a broker outage or a full ring delays events but never
+ * loses them. Runs on the scheduler, never on the ballot request thread.
+ * <p>
+ * Every node runs a relay against the same outbox. A batch is claimed with
+ * {@code FOR UPDATE SKIP LOCKED} in a short transaction that stamps its rows with a lease
+ * (claimed_until) and commits, so no row lock is held across the broker round trip. Concurrent
+ * relays skip leased rows and take disjoint batches, and each event is published by one of them.
+ * A failed publish clears the lease; a relay that dies while publishing leaves it to expire, and
+ * only then can an event be published twice. Relays on different nodes may interleave the events
+ * of one election.
+ * <p>
+ * A transport that is not durable once it has accepted a batch (the local ring) runs on a single
+ * node and reports the outbox id up to which its events are safe. The relay then reads batches
+ * without claiming them, keeps relayed rows until that id passes them, remembers how far it has
+ * relayed, and after a restart starts again from that id.
+ * <p>
+ * The pending and lag gauges count the whole outbox, so they are refreshed on their own slower
+ * schedule (app.outbox.relay.lag-interval-ms) rather than on every relay tick.
+ */
+@Component
+public class VoteEventOutboxRelay {
+    private static final int ID_CHUNK = 1000;
+    /**
+     * Added to the send timeout to get the claim lease, so a publish that is still waiting keeps its rows.
+     */
+    private static final long CLAIM_GRACE_MS = 30_000;
+    private static final String SELECT_ROWS =
+            "SELECT id, election_id, candidate_id, party_id, location_id, event_timestamp FROM vote_event_outbox ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final VoteEventTransport transport;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+    private final Logger logger = Logger.getLogger(VoteEventOutboxRelay.class.getName());
+
+    /**
+     * Highest outbox id handed to a transport that is not durable; rows up to it are kept but not relayed again.
+     */
+    private long relayedUpTo = -1;
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    public VoteEventOutboxRelay(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                VoteEventTransport transport,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.outbox.relay.batch-size:5000}") int batchSize,
+                                @Value("${app.outbox.relay.send-timeout-ms:10000}") long sendTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transport = transport;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        Gauge.builder("votes.outbox.pending", pendingEvents, AtomicLong::get)
+                .description("Vote events written to the outbox but not yet durable in the vote event transport")
+                .register(meterRegistry);
+        Gauge.builder("votes.outbox.lag", lagMillis, a -> a.get() / 1000.0)
+                .description("Age of the oldest vote event still in the outbox")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.relay.interval-ms:200}")
+    public void relay() {
+        try {
+            // Keep draining while full batches come back, then yield to the next tick
+            int sent;
+            do {
+                sent = relayBatch();
+            } while (sent == batchSize);
+            deleteDurable();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Vote event relay failed, events stay in the outbox and will be retried", e);
+        }
+    }
+
+    /**
+     * Take one batch, publish it outside any transaction and delete it (or remember it, for a
+     * transport that is not durable). A failed publish releases the claimed rows at once.
+     *
+     * @return number of events relayed
+     */
+    int relayBatch() {
+        long durableBefore = transport.durableBefore();
+        boolean durable = durableBefore == Long.MAX_VALUE;
+        List<VoteEventOutboxRow> rows = durable
+                ? claimBatch()
+                : selectBatch("WHERE id > ? ORDER BY id LIMIT ?", Math.max(relayedUpTo, durableBefore - 1), batchSize);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        List<VoteEvent> events = new ArrayList<>(rows.size());
+        long[] ids = new long[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            events.add(toEvent(rows.get(i)));
+            ids[i] = rows.get(i).id;
+        }
+        try {
+            transport.publish(events, ids, sendTimeoutMs);
+        } catch (Exception e) {
+            if (durable) {
+                try {
+                    updateRows("UPDATE vote_event_outbox SET claimed_until = NULL WHERE id IN (", rows);
+                } catch (RuntimeException releaseFailure) {
+                    // The lease runs out on its own
+                    e.addSuppressed(releaseFailure);
+                }
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while relaying vote events", e);
+            }
+            throw new IllegalStateException("Vote event transport did not accept " + rows.size() + " events", e);
+        }
+        if (durable) {
+            updateRows("DELETE FROM vote_event_outbox WHERE id IN (", rows);
+        } else {
+            relayedUpTo = ids[ids.length - 1];
+        }
+        int count = rows.size();
+        logger.fine(() -> "Relayed " + count + " vote events");
+        return count;
+    }
+
+    /**
+     * Lease the next unclaimed batch to this relay. The row locks last only until the lease is
+     * written; other relays skip the batch until the lease runs out.
+     */
+    private List<VoteEventOutboxRow> claimBatch() {
+        long now = System.currentTimeMillis();
+        long claimedUntil = now + sendTimeoutMs + CLAIM_GRACE_MS;
+        List<VoteEventOutboxRow> rows = transactionTemplate.execute(status -> {
+            List<VoteEventOutboxRow> claimed = selectBatch(
+                    "WHERE claimed_until IS NULL OR claimed_until < ? ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED",
+                    now, batchSize);
+            updateRows("UPDATE vote_event_outbox SET claimed_until = ? WHERE id IN (", claimed, claimedUntil);
+            return claimed;
+        });
+        return rows == null ? List.of() : rows;
+    }
+
+    private List<VoteEventOutboxRow> selectBatch(String condition, Object... args) {
+        return jdbcTemplate.query(SELECT_ROWS + condition,
+                (rs, i) -> new VoteEventOutboxRow(
+                        rs.getLong(1),
+                        rs.getLong(2),
+                        rs.getObject(3, Long.class),
+                        rs.getObject(4, Long.class),
+                        rs.getObject(5, Long.class),
+                        rs.getLong(6)),
+                args);
+    }
+
+    /**
+     * Delete the relayed rows a transport that is not durable on acceptance has made durable since.
+     */
+    private void deleteDurable() {
+        long durableBefore = transport.durableBefore();
+        if (durableBefore != Long.MAX_VALUE && durableBefore > 0) {
+            int deleted = jdbcTemplate.update("DELETE FROM vote_event_outbox WHERE id < ?", durableBefore);
+            if (deleted > 0) {
+                logger.fine(() -> "Deleted " + deleted + " checkpointed vote events from the outbox");
+            }
+        }
+    }
+
+    /**
+     * Run a statement ending in an open "id IN (" list over the ids of the given rows, in chunks,
+     * after any leading parameters.
+     */
+    private void updateRows(String statement, List<VoteEventOutboxRow> rows, Object... leading) {
+        for (int from = 0; from < rows.size(); from += ID_CHUNK) {
+            List<VoteEventOutboxRow> chunk = rows.subList(from, Math.min(rows.size(), from + ID_CHUNK));
+            StringBuilder sql = new StringBuilder(statement);
+            Object[] args = new Object[leading.length + chunk.size()];
+            System.arraycopy(leading, 0, args, 0, leading.length);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+                args[leading.length + i] = chunk.get(i).id;
+            }
+            sql.append(')');
+            jdbcTemplate.update(sql.toString(), args);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.relay.lag-interval-ms:10000}")
+    public void updateLag() {
+        try {
+            jdbcTemplate.query("SELECT COUNT(*), MIN(event_timestamp) FROM vote_event_outbox", rs -> {
+                long count = rs.getLong(1);
+                long oldest = rs.getLong(2);
+                pendingEvents.set(count);
+                lagMillis.set(count == 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldest));
+            });
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Could not read outbox lag", e);
+        }
+    }
+
+    private static VoteEvent toEvent(VoteEventOutboxRow row) {
+        return new VoteEvent(row.electionId, row.candidateId, row.partyId, row.locationId, row.timestamp);
+    }
+
+    private static class VoteEventOutboxRow {
+        private final long id;
+        private final Long electionId;
+        private final Long candidateId;
+        private final Long partyId;
+        private final Long locationId;
+        private final long timestamp;
+
+        VoteEventOutboxRow(long id, Long electionId, Long candidateId, Long partyId, Long locationId, long timestamp) {
+            this.id = id;
+            this.electionId = electionId;
+            this.candidateId = candidateId;
+            this.partyId = partyId;
+            this.locationId = locationId;
+            this.timestamp = timestamp;
+        }
+    }
+}
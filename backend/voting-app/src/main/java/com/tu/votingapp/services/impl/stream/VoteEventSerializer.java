@@ -0,0 +1,14 @@
+package com.tu.votingapp.services.impl.stream;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka value serializer writing the {@link VoteEventCodec} layout.
+ */
+public class VoteEventSerializer implements Serializer<VoteEvent> {
+
+    @Override
+    public byte[] serialize(String topic, VoteEvent event) {
+        return event == null ? null : VoteEventCodec.encode(event);
+    }
+}
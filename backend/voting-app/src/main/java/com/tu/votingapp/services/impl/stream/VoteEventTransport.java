@@ -0,0 +1,31 @@
+package com.tu.votingapp.services.impl.stream;
+
+import java.util.List;
+
+/**
+ * Carries committed vote events from the outbox relay to the analytics pipeline. Selected with
+ * app.votes.transport: "local" (default) hands them to the in-process
+ * {@link LocalVoteEventTransport} of a single-node deployment, "kafka" publishes them to the votes
+ * topic through {@link KafkaVoteEventTransport} for deployments with several nodes.
+ */
+public interface VoteEventTransport {
+
+    /**
+     * Hand over a batch of events, in order, with the outbox id of each. Returns once the
+     * transport has accepted all of them.
+     *
+     * @throws Exception if the batch was not accepted within timeoutMs; the relay keeps the
+     *                   events and retries, so a transport may see part of a batch twice
+     */
+    void publish(List<VoteEvent> events, long[] outboxIds, long timeoutMs) throws Exception;
+
+    /**
+     * Outbox id below which every accepted event is durable, so the relay may delete it. A
+     * transport that is durable as soon as {@link #publish} returns answers Long.MAX_VALUE and the
+     * relay deletes each batch right after publishing it. Otherwise the relay keeps the rows from
+     * this id on, and relays them again after a restart.
+     */
+    default long durableBefore() {
+        return Long.MAX_VALUE;
+    }
+}
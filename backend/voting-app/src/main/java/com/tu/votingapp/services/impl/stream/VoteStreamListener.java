@@ -1,28 +1,141 @@
 package com.tu.votingapp.services.impl.stream;
 
+import com.tu.votingapp.KafkaConfig;
+import com.tu.votingapp.analytics.voting.AggregatorCheckpointService;
+import com.tu.votingapp.analytics.voting.AnalyticsOwnership;
 import com.tu.votingapp.analytics.voting.FeatureAggregator;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
 import java.util.logging.Logger;
 
 @Service
-public class VoteStreamListener {
+@ConditionalOnProperty(name = "app.votes.transport", havingValue = "kafka")
+public class VoteStreamListener implements ConsumerSeekAware {
     private final FeatureAggregator aggregator;
+    private final AggregatorCheckpointService checkpoints;
+    private final AnalyticsOwnership ownership;
     private final Logger logger = Logger.getLogger(this.getClass().getName());
 
-    public VoteStreamListener(FeatureAggregator aggregator) {
+    /**
+     * One view per listener thread, re-pointed at each record instead of decoding into new objects.
+     */
+    private final ThreadLocal<VoteEventFlyweight> views = ThreadLocal.withInitial(VoteEventFlyweight::new);
+
+    public VoteStreamListener(FeatureAggregator aggregator,
+                              AggregatorCheckpointService checkpoints,
+                              AnalyticsOwnership ownership) {
         this.aggregator = aggregator;
+        this.checkpoints = checkpoints;
+        this.ownership = ownership;
+    }
+
+    /**
+     * This node now owns the elections of the assigned partitions. The aggregator lives in memory,
+     * so the committed group offset says nothing about what it holds: load each partition's
+     * checkpoint, written by this node before a restart or by the previous owner, and resume right
+     * after its last event, or replay the partition from the start if there is no checkpoint.
+     */
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        List<TopicPartition> unknown = new ArrayList<>();
+        List<Integer> partitionIds = new ArrayList<>();
+        for (TopicPartition partition : assignments.keySet()) {
+            partitionIds.add(partition.partition());
+            Long offset = checkpoints.takeOver(partition);
+            if (offset != null) {
+                callback.seek(partition.topic(), partition.partition(), offset);
+            } else {
+                unknown.add(partition);
+                Long position = assignments.get(partition);
+                if (position != null && position > 0) {
+                    // The group has consumed this partition before, so its checkpoint should exist
+                    logger.warning(() -> String.format("No aggregator checkpoint for %s although the group is at offset %d; "
+                            + "replaying it from the beginning. Is app.analytics.checkpoint.dir shared by all analytics nodes?",
+                            partition, position));
+                }
+            }
+        }
+        if (!unknown.isEmpty()) {
+            callback.seekToBeginning(unknown);
+        }
+        ownership.assigned(partitionIds);
+        logger.info(() -> String.format("Assigned %d vote partitions, %d replayed from the beginning",
+                assignments.size(), unknown.size()));
     }
 
-//    @KafkaListener(topics = "votes", groupId = "voting-analytics-group")
-    public void onVoteEvent(String message) {
-        logger.info(() -> "Received vote event message, length=" + message.length());
+    /**
+     * Stop answering for the revoked partitions' elections and checkpoint them for the next owner.
+     */
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        List<Integer> partitionIds = new ArrayList<>();
+        for (TopicPartition partition : partitions) {
+            partitionIds.add(partition.partition());
+        }
+        ownership.revoked(partitionIds);
+        checkpoints.handOver(partitions);
+        logger.info(() -> "Handed over vote partitions " + partitions);
+    }
+
+    /**
+     * Receives one poll worth of records from a single partition assignment. Events of an election
+     * share a partition (keyed by electionId), so they arrive in order on one consumer thread.
+     * Offsets are committed only after the aggregator has applied the whole batch; if it throws,
+     * the container's error handler redelivers the batch (at-least-once).
+     * The batch is applied under the checkpoint lock, so a checkpoint never sees it half-applied
+     * or without its offsets.
+     */
+    @KafkaListener(topics = KafkaConfig.VOTES_TOPIC, groupId = KafkaConfig.ANALYTICS_GROUP_ID)
+    public void onVoteEvents(List<ConsumerRecord<String, byte[]>> records, Acknowledgment ack) {
+        VoteEventFlyweight event = views.get();
+        int skipped = 0;
+        Lock lock = checkpoints.batchLock();
+        lock.lock();
         try {
-            aggregator.aggregateEvent(message);
-            logger.fine(() -> "Successfully processed vote event");
-        } catch (Exception ex) {
-            logger.severe("Failed to process vote event, exception = " + ex);
+            for (ConsumerRecord<String, byte[]> record : records) {
+                try {
+                    event.wrap(record.value());
+                } catch (IllegalArgumentException ex) {
+                    // A malformed record can never succeed, so skip it instead of blocking the partition
+                    skipped++;
+                    logger.warning(() -> String.format("Skipping undecodable vote event at %s-%d@%d: %s",
+                            record.topic(), record.partition(), record.offset(), ex.getMessage()));
+                    continue;
+                }
+                aggregator.aggregateVote(event.electionId(), !event.hasCandidate(), event.choiceId(),
+                        event.locationId(), event.timestamp());
+            }
+            markConsumed(records);
+        } finally {
+            lock.unlock();
+        }
+        ack.acknowledge();
+        int applied = records.size() - skipped;
+        int skippedCount = skipped;
+        logger.fine(() -> String.format("Applied %d vote events (%d skipped)", applied, skippedCount));
+    }
+
+    /**
+     * Report the next offset of every partition in the batch, once per run of same-partition records.
+     */
+    private void markConsumed(List<ConsumerRecord<String, byte[]>> records) {
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, byte[]> record = records.get(i);
+            if (i + 1 == records.size() || records.get(i + 1).partition() != record.partition()
+                    || !records.get(i + 1).topic().equals(record.topic())) {
+                checkpoints.consumed(record.topic(), record.partition(), record.offset() + 1);
+            }
         }
     }
 }
@@ -16,4 +16,5 @@ public interface ElectionService {
                                                         ElectionStatus status,
                                                         ElectionType type);
     ElectionResultsDTO getResults(Long electionId);
+    long getResultsVersion(Long electionId);
 }
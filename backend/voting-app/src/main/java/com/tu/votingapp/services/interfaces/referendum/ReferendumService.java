@@ -55,4 +55,9 @@ public interface ReferendumService {
      * Get aggregated results for a referendum.
      */
     ReferendumResultsDTO getResults(Long referendumId);
+
+    /**
+     * Version of the referendum's results: the id of its latest vote, from whichever node cast it.
+     */
+    long getResultsVersion(Long referendumId);
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package com.tu.votingapp.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compressed set of user ids, in the style of a roaring bitmap.
+ * Ids are split into a high key (id >>> 16) and a 16-bit low part; each key owns a container
+ * that is a sorted char array while sparse and switches to a 65536-bit bitmap once it holds
+ * more than 4096 values. Dense id ranges therefore cost about one bit per possible id
+ * (~8 KB per 65536 ids) and sparse ones two bytes per member.
+ */
+public class ParticipationBitmap {
+    private static final int ARRAY_CONTAINER_MAX = 4096;
+
+    private final Map<Long, Container> containers = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long cardinality;
+
+    /**
+     * @return true if the value was not present before
+     */
+    public boolean add(long value) {
+        long key = value >>> 16;
+        char low = (char) value;
+        lock.writeLock().lock();
+        try {
+            Container container = containers.get(key);
+            if (container == null) {
+                container = new ArrayContainer();
+                containers.put(key, container);
+            }
+            if (!container.add(low)) {
+                return false;
+            }
+            if (container instanceof ArrayContainer array && array.size > ARRAY_CONTAINER_MAX) {
+                containers.put(key, array.toBitmap());
+            }
+            cardinality++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long value) {
+        lock.readLock().lock();
+        try {
+            Container container = containers.get(value >>> 16);
+            return container != null && container.contains((char) value);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getCardinality() {
+        lock.readLock().lock();
+        try {
+            return cardinality;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate heap footprint of the containers, for monitoring.
+     */
+    public long sizeInBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (Container container : containers.values()) {
+                bytes += container.sizeInBytes() + 48; // map entry and boxed key overhead
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private interface Container {
+        boolean add(char low);
+
+        boolean contains(char low);
+
+        long sizeInBytes();
+    }
+
+    /**
+     * Sorted array of low halves, for containers with at most 4096 members.
+     */
+    private static final class ArrayContainer implements Container {
+        private char[] values = new char[4];
+        private int size;
+
+        @Override
+        public boolean add(char low) {
+            int pos = Arrays.binarySearch(values, 0, size, low);
+            if (pos >= 0) {
+                return false;
+            }
+            int insertAt = -pos - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(values.length * 2, ARRAY_CONTAINER_MAX + 1));
+            }
+            System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+            values[insertAt] = low;
+            size++;
+            return true;
+        }
+
+        @Override
+        public boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, size, low) >= 0;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return 16L + values.length * 2L;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < size; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    /**
+     * Plain 65536-bit bitmap for dense containers.
+     */
+    private static final class BitmapContainer implements Container {
+        private final long[] words = new long[1024];
+
+        @Override
+        public boolean add(char low) {
+            int index = low >>> 6;
+            long mask = 1L << low;
+            if ((words[index] & mask) != 0) {
+                return false;
+            }
+            words[index] |= mask;
+            return true;
+        }
+
+        @Override
+        public boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return 16L + words.length * 8L;
+        }
+    }
+}
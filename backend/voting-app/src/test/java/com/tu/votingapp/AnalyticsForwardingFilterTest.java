@@ -0,0 +1,87 @@
+package com.tu.votingapp;
+
+import com.tu.votingapp.analytics.voting.AnalyticsOwnership;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnalyticsForwardingFilterTest {
+    private static final String PATH = "/api/analysis/elections/7/anomalies";
+
+    private AnalyticsOwnership ownership;
+    private FilterChain chain;
+
+    @BeforeEach
+    void setUp() {
+        ownership = mock(AnalyticsOwnership.class);
+        when(ownership.isPartitioned()).thenReturn(true);
+        when(ownership.isOwned(anyLong())).thenReturn(false);
+        when(ownership.getNodeUrl()).thenReturn("http://node-a:8080");
+        chain = mock(FilterChain.class);
+    }
+
+    @Test
+    void forwardedHeaderIsOnlyTrustedWithAValidSignature() throws Exception {
+        AnalyticsForwardingFilter filter = new AnalyticsForwardingFilter(ownership, 2000, "peer-key");
+
+        MockHttpServletRequest forged = request();
+        forged.addHeader(AnalyticsForwardingFilter.FORWARDED_HEADER, "http://node-b:8080");
+        MockHttpServletResponse refused = new MockHttpServletResponse();
+        filter.doFilter(forged, refused, chain);
+        assertEquals(403, refused.getStatus());
+
+        // Signed by another key, or for another request line
+        MockHttpServletRequest otherKey = request();
+        otherKey.addHeader(AnalyticsForwardingFilter.FORWARDED_HEADER,
+                new AnalyticsForwardingFilter(ownership, 2000, "other-key").forwardedBy(request()));
+        filter.doFilter(otherKey, new MockHttpServletResponse(), chain);
+        MockHttpServletRequest otherPath = request();
+        MockHttpServletRequest trends = new MockHttpServletRequest("GET", "/api/analysis/elections/7/trends");
+        otherPath.addHeader(AnalyticsForwardingFilter.FORWARDED_HEADER, filter.forwardedBy(trends));
+        filter.doFilter(otherPath, new MockHttpServletResponse(), chain);
+        verify(chain, never()).doFilter(any(), any());
+
+        MockHttpServletRequest signed = request();
+        signed.addHeader(AnalyticsForwardingFilter.FORWARDED_HEADER, filter.forwardedBy(request()));
+        MockHttpServletResponse answered = new MockHttpServletResponse();
+        filter.doFilter(signed, answered, chain);
+        verify(chain).doFilter(signed, answered);
+        assertEquals(200, answered.getStatus());
+    }
+
+    @Test
+    void requestWithoutTheHeaderIsNotAnsweredByANodeThatDoesNotOwnTheElection() throws Exception {
+        AnalyticsForwardingFilter filter = new AnalyticsForwardingFilter(ownership, 2000, "peer-key");
+        when(ownership.ownerOf(7L)).thenReturn(null);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(), response, chain);
+
+        assertEquals(503, response.getStatus());
+        verify(chain, never()).doFilter(any(), any());
+    }
+
+    @Test
+    void kafkaTransportRequiresASigningKey() {
+        assertThrows(IllegalStateException.class, () -> new AnalyticsForwardingFilter(ownership, 2000, ""));
+        when(ownership.isPartitioned()).thenReturn(false);
+        new AnalyticsForwardingFilter(ownership, 2000, "");
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", PATH);
+        request.setQueryString("limit=10");
+        return request;
+    }
+}
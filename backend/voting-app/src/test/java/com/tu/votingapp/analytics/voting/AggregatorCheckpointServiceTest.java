@@ -0,0 +1,199 @@
+package com.tu.votingapp.analytics.voting;
+
+import com.tu.votingapp.services.impl.elections.BallotDefinitionCache;
+import jakarta.persistence.EntityNotFoundException;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AggregatorCheckpointServiceTest {
+    private static final String TOPIC = "votes";
+    private static final int PARTITIONS = 4;
+    private static final AnalyticsOwnership LOCAL_NODE = new AnalyticsOwnership(null, "local", PARTITIONS, "http://a", 8080, false);
+    private static final AnalyticsOwnership KAFKA_NODE = new AnalyticsOwnership(null, "kafka", PARTITIONS, "http://a", 8080, false);
+
+    @TempDir
+    Path checkpointDir;
+
+    @Test
+    void restartResumesFromTheCheckpointedState() {
+        FeatureAggregator aggregator = newAggregator();
+        AggregatorCheckpointService checkpoints = new AggregatorCheckpointService(aggregator, LOCAL_NODE, checkpointDir.toString(), 2, 2);
+        checkpoints.restore();
+        for (int vote = 0; vote < 500; vote++) {
+            aggregator.aggregateVote(vote % 2 + 1, vote % 3 == 0, 10 + vote % 4, 0L, 60_000L * vote);
+        }
+        checkpoints.consumed(AggregatorCheckpointService.LOCAL_TOPIC, 0, 301);
+        checkpoints.consumed(AggregatorCheckpointService.LOCAL_TOPIC, 1, 250);
+        assertEquals(0, checkpoints.getCheckpointedLocalOffset());
+        checkpoints.checkpoint();
+        // The outbox may drop what every shard's checkpoint holds
+        assertEquals(250, checkpoints.getCheckpointedLocalOffset());
+
+        FeatureAggregator restored = newAggregator();
+        AggregatorCheckpointService restarted = new AggregatorCheckpointService(restored, LOCAL_NODE, checkpointDir.toString(), 2, 2);
+        restarted.restore();
+        assertEquals(301, restarted.localOffset(0));
+        assertEquals(250, restarted.localOffset(1));
+        assertEquals(250, restarted.getCheckpointedLocalOffset());
+
+        for (long electionId = 1; electionId <= 2; electionId++) {
+            assertArrayEquals(aggregator.getLayout(electionId).toCodes(), restored.getLayout(electionId).toCodes());
+            assertArrayEquals(aggregator.getCounts(electionId), restored.getCounts(electionId));
+            assertEquals(aggregator.getEpoch(electionId), restored.getEpoch(electionId));
+            assertEquals(aggregator.getHistory(electionId).getLatestTimestamp(),
+                    restored.getHistory(electionId).getLatestTimestamp());
+            for (BucketedVoteHistory.Resolution resolution : BucketedVoteHistory.Resolution.values()) {
+                long[] expected = new long[8];
+                long[] actual = new long[8];
+                aggregator.getHistory(electionId).recentVotes(resolution, resolution.getBuckets(), expected);
+                restored.getHistory(electionId).recentVotes(resolution, resolution.getBuckets(), actual);
+                assertArrayEquals(expected, actual, resolution.name());
+            }
+        }
+
+        // Replaying the tail continues the same slots and counters
+        aggregator.aggregateVote(1, false, 11, 0L, 60_000L * 500);
+        restored.aggregateVote(1, false, 11, 0L, 60_000L * 500);
+        assertArrayEquals(aggregator.getCounts(1L), restored.getCounts(1L));
+    }
+
+    @Test
+    void revokedPartitionMovesToTheNextOwnerWithItsOffset() {
+        FeatureAggregator first = newAggregator();
+        AggregatorCheckpointService firstNode = new AggregatorCheckpointService(first, KAFKA_NODE, checkpointDir.toString(), 2, 2);
+        firstNode.restore();
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            assertNull(firstNode.takeOver(new TopicPartition(TOPIC, partition)));
+        }
+        for (int vote = 0; vote < 400; vote++) {
+            first.aggregateVote(1 + vote % 20, false, 10 + vote % 3, 0L, 1_000L * vote);
+        }
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            firstNode.consumed(TOPIC, partition, 100 + partition);
+        }
+        TopicPartition moved = new TopicPartition(TOPIC, 1);
+        long[] epochs = new long[21];
+        for (long electionId = 1; electionId <= 20; electionId++) {
+            epochs[(int) electionId] = first.getEpoch(electionId);
+        }
+
+        firstNode.handOver(List.of(moved));
+
+        FeatureAggregator second = newAggregator();
+        AggregatorCheckpointService secondNode = new AggregatorCheckpointService(second, KAFKA_NODE, checkpointDir.toString(), 2, 2);
+        secondNode.restore();
+        assertEquals(101L, secondNode.takeOver(moved));
+        int movedElections = 0;
+        for (long electionId = 1; electionId <= 20; electionId++) {
+            if (KAFKA_NODE.partitionOf(electionId) == moved.partition()) {
+                movedElections++;
+                assertNull(first.getHistory(electionId));
+                assertEquals(epochs[(int) electionId], second.getEpoch(electionId));
+            } else {
+                assertEquals(epochs[(int) electionId], first.getEpoch(electionId));
+                assertNull(second.getHistory(electionId));
+            }
+        }
+        assertTrue(movedElections > 0);
+    }
+
+    @Test
+    void trendsMoveWithTheirElectionsAndAreNotCountedTwiceOnTakeBack() {
+        TrendEngine nodeTrends = new TrendEngine();
+        TrendEngine referenceTrends = new TrendEngine();
+        FeatureAggregator node = newAggregator(nodeTrends);
+        FeatureAggregator reference = newAggregator(referenceTrends);
+        AggregatorCheckpointService checkpoints = new AggregatorCheckpointService(node, KAFKA_NODE, checkpointDir.toString(), 2, 2);
+        TopicPartition partition = new TopicPartition(TOPIC, KAFKA_NODE.partitionOf(1L));
+        assertNull(checkpoints.takeOver(partition));
+        for (int vote = 0; vote < 300; vote++) {
+            node.aggregateVote(1L, false, 10 + vote / 100, 0L, 1_000L * vote);
+            reference.aggregateVote(1L, false, 10 + vote / 100, 0L, 1_000L * vote);
+        }
+        checkpoints.consumed(TOPIC, partition.partition(), 300);
+
+        checkpoints.handOver(List.of(partition));
+        assertTrue(nodeTrends.getTrends(1L, TrendEngine.Window.ONE_MINUTE).isEmpty());
+        assertEquals(300L, checkpoints.takeOver(partition));
+        // The events after the checkpoint are consumed again once the partition is back
+        for (int vote = 300; vote < 360; vote++) {
+            node.aggregateVote(1L, false, 12, 0L, 1_000L * vote);
+            reference.aggregateVote(1L, false, 12, 0L, 1_000L * vote);
+        }
+
+        for (TrendEngine.Window window : TrendEngine.Window.values()) {
+            List<TrendEngine.Trend> expected = referenceTrends.getTrends(1L, window);
+            List<TrendEngine.Trend> actual = nodeTrends.getTrends(1L, window);
+            assertEquals(expected.size(), actual.size());
+            for (int slot = 0; slot < expected.size(); slot++) {
+                assertEquals(expected.get(slot).getShareChange(), actual.get(slot).getShareChange(), 1e-9);
+                assertEquals(expected.get(slot).getSlopePerMinute(), actual.get(slot).getSlopePerMinute(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void damagedNewestCheckpointFallsBackToThePreviousOne() throws Exception {
+        FeatureAggregator aggregator = newAggregator();
+        AggregatorCheckpointService checkpoints = new AggregatorCheckpointService(aggregator, LOCAL_NODE, checkpointDir.toString(), 2, 1);
+        aggregator.aggregateVote(1, false, 10, 0L, 1_000L);
+        checkpoints.checkpoint();
+        Thread.sleep(5);
+        aggregator.aggregateVote(1, false, 10, 0L, 2_000L);
+        checkpoints.checkpoint();
+
+        List<Path> files = listCheckpoints();
+        assertEquals(2, files.size());
+        byte[] newest = Files.readAllBytes(files.get(1));
+        newest[newest.length / 2] ^= 0x5A;
+        Files.write(files.get(1), newest);
+
+        FeatureAggregator restored = newAggregator();
+        new AggregatorCheckpointService(restored, LOCAL_NODE, checkpointDir.toString(), 2, 1).restore();
+
+        assertNotNull(restored.getHistory(1L));
+        assertEquals(1L, restored.getCounts(1L)[0]);
+    }
+
+    @Test
+    void blankCheckpointDirectoryFallsBackToTheDefault() {
+        // The shipped defaults must start with either transport
+        new AggregatorCheckpointService(newAggregator(), KAFKA_NODE, "", 2, 2);
+        new AggregatorCheckpointService(newAggregator(), LOCAL_NODE, "", 2, 2);
+    }
+
+    private List<Path> listCheckpoints() throws Exception {
+        try (Stream<Path> units = Files.list(checkpointDir)) {
+            Path unit = units.findFirst().orElseThrow();
+            try (Stream<Path> files = Files.list(unit)) {
+                return files.sorted().collect(Collectors.toList());
+            }
+        }
+    }
+
+    private static FeatureAggregator newAggregator() {
+        return newAggregator(new TrendEngine());
+    }
+
+    private static FeatureAggregator newAggregator(TrendEngine trends) {
+        BallotDefinitionCache ballots = mock(BallotDefinitionCache.class);
+        when(ballots.get(anyLong())).thenThrow(new EntityNotFoundException("no ballot"));
+        return new FeatureAggregator(new ElectionSlotRegistry(ballots), mock(StreamingAnomalyDetector.class), trends);
+    }
+}
@@ -0,0 +1,73 @@
+package com.tu.votingapp.analytics.voting;
+
+import org.apache.kafka.clients.producer.internals.BuiltInPartitioner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two nodes sharing an in-memory ownership table.
+ */
+class AnalyticsOwnershipTest {
+    private static final int PARTITIONS = 6;
+
+    private JdbcTemplate jdbcTemplate;
+    private AnalyticsOwnership nodeA;
+    private AnalyticsOwnership nodeB;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:owners" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE analytics_partition_owner (partition_id INT PRIMARY KEY, "
+                + "node_url VARCHAR(255) NOT NULL, assigned_at BIGINT NOT NULL)");
+        nodeA = new AnalyticsOwnership(jdbcTemplate, "kafka", PARTITIONS, "http://a:8080", 8080, false);
+        nodeB = new AnalyticsOwnership(jdbcTemplate, "kafka", PARTITIONS, "http://b:8080", 8080, false);
+    }
+
+    @Test
+    void electionsMapToThePartitionKafkaPicksForTheirKey() {
+        for (long electionId = 1; electionId <= 1000; electionId++) {
+            byte[] key = String.valueOf(electionId).getBytes(StandardCharsets.UTF_8);
+            assertEquals(BuiltInPartitioner.partitionForKey(key, PARTITIONS), nodeA.partitionOf(electionId));
+        }
+    }
+
+    @Test
+    void ownerIsAdvertisedUntilThePartitionIsRevoked() {
+        long electionId = 42;
+        int partition = nodeA.partitionOf(electionId);
+        assertNull(nodeB.ownerOf(electionId));
+
+        nodeA.assigned(List.of(partition));
+        nodeB.invalidate(electionId);
+
+        assertTrue(nodeA.isOwned(electionId));
+        assertFalse(nodeB.isOwned(electionId));
+        assertEquals("http://a:8080", nodeB.ownerOf(electionId));
+
+        // Rebalance: A gives the partition up, B takes it; A's late revocation must not remove B
+        nodeB.assigned(List.of(partition));
+        nodeA.revoked(List.of(partition));
+
+        assertFalse(nodeA.isOwned(electionId));
+        assertEquals("http://b:8080", nodeA.ownerOf(electionId));
+    }
+
+    @Test
+    void singleNodeOwnsEverythingWithTheLocalTransport() {
+        AnalyticsOwnership local = new AnalyticsOwnership(jdbcTemplate, "local", PARTITIONS, "", 8443, true);
+        assertFalse(local.isPartitioned());
+        assertTrue(local.isOwned(7L));
+        assertTrue(local.getNodeUrl().startsWith("https://"));
+    }
+}
@@ -0,0 +1,78 @@
+package com.tu.votingapp.analytics.voting;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AnalyticsResultCacheTest {
+    private final AnalyticsResultCache cache = new AnalyticsResultCache();
+
+    @Test
+    void coalescesConcurrentMissesAndRecomputesOnNewEpoch() throws Exception {
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(callers.submit(() -> cache.get("forecast", 1L, 5L, () -> {
+                    computations.incrementAndGet();
+                    await(release);
+                    return "epoch 5";
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("epoch 5", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(1, computations.get());
+
+        assertEquals("epoch 5", cache.get("forecast", 1L, 5L, () -> "recomputed"));
+        // A request that read an older epoch is still answered from the newer entry
+        assertEquals("epoch 5", cache.get("forecast", 1L, 4L, () -> "older"));
+        assertEquals("epoch 6", cache.get("forecast", 1L, 6L, () -> "epoch 6"));
+        assertEquals("trends", cache.get("trends", 1L, 6L, () -> "trends"));
+        assertNotEquals(cache.eTag("forecast", 1L, 5L), cache.eTag("forecast", 1L, 6L));
+    }
+
+    @Test
+    void newModelVersionReplacesTheResultAtTheSameEpoch() {
+        assertEquals("model 1", cache.get("forecast", 3L, 1L, 7L, () -> "model 1"));
+        assertEquals("model 2", cache.get("forecast", 3L, 2L, 7L, () -> "model 2"));
+        // A request that still read the previous model is answered by the new one
+        assertEquals("model 2", cache.get("forecast", 3L, 1L, 8L, () -> "model 1, epoch 8"));
+        assertEquals("model 2, epoch 8", cache.get("forecast", 3L, 2L, 8L, () -> "model 2, epoch 8"));
+        assertNotEquals(cache.eTag("forecast", 3L, 1L, 7L), cache.eTag("forecast", 3L, 2L, 7L));
+    }
+
+    @Test
+    void failedComputationIsNotCached() {
+        assertThrows(IllegalStateException.class, () -> cache.get("turnout", 2L, 1L, () -> {
+            throw new IllegalStateException("model unavailable");
+        }));
+        assertEquals(0.5, cache.get("turnout", 2L, 1L, () -> 0.5));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.tu.votingapp.analytics.voting;
+
+import com.tu.votingapp.analytics.voting.BucketedVoteHistory.Resolution;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class BucketedVoteHistoryTest {
+    private static final long MINUTE = Resolution.MINUTE.getWidthMillis();
+
+    @Test
+    void sumsVotesPerSlotOverRecentBuckets() {
+        BucketedVoteHistory history = new BucketedVoteHistory();
+        long t0 = 1_700_000_000_000L - 1_700_000_000_000L % MINUTE;
+
+        history.record(0, t0);
+        history.record(1, t0 + 1);
+        history.record(0, t0 + MINUTE);
+        history.record(0, t0 + MINUTE + 5);
+
+        assertArrayEquals(new long[]{2L, 0L}, recent(history, Resolution.MINUTE, 1, 2));
+        assertArrayEquals(new long[]{3L, 1L}, recent(history, Resolution.MINUTE, 2, 2));
+        assertArrayEquals(new long[]{3L, 1L}, recent(history, Resolution.HOUR, 1, 2));
+    }
+
+    @Test
+    void forgetsBucketsOnceTheRingWrapsAndDropsTooLateEvents() {
+        BucketedVoteHistory history = new BucketedVoteHistory();
+        int buckets = Resolution.MINUTE.getBuckets();
+        long t0 = 0L;
+
+        history.record(0, t0);
+        history.record(0, t0 + buckets * MINUTE);
+        // Falls into the bucket that was just reused for the newer minute
+        history.record(0, t0 + 1);
+
+        assertArrayEquals(new long[]{1L}, recent(history, Resolution.MINUTE, buckets, 1));
+        // The hour ring still reaches back that far and keeps both early votes
+        assertArrayEquals(new long[]{3L}, recent(history, Resolution.HOUR, 3, 1));
+    }
+
+    private static long[] recent(BucketedVoteHistory history, Resolution resolution, int count, int slots) {
+        long[] into = new long[slots];
+        history.recentVotes(resolution, count, into);
+        return into;
+    }
+}
@@ -0,0 +1,70 @@
+package com.tu.votingapp.analytics.voting;
+
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one single-row prediction: ND4J forward pass of the ComputationGraph versus the
+ * {@link DenseModelEvaluator}. Not part of the test run; start it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.tu.votingapp.analytics.voting.DenseModelEvaluatorBenchmark}
+ * or from the IDE.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DenseModelEvaluatorBenchmark {
+    private final float[] row = {1200, 400, 300, 250, 150, 100, 0, 0, 0, 0};
+
+    private ComputationGraph model;
+    private INDArray features;
+    private DenseModelEvaluator evaluator;
+    private double[] scratch;
+    private double[] probabilities;
+
+    @Setup
+    public void setUp() {
+        model = ModelConfig.newModel();
+        features = Nd4j.create(row, new long[]{1, ModelConfig.NUM_FEATURES}, 'c');
+        evaluator = new ModelVersion(null, 0L, model, null).evaluator();
+        scratch = new double[evaluator.getHiddenSize()];
+        probabilities = new double[evaluator.getWinnerCount()];
+    }
+
+    @Benchmark
+    public void nd4j(Blackhole bh) {
+        INDArray[] outputs = model.output(features);
+        bh.consume(outputs[0].getDouble(0));
+        bh.consume(outputs[1].getDouble(0));
+    }
+
+    @Benchmark
+    public void java(Blackhole bh) {
+        bh.consume(evaluator.evaluate(row, 0, scratch, probabilities));
+        bh.consume(probabilities[0]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(DenseModelEvaluatorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
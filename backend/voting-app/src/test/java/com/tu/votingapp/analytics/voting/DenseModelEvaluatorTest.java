@@ -0,0 +1,74 @@
+package com.tu.votingapp.analytics.voting;
+
+import com.tu.votingapp.enums.ElectionType;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.junit.jupiter.api.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.MultiDataSet;
+import org.nd4j.linalg.dataset.api.preprocessor.MultiNormalizerHybrid;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class DenseModelEvaluatorTest {
+    private static final int ROWS = 500;
+    /**
+     * ND4J computes in float, so raw vote counts through random weights differ from the double
+     * evaluation by a few 1e-5; the evaluator's own startup check allows the same.
+     */
+    private static final double TOLERANCE = 1e-4;
+
+    @Test
+    void matchesNd4jForTheUntrainedModel() {
+        assertMatchesNd4j(new ModelVersion(null, 0L, ModelConfig.newModel(), null), 1_000);
+    }
+
+    @Test
+    void matchesNd4jWithStandardizedInputsAndTurnout() {
+        Random random = new Random(7);
+        float[] data = randomRows(random, 100_000);
+        INDArray features = Nd4j.create(data, new long[]{ROWS, ModelConfig.NUM_FEATURES}, 'c');
+        INDArray winners = Nd4j.zeros(ROWS, ModelConfig.NUM_CANDIDATES);
+        INDArray turnouts = features.getColumn(0).mul(3).reshape(ROWS, 1);
+        MultiNormalizerHybrid normalizer = new MultiNormalizerHybrid().standardizeAllInputs().standardizeOutput(1);
+        normalizer.fit(new MultiDataSet(new INDArray[]{features}, new INDArray[]{winners, turnouts}));
+
+        ModelVersion version = new ModelVersion(ElectionType.ELECTIONS_FOR_PARLIAMENT_GRAND_ASSEMBLY, 1L,
+                ModelConfig.newModel(), normalizer);
+        assertMatchesNd4j(version, 100_000);
+        assertSame(version.evaluator(), version.evaluator());
+    }
+
+    private static void assertMatchesNd4j(ModelVersion version, int maxVotes) {
+        float[] rows = randomRows(new Random(11), maxVotes);
+        INDArray[] expected = version.getModel().output(
+                version.prepare(Nd4j.create(rows.clone(), new long[]{ROWS, ModelConfig.NUM_FEATURES}, 'c')));
+
+        DenseModelEvaluator evaluator = version.evaluator();
+        double[] scratch = new double[evaluator.getHiddenSize()];
+        double[] probabilities = new double[evaluator.getWinnerCount()];
+        for (int r = 0; r < ROWS; r++) {
+            double turnout = evaluator.evaluate(rows, r * ModelConfig.NUM_FEATURES, scratch, probabilities);
+            for (int k = 0; k < probabilities.length; k++) {
+                assertEquals(expected[0].getDouble(r, k), probabilities[k], TOLERANCE);
+            }
+            double expectedTurnout = version.turnout(expected[1].getDouble(r, 0));
+            assertEquals(expectedTurnout, turnout, TOLERANCE * Math.max(1.0, Math.abs(expectedTurnout)));
+        }
+    }
+
+    private static float[] randomRows(Random random, int maxVotes) {
+        float[] rows = new float[ROWS * ModelConfig.NUM_FEATURES];
+        for (int r = 0; r < ROWS; r++) {
+            int offset = r * ModelConfig.NUM_FEATURES;
+            for (int i = 1; i < ModelConfig.NUM_FEATURES; i++) {
+                rows[offset + i] = random.nextInt(maxVotes / ModelConfig.NUM_FEATURES + 1);
+                rows[offset] += rows[offset + i];
+            }
+        }
+        return rows;
+    }
+}
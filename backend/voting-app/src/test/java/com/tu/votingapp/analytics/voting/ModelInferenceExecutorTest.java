@@ -0,0 +1,110 @@
+package com.tu.votingapp.analytics.voting;
+
+import com.tu.votingapp.repositories.interfaces.elections.ElectionRepository;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ModelInferenceExecutorTest {
+
+    private ComputationGraph model;
+    private FeatureAggregator aggregator;
+    private ModelInferenceExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        model = new ModelConfig().analyticsModel();
+        ElectionSlotRegistry registry = mock(ElectionSlotRegistry.class);
+        when(registry.slotOf(anyLong(), anyBoolean(), anyLong())).thenAnswer(inv -> (int) (inv.getArgument(2, Long.class) % 5));
+        aggregator = new FeatureAggregator(registry, mock(StreamingAnomalyDetector.class), new TrendEngine());
+        for (long electionId = 1; electionId <= 3; electionId++) {
+            for (int vote = 0; vote < 20 * electionId; vote++) {
+                aggregator.aggregateVote(electionId, false, vote * electionId, 0L, 1_000L * vote);
+            }
+        }
+        ComputationGraph replica = model.clone();
+        AnalyticsModelRegistry models = new AnalyticsModelRegistry(() -> replica, mock(ElectionRepository.class), "unused", 3);
+        executor = new ModelInferenceExecutor(models, aggregator, true, false, ModelInferenceExecutor.Engine.ND4J, 2, 100, 16, 5000);
+        executor.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.stop();
+    }
+
+    @Test
+    void concurrentRequestsGetTheSameOutputsAsASingleForwardPass() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<ModelInferenceExecutor.Prediction>> calls = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                long electionId = 1 + i % 3;
+                calls.add(() -> executor.predict(electionId));
+            }
+            List<Future<ModelInferenceExecutor.Prediction>> results = callers.invokeAll(calls);
+            for (int i = 0; i < results.size(); i++) {
+                INDArray features = Nd4j.create(aggregator.getFeatures(1L + i % 3), new long[]{1, ModelConfig.NUM_FEATURES}, 'c');
+                INDArray[] expected = model.output(features);
+                ModelInferenceExecutor.Prediction actual = results.get(i).get();
+                assertArrayEquals(expected[0].toDoubleVector(), actual.getWinnerProbabilities(), 1e-5);
+                assertEquals(expected[1].getDouble(0), actual.getTurnout(), 1e-5);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void javaEngineAnswersLikeTheForwardPass() throws InterruptedException {
+        ComputationGraph replica = model.clone();
+        AnalyticsModelRegistry models = new AnalyticsModelRegistry(() -> replica, mock(ElectionRepository.class), "unused", 3);
+        ModelInferenceExecutor java = new ModelInferenceExecutor(models, aggregator, true, false, ModelInferenceExecutor.Engine.JAVA, 2, 100, 16, 5000);
+        java.start();
+        try {
+            for (long electionId = 1; electionId <= 4; electionId++) {
+                INDArray features = Nd4j.create(aggregator.getFeatures(electionId), new long[]{1, ModelConfig.NUM_FEATURES}, 'c');
+                INDArray[] expected = model.output(features);
+                ModelInferenceExecutor.Prediction actual = java.predict(electionId);
+                assertArrayEquals(expected[0].toDoubleVector(), actual.getWinnerProbabilities(), 1e-5);
+                assertEquals(expected[1].getDouble(0), actual.getTurnout(), 1e-4);
+            }
+        } finally {
+            java.stop();
+        }
+    }
+
+    @Test
+    void disabledExecutorRefusesWithoutTouchingTheModel() throws InterruptedException {
+        AnalyticsModelRegistry models = new AnalyticsModelRegistry(() -> {
+            throw new AssertionError("model must not be created");
+        }, mock(ElectionRepository.class), "unused", 3);
+        ModelInferenceExecutor disabled = new ModelInferenceExecutor(models, aggregator, false, true, ModelInferenceExecutor.Engine.ND4J, 2, 100, 16, 5000);
+        disabled.start();
+        try {
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> disabled.predict(1L));
+            assertTrue(e.getMessage().contains("disabled"));
+        } finally {
+            disabled.stop();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.tu.votingapp.analytics.voting;
+
+import com.tu.votingapp.entities.elections.ElectionEntity;
+import com.tu.votingapp.enums.ElectionType;
+import com.tu.votingapp.repositories.interfaces.elections.ElectionRepository;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ModelTrainingServiceTest {
+    private static final ElectionType TYPE = ElectionType.ELECTIONS_FOR_MUNICIPALITY_MAYOR;
+
+    @TempDir
+    Path checkpointDir;
+
+    private ComputationGraph defaultModel;
+    private AnalyticsModelRegistry models;
+    private ModelTrainingService trainer;
+
+    @BeforeEach
+    void setUp() {
+        defaultModel = ModelConfig.newModel();
+        models = newRegistry();
+        TrainingDatasetBuilder datasetBuilder = mock(TrainingDatasetBuilder.class);
+        when(datasetBuilder.build(TYPE)).thenReturn(syntheticSet());
+        when(datasetBuilder.build(ElectionType.ELECTIONS_FOR_EUROPEAN_PARLIAMENT)).thenReturn(new TrainingDatasetBuilder.TrainingSet());
+        trainer = new ModelTrainingService(datasetBuilder, models, 300, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        trainer.stop();
+    }
+
+    @Test
+    void trainedModelIsCheckpointedAndSwappedIn() throws Exception {
+        ModelVersion before = models.forType(TYPE);
+        assertSame(defaultModel, before.getModel());
+
+        ModelVersion trained = trainer.train(TYPE).get(60, TimeUnit.SECONDS);
+
+        assertNotNull(trained.getNormalizer());
+        assertSame(trained, models.forType(TYPE));
+        assertTrue(models.isCurrent(trained));
+        // Other types keep the default model
+        assertSame(defaultModel, models.forType(ElectionType.ELECTIONS_FOR_EUROPEAN_PARLIAMENT).getModel());
+        assertTrue(Files.exists(checkpointDir.resolve(TYPE.name()).resolve("model-" + trained.getVersion() + ".zip")));
+
+        // A restarted node loads the same version from disk
+        ModelVersion restored = newRegistry().forType(TYPE);
+        assertEquals(trained.getVersion(), restored.getVersion());
+        float[] row = {300, 200, 50, 30, 20, 0, 0, 0, 0, 0};
+        INDArray[] expected = trained.getModel().output(trained.prepare(Nd4j.create(row, new long[]{1, 10}, 'c')));
+        INDArray[] actual = restored.getModel().output(restored.prepare(Nd4j.create(row, new long[]{1, 10}, 'c')));
+        assertEquals(0, expected[0].argMax(1).getInt(0));
+        assertArrayEquals(expected[0].toDoubleVector(), actual[0].toDoubleVector(), 1e-6);
+        assertEquals(trained.turnout(expected[1].getDouble(0)), restored.turnout(actual[1].getDouble(0)), 1e-3);
+    }
+
+    @Test
+    void nothingIsInstalledWithoutTrainingData() throws Exception {
+        assertNull(trainer.train(ElectionType.ELECTIONS_FOR_EUROPEAN_PARLIAMENT).get(60, TimeUnit.SECONDS));
+        assertSame(defaultModel, models.forType(ElectionType.ELECTIONS_FOR_EUROPEAN_PARLIAMENT).getModel());
+    }
+
+    @Test
+    void electionCreatedAfterTheFirstLookupGetsTheModelOfItsType() {
+        ElectionRepository elections = mock(ElectionRepository.class);
+        AnalyticsModelRegistry registry = new AnalyticsModelRegistry(() -> defaultModel, elections, checkpointDir.toString(), 3);
+        ModelVersion trained = new ModelVersion(TYPE, 7L, ModelConfig.newModel(), null);
+        registry.install(trained);
+
+        assertSame(defaultModel, registry.forElection(5L).getModel());
+
+        ElectionEntity election = new ElectionEntity(5L);
+        election.setElectionType(TYPE);
+        when(elections.findById(5L)).thenReturn(Optional.of(election));
+        assertSame(trained, registry.forElection(5L));
+    }
+
+    private AnalyticsModelRegistry newRegistry() {
+        return new AnalyticsModelRegistry(() -> defaultModel, mock(ElectionRepository.class), checkpointDir.toString(), 3);
+    }
+
+    /**
+     * Elections where the slot leading early also wins, with turnout proportional to early volume.
+     */
+    private static TrainingDatasetBuilder.TrainingSet syntheticSet() {
+        Random random = new Random(42);
+        TrainingDatasetBuilder.TrainingSet set = new TrainingDatasetBuilder.TrainingSet();
+        float[] row = new float[ModelConfig.NUM_FEATURES];
+        for (int i = 0; i < 200; i++) {
+            int winner = random.nextInt(ModelConfig.NUM_CANDIDATES);
+            float total = 0;
+            for (int slot = 0; slot < ModelConfig.NUM_CANDIDATES; slot++) {
+                row[slot + 1] = random.nextInt(100) + (slot == winner ? 150 : 0);
+                total += row[slot + 1];
+            }
+            row[0] = total;
+            set.add(row, winner, (long) (total * 4));
+        }
+        return set;
+    }
+}
@@ -0,0 +1,44 @@
+package com.tu.votingapp.analytics.voting;
+
+import com.tu.votingapp.enums.ElectionStatus;
+import com.tu.votingapp.services.impl.elections.BallotDefinition;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlotLayoutTest {
+
+    @Test
+    void ordersCandidatesThenPartiesByIdAndKeepsSlotsWhenExtended() {
+        Map<Long, Long> candidates = new HashMap<>();
+        candidates.put(30L, 7L);
+        candidates.put(10L, null);
+        // Candidate 7 and party 7 share an id but are different choices
+        candidates.put(7L, 3L);
+        SlotLayout layout = SlotLayout.of(new BallotDefinition(1L, 1L, ElectionStatus.OPEN,
+                LocalDate.now(), LocalDate.now(), candidates, Set.of(7L, 3L)));
+
+        assertEquals(5, layout.size());
+        assertEquals(0, layout.slotOf(false, 7L));
+        assertEquals(1, layout.slotOf(false, 10L));
+        assertEquals(2, layout.slotOf(false, 30L));
+        assertEquals(3, layout.slotOf(true, 3L));
+        assertEquals(4, layout.slotOf(true, 7L));
+        assertEquals(-1, layout.slotOf(true, 10L));
+        assertTrue(layout.isParty(4));
+        assertEquals("Party 7", layout.labelAt(4));
+
+        SlotLayout extended = layout.extendWith(false, 5L);
+        assertEquals(5, extended.slotOf(false, 5L));
+        assertEquals(0, extended.slotOf(false, 7L));
+        assertEquals(4, extended.slotOf(true, 7L));
+        assertSame(extended, extended.extendWith(layout));
+    }
+}
@@ -0,0 +1,121 @@
+package com.tu.votingapp.analytics.voting;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StreamingAnomalyDetectorTest {
+    private static final long INTERVAL = 60_000L;
+
+    private final List<Object> published = new ArrayList<>();
+    private StreamingAnomalyDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        ElectionSlotRegistry registry = mock(ElectionSlotRegistry.class);
+        when(registry.getLayout(anyLong())).thenReturn(SlotLayout.EMPTY.extendWith(false, 10L).extendWith(false, 20L));
+        ApplicationEventPublisher publisher = published::add;
+        detector = new StreamingAnomalyDetector(registry, publisher, INTERVAL, 0.3, 3.0, 5, 100, 10);
+    }
+
+    @Test
+    void steadyRatesRaiseNothing() {
+        for (int minute = 0; minute < 30; minute++) {
+            votes(0, 7L, minute, 20 + minute % 3);
+        }
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    void raisesOneSpikeAsSoonAsTheIntervalExceedsTheBand() {
+        for (int minute = 0; minute < 10; minute++) {
+            votes(1, 7L, minute, 10);
+        }
+        votes(1, 7L, 10, 40);
+
+        assertEquals(2, published.size()); // candidate and location series both spiked
+        VoteAnomalyEvent candidate = (VoteAnomalyEvent) published.get(0);
+        assertEquals(VoteAnomalyEvent.Series.CANDIDATE, candidate.getSeries());
+        assertTrue(candidate.getMessage().startsWith("Candidate 20 spike"));
+        assertEquals(10 * INTERVAL, candidate.getIntervalStart());
+        assertEquals(VoteAnomalyEvent.Series.LOCATION, ((VoteAnomalyEvent) published.get(1)).getSeries());
+        assertEquals(2, detector.getRecentAnomalies(1L).size());
+    }
+
+    @Test
+    void raisesASingleDropForASilence() {
+        for (int minute = 0; minute < 10; minute++) {
+            votes(0, 0L, minute, 50);
+        }
+        votes(0, 0L, 20, 1);
+
+        assertEquals(1, published.size());
+        assertTrue(((VoteAnomalyEvent) published.get(0)).getMessage().contains("drop"));
+    }
+
+    @Test
+    void sweepRaisesADropWhileTheSilenceLasts() {
+        for (int minute = 0; minute < 10; minute++) {
+            votes(0, 7L, minute, 50);
+            votes(1, 7L, minute, 50);
+        }
+
+        // The election is still receiving events: nothing closes beyond its newest interval
+        detector.sweep(30 * INTERVAL);
+        assertTrue(published.isEmpty());
+        assertEquals(0, detector.getRaisedCount(1L));
+
+        // No event since the previous sweep: intervals close up to the clock, with no vote needed
+        detector.sweep(30 * INTERVAL);
+        assertEquals(3, published.size()); // both candidates and the location
+        // Cached anomaly lists are versioned by this count, as no vote arrived to change the epoch
+        assertEquals(3, detector.getRaisedCount(1L));
+        for (Object event : published) {
+            assertTrue(((VoteAnomalyEvent) event).getMessage().contains("drop"));
+        }
+
+        // The same silence is not reported again by later sweeps
+        detector.sweep(31 * INTERVAL);
+        detector.sweep(40 * INTERVAL);
+        assertEquals(3, published.size());
+    }
+
+    @Test
+    void sweepFollowsEventTimeWhileEventsArrive() {
+        for (int minute = 0; minute < 10; minute++) {
+            votes(0, 0L, minute, 50);
+            // A replay of old events is in progress while the clock is far ahead
+            detector.sweep(1_000 * INTERVAL);
+        }
+        votes(0, 0L, 10, 50);
+
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    void evictedElectionsAreNotSwept() {
+        for (int minute = 0; minute < 10; minute++) {
+            votes(0, 0L, minute, 50);
+        }
+        detector.evict(electionId -> electionId == 1L);
+
+        detector.sweep(30 * INTERVAL);
+        detector.sweep(30 * INTERVAL);
+        assertTrue(published.isEmpty());
+    }
+
+    private void votes(int slot, long locationId, int minute, int count) {
+        for (int i = 0; i < count; i++) {
+            detector.record(1L, slot, locationId, minute * INTERVAL + i);
+        }
+    }
+}
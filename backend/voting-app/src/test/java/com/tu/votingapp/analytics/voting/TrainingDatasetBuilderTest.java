@@ -0,0 +1,74 @@
+package com.tu.votingapp.analytics.voting;
+
+import com.tu.votingapp.enums.ElectionType;
+import com.tu.votingapp.services.impl.elections.BallotDefinitionCache;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TrainingDatasetBuilderTest {
+    private static final ElectionType TYPE = ElectionType.ELECTIONS_FOR_MUNICIPALITY_MAYOR;
+
+    @Test
+    void buildingASetLeavesTheLiveSlotLayoutsAlone() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:training" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE elections (id BIGINT PRIMARY KEY, election_type INT, election_status VARCHAR(20))");
+        jdbcTemplate.execute("CREATE TABLE votes (id BIGINT AUTO_INCREMENT PRIMARY KEY, election_id BIGINT, candidate_id BIGINT, party_id BIGINT)");
+        jdbcTemplate.update("INSERT INTO elections (id, election_type, election_status) VALUES (1, ?, 'ENDED'), (2, ?, 'CLOSED')",
+                TYPE.ordinal(), TYPE.ordinal());
+        for (int i = 0; i < 30; i++) {
+            // Candidate 11 won election 1 but is missing from its live layout
+            jdbcTemplate.update("INSERT INTO votes (election_id, candidate_id) VALUES (1, ?), (2, ?)", i % 3 == 0 ? 10 : 11, 20 + i % 2);
+        }
+        BallotDefinitionCache ballots = mock(BallotDefinitionCache.class);
+        when(ballots.get(anyLong())).thenThrow(new EntityNotFoundException("no ballot"));
+        ElectionSlotRegistry registry = new ElectionSlotRegistry(ballots);
+        registry.restoreLayout(1L, SlotLayout.EMPTY.extendWith(false, 10L));
+        TrainingDatasetBuilder builder = new TrainingDatasetBuilder(jdbcTemplate, registry, mock(FeatureAggregator.class), 4);
+
+        TrainingDatasetBuilder.TrainingSet set = builder.build(TYPE);
+
+        assertEquals(8, set.getSize());
+        // Election 1's winner is the slot appended after the live ones
+        assertEquals(1, set.getWinners()[0]);
+        assertEquals(1, registry.getLayout(1L).size());
+        assertTrue(registry.getLayout(1L).slotOf(false, 11L) < 0);
+    }
+
+    @Test
+    void electionsWonPastTheModelOutputsAreCountedAndLeftOut() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:training" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE elections (id BIGINT PRIMARY KEY, election_type INT, election_status VARCHAR(20))");
+        jdbcTemplate.execute("CREATE TABLE votes (id BIGINT AUTO_INCREMENT PRIMARY KEY, election_id BIGINT, candidate_id BIGINT, party_id BIGINT)");
+        jdbcTemplate.update("INSERT INTO elections (id, election_type, election_status) VALUES (1, ?, 'ENDED'), (2, ?, 'ENDED')",
+                TYPE.ordinal(), TYPE.ordinal());
+        // Election 1 has 15 candidates and the last one, past the model's inputs, wins; election 2 is won by its first
+        for (int candidate = 0; candidate < 15; candidate++) {
+            jdbcTemplate.update("INSERT INTO votes (election_id, candidate_id) VALUES (1, ?)", 100 + candidate);
+        }
+        for (int i = 0; i < 5; i++) {
+            jdbcTemplate.update("INSERT INTO votes (election_id, candidate_id) VALUES (1, 114), (2, ?)", 20 + i % 2 * (i % 3));
+        }
+        BallotDefinitionCache ballots = mock(BallotDefinitionCache.class);
+        when(ballots.get(anyLong())).thenThrow(new EntityNotFoundException("no ballot"));
+        TrainingDatasetBuilder builder = new TrainingDatasetBuilder(jdbcTemplate, new ElectionSlotRegistry(ballots),
+                mock(FeatureAggregator.class), 4);
+
+        TrainingDatasetBuilder.TrainingSet set = builder.build(TYPE);
+
+        assertEquals(1, set.getSkippedElections());
+        assertEquals(4, set.getSize());
+        for (int i = 0; i < set.getSize(); i++) {
+            assertEquals(0, set.getWinners()[i]);
+        }
+    }
+}
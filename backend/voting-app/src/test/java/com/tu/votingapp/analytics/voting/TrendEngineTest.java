@@ -0,0 +1,150 @@
+package com.tu.votingapp.analytics.voting;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrendEngineTest {
+
+    @Test
+    void reportsShareChangeAndSlopeOverTheWindow() {
+        TrendEngine engine = new TrendEngine();
+        // One vote per second: the first minute all for slot 0, the second minute all for slot 1
+        for (int second = 0; second < 120; second++) {
+            engine.record(1L, second < 60 ? 0 : 1, second * 1_000L);
+        }
+
+        List<TrendEngine.Trend> trends = engine.getTrends(1L, TrendEngine.Window.ONE_MINUTE);
+        assertEquals(2, trends.size());
+        TrendEngine.Trend rising = trends.get(1);
+        assertTrue(rising.isSignificant());
+        // Share of slot 1 went from 0 at 60 s to 60/120 now
+        assertEquals(0.5, rising.getShareChange(), 1e-9);
+        assertTrue(rising.getSlopePerMinute() > 0);
+        assertEquals(-rising.getShareChange(), trends.get(0).getShareChange(), 1e-9);
+        assertEquals(-rising.getSlopePerMinute(), trends.get(0).getSlopePerMinute(), 1e-9);
+    }
+
+    @Test
+    void slidingSumsMatchAFullFitOverTheLastSamples() {
+        TrendEngine engine = new TrendEngine();
+        // Irregular stream with gaps, several laps of the one-minute ring
+        long[] timestamps = new long[2_000];
+        int[] slots = new int[timestamps.length];
+        long timestamp = 0;
+        for (int vote = 0; vote < timestamps.length; vote++) {
+            timestamp += 137 + (vote * 31) % 400 + (vote % 250 == 0 ? 5_000 : 0);
+            timestamps[vote] = timestamp;
+            slots[vote] = vote % 7 == 0 ? 2 : vote % 3;
+            engine.record(2L, slots[vote], timestamp);
+        }
+
+        // Samples are the shares at the end of each of the 60 one-second steps before the last vote's
+        long lastStep = timestamps[timestamps.length - 1] / 1_000;
+        double[] shares = new double[60];
+        for (int x = 0; x < shares.length; x++) {
+            long end = (lastStep - shares.length + x + 1) * 1_000;
+            int total = 0;
+            int hits = 0;
+            for (int vote = 0; vote < timestamps.length && timestamps[vote] < end; vote++) {
+                total++;
+                hits += slots[vote] == 2 ? 1 : 0;
+            }
+            shares[x] = (double) hits / total;
+        }
+        double meanX = (shares.length - 1) / 2.0;
+        double meanY = 0;
+        for (double y : shares) {
+            meanY += y / shares.length;
+        }
+        double covariance = 0;
+        double variance = 0;
+        for (int x = 0; x < shares.length; x++) {
+            covariance += (x - meanX) * (shares[x] - meanY);
+            variance += (x - meanX) * (x - meanX);
+        }
+
+        TrendEngine.Trend trend = engine.getTrends(2L, TrendEngine.Window.ONE_MINUTE).get(2);
+        assertEquals(covariance / variance * 60, trend.getSlopePerMinute(), 1e-9);
+        assertFalse(trend.isSignificant());
+    }
+
+    @Test
+    void longerWindowsSmoothShortBursts() {
+        TrendEngine engine = new TrendEngine();
+        for (int second = 0; second < 3_600; second++) {
+            engine.record(3L, second % 2, second * 1_000L);
+        }
+        for (int burst = 0; burst < 200; burst++) {
+            engine.record(3L, 2, 3_600_000L + burst * 250L);
+        }
+
+        double minuteSlope = engine.getTrends(3L, TrendEngine.Window.ONE_MINUTE).get(2).getSlopePerMinute();
+        double hourSlope = engine.getTrends(3L, TrendEngine.Window.ONE_HOUR).get(2).getSlopePerMinute();
+        assertTrue(minuteSlope > hourSlope);
+        assertTrue(engine.getTrends(4L, TrendEngine.Window.ONE_HOUR).isEmpty());
+    }
+
+    @Test
+    void parsesWindowLabels() {
+        assertEquals(TrendEngine.Window.FIFTEEN_MINUTES, TrendEngine.Window.fromLabel("15m"));
+        assertThrows(IllegalArgumentException.class, () -> TrendEngine.Window.fromLabel("2d"));
+    }
+
+    @Test
+    void restoredTrendsContinueLikeTheOriginal() throws IOException {
+        TrendEngine original = new TrendEngine();
+        // Enough steps to wrap the one minute ring, with more slots than its initial capacity
+        for (int second = 0; second < 200; second++) {
+            original.record(1L, second % 20 == 0 ? 17 : second / 70, second * 1_000L);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        original.writeTo(1L, new DataOutputStream(bytes));
+        original.writeTo(2L, new DataOutputStream(bytes));
+
+        TrendEngine restored = new TrendEngine();
+        restored.record(2L, 0, 0L);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        restored.restore(1L, in);
+        restored.restore(2L, in);
+        assertTrue(restored.getTrends(2L, TrendEngine.Window.ONE_MINUTE).isEmpty());
+
+        for (int second = 200; second < 260; second++) {
+            original.record(1L, 1, second * 1_000L);
+            restored.record(1L, 1, second * 1_000L);
+        }
+        for (TrendEngine.Window window : TrendEngine.Window.values()) {
+            List<TrendEngine.Trend> expected = original.getTrends(1L, window);
+            List<TrendEngine.Trend> actual = restored.getTrends(1L, window);
+            assertEquals(expected.size(), actual.size());
+            for (int slot = 0; slot < expected.size(); slot++) {
+                assertEquals(expected.get(slot).getShareChange(), actual.get(slot).getShareChange(), 1e-9);
+                assertEquals(expected.get(slot).getSlopePerMinute(), actual.get(slot).getSlopePerMinute(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void evictDropsOnlyMatchingElections() {
+        TrendEngine engine = new TrendEngine();
+        engine.record(1L, 0, 0L);
+        engine.record(2L, 0, 0L);
+        engine.record(1L, 0, 60_000L);
+        engine.record(2L, 0, 60_000L);
+
+        engine.evict(electionId -> electionId == 1L);
+
+        assertTrue(engine.getTrends(1L, TrendEngine.Window.ONE_MINUTE).isEmpty());
+        assertFalse(engine.getTrends(2L, TrendEngine.Window.ONE_MINUTE).isEmpty());
+    }
+}
@@ -0,0 +1,84 @@
+package com.tu.votingapp.analytics.voting;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TurnoutTimeSeriesTest {
+    private static final long DAY_START = 1_700_000_000_000L / TurnoutTimeSeries.MINUTE_MILLIS;
+    private static final int DAY_MINUTES = 14 * 60;
+
+    @Test
+    void rangeQueriesMatchTheRecordedMinutesAcrossSealedHours() throws Exception {
+        TurnoutTimeSeries series = new TurnoutTimeSeries();
+        long[] all = new long[DAY_MINUTES];
+        long[] location = new long[DAY_MINUTES];
+        Random random = new Random(7);
+        for (int vote = 0; vote < 20_000; vote++) {
+            // Mostly in order, with some events arriving hours late
+            int minute = (int) Math.min(DAY_MINUTES - 1, vote * (long) DAY_MINUTES / 20_000);
+            if (random.nextInt(50) == 0) {
+                minute = random.nextInt(minute + 1);
+            }
+            long locationId = 1 + random.nextInt(3);
+            series.record(locationId, (DAY_START + minute) * TurnoutTimeSeries.MINUTE_MILLIS + random.nextInt(60_000));
+            all[minute]++;
+            if (locationId == 2) {
+                location[minute]++;
+            }
+        }
+
+        assertArrayEquals(expected(all, 0, DAY_MINUTES, 1),
+                series.votes(TurnoutTimeSeries.ALL_LOCATIONS, DAY_START, DAY_START + DAY_MINUTES, 1));
+        assertArrayEquals(expected(all, 95, 605, 15),
+                series.votes(TurnoutTimeSeries.ALL_LOCATIONS, DAY_START + 95, DAY_START + 605, 15));
+        assertArrayEquals(expected(location, 0, DAY_MINUTES, 60), series.votes(2, DAY_START, DAY_START + DAY_MINUTES, 60));
+        assertEquals(expected(all, 0, 300, 300)[0], series.votesBefore(TurnoutTimeSeries.ALL_LOCATIONS, DAY_START + 300));
+        assertEquals(DAY_START, series.getFirstMinute(TurnoutTimeSeries.ALL_LOCATIONS));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        series.writeTo(new DataOutputStream(bytes));
+        TurnoutTimeSeries restored = TurnoutTimeSeries.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertArrayEquals(series.votes(2, DAY_START, DAY_START + DAY_MINUTES, 1),
+                restored.votes(2, DAY_START, DAY_START + DAY_MINUTES, 1));
+    }
+
+    @Test
+    void longGapsSealEveryHourLeavingTheRing() {
+        TurnoutTimeSeries series = new TurnoutTimeSeries();
+        series.record(0, DAY_START * TurnoutTimeSeries.MINUTE_MILLIS);
+        series.record(0, (DAY_START + 61) * TurnoutTimeSeries.MINUTE_MILLIS);
+        series.record(0, (DAY_START + 10 * 60) * TurnoutTimeSeries.MINUTE_MILLIS);
+
+        long[] hourly = series.votes(TurnoutTimeSeries.ALL_LOCATIONS, DAY_START, DAY_START + 11 * 60, 60);
+        assertArrayEquals(new long[]{1, 1, 0, 0, 0, 0, 0, 0, 0, 0, 1}, hourly);
+        // Unknown locations count towards the total only
+        assertEquals(Long.MIN_VALUE, series.getLatestMinute(0));
+    }
+
+    @Test
+    void segmentsRoundTripLargeCounts() {
+        int[] minutes = new int[TurnoutTimeSeries.SEGMENT_MINUTES];
+        minutes[0] = 1;
+        minutes[30] = 300_000;
+        minutes[59] = 127;
+        int[] decoded = new int[TurnoutTimeSeries.SEGMENT_MINUTES];
+        TurnoutTimeSeries.decode(TurnoutTimeSeries.encode(minutes), decoded);
+        assertArrayEquals(minutes, decoded);
+    }
+
+    private static long[] expected(long[] minutes, int from, int to, int step) {
+        long[] buckets = new long[(to - from + step - 1) / step];
+        for (int minute = from; minute < to; minute++) {
+            buckets[(minute - from) / step] += minutes[minute];
+        }
+        return buckets;
+    }
+}
@@ -0,0 +1,112 @@
+package com.tu.votingapp.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.tu.votingapp.dto.response.elections.CandidateResultDTO;
+import com.tu.votingapp.dto.response.elections.ElectionResultsDTO;
+import com.tu.votingapp.entities.UserEntity;
+import com.tu.votingapp.entities.elections.CandidateEntity;
+import com.tu.votingapp.entities.elections.ElectionEntity;
+import com.tu.votingapp.enums.ElectionStatus;
+import com.tu.votingapp.enums.ElectionType;
+import com.tu.votingapp.repositories.interfaces.elections.ElectionRepository;
+import com.tu.votingapp.services.impl.JsonResponseCache;
+import com.tu.votingapp.services.impl.elections.BallotDefinitionCache;
+import com.tu.votingapp.services.impl.elections.ElectionResultsProjection;
+import com.tu.votingapp.services.impl.elections.ElectionResultsStream;
+import com.tu.votingapp.services.impl.elections.ElectionServiceImpl;
+import com.tu.votingapp.services.impl.elections.RecountService;
+import com.tu.votingapp.services.impl.elections.RegionalResultsCube;
+import com.tu.votingapp.services.interfaces.elections.CandidateService;
+import com.tu.votingapp.services.interfaces.elections.VoteService;
+import com.tu.votingapp.utils.mappers.election.CandidateMapper;
+import com.tu.votingapp.utils.mappers.election.ElectionMapper;
+import com.tu.votingapp.utils.mappers.election.PartyMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ElectionControllerTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private ElectionResultsProjection projection;
+    private ElectionController controller;
+
+    @BeforeEach
+    void setUp() {
+        ElectionEntity election = new ElectionEntity();
+        election.setId(1L);
+        election.setElectionName("Mayor");
+        election.setStartDate(Date.valueOf(LocalDate.of(2026, 10, 1)));
+        election.setEndDate(Date.valueOf(LocalDate.of(2026, 10, 2)));
+        election.setElectionType(ElectionType.ELECTIONS_FOR_MEMBERS_OF_PARLIAMENT);
+        election.setStatus(ElectionStatus.ONGOING);
+        UserEntity admin = new UserEntity();
+        admin.setId(5L);
+        election.setCreatedBy(admin);
+        CandidateEntity ana = new CandidateEntity();
+        ana.setId(10L);
+        ana.setName("Ana");
+        // The stored counter lags behind the ballots not flushed yet
+        ana.setVotesCount(3);
+        election.getCandidates().add(ana);
+        ElectionRepository electionRepository = mock(ElectionRepository.class);
+        when(electionRepository.findById(1L)).thenReturn(Optional.of(election));
+
+        projection = mock(ElectionResultsProjection.class);
+        JsonResponseCache responseCache = new JsonResponseCache(objectMapper, 1024);
+        ElectionServiceImpl electionService = new ElectionServiceImpl(electionRepository, mock(ElectionMapper.class),
+                mock(CandidateMapper.class), mock(PartyMapper.class), mock(BallotDefinitionCache.class), projection, responseCache);
+        controller = new ElectionController(electionService, mock(CandidateService.class), mock(VoteService.class),
+                mock(ElectionResultsStream.class), mock(RegionalResultsCube.class), mock(RecountService.class), responseCache);
+    }
+
+    @Test
+    void castVoteChangesTheServedElectionDetails() throws Exception {
+        serve(7, 4);
+        ResponseEntity<byte[]> before = controller.getElection(1L, request(null));
+        assertEquals(4, votesOfAna(before));
+        String eTag = before.getHeaders().getETag();
+        assertNull(controller.getElection(1L, request(eTag)));
+
+        // A ballot counted on any node moves the results version
+        serve(8, 5);
+
+        ResponseEntity<byte[]> after = controller.getElection(1L, request(eTag));
+        assertNotEquals(eTag, after.getHeaders().getETag());
+        assertEquals(5, votesOfAna(after));
+    }
+
+    private void serve(long version, int votes) {
+        when(projection.getVersion(1L)).thenReturn(version);
+        when(projection.getResults(1L)).thenReturn(new ElectionResultsDTO(1L,
+                List.of(new CandidateResultDTO(10L, "Ana", votes)), List.of(), version));
+    }
+
+    private int votesOfAna(ResponseEntity<byte[]> response) throws Exception {
+        JsonNode body = objectMapper.readTree(response.getBody());
+        return body.get("candidates").get(0).get("votesCount").asInt();
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/elections/getById/1");
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+}
@@ -0,0 +1,85 @@
+package com.tu.votingapp.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tu.votingapp.entities.referendum.ReferendumEntity;
+import com.tu.votingapp.entities.referendum.ReferendumOptionEntity;
+import com.tu.votingapp.repositories.interfaces.UserRepository;
+import com.tu.votingapp.repositories.interfaces.referendum.ReferendumOptionRepository;
+import com.tu.votingapp.repositories.interfaces.referendum.ReferendumRepository;
+import com.tu.votingapp.repositories.interfaces.referendum.ReferendumVoteRepository;
+import com.tu.votingapp.services.impl.JsonResponseCache;
+import com.tu.votingapp.services.impl.VoterParticipationRegistry;
+import com.tu.votingapp.services.impl.referendum.ReferendumServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReferendumControllerTest {
+    private ReferendumOptionRepository optionRepository;
+    private ReferendumVoteRepository voteRepository;
+    private ReferendumEntity referendum;
+    private ReferendumOptionEntity yes;
+    private ReferendumController controller;
+
+    @BeforeEach
+    void setUp() {
+        ReferendumRepository referendumRepository = mock(ReferendumRepository.class);
+        optionRepository = mock(ReferendumOptionRepository.class);
+        voteRepository = mock(ReferendumVoteRepository.class);
+        referendum = new ReferendumEntity();
+        referendum.setId(3L);
+        yes = new ReferendumOptionEntity();
+        yes.setId(30L);
+        yes.setOptionText("Yes");
+        yes.setReferendum(referendum);
+        when(referendumRepository.findById(3L)).thenReturn(Optional.of(referendum));
+        when(optionRepository.findByReferendum(referendum)).thenReturn(List.of(yes));
+        JsonResponseCache responseCache = new JsonResponseCache(new ObjectMapper(), 1024);
+        ReferendumServiceImpl service = new ReferendumServiceImpl(referendumRepository, optionRepository, voteRepository,
+                mock(UserRepository.class), mock(VoterParticipationRegistry.class), responseCache);
+        controller = new ReferendumController(service, responseCache);
+    }
+
+    @Test
+    void voteCastOnAnotherNodeChangesTheServedResults() {
+        when(voteRepository.findLatestVoteId(3L)).thenReturn(41L);
+        ResponseEntity<byte[]> before = controller.getResults(3L, request(null));
+        assertEquals("{\"referendumId\":3,\"optionResults\":[{\"optionId\":30,\"optionText\":\"Yes\",\"voteCount\":0}]}",
+                new String(before.getBody(), StandardCharsets.UTF_8));
+        String eTag = before.getHeaders().getETag();
+        assertNull(controller.getResults(3L, request(eTag)));
+
+        // Committed by another node: nothing invalidates this node's cache, but the latest vote moves
+        yes.setVoteCount(1);
+        when(voteRepository.findLatestVoteId(3L)).thenReturn(42L);
+
+        ResponseEntity<byte[]> after = controller.getResults(3L, request(eTag));
+        assertNotEquals(eTag, after.getHeaders().getETag());
+        assertEquals("{\"referendumId\":3,\"optionResults\":[{\"optionId\":30,\"optionText\":\"Yes\",\"voteCount\":1}]}",
+                new String(after.getBody(), StandardCharsets.UTF_8));
+        verify(optionRepository, times(2)).findByReferendum(referendum);
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/referendums/3/results");
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+}
@@ -0,0 +1,104 @@
+package com.tu.votingapp.services.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonResponseCacheTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonResponseCache cache = new JsonResponseCache(objectMapper, 64);
+
+    @Test
+    void sameVersionIsServedFromTheEncodedBytes() throws Exception {
+        AtomicInteger encodings = new AtomicInteger();
+        ResponseEntity<byte[]> first = cache.respond(JsonResponseCache.ELECTION_RESULTS, 1L, 5,
+                () -> Map.of("votes", encodings.incrementAndGet()), request(null, null));
+        ResponseEntity<byte[]> second = cache.respond(JsonResponseCache.ELECTION_RESULTS, 1L, 5,
+                () -> Map.of("votes", encodings.incrementAndGet()), request(null, null));
+
+        assertEquals(1, encodings.get());
+        assertSame(first.getBody(), second.getBody());
+        assertEquals("{\"votes\":1}", new String(first.getBody(), "UTF-8"));
+        assertEquals(first.getBody().length, first.getHeaders().getContentLength());
+        String eTag = first.getHeaders().getETag();
+
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        assertNull(cache.respond(JsonResponseCache.ELECTION_RESULTS, 1L, 5,
+                () -> Map.of("votes", encodings.incrementAndGet()), request(eTag, null, notModified)));
+        assertEquals(304, notModified.getStatus());
+
+        ResponseEntity<byte[]> newer = cache.respond(JsonResponseCache.ELECTION_RESULTS, 1L, 6,
+                () -> Map.of("votes", encodings.incrementAndGet()), request(eTag, null));
+        assertEquals("{\"votes\":2}", new String(newer.getBody(), "UTF-8"));
+        assertNotEquals(eTag, newer.getHeaders().getETag());
+    }
+
+    @Test
+    void largeBodiesAreGzippedForClientsThatAcceptIt() throws Exception {
+        List<String> options = List.of("first option text", "second option text", "third option text", "fourth option text");
+        ResponseEntity<byte[]> plain = cache.respond(JsonResponseCache.REFERENDUM_RESULTS, 3L,
+                JsonResponseCache.UNVERSIONED, () -> options, request(null, "identity"));
+        ResponseEntity<byte[]> zipped = cache.respond(JsonResponseCache.REFERENDUM_RESULTS, 3L,
+                JsonResponseCache.UNVERSIONED, () -> options, request(null, "br, gzip;q=0.8"));
+
+        assertNull(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("gzip", zipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(zipped.getBody().length, zipped.getHeaders().getContentLength());
+        assertNotEquals(plain.getHeaders().getETag(), zipped.getHeaders().getETag());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(zipped.getBody()))) {
+            assertArrayEquals(plain.getBody(), in.readAllBytes());
+        }
+        assertFalse(JsonResponseCache.acceptsGzip("gzip;q=0"));
+        assertTrue(JsonResponseCache.acceptsGzip("deflate, GZIP"));
+    }
+
+    @Test
+    void invalidationDuringEncodingIsNotOverwritten() {
+        cache.respond(JsonResponseCache.ELECTION, 2L, JsonResponseCache.UNVERSIONED, () -> "old", request(null, null));
+        cache.invalidate(JsonResponseCache.ELECTION, 2L);
+
+        // The body was read before the change committed and the invalidation ran
+        ResponseEntity<byte[]> racing = cache.respond(JsonResponseCache.ELECTION, 2L, JsonResponseCache.UNVERSIONED, () -> {
+            cache.invalidate(JsonResponseCache.ELECTION, 2L);
+            return "stale";
+        }, request(null, null));
+        ResponseEntity<byte[]> next = cache.respond(JsonResponseCache.ELECTION, 2L, JsonResponseCache.UNVERSIONED,
+                () -> "new", request(null, null));
+
+        assertEquals("\"stale\"", new String(racing.getBody()));
+        assertEquals("\"new\"", new String(next.getBody()));
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch, String acceptEncoding) {
+        return request(ifNoneMatch, acceptEncoding, new MockHttpServletResponse());
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch, String acceptEncoding, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/resource");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return new ServletWebRequest(request, response);
+    }
+}
@@ -0,0 +1,103 @@
+package com.tu.votingapp.services.impl.elections;
+
+import com.tu.votingapp.entities.elections.CandidateEntity;
+import com.tu.votingapp.entities.elections.ElectionEntity;
+import com.tu.votingapp.entities.elections.PartyEntity;
+import com.tu.votingapp.enums.ElectionStatus;
+import com.tu.votingapp.repositories.interfaces.elections.ElectionRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BallotDefinitionCacheTest {
+    private ElectionRepository electionRepository;
+    private PlatformTransactionManager transactionManager;
+    private ElectionEntity election;
+
+    @BeforeEach
+    void setUp() {
+        electionRepository = mock(ElectionRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        election = new ElectionEntity(1L);
+        election.setStatus(ElectionStatus.OPEN);
+        election.setStartDate(Date.valueOf(LocalDate.now().minusDays(1)));
+        election.setEndDate(Date.valueOf(LocalDate.now().plusDays(1)));
+        PartyEntity party = new PartyEntity();
+        party.setId(20L);
+        election.getParties().add(party);
+        election.getCandidates().add(candidate(10L, party));
+        when(electionRepository.findById(1L)).thenReturn(Optional.of(election));
+    }
+
+    @Test
+    void definitionIsBuiltOnceAndRefreshedInANewTransaction() {
+        BallotDefinitionCache cache = new BallotDefinitionCache(electionRepository, transactionManager, 60_000);
+        BallotDefinition first = cache.get(1L);
+        assertSame(first, cache.get(1L));
+        assertEquals(20L, first.getPartyOfCandidate(10L));
+        verify(electionRepository, times(1)).findById(1L);
+
+        election.getCandidates().add(candidate(11L, null));
+        cache.refresh(1L);
+
+        BallotDefinition refreshed = cache.get(1L);
+        assertTrue(refreshed.getVersion() > first.getVersion());
+        assertTrue(refreshed.hasCandidate(11L));
+        ArgumentCaptor<TransactionDefinition> transactions = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager, atLeastOnce()).getTransaction(transactions.capture());
+        for (TransactionDefinition definition : transactions.getAllValues()) {
+            assertEquals(TransactionDefinition.PROPAGATION_REQUIRES_NEW, definition.getPropagationBehavior());
+            assertTrue(definition.isReadOnly());
+        }
+    }
+
+    @Test
+    void expiredDefinitionPicksUpAChangeMadeOnAnotherNode() throws InterruptedException {
+        BallotDefinitionCache cache = new BallotDefinitionCache(electionRepository, transactionManager, 20);
+        assertEquals(ElectionStatus.OPEN, cache.get(1L).getStatus());
+
+        // Closed elsewhere: no refresh() on this node
+        election.setStatus(ElectionStatus.CLOSED);
+        Thread.sleep(50);
+
+        assertEquals(ElectionStatus.CLOSED, cache.get(1L).getStatus());
+    }
+
+    @Test
+    void deletedElectionIsEvicted() {
+        BallotDefinitionCache cache = new BallotDefinitionCache(electionRepository, transactionManager, 20);
+        cache.get(1L);
+        when(electionRepository.findById(1L)).thenReturn(Optional.empty());
+
+        cache.refresh(1L);
+        assertThrows(EntityNotFoundException.class, () -> cache.get(1L));
+        // refresh() skips elections that are not cached
+        cache.refresh(1L);
+        verify(electionRepository, times(3)).findById(1L);
+    }
+
+    private CandidateEntity candidate(Long id, PartyEntity party) {
+        CandidateEntity candidate = new CandidateEntity();
+        candidate.setId(id);
+        candidate.setParty(party);
+        candidate.setElection(election);
+        return candidate;
+    }
+}
@@ -0,0 +1,130 @@
+package com.tu.votingapp.services.impl.elections;
+
+import com.tu.votingapp.dto.response.elections.ElectionResultsDTO;
+import com.tu.votingapp.entities.elections.CandidateEntity;
+import com.tu.votingapp.entities.elections.ElectionEntity;
+import com.tu.votingapp.entities.elections.PartyEntity;
+import com.tu.votingapp.entities.elections.PartyVoteEntity;
+import com.tu.votingapp.entities.elections.VoteEntity;
+import com.tu.votingapp.entities.elections.VoteTallyBaselineEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class ElectionResultsProjectionTest {
+    private JdbcTemplate jdbcTemplate;
+    private VoteTallyEngine tallyEngine;
+    private ElectionResultsProjection projection;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:results" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = spy(new JdbcTemplate(dataSource));
+        // The mapped schema, so the projection's SQL is checked against the entities' column names
+        EntityTables.create(jdbcTemplate, ElectionEntity.class, CandidateEntity.class, PartyEntity.class,
+                PartyVoteEntity.class, VoteEntity.class, VoteTallyBaselineEntity.class);
+        // Counters of a deployment whose baseline is already recorded
+        jdbcTemplate.update("INSERT INTO vote_tally_baseline (id, reconciled_at) VALUES (1, 0)");
+        jdbcTemplate.update("INSERT INTO elections (id) VALUES (1), (2)");
+        jdbcTemplate.update("INSERT INTO candidates (id, candidate_names, election_id, votes_count) VALUES (10, 'Ana', 1, 3), (11, 'Boris', 1, 5)");
+        jdbcTemplate.update("INSERT INTO parties (id, party_name, election_id) VALUES (20, 'Blue', 1), (21, 'Green', 1)");
+        jdbcTemplate.update("INSERT INTO party_votes (election_id, party_id, vote_count) VALUES (1, 20, 8)");
+        tallyEngine = new VoteTallyEngine(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+        tallyEngine.rebuild();
+        projection = new ElectionResultsProjection(jdbcTemplate, tallyEngine, 60_000);
+    }
+
+    @Test
+    void ballotsCountedHereAreAddedToTheStoredTotals() {
+        ElectionResultsDTO stored = projection.getResults(1L);
+        assertEquals(3, stored.getCandidateResults().get(0).getVotesCount());
+        assertEquals(5, stored.getCandidateResults().get(1).getVotesCount());
+        // Parties without a party_votes row are left out, as before
+        assertEquals(1, stored.getPartyResults().size());
+        assertEquals(8, stored.getPartyResults().get(0).getVoteCount());
+        assertEquals(stored.getVersion(), projection.getResults(1L).getVersion());
+
+        tallyEngine.recordVote(1L, 10L, 21L);
+        ElectionResultsDTO live = projection.getResults(1L);
+        assertNotEquals(stored.getVersion(), live.getVersion());
+        assertEquals(4, live.getCandidateResults().get(0).getVotesCount());
+        assertEquals(5, live.getCandidateResults().get(1).getVotesCount());
+        assertEquals("Green", live.getPartyResults().get(1).getPartyName());
+        assertEquals(1, live.getPartyResults().get(1).getVoteCount());
+
+        // Flushing moves the ballot into the stored counters without counting it twice
+        tallyEngine.flush();
+        projection.invalidate(1L);
+        ElectionResultsDTO flushed = projection.getResults(1L);
+        assertEquals(4, flushed.getCandidateResults().get(0).getVotesCount());
+        assertEquals(1, flushed.getPartyResults().get(1).getVoteCount());
+    }
+
+    @Test
+    void ballotsFlushedByAnotherNodeAppearAfterTheRefreshInterval() {
+        ElectionResultsProjection refreshing = new ElectionResultsProjection(jdbcTemplate, tallyEngine, 0);
+        tallyEngine.recordVote(1L, 10L, 20L);
+        tallyEngine.flush();
+        tallyEngine.recordVote(1L, 10L, null);
+        ElectionResultsDTO before = refreshing.getResults(1L);
+        assertEquals(5, before.getCandidateResults().get(0).getVotesCount());
+
+        // Another node flushes two ballots for Boris and one for Blue
+        jdbcTemplate.update("UPDATE candidates SET votes_count = votes_count + 2 WHERE id = 11");
+        jdbcTemplate.update("UPDATE party_votes SET vote_count = vote_count + 1 WHERE party_id = 20");
+
+        ElectionResultsDTO after = refreshing.getResults(1L);
+        assertNotEquals(before.getVersion(), after.getVersion());
+        assertEquals(5, after.getCandidateResults().get(0).getVotesCount());
+        assertEquals(7, after.getCandidateResults().get(1).getVotesCount());
+        assertEquals(10, after.getPartyResults().get(0).getVoteCount());
+        // Nothing changed since: the version is kept
+        assertEquals(after.getVersion(), refreshing.getResults(1L).getVersion());
+    }
+
+    @Test
+    void unchangedTallyIsServedWithoutQueries() {
+        tallyEngine.recordVote(1L, 11L, 20L);
+        ElectionResultsDTO first = projection.getResults(1L);
+        clearInvocations(jdbcTemplate);
+
+        ElectionResultsDTO again = projection.getResults(1L);
+        assertEquals(first, again);
+
+        tallyEngine.recordVote(1L, 11L, 20L);
+        tallyEngine.recordVote(1L, 10L, null);
+        ElectionResultsDTO next = projection.getResults(1L);
+        verifyNoInteractions(jdbcTemplate);
+        assertNotEquals(first.getVersion(), next.getVersion());
+        assertEquals(7, next.getCandidateResults().get(1).getVotesCount());
+        assertEquals(10, next.getPartyResults().get(0).getVoteCount());
+    }
+
+    @Test
+    void invalidatedRecordPicksUpNewCandidates() {
+        tallyEngine.recordVote(1L, 10L, null);
+        assertEquals(2, projection.getResults(1L).getCandidateResults().size());
+        jdbcTemplate.update("INSERT INTO candidates (id, candidate_names, election_id, votes_count) VALUES (12, 'Vera', 1, 0)");
+
+        projection.invalidate(1L);
+
+        assertEquals(3, projection.getResults(1L).getCandidateResults().size());
+    }
+
+    @Test
+    void emptyElectionHasEmptyResultsAndUnknownElectionFails() {
+        ElectionResultsDTO empty = projection.getResults(2L);
+        assertEquals(0, empty.getCandidateResults().size());
+        assertThrows(RuntimeException.class, () -> projection.getResults(3L));
+    }
+}
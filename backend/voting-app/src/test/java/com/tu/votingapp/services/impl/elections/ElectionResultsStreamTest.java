@@ -0,0 +1,201 @@
+package com.tu.votingapp.services.impl.elections;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tu.votingapp.dto.response.elections.CandidateResultDTO;
+import com.tu.votingapp.dto.response.elections.ElectionResultsDTO;
+import com.tu.votingapp.dto.response.elections.PartyResultDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ElectionResultsStreamTest {
+    private ElectionResultsProjection projection;
+    private ElectionResultsStream stream;
+
+    @BeforeEach
+    void setUp() {
+        projection = mock(ElectionResultsProjection.class);
+        stream = newStream(2, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stream.stop();
+    }
+
+    @Test
+    void subscribersGetOneSnapshotThenOnlyChangedCounts() {
+        serve(results(1, 3, 5, 8));
+        CapturingEmitter first = (CapturingEmitter) stream.subscribe(1L);
+        CapturingEmitter second = (CapturingEmitter) stream.subscribe(1L);
+
+        stream.publish();
+        serve(results(2, 3, 6, 8));
+        stream.publish();
+
+        for (CapturingEmitter emitter : List.of(first, second)) {
+            await(() -> emitter.frames.size() == 2);
+            assertTrue(emitter.frames.get(0).startsWith("id:1\nevent:snapshot\n"), emitter.frames.get(0));
+            assertEquals("id:2\nevent:delta\ndata:{\"electionId\":1,\"version\":2,"
+                            + "\"candidateResults\":[{\"candidateId\":11,\"candidateName\":\"Boris\",\"votesCount\":6}],"
+                            + "\"partyResults\":[]}\n\n",
+                    emitter.frames.get(1));
+        }
+        // One read for the channel's first snapshot and one for the changed tick, however many subscribers
+        verify(projection, times(2)).getResults(1L);
+    }
+
+    @Test
+    void changedCandidateListIsSentAsSnapshot() {
+        ElectionResultsDTO before = results(1, 3, 5, 8);
+        ElectionResultsDTO after = results(2, 3, 5, 8);
+        after.getCandidateResults().add(new CandidateResultDTO(12L, "Vera", 0));
+
+        assertNull(ElectionResultsStream.delta(before, after));
+        assertEquals(1, ElectionResultsStream.delta(before, results(2, 3, 5, 9)).getPartyResults().size());
+    }
+
+    @Test
+    void subscriberLimitIsEnforcedAndFreedOnCompletion() {
+        serve(results(1, 0, 0, 0));
+        SseEmitter first = stream.subscribe(1L);
+        stream.subscribe(1L);
+
+        assertThrows(IllegalStateException.class, () -> stream.subscribe(1L));
+
+        ((CapturingEmitter) first).failNext = true;
+        serve(results(2, 1, 0, 0));
+        stream.publish();
+        await(() -> stream.subscriberCount() == 1);
+        stream.subscribe(1L);
+    }
+
+    @Test
+    void subscriberThatStopsReadingIsDroppedWithoutDelayingTheOthers() throws Exception {
+        serve(results(1, 0, 0, 0));
+        CapturingEmitter stuck = (CapturingEmitter) stream.subscribe(1L);
+        CapturingEmitter healthy = (CapturingEmitter) stream.subscribe(1L);
+        stuck.blocked = new CountDownLatch(1);
+
+        // The stuck write holds one sender; two more frames fill its queue and the fourth overflows it
+        for (int version = 2; version <= 5; version++) {
+            serve(results(version, version, 0, 0));
+            assertTimeoutPreemptively(Duration.ofSeconds(1), stream::publish);
+            int frames = version;
+            await(() -> healthy.frames.size() == frames);
+        }
+
+        assertEquals(1, stream.subscriberCount());
+        assertTrue(stuck.completed);
+        assertTrue(healthy.frames.get(4).startsWith("id:5\nevent:delta\n"), healthy.frames.get(4));
+        stuck.blocked.countDown();
+    }
+
+    @Test
+    void subscriberWithAWriteBlockedPastTheSendTimeoutIsDropped() throws Exception {
+        stream.stop();
+        stream = newStream(4, 50);
+        serve(results(1, 0, 0, 0));
+        CapturingEmitter stuck = (CapturingEmitter) stream.subscribe(1L);
+        stuck.blocked = new CountDownLatch(1);
+        serve(results(2, 1, 0, 0));
+        stream.publish();
+        await(() -> stuck.sending);
+
+        Thread.sleep(100);
+        serve(results(3, 2, 0, 0));
+        stream.publish();
+
+        assertEquals(0, stream.subscriberCount());
+        assertTrue(stuck.completed);
+        stuck.blocked.countDown();
+    }
+
+    private ElectionResultsStream newStream(int queueCapacity, long sendTimeoutMs) {
+        return new ElectionResultsStream(projection, new ObjectMapper(), new SimpleMeterRegistry(), 60_000, 60_000, 2,
+                2, queueCapacity, sendTimeoutMs) {
+            @Override
+            SseEmitter newEmitter(long timeoutMs) {
+                return new CapturingEmitter();
+            }
+        };
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.onSpinWait();
+        }
+    }
+
+    private void serve(ElectionResultsDTO results) {
+        when(projection.getVersion(1L)).thenReturn(results.getVersion());
+        when(projection.getResults(1L)).thenReturn(results);
+    }
+
+    private static ElectionResultsDTO results(long version, int ana, int boris, int blue) {
+        List<CandidateResultDTO> candidates = new ArrayList<>(List.of(
+                new CandidateResultDTO(10L, "Ana", ana), new CandidateResultDTO(11L, "Boris", boris)));
+        List<PartyResultDTO> parties = new ArrayList<>(List.of(new PartyResultDTO(20L, "Blue", blue)));
+        return new ElectionResultsDTO(1L, candidates, parties, version);
+    }
+
+    /**
+     * Records each frame as the text a client would read; once blocked is set, writes wait on it
+     * like a client that stopped reading.
+     */
+    private static class CapturingEmitter extends SseEmitter {
+        private final List<String> frames = new CopyOnWriteArrayList<>();
+        private volatile boolean failNext;
+        private volatile CountDownLatch blocked;
+        private volatile boolean sending;
+        private volatile boolean completed;
+
+        @Override
+        public void send(Set<ResponseBodyEmitter.DataWithMediaType> items) throws IOException {
+            if (failNext) {
+                throw new IOException("client went away");
+            }
+            if (blocked != null) {
+                sending = true;
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("client went away");
+            }
+            StringBuilder frame = new StringBuilder();
+            items.forEach(item -> frame.append(item.getData()));
+            frames.add(frame.toString());
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
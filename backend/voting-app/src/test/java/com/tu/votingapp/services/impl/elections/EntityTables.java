@@ -0,0 +1,80 @@
+package com.tu.votingapp.services.impl.elections;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates H2 tables with the table and column names of JPA entities, so SQL written against the
+ * mapped schema fails in tests when it names a column the entities do not have. Only names and
+ * rough types are mirrored; constraints are left out so tests can insert partial rows.
+ */
+final class EntityTables {
+    private EntityTables() {
+    }
+
+    static void create(JdbcTemplate jdbcTemplate, Class<?>... entities) {
+        for (Class<?> entity : entities) {
+            jdbcTemplate.execute(ddl(entity));
+        }
+    }
+
+    static String ddl(Class<?> entity) {
+        Table table = entity.getAnnotation(Table.class);
+        String name = table != null && !table.name().isEmpty() ? table.name() : snakeCase(entity.getSimpleName());
+        List<String> columns = new ArrayList<>();
+        for (Field field : entity.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || field.isAnnotationPresent(Transient.class)
+                    || field.isAnnotationPresent(OneToMany.class) || field.isAnnotationPresent(ManyToMany.class)) {
+                continue;
+            }
+            JoinColumn join = field.getAnnotation(JoinColumn.class);
+            if (join != null) {
+                columns.add(join.name() + " BIGINT");
+                continue;
+            }
+            Column column = field.getAnnotation(Column.class);
+            String columnName = column != null && !column.name().isEmpty() ? column.name() : snakeCase(field.getName());
+            if (field.isAnnotationPresent(Id.class)) {
+                columns.add(columnName + " BIGINT AUTO_INCREMENT PRIMARY KEY");
+            } else {
+                columns.add(columnName + " " + sqlType(field.getType()));
+            }
+        }
+        return "CREATE TABLE " + name + " (" + String.join(", ", columns) + ")";
+    }
+
+    private static String sqlType(Class<?> type) {
+        if (type == long.class || type == int.class) {
+            // Primitive counters are never null in the mapped rows
+            return (type == long.class ? "BIGINT" : "INT") + " NOT NULL DEFAULT 0";
+        }
+        if (type == Long.class) {
+            return "BIGINT";
+        }
+        if (type == Integer.class) {
+            return "INT";
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return "BOOLEAN";
+        }
+        if (java.util.Date.class.isAssignableFrom(type)) {
+            return "TIMESTAMP";
+        }
+        return "VARCHAR(255)";
+    }
+
+    private static String snakeCase(String name) {
+        return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase();
+    }
+}
@@ -0,0 +1,131 @@
+package com.tu.votingapp.services.impl.elections;
+
+import com.tu.votingapp.dto.response.elections.RecountLineDTO;
+import com.tu.votingapp.dto.response.elections.RecountReportDTO;
+import com.tu.votingapp.entities.elections.VoteTallyBaselineEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Election 1 has candidates 10 (party 20) and 11 (independent) and parties 20 and 21; its votes
+ * are interleaved with votes of election 2, so the key ranges hold rows of both.
+ */
+class RecountServiceTest {
+    private JdbcTemplate jdbcTemplate;
+    private VoteTallyEngine tallyEngine;
+    private RecountService recountService;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:recount" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE elections (id BIGINT PRIMARY KEY, election_status VARCHAR(32))");
+        jdbcTemplate.execute("CREATE TABLE candidates (id BIGINT PRIMARY KEY, election_id BIGINT, votes_count INT NOT NULL DEFAULT 0)");
+        jdbcTemplate.execute("CREATE TABLE parties (id BIGINT PRIMARY KEY, election_id BIGINT)");
+        EntityTables.create(jdbcTemplate, VoteTallyBaselineEntity.class);
+        jdbcTemplate.execute("CREATE TABLE party_votes (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "election_id BIGINT, party_id BIGINT, vote_count INT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE votes (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT, "
+                + "election_id BIGINT, candidate_id BIGINT, party_id BIGINT)");
+        jdbcTemplate.update("INSERT INTO elections (id, election_status) VALUES (1, 'CLOSED'), (2, 'OPEN'), (4, 'ENDED'), "
+                + "(5, 'DRAFT'), (6, 'PLANNED'), (7, 'SCHEDULED')");
+        jdbcTemplate.update("INSERT INTO candidates (id, election_id) VALUES (10, 1), (11, 1), (30, 2)");
+        jdbcTemplate.update("INSERT INTO parties (id, election_id) VALUES (20, 1), (21, 1)");
+        List<Object[]> votes = new ArrayList<>();
+        for (int user = 0; user < 5_000; user++) {
+            switch (user % 4) {
+                case 0 -> votes.add(new Object[]{user, 1, 10L, 20L});
+                case 1 -> votes.add(new Object[]{user, 1, 11L, null});
+                case 2 -> votes.add(new Object[]{user, 1, null, 20L});
+                default -> votes.add(new Object[]{user, 2, 30L, null});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO votes (user_id, election_id, candidate_id, party_id) VALUES (?, ?, ?, ?)", votes);
+        // The stored counters as the tally flushes leave them
+        jdbcTemplate.update("UPDATE candidates SET votes_count = (SELECT COUNT(*) FROM votes v WHERE v.candidate_id = candidates.id)");
+        jdbcTemplate.update("INSERT INTO party_votes (election_id, party_id, vote_count) "
+                + "SELECT election_id, party_id, COUNT(*) FROM votes WHERE party_id IS NOT NULL GROUP BY election_id, party_id");
+        tallyEngine = new VoteTallyEngine(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+        tallyEngine.rebuild();
+        recountService = new RecountService(jdbcTemplate, tallyEngine, 4, 300, "secret", "token-secret");
+    }
+
+    @AfterEach
+    void tearDown() {
+        recountService.stop();
+    }
+
+    @Test
+    void matchingCountersGiveAConsistentSignedReport() {
+        RecountReportDTO report = recountService.recount(1L);
+
+        assertTrue(report.isConsistent());
+        assertEquals(3_750, report.getVotesScanned());
+        assertTrue(report.getRanges() > 1);
+        assertEquals(1_250, line(report.getCandidates(), 10L).getRecounted());
+        assertEquals(2_500, line(report.getParties(), 20L).getRecounted());
+        // Nobody voted for party 21, so it has no party_votes row yet
+        assertEquals(0, line(report.getParties(), 21L).getRecounted());
+        assertTrue(line(report.getParties(), 21L).isMatches());
+        assertTrue(recountService.verify(report));
+
+        report.setPayload(report.getPayload().replace("|true|", "|false|"));
+        assertFalse(recountService.verify(report));
+    }
+
+    @Test
+    void driftedCounterIsReported() {
+        jdbcTemplate.update("UPDATE candidates SET votes_count = votes_count + 1 WHERE id = 11");
+        tallyEngine.recordVote(1L, null, 20L);
+
+        RecountReportDTO report = recountService.recount(1L);
+
+        assertFalse(report.isConsistent());
+        RecountLineDTO candidate = line(report.getCandidates(), 11L);
+        assertEquals(1_250, candidate.getRecounted());
+        assertEquals(1_251L, candidate.getStored());
+        assertFalse(candidate.isMatches());
+        RecountLineDTO party = line(report.getParties(), 20L);
+        // The extra tally vote was flushed to party_votes before the recount read it
+        assertEquals(2_501L, party.getTally());
+        assertEquals(2_501L, party.getStored());
+        assertFalse(party.isMatches());
+        assertTrue(line(report.getCandidates(), 10L).isMatches());
+    }
+
+    @Test
+    void onlyEndedElectionsAreRecounted() {
+        for (long electionId : new long[]{2L, 5L, 6L, 7L}) {
+            assertThrows(IllegalStateException.class, () -> recountService.recount(electionId));
+        }
+        assertTrue(recountService.recount(4L).isConsistent());
+        assertThrows(RuntimeException.class, () -> recountService.recount(3L));
+    }
+
+    @Test
+    void recountNeedsASigningKeyThatDiffersFromTheTokenSecret() {
+        // Without a key the application starts, but recounts are refused
+        RecountService unsigned = new RecountService(jdbcTemplate, tallyEngine, 1, 300, "", "token-secret");
+        assertThrows(IllegalStateException.class, () -> unsigned.recount(1L));
+        unsigned.stop();
+        assertThrows(IllegalStateException.class,
+                () -> new RecountService(jdbcTemplate, tallyEngine, 1, 300, "token-secret", "token-secret"));
+    }
+
+    private static RecountLineDTO line(List<RecountLineDTO> lines, Long id) {
+        return lines.stream().filter(l -> l.getId().equals(id)).findFirst().orElseThrow();
+    }
+}
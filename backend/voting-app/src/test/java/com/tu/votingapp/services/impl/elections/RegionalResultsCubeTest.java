@@ -0,0 +1,131 @@
+package com.tu.votingapp.services.impl.elections;
+
+import com.tu.votingapp.dto.response.elections.AreaResultsDTO;
+import com.tu.votingapp.dto.response.elections.CandidateResultDTO;
+import com.tu.votingapp.dto.response.elections.ElectionResultsDTO;
+import com.tu.votingapp.dto.response.elections.PartyResultDTO;
+import com.tu.votingapp.enums.AreaLevel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Region 1 holds municipalities 10 (population 100, locations 100 and 101) and 11 (population 300,
+ * location 110); region 2 holds municipality 20 without a known population (location 200).
+ */
+class RegionalResultsCubeTest {
+    private JdbcTemplate jdbcTemplate;
+    private ElectionResultsProjection projection;
+    private RegionalResultsCube cube;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:cube" + System.nanoTime() + ";MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE region_entity (id BIGINT PRIMARY KEY, region_name VARCHAR(255), population INT)");
+        jdbcTemplate.execute("CREATE TABLE municipality_entity (id BIGINT PRIMARY KEY, name VARCHAR(255), "
+                + "population BIGINT, region_id BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE location_entity (id BIGINT PRIMARY KEY, name VARCHAR(255), municipality_id BIGINT)");
+        jdbcTemplate.execute("CREATE SCHEMA voting");
+        jdbcTemplate.execute("CREATE TABLE voting.user (id BIGINT PRIMARY KEY, location_id BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE votes (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT, "
+                + "election_id BIGINT, candidate_id BIGINT, party_id BIGINT)");
+        jdbcTemplate.update("INSERT INTO region_entity (id, region_name) VALUES (1, 'North'), (2, 'South')");
+        jdbcTemplate.update("INSERT INTO municipality_entity (id, name, population, region_id) VALUES "
+                + "(10, 'Hill', 100, 1), (11, 'Lake', 300, 1), (20, 'Coast', NULL, 2)");
+        jdbcTemplate.update("INSERT INTO location_entity (id, name, municipality_id) VALUES "
+                + "(100, 'Hill A', 10), (101, 'Hill B', 10), (110, 'Lake A', 11), (200, 'Coast A', 20)");
+        jdbcTemplate.update("INSERT INTO voting.user (id, location_id) VALUES (1, 100), (2, 101), (3, 110)");
+        jdbcTemplate.update("INSERT INTO votes (user_id, election_id, candidate_id, party_id) VALUES "
+                + "(1, 7, 70, 80), (2, 7, 71, NULL), (3, 7, 70, 80)");
+
+        projection = mock(ElectionResultsProjection.class);
+        for (long electionId : new long[]{7L, 8L}) {
+            when(projection.getResults(electionId)).thenReturn(new ElectionResultsDTO(electionId,
+                    List.of(new CandidateResultDTO(70L, "Ana", 0), new CandidateResultDTO(71L, "Boris", 0)),
+                    List.of(new PartyResultDTO(80L, "Blue", 0)), 1));
+        }
+        cube = new RegionalResultsCube(jdbcTemplate, projection, 60_000);
+        cube.rebuild();
+    }
+
+    @Test
+    void storedVotesAreRolledUpToMunicipalityAndRegion() {
+        AreaResultsDTO north = cube.getRegion(7L, 1L);
+        assertEquals(AreaLevel.REGION, north.getLevel());
+        assertEquals(3, north.getBallots());
+        assertEquals(400L, north.getPopulation());
+        assertEquals(0.0075, north.getTurnout(), 1e-9);
+        assertEquals(2, north.getCandidateResults().get(0).getVotesCount());
+        assertEquals(1, north.getCandidateResults().get(1).getVotesCount());
+        assertEquals(2, north.getPartyResults().get(0).getVoteCount());
+
+        List<AreaResultsDTO> municipalities = cube.getMunicipalities(7L, 1L);
+        assertEquals(List.of(10L, 11L), municipalities.stream().map(AreaResultsDTO::getAreaId).toList());
+        assertEquals(2, municipalities.get(0).getBallots());
+        assertEquals(0.02, municipalities.get(0).getTurnout(), 1e-9);
+
+        List<AreaResultsDTO> locations = cube.getLocations(7L, 10L);
+        assertEquals(1, locations.get(0).getCandidateResults().get(0).getVotesCount());
+        assertEquals(1, locations.get(1).getCandidateResults().get(1).getVotesCount());
+    }
+
+    @Test
+    void countedBallotsUpdateEveryLevel() {
+        cube.recordVote(4L, 7L, 200L, 71L, null);
+        cube.recordVote(5L, 7L, 110L, 71L, 80L);
+
+        AreaResultsDTO south = cube.getRegion(7L, 2L);
+        assertEquals(1, south.getBallots());
+        assertNull(south.getTurnout());
+        assertEquals(1, south.getCandidateResults().get(1).getVotesCount());
+        assertEquals(2, cube.getMunicipality(7L, 11L).getBallots());
+        assertEquals(4, cube.getRegion(7L, 1L).getBallots());
+    }
+
+    @Test
+    void votesStoredByOtherNodesAreAddedOnRefreshAndOwnVotesOnlyOnce() {
+        jdbcTemplate.update("INSERT INTO voting.user (id, location_id) VALUES (4, 200), (5, 110)");
+        // Vote 4 is counted here; vote 5 comes from another node
+        jdbcTemplate.update("INSERT INTO votes (id, user_id, election_id, candidate_id, party_id) VALUES "
+                + "(4, 4, 7, 71, NULL), (5, 5, 7, 70, 80)");
+        cube.recordVote(4L, 7L, 200L, 71L, null);
+
+        cube.refresh();
+
+        assertEquals(1, cube.getRegion(7L, 2L).getBallots());
+        AreaResultsDTO lake = cube.getMunicipality(7L, 11L);
+        assertEquals(2, lake.getBallots());
+        assertEquals(2, lake.getCandidateResults().get(0).getVotesCount());
+        assertEquals(2, lake.getPartyResults().get(0).getVoteCount());
+
+        // Reported by the pipeline after the refresh already read it, and read again before the floor moves
+        cube.recordVote(5L, 7L, 110L, 70L, 80L);
+        cube.refresh();
+        cube.refresh();
+        assertEquals(2, cube.getMunicipality(7L, 11L).getBallots());
+        assertEquals(4, cube.getRegion(7L, 1L).getBallots());
+    }
+
+    @Test
+    void locationsAddedLaterAreLoadedOnFirstUse() {
+        RegionalResultsCube fresh = new RegionalResultsCube(jdbcTemplate, projection, 0);
+        fresh.rebuild();
+        jdbcTemplate.update("INSERT INTO location_entity (id, name, municipality_id) VALUES (201, 'Coast B', 20)");
+
+        fresh.recordVote(4L, 8L, 201L, null, 80L);
+
+        assertEquals(1, fresh.getRegion(8L, 2L).getPartyResults().get(0).getVoteCount());
+        assertEquals(List.of(200L, 201L), fresh.getLocations(8L, 20L).stream().map(AreaResultsDTO::getAreaId).toList());
+        assertThrows(RuntimeException.class, () -> fresh.getMunicipality(8L, 99L));
+    }
+}
@@ -0,0 +1,183 @@
+package com.tu.votingapp.services.impl.elections;
+
+import com.tu.votingapp.dto.general.elections.VoteDTO;
+import com.tu.votingapp.services.impl.VoterParticipationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class VoteIngestionPipelineTest {
+    private JdbcTemplate jdbcTemplate;
+    private VoteTallyEngine tallyEngine;
+    private RegionalResultsCube resultsCube;
+    private VoterParticipationRegistry participationRegistry;
+    private VoteIngestionPipeline pipeline;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        pipeline.stop();
+    }
+
+    @Test
+    void concurrentBallotsShareOneInsert() throws Exception {
+        start(50, 5_000);
+        AtomicInteger inserts = countVoteInserts();
+
+        List<CompletableFuture<VoteDTO>> votes = new ArrayList<>();
+        for (long user = 1; user <= 20; user++) {
+            long voter = user;
+            votes.add(CompletableFuture.supplyAsync(() -> pipeline.submit(voter, 1L, 10L, null, 100L)));
+        }
+        for (CompletableFuture<VoteDTO> vote : votes) {
+            assertNotNull(vote.get(5, TimeUnit.SECONDS).getId());
+        }
+
+        assertEquals(20, count("SELECT COUNT(*) FROM votes"));
+        assertEquals(20, count("SELECT COUNT(*) FROM vote_event_outbox"));
+        assertTrue(inserts.get() < 20, "ballots should be grouped, got " + inserts.get() + " inserts");
+        verify(tallyEngine, times(20)).recordVote(1L, 10L, null);
+    }
+
+    @Test
+    void duplicateBallotFailsAloneAfterRowByRowRetry() throws Exception {
+        start(200, 5_000);
+        pipeline.submit(1L, 1L, 10L, null, null);
+
+        CompletableFuture<VoteDTO> duplicate = CompletableFuture.supplyAsync(() -> pipeline.submit(1L, 1L, 11L, null, null));
+        CompletableFuture<VoteDTO> fresh = CompletableFuture.supplyAsync(() -> pipeline.submit(2L, 1L, 11L, null, null));
+
+        assertNotNull(fresh.get(5, TimeUnit.SECONDS).getId());
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> duplicate.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DataIntegrityViolationException.class, failure.getCause());
+        assertEquals(2, count("SELECT COUNT(*) FROM votes"));
+        assertEquals(2, count("SELECT COUNT(*) FROM vote_event_outbox"));
+    }
+
+    @Test
+    void committedBallotIsConfirmedWhenAViewFailsToTakeIt() {
+        start(0, 5_000);
+        doThrow(new IllegalStateException("hierarchy unavailable"))
+                .when(resultsCube).recordVote(any(), eq(1L), any(), any(), any());
+
+        VoteDTO vote = pipeline.submit(1L, 1L, 10L, null, 100L);
+
+        assertNotNull(vote.getId());
+        assertEquals(1, count("SELECT COUNT(*) FROM votes"));
+        // The failed view is rebuilt from the stored votes, the others still count the ballot
+        verify(resultsCube, timeout(5_000)).rebuild();
+        verify(tallyEngine).recordVote(1L, 10L, null);
+        verify(participationRegistry, timeout(5_000)).markElectionVoted(1L, 1L);
+    }
+
+    @Test
+    void slowBatchTimesOutBallotsStillQueuedOrInFlight() throws Exception {
+        start(0, 200);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(jdbcTemplate).update(any(PreparedStatementCreator.class), any(KeyHolder.class));
+
+        IllegalStateException inFlight = assertThrows(IllegalStateException.class,
+                () -> pipeline.submit(1L, 1L, 10L, null, null));
+        IllegalStateException queued = assertThrows(IllegalStateException.class,
+                () -> pipeline.submit(2L, 1L, 11L, null, null));
+        release.countDown();
+
+        assertTrue(inFlight.getMessage().contains("may still be recorded"), inFlight.getMessage());
+        assertTrue(queued.getMessage().contains("was not recorded"), queued.getMessage());
+        // The first batch commits once released; the second ballot was taken off the queue before the writer saw it
+        pipeline.stop();
+        assertEquals(1, count("SELECT COUNT(*) FROM votes"));
+    }
+
+    @Test
+    void writerDrainsTheQueueOnStopWithoutASecondWriter() throws Exception {
+        start(0, 1_000);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                return invocation.callRealMethod();
+            } finally {
+                active.decrementAndGet();
+            }
+        }).when(jdbcTemplate).update(any(PreparedStatementCreator.class), any(KeyHolder.class));
+        // The first batch stays in the writer for a while after its commit
+        doAnswer(invocation -> {
+            Thread.sleep(300);
+            return null;
+        }).when(tallyEngine).recordVote(eq(1L), eq(10L), any());
+
+        CompletableFuture<VoteDTO> first = CompletableFuture.supplyAsync(() -> pipeline.submit(1L, 1L, 10L, null, null));
+        Thread.sleep(100);
+        CompletableFuture<VoteDTO> second = CompletableFuture.supplyAsync(() -> pipeline.submit(2L, 1L, 11L, null, null));
+        Thread.sleep(50);
+
+        pipeline.stop();
+
+        assertNotNull(first.get(5, TimeUnit.SECONDS).getId());
+        assertNotNull(second.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(1, maxActive.get());
+        assertEquals(2, count("SELECT COUNT(*) FROM votes"));
+        assertThrows(IllegalStateException.class, () -> pipeline.submit(3L, 1L, 10L, null, null));
+    }
+
+    private void start(long lingerMs, long maxWaitMs) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:ingest" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = spy(new JdbcTemplate(dataSource));
+        jdbcTemplate.execute("CREATE TABLE votes (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT, election_id BIGINT, "
+                + "candidate_id BIGINT, party_id BIGINT, vote_timestamp DATE, UNIQUE (user_id, election_id))");
+        jdbcTemplate.execute("CREATE TABLE vote_event_outbox (id BIGINT AUTO_INCREMENT PRIMARY KEY, election_id BIGINT, "
+                + "candidate_id BIGINT, party_id BIGINT, location_id BIGINT, event_timestamp BIGINT)");
+        tallyEngine = mock(VoteTallyEngine.class);
+        resultsCube = mock(RegionalResultsCube.class);
+        participationRegistry = mock(VoterParticipationRegistry.class);
+        pipeline = new VoteIngestionPipeline(jdbcTemplate, new DataSourceTransactionManager(dataSource), tallyEngine,
+                resultsCube, participationRegistry, 100, 50, lingerMs, maxWaitMs);
+        pipeline.start();
+    }
+
+    private AtomicInteger countVoteInserts() {
+        AtomicInteger inserts = new AtomicInteger();
+        doAnswer(invocation -> {
+            inserts.incrementAndGet();
+            return invocation.callRealMethod();
+        }).when(jdbcTemplate).update(any(PreparedStatementCreator.class), any(KeyHolder.class));
+        return inserts;
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
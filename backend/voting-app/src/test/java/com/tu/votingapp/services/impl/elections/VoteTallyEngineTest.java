@@ -0,0 +1,150 @@
+package com.tu.votingapp.services.impl.elections;
+
+import com.tu.votingapp.entities.elections.VoteTallyBaselineEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VoteTallyEngineTest {
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private VoteTallyEngine tallyEngine;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:tally" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE candidates (id BIGINT PRIMARY KEY, election_id BIGINT, votes_count INT NOT NULL DEFAULT 0)");
+        jdbcTemplate.execute("CREATE TABLE party_votes (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "election_id BIGINT, party_id BIGINT, vote_count INT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE votes (id BIGINT AUTO_INCREMENT PRIMARY KEY, election_id BIGINT, "
+                + "candidate_id BIGINT, party_id BIGINT)");
+        EntityTables.create(jdbcTemplate, VoteTallyBaselineEntity.class);
+        jdbcTemplate.update("INSERT INTO candidates (id, election_id, votes_count) VALUES (10, 1, 0), (11, 1, 0)");
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        tallyEngine = new VoteTallyEngine(jdbcTemplate, transactionManager);
+    }
+
+    @Test
+    void flushWritesDeltasAndCreatesMissingPartyRows() {
+        tallyEngine.rebuild();
+        tallyEngine.recordVote(1L, 10L, 20L);
+        tallyEngine.recordVote(1L, 10L, null);
+        tallyEngine.flush();
+        tallyEngine.recordVote(1L, 11L, 20L);
+        tallyEngine.flush();
+        // Nothing left to write
+        tallyEngine.flush();
+
+        assertEquals(2, storedCandidate(10L));
+        assertEquals(1, storedCandidate(11L));
+        assertEquals(2, storedParty(20L));
+        assertEquals(3, tallyEngine.getVersion(1L));
+    }
+
+    @Test
+    void failedFlushIsRetried() {
+        tallyEngine.rebuild();
+        tallyEngine.recordVote(1L, 10L, 20L);
+        jdbcTemplate.execute("ALTER TABLE party_votes RENAME TO party_votes_offline");
+        tallyEngine.flush();
+        // The failed transaction rolled back the candidate update as well
+        assertEquals(0, storedCandidate(10L));
+
+        jdbcTemplate.execute("ALTER TABLE party_votes_offline RENAME TO party_votes");
+        tallyEngine.recordVote(1L, 10L, null);
+        tallyEngine.flush();
+
+        assertEquals(2, storedCandidate(10L));
+        assertEquals(1, storedParty(20L));
+    }
+
+    @Test
+    void firstRebuildReconcilesTheStoredCountersOnce() {
+        // Ballots cast before the write-behind tally existed never reached the counters
+        jdbcTemplate.update("INSERT INTO votes (election_id, candidate_id, party_id) VALUES (1, 10, 20), (1, 10, NULL), (1, 11, 20)");
+
+        tallyEngine.rebuild();
+
+        assertEquals(2, storedCandidate(10L));
+        assertEquals(1, storedCandidate(11L));
+        assertEquals(2, storedParty(20L));
+        assertEquals(2, tallyEngine.getCandidateCount(1L, 10L));
+        tallyEngine.recordVote(1L, 10L, 20L);
+        tallyEngine.flush();
+        assertEquals(3, storedCandidate(10L));
+        assertEquals(3, storedParty(20L));
+
+        // Later starts leave the counters to the deltas
+        jdbcTemplate.update("INSERT INTO votes (election_id, candidate_id) VALUES (1, 11)");
+        new VoteTallyEngine(jdbcTemplate, transactionManager).rebuild();
+        assertEquals(1, storedCandidate(11L));
+    }
+
+    @Test
+    void rebuildCountsStoredVotesWithoutOverwritingTheCounters() {
+        recordBaseline();
+        jdbcTemplate.update("INSERT INTO votes (election_id, candidate_id, party_id) VALUES (1, 10, 20), (1, 10, NULL), (1, 11, 20)");
+        // Another node has counted the third ballot but not flushed it yet
+        jdbcTemplate.update("UPDATE candidates SET votes_count = 2 WHERE id = 10");
+        jdbcTemplate.update("INSERT INTO party_votes (election_id, party_id, vote_count) VALUES (1, 20, 1)");
+
+        tallyEngine.rebuild();
+
+        assertEquals(2, tallyEngine.getCandidateCount(1L, 10L));
+        assertEquals(1, tallyEngine.getCandidateCount(1L, 11L));
+        assertEquals(2, tallyEngine.getPartyCount(1L, 20L));
+        assertTrue(tallyEngine.getVersion(1L) > 0);
+        assertEquals(0, storedCandidate(11L));
+        assertEquals(1, storedParty(20L));
+        // Rebuilt totals are not deltas, so a flush writes nothing
+        tallyEngine.flush();
+        assertEquals(2, storedCandidate(10L));
+    }
+
+    @Test
+    void rebuildAtRuntimeFlushesThePendingDeltasFirst() {
+        tallyEngine.rebuild();
+        jdbcTemplate.update("INSERT INTO votes (election_id, candidate_id) VALUES (1, 10), (1, 10)");
+        tallyEngine.recordVote(1L, 10L, null);
+        tallyEngine.recordVote(1L, 10L, null);
+
+        tallyEngine.rebuild();
+
+        assertEquals(2, storedCandidate(10L));
+        assertEquals(2, tallyEngine.getCandidateCount(1L, 10L));
+        tallyEngine.flush();
+        assertEquals(2, storedCandidate(10L));
+    }
+
+    @Test
+    void failedRebuildKeepsDeltasButHidesTheTotals() {
+        jdbcTemplate.execute("DROP TABLE votes");
+
+        tallyEngine.rebuild();
+        tallyEngine.recordVote(1L, 10L, null);
+
+        assertEquals(-1, tallyEngine.getVersion(1L));
+        tallyEngine.flush();
+        assertEquals(1, storedCandidate(10L));
+    }
+
+    private void recordBaseline() {
+        jdbcTemplate.update("INSERT INTO vote_tally_baseline (id, reconciled_at) VALUES (1, 0)");
+    }
+
+    private int storedCandidate(Long id) {
+        return jdbcTemplate.queryForObject("SELECT votes_count FROM candidates WHERE id = ?", Integer.class, id);
+    }
+
+    private int storedParty(Long partyId) {
+        return jdbcTemplate.queryForObject("SELECT vote_count FROM party_votes WHERE election_id = 1 AND party_id = ?",
+                Integer.class, partyId);
+    }
+}
@@ -0,0 +1,149 @@
+package com.tu.votingapp.services.impl.stream;
+
+import com.tu.votingapp.analytics.voting.AggregatorCheckpointService;
+import com.tu.votingapp.analytics.voting.FeatureAggregator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LocalVoteEventTransportTest {
+
+    private final FeatureAggregator aggregator = mock(FeatureAggregator.class);
+    private final Map<Long, List<Long>> applied = new ConcurrentHashMap<>();
+    private LocalVoteEventTransport transport;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        transport.stop();
+    }
+
+    @Test
+    void appliesEveryEventOncePerElectionInOrderAcrossRingLaps() throws Exception {
+        recordApplied(null);
+        transport = newTransport(16, 3);
+
+        long timestamp = 0;
+        long outboxId = 1;
+        for (int batch = 0; batch < 50; batch++) {
+            List<VoteEvent> events = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                long electionId = 1 + (batch + i) % 5;
+                boolean party = i % 2 == 0;
+                events.add(new VoteEvent(electionId, party ? null : 100L + i, party ? 200L : null,
+                        i % 3 == 0 ? null : 7L, timestamp++));
+            }
+            transport.publish(events, ids(outboxId, events.size()), 1000);
+            outboxId += events.size();
+        }
+        transport.stop();
+
+        assertEquals(500, applied.values().stream().mapToInt(List::size).sum());
+        for (List<Long> timestamps : applied.values()) {
+            for (int i = 1; i < timestamps.size(); i++) {
+                assertTrue(timestamps.get(i - 1) < timestamps.get(i));
+            }
+        }
+        assertEquals(0, transport.backlog());
+    }
+
+    @Test
+    void refusesTheWholeBatchWhileTheRingIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        recordApplied(release);
+        transport = newTransport(8, 1);
+
+        transport.publish(events(1L, 0, 8), ids(1, 8), 1000);
+        assertThrows(IllegalStateException.class, () -> transport.publish(events(1L, 8, 4), ids(9, 4), 50));
+        assertThrows(IllegalArgumentException.class, () -> transport.publish(events(1L, 8, 9), ids(9, 9), 50));
+
+        release.countDown();
+        transport.publish(events(1L, 8, 4), ids(9, 4), 1000);
+        transport.stop();
+
+        List<Long> expected = new ArrayList<>();
+        for (long t = 0; t < 12; t++) {
+            expected.add(t);
+        }
+        assertEquals(expected, applied.get(1L));
+    }
+
+    @Test
+    void shardsSkipWhatTheirCheckpointHoldsAndReportWhatTheyApplied() throws Exception {
+        recordApplied(null);
+        AggregatorCheckpointService checkpoints = mockCheckpoints();
+        // Shard 0 (even elections) was checkpointed up to outbox id 4, shard 1 up to id 2
+        when(checkpoints.localOffset(0)).thenReturn(5L);
+        when(checkpoints.localOffset(1)).thenReturn(3L);
+        when(checkpoints.getCheckpointedLocalOffset()).thenReturn(3L);
+        transport = new LocalVoteEventTransport(aggregator, checkpoints, new SimpleMeterRegistry(), 16, 2);
+
+        // The relay resumes from id 3 after the restart
+        List<VoteEvent> events = new ArrayList<>();
+        for (long id = 3; id <= 8; id++) {
+            events.add(new VoteEvent(id % 2 == 0 ? 2L : 1L, 10L, null, 5L, id));
+        }
+        transport.publish(events, ids(3, 6), 1000);
+        transport.stop();
+
+        assertEquals(List.of(6L, 8L), applied.get(2L));
+        assertEquals(List.of(3L, 5L, 7L), applied.get(1L));
+        verify(checkpoints).consumed(AggregatorCheckpointService.LOCAL_TOPIC, 0, 9);
+        verify(checkpoints).consumed(AggregatorCheckpointService.LOCAL_TOPIC, 1, 9);
+        assertEquals(3L, transport.durableBefore());
+    }
+
+    private LocalVoteEventTransport newTransport(int capacity, int consumers) {
+        return new LocalVoteEventTransport(aggregator, mockCheckpoints(), new SimpleMeterRegistry(), capacity, consumers);
+    }
+
+    private static AggregatorCheckpointService mockCheckpoints() {
+        AggregatorCheckpointService checkpoints = mock(AggregatorCheckpointService.class);
+        when(checkpoints.batchLock()).thenReturn(new ReentrantReadWriteLock().readLock());
+        return checkpoints;
+    }
+
+    private static long[] ids(long first, int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = first + i;
+        }
+        return ids;
+    }
+
+    private void recordApplied(CountDownLatch gate) {
+        doAnswer(inv -> {
+            if (gate != null) {
+                gate.await(5, TimeUnit.SECONDS);
+            }
+            applied.computeIfAbsent(inv.getArgument(0), k -> new CopyOnWriteArrayList<>()).add(inv.getArgument(4));
+            return null;
+        }).when(aggregator).aggregateVote(anyLong(), anyBoolean(), anyLong(), anyLong(), anyLong());
+    }
+
+    private static List<VoteEvent> events(Long electionId, long firstTimestamp, int count) {
+        List<VoteEvent> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            events.add(new VoteEvent(electionId, 10L, null, 5L, firstTimestamp + i));
+        }
+        return events;
+    }
+}
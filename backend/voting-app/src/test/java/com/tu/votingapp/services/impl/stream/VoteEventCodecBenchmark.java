@@ -0,0 +1,108 @@
+package com.tu.votingapp.services.impl.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a poll of vote events from the previous JSON payload (StringDeserializer + Jackson)
+ * with the binary codec, both as {@link VoteEvent} objects and through the {@link VoteEventFlyweight}.
+ * Not part of the test run; start it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.tu.votingapp.services.impl.stream.VoteEventCodecBenchmark}
+ * or from the IDE. Pass -prof gc to the runner to see allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VoteEventCodecBenchmark {
+    private static final int POLL_SIZE = 2000;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final VoteEventFlyweight view = new VoteEventFlyweight();
+
+    private byte[][] jsonPoll;
+    private byte[][] binaryPoll;
+    private VoteEvent[] events;
+
+    @Setup
+    public void setUp() throws Exception {
+        events = new VoteEvent[POLL_SIZE];
+        jsonPoll = new byte[POLL_SIZE][];
+        binaryPoll = new byte[POLL_SIZE][];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < POLL_SIZE; i++) {
+            VoteEvent event = new VoteEvent((long) (i % 4), 1000L + i % 37, i % 3 == 0 ? null : 50L + i % 7, 200L + i % 101, now + i);
+            events[i] = event;
+            jsonPoll[i] = mapper.writeValueAsBytes(event);
+            binaryPoll[i] = VoteEventCodec.encode(event);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POLL_SIZE)
+    public void decodeJson(Blackhole bh) throws Exception {
+        for (byte[] payload : jsonPoll) {
+            VoteEvent event = mapper.readValue(new String(payload, StandardCharsets.UTF_8), VoteEvent.class);
+            bh.consume(event.getElectionId());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POLL_SIZE)
+    public void decodeBinary(Blackhole bh) {
+        for (byte[] payload : binaryPoll) {
+            bh.consume(VoteEventCodec.decode(payload).getElectionId());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POLL_SIZE)
+    public void decodeFlyweight(Blackhole bh) {
+        for (byte[] payload : binaryPoll) {
+            view.wrap(payload);
+            bh.consume(view.electionId());
+            bh.consume(view.choiceId());
+            bh.consume(view.timestamp());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POLL_SIZE)
+    public void encodeJson(Blackhole bh) throws Exception {
+        for (VoteEvent event : events) {
+            bh.consume(mapper.writeValueAsString(event).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POLL_SIZE)
+    public void encodeBinary(Blackhole bh) {
+        for (VoteEvent event : events) {
+            bh.consume(VoteEventCodec.encode(event));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(VoteEventCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,68 @@
+package com.tu.votingapp.services.impl.stream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VoteEventCodecTest {
+
+    @Test
+    void roundTripsThroughSerializerAndCodec() {
+        VoteEvent candidateVote = new VoteEvent(7L, 42L, 3L, 11L, 1_700_000_000_123L);
+        VoteEvent partyVote = new VoteEvent(Long.MAX_VALUE, null, 9L, null, 0L);
+        VoteEvent independentVote = new VoteEvent(1L, 5L, null, 12L, -1L);
+
+        for (VoteEvent event : new VoteEvent[]{candidateVote, partyVote, independentVote}) {
+            byte[] bytes = new VoteEventSerializer().serialize("votes", event);
+            assertEquals(VoteEventCodec.SIZE, bytes.length);
+            assertEquals(event, VoteEventCodec.decode(bytes));
+        }
+    }
+
+    @Test
+    void flyweightReadsFieldsInPlaceAndCanBeReused() {
+        VoteEventFlyweight view = new VoteEventFlyweight();
+
+        view.wrap(VoteEventCodec.encode(new VoteEvent(7L, 42L, 3L, 11L, 99L)));
+        assertEquals(7L, view.electionId());
+        assertTrue(view.hasCandidate());
+        assertEquals(42L, view.choiceId());
+        assertEquals(99L, view.timestamp());
+        assertTrue(view.hasLocation());
+        assertEquals(11L, view.locationId());
+
+        view.wrap(VoteEventCodec.encode(new VoteEvent(8L, null, 9L, null, 100L)));
+        assertEquals(8L, view.electionId());
+        assertFalse(view.hasCandidate());
+        assertTrue(view.hasParty());
+        assertEquals(9L, view.choiceId());
+        assertFalse(view.hasLocation());
+    }
+
+    @Test
+    void readsVersionOneEventsWithoutLocation() {
+        byte[] v2 = VoteEventCodec.encode(new VoteEvent(7L, 42L, null, 11L, 99L));
+        byte[] v1 = Arrays.copyOf(v2, VoteEventCodec.SIZE_V1);
+        v1[0] = 1;
+        v1[1] = 1; // candidate flag only
+
+        assertEquals(new VoteEvent(7L, 42L, null, null, 99L), VoteEventCodec.decode(v1));
+    }
+
+    @Test
+    void rejectsUnknownVersionAndWrongLength() {
+        byte[] bytes = VoteEventCodec.encode(new VoteEvent(1L, 2L, null, 4L, 3L));
+        byte[] copy = bytes.clone();
+        copy[0] = 3;
+
+        assertThrows(IllegalArgumentException.class, () -> VoteEventCodec.decode(copy));
+        assertThrows(IllegalArgumentException.class, () -> new VoteEventFlyweight().wrap(new byte[10]));
+        assertArrayEquals(bytes, VoteEventCodec.encode(VoteEventCodec.decode(bytes)));
+    }
+}
@@ -0,0 +1,207 @@
+package com.tu.votingapp.services.impl.stream;
+
+import com.tu.votingapp.KafkaConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the outbox relay against an in-memory database and Kafka's MockProducer standing in for the broker.
+ */
+class VoteEventOutboxRelayTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private MockProducer<String, VoteEvent> producer;
+    private VoteEventOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:outbox" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate.execute("CREATE TABLE vote_event_outbox (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "election_id BIGINT NOT NULL, candidate_id BIGINT, party_id BIGINT, location_id BIGINT, event_timestamp BIGINT NOT NULL, "
+                + "claimed_until BIGINT)");
+        // KafkaTemplate closes non-shared producers after each send; keep this one open like a real shared producer
+        producer = new MockProducer<>(true, new StringSerializer(), new VoteEventSerializer()) {
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+        KafkaTemplate<String, VoteEvent> kafkaTemplate = new KafkaTemplate<>(new MockProducerFactory<>(() -> producer));
+        relay = new VoteEventOutboxRelay(jdbcTemplate, transactionManager, new KafkaVoteEventTransport(kafkaTemplate), new SimpleMeterRegistry(), 2, 1000);
+    }
+
+    @Test
+    void relaysAllEventsKeyedByElectionAndEmptiesOutbox() {
+        insertEvent(1L, 10L, null);
+        insertEvent(1L, null, 20L);
+        insertEvent(2L, 30L, 21L);
+
+        relay.relay();
+
+        List<ProducerRecord<String, VoteEvent>> sent = producer.history();
+        assertEquals(3, sent.size());
+        assertEquals(KafkaConfig.VOTES_TOPIC, sent.get(0).topic());
+        assertEquals("1", sent.get(0).key());
+        assertEquals("1", sent.get(1).key());
+        assertEquals("2", sent.get(2).key());
+        assertEquals(new VoteEvent(2L, 30L, 21L, 5L, sent.get(2).value().getTimestamp()), sent.get(2).value());
+        assertEquals(0, outboxSize());
+    }
+
+    @Test
+    void keepsEventsWhileBrokerIsDownAndRelaysThemAfterwards() {
+        insertEvent(1L, 10L, null);
+        insertEvent(1L, 11L, null);
+        producer.sendException = new KafkaException("broker unavailable");
+
+        relay.relay();
+
+        assertEquals(2, outboxSize());
+
+        producer.sendException = null;
+        relay.relay();
+
+        assertEquals(2, producer.history().size());
+        assertEquals(0, outboxSize());
+    }
+
+    @Test
+    void concurrentRelaysPublishEachEventOnce() throws Exception {
+        for (long timestamp = 0; timestamp < 40; timestamp++) {
+            jdbcTemplate.update("INSERT INTO vote_event_outbox (election_id, candidate_id, location_id, event_timestamp) VALUES (1, 10, 5, ?)",
+                    timestamp);
+        }
+        List<Long> published = Collections.synchronizedList(new ArrayList<>());
+        // Both relays are inside a publish at the same time, each holding its claimed batch
+        CyclicBarrier bothPublishing = new CyclicBarrier(2);
+        VoteEventTransport transport = (events, ids, timeoutMs) -> {
+            bothPublishing.await(5, TimeUnit.SECONDS);
+            events.forEach(event -> published.add(event.getTimestamp()));
+        };
+        VoteEventOutboxRelay first = new VoteEventOutboxRelay(jdbcTemplate, transactionManager, transport, new SimpleMeterRegistry(), 4, 1000);
+        VoteEventOutboxRelay second = new VoteEventOutboxRelay(jdbcTemplate, transactionManager, transport, new SimpleMeterRegistry(), 4, 1000);
+
+        CountDownLatch done = new CountDownLatch(2);
+        for (VoteEventOutboxRelay node : List.of(first, second)) {
+            new Thread(() -> {
+                for (int i = 0; i < 5; i++) {
+                    node.relayBatch();
+                }
+                done.countDown();
+            }).start();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(40, published.size());
+        assertEquals(40, published.stream().distinct().count());
+        assertEquals(0, outboxSize());
+    }
+
+    @Test
+    void claimedRowsAreLeasedButNotLockedWhileTheBrokerIsWaitedFor() {
+        insertEvent(1L, 10L, null);
+        insertEvent(1L, 11L, null);
+        List<Integer> takenByOthers = new ArrayList<>();
+        VoteEventTransport transport = (events, ids, timeoutMs) -> {
+            // Another connection can write the claimed rows, so no lock is held during the publish
+            assertEquals(2, jdbcTemplate.update("UPDATE vote_event_outbox SET location_id = 6"));
+            assertEquals(2, jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM vote_event_outbox WHERE claimed_until > ?", Integer.class, System.currentTimeMillis()));
+            takenByOthers.add(new VoteEventOutboxRelay(jdbcTemplate, transactionManager, (e, i, t) -> {
+            }, new SimpleMeterRegistry(), 2, 1000).relayBatch());
+        };
+
+        new VoteEventOutboxRelay(jdbcTemplate, transactionManager, transport, new SimpleMeterRegistry(), 2, 1000).relayBatch();
+
+        assertEquals(List.of(0), takenByOthers);
+        assertEquals(0, outboxSize());
+    }
+
+    @Test
+    void rowsOfARelayThatDiedArePublishedOnceTheirLeaseRunsOut() {
+        insertEvent(1L, 10L, null);
+        jdbcTemplate.update("UPDATE vote_event_outbox SET claimed_until = ?", System.currentTimeMillis() + 60_000);
+
+        relay.relay();
+        assertEquals(0, producer.history().size());
+
+        jdbcTemplate.update("UPDATE vote_event_outbox SET claimed_until = ?", System.currentTimeMillis() - 1);
+        relay.relay();
+        assertEquals(1, producer.history().size());
+        assertEquals(0, outboxSize());
+    }
+
+    @Test
+    void keepsRowsUntilATransportThatIsNotDurableHasCheckpointedThem() {
+        for (int i = 0; i < 5; i++) {
+            insertEvent(1L, 10L, null);
+        }
+        List<Long> published = new ArrayList<>();
+        long[] durableBefore = {0};
+        VoteEventTransport ring = new VoteEventTransport() {
+            @Override
+            public void publish(List<VoteEvent> events, long[] ids, long timeoutMs) {
+                for (long id : ids) {
+                    published.add(id);
+                }
+            }
+
+            @Override
+            public long durableBefore() {
+                return durableBefore[0];
+            }
+        };
+        VoteEventOutboxRelay localRelay = new VoteEventOutboxRelay(jdbcTemplate, transactionManager, ring, new SimpleMeterRegistry(), 2, 1000);
+
+        localRelay.relay();
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), published);
+        assertEquals(5, outboxSize());
+
+        // Relayed rows are not handed over again while they wait for a checkpoint
+        insertEvent(1L, 11L, null);
+        localRelay.relay();
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), published);
+
+        durableBefore[0] = 4;
+        localRelay.relay();
+        assertEquals(3, outboxSize());
+
+        // After a restart the relay resumes at the checkpointed id
+        published.clear();
+        new VoteEventOutboxRelay(jdbcTemplate, transactionManager, ring, new SimpleMeterRegistry(), 2, 1000).relay();
+        assertEquals(List.of(4L, 5L, 6L), published);
+    }
+
+    private void insertEvent(Long electionId, Long candidateId, Long partyId) {
+        jdbcTemplate.update("INSERT INTO vote_event_outbox (election_id, candidate_id, party_id, location_id, event_timestamp) VALUES (?, ?, ?, ?, ?)",
+                electionId, candidateId, partyId, 5L, System.currentTimeMillis());
+    }
+
+    private int outboxSize() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vote_event_outbox", Integer.class);
+    }
+}
@@ -0,0 +1,115 @@
+package com.tu.votingapp.services.impl.stream;
+
+import com.tu.votingapp.KafkaConfig;
+import com.tu.votingapp.analytics.voting.AggregatorCheckpointService;
+import com.tu.votingapp.analytics.voting.AnalyticsOwnership;
+import com.tu.votingapp.analytics.voting.FeatureAggregator;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VoteStreamListenerTest {
+    private FeatureAggregator aggregator;
+    private AggregatorCheckpointService checkpoints;
+    private Acknowledgment ack;
+    private ReentrantLock lock;
+    private VoteStreamListener listener;
+
+    @BeforeEach
+    void setUp() {
+        aggregator = mock(FeatureAggregator.class);
+        checkpoints = mock(AggregatorCheckpointService.class);
+        ack = mock(Acknowledgment.class);
+        lock = new ReentrantLock();
+        when(checkpoints.batchLock()).thenReturn(lock);
+        listener = new VoteStreamListener(aggregator, checkpoints, mock(AnalyticsOwnership.class));
+    }
+
+    @Test
+    void acknowledgesOnlyAfterTheWholeBatchIsApplied() {
+        listener.onVoteEvents(List.of(
+                record(0, 10, new VoteEvent(1L, 42L, 3L, 7L, 100L)),
+                record(0, 11, new VoteEvent(1L, null, 3L, null, 101L)),
+                record(1, 5, new VoteEvent(2L, 43L, null, 8L, 102L))), ack);
+
+        InOrder order = inOrder(aggregator, checkpoints, ack);
+        order.verify(aggregator).aggregateVote(1L, false, 42L, 7L, 100L);
+        order.verify(aggregator).aggregateVote(1L, true, 3L, 0L, 101L);
+        order.verify(aggregator).aggregateVote(2L, false, 43L, 8L, 102L);
+        order.verify(checkpoints).consumed(KafkaConfig.VOTES_TOPIC, 0, 12);
+        order.verify(checkpoints).consumed(KafkaConfig.VOTES_TOPIC, 1, 6);
+        order.verify(ack).acknowledge();
+        assertFalse(lock.isLocked());
+    }
+
+    @Test
+    void failedBatchIsNeitherAcknowledgedNorCheckpointed() {
+        doThrow(new IllegalStateException("aggregator down"))
+                .when(aggregator).aggregateVote(2L, false, 43L, 8L, 102L);
+
+        assertThrows(IllegalStateException.class, () -> listener.onVoteEvents(List.of(
+                record(0, 10, new VoteEvent(1L, 42L, 3L, 7L, 100L)),
+                record(0, 11, new VoteEvent(2L, 43L, null, 8L, 102L))), ack));
+
+        verify(ack, never()).acknowledge();
+        verify(checkpoints, never()).consumed(anyString(), anyInt(), anyLong());
+        assertFalse(lock.isLocked());
+    }
+
+    @Test
+    void undecodableRecordsAreSkipped() {
+        byte[] unknownVersion = VoteEventCodec.encode(new VoteEvent(1L, 42L, 3L, 7L, 100L));
+        unknownVersion[0] = 99;
+
+        listener.onVoteEvents(List.of(
+                new ConsumerRecord<>(KafkaConfig.VOTES_TOPIC, 0, 10, "1", new byte[]{1, 2, 3}),
+                new ConsumerRecord<>(KafkaConfig.VOTES_TOPIC, 0, 11, "1", unknownVersion),
+                record(0, 12, new VoteEvent(1L, 44L, 3L, 7L, 103L))), ack);
+
+        verify(aggregator).aggregateVote(1L, false, 44L, 7L, 103L);
+        verify(aggregator, never()).aggregateVote(1L, false, 42L, 7L, 100L);
+        // The skipped records are committed with the batch so they are not redelivered
+        verify(checkpoints).consumed(KafkaConfig.VOTES_TOPIC, 0, 13);
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    void assignedPartitionsResumeAtTheirCheckpointOrReplayFromTheStart() {
+        TopicPartition checkpointed = new TopicPartition(KafkaConfig.VOTES_TOPIC, 0);
+        TopicPartition missing = new TopicPartition(KafkaConfig.VOTES_TOPIC, 1);
+        when(checkpoints.takeOver(checkpointed)).thenReturn(40L);
+        when(checkpoints.takeOver(missing)).thenReturn(null);
+        ConsumerSeekAware.ConsumerSeekCallback callback = mock(ConsumerSeekAware.ConsumerSeekCallback.class);
+
+        // The group had consumed partition 1 up to 75, but no checkpoint is found for it (logged as a warning)
+        listener.onPartitionsAssigned(Map.of(checkpointed, 90L, missing, 75L), callback);
+
+        verify(callback).seek(KafkaConfig.VOTES_TOPIC, 0, 40L);
+        verify(callback).seekToBeginning(List.of(missing));
+    }
+
+    private static ConsumerRecord<String, byte[]> record(int partition, long offset, VoteEvent event) {
+        return new ConsumerRecord<>(KafkaConfig.VOTES_TOPIC, partition, offset,
+                String.valueOf(event.getElectionId()), VoteEventCodec.encode(event));
+    }
+}
@@ -0,0 +1,81 @@
+package com.tu.votingapp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParticipationBitmapTest {
+
+    @Test
+    void containerSwitchesToABitmapAfter4096Values() {
+        ParticipationBitmap bitmap = new ParticipationBitmap();
+        // Every 16th low value, inserted from the top so each insert shifts the sorted array
+        for (int i = 4095; i >= 0; i--) {
+            assertTrue(bitmap.add(i * 16L));
+        }
+        assertEquals(16 + 4096 * 2 + 48, bitmap.sizeInBytes());
+
+        assertTrue(bitmap.add(1));
+        // A 65536-bit bitmap from here on, so further members no longer grow the container
+        long bitmapBytes = 16 + 1024 * 8 + 48;
+        assertEquals(bitmapBytes, bitmap.sizeInBytes());
+        for (int i = 0; i < 1000; i++) {
+            bitmap.add(i * 16L + 3);
+        }
+        assertEquals(bitmapBytes, bitmap.sizeInBytes());
+        assertEquals(5097, bitmap.getCardinality());
+        for (int i = 0; i < 4096; i++) {
+            assertTrue(bitmap.contains(i * 16L));
+            assertFalse(bitmap.contains(i * 16L + 2));
+        }
+        assertTrue(bitmap.contains(1));
+        assertFalse(bitmap.add(16 * 4095));
+        assertFalse(bitmap.add(1));
+        assertEquals(5097, bitmap.getCardinality());
+    }
+
+    @Test
+    void sparseAndHighKeysAreKeptApart() {
+        ParticipationBitmap bitmap = new ParticipationBitmap();
+        long[] values = {0, 65_535, 65_536, 1L << 32, (1L << 32) + 65_535, (1L << 48) + 7, Long.MAX_VALUE};
+        for (long value : values) {
+            assertTrue(bitmap.add(value));
+        }
+
+        for (long value : values) {
+            assertTrue(bitmap.contains(value), "missing " + value);
+        }
+        // Same low half as a member, different high key
+        assertFalse(bitmap.contains((2L << 32) + 65_535));
+        assertFalse(bitmap.contains(1));
+        assertFalse(bitmap.contains(Long.MAX_VALUE - 65_536));
+        assertEquals(values.length, bitmap.getCardinality());
+    }
+
+    @Test
+    void randomIdsMatchAHashSet() {
+        ParticipationBitmap bitmap = new ParticipationBitmap();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 50_000; i++) {
+            // Mostly in two dense blocks, some far apart
+            long id = random.nextInt(10) == 0 ? random.nextLong() >>> 1 : random.nextInt(2) * 1_000_000L + random.nextInt(12_000);
+            assertEquals(expected.add(id), bitmap.add(id));
+        }
+
+        assertEquals(expected.size(), bitmap.getCardinality());
+        for (long id : expected) {
+            assertTrue(bitmap.contains(id));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            long id = random.nextInt(2) * 1_000_000L + random.nextInt(20_000);
+            assertEquals(expected.contains(id), bitmap.contains(id));
+        }
+    }
+}